@@ -0,0 +1,505 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.benchmark;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseException;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The configuration of a benchmark run. A configuration is read from an XML document such as
+ * the following:
+ * <pre>
+ * &lt;benchmark name="stockquote" rate="500" duration="60" warmup="10" concurrency="200"&gt;
+ *   &lt;synapse home="/opt/synapse" xml="repository/conf/synapse.xml"
+ *            axis2xml="repository/conf/axis2.xml" repository="repository"/&gt;
+ *   &lt;target url="http://localhost:8280"/&gt;
+ *   &lt;backend port="9000" delay="5" contentType="text/xml" file="response.xml"/&gt;
+ *   &lt;requests order="weighted"&gt;
+ *     &lt;request name="getQuote" path="/services/StockQuoteProxy" weight="3"
+ *              contentType="text/xml; charset=UTF-8"&gt;
+ *       &lt;header name="SOAPAction" value="urn:getQuote"/&gt;
+ *       &lt;body file="getQuote.xml"/&gt;
+ *     &lt;/request&gt;
+ *   &lt;/requests&gt;
+ * &lt;/benchmark&gt;
+ * </pre>
+ * The <tt>rate</tt> is the number of requests per second sent to the target, the
+ * <tt>duration</tt> and <tt>warmup</tt> are given in seconds, and <tt>concurrency</tt> bounds
+ * the number of outstanding requests. The optional <tt>synapse</tt> element boots a Synapse
+ * instance in the benchmark JVM, and each <tt>backend</tt> element starts a local HTTP stub
+ * which echoes the request body unless a response is configured. The requests are replayed
+ * either in the recorded order (<tt>sequential</tt>) or picked at random according to their
+ * weights (<tt>weighted</tt>). Relative file names are resolved against the directory of the
+ * configuration file.
+ */
+public class BenchmarkConfiguration {
+
+    private static final Log log = LogFactory.getLog(BenchmarkConfiguration.class);
+
+    public static final String ORDER_SEQUENTIAL = "sequential";
+    public static final String ORDER_WEIGHTED = "weighted";
+
+    /**
+     * The configuration of a local HTTP stub backend
+     */
+    public static class Backend {
+
+        private int port;
+        private int status = 200;
+        private long delay = 0;
+        private String contentType;
+        private byte[] response;
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        /**
+         * @return time in milliseconds the backend waits before responding
+         */
+        public long getDelay() {
+            return delay;
+        }
+
+        public void setDelay(long delay) {
+            this.delay = delay;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public void setContentType(String contentType) {
+            this.contentType = contentType;
+        }
+
+        /**
+         * @return the body of the responses, or null if the backend echoes the requests
+         */
+        public byte[] getResponse() {
+            return response;
+        }
+
+        public void setResponse(byte[] response) {
+            this.response = response;
+        }
+    }
+
+    private String name = "benchmark";
+    private URL target;
+    private int rate = 100;
+    private int duration = 60;
+    private int warmup = 10;
+    private int concurrency = 100;
+    private int connections = 100;
+    private long timeout = 30000;
+    private String order = ORDER_WEIGHTED;
+
+    private String synapseHome;
+    private String synapseXml;
+    private String axis2Xml;
+    private String axis2Repository;
+
+    private final List<Backend> backends = new ArrayList<Backend>();
+    private final List<BenchmarkRequest> requests = new ArrayList<BenchmarkRequest>();
+
+    /**
+     * Reads a benchmark configuration from a file
+     *
+     * @param file the configuration file
+     * @return the benchmark configuration
+     * @throws IOException if the file cannot be read
+     */
+    public static BenchmarkConfiguration load(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            OMElement element = OMXMLBuilderFactory.createOMBuilder(in).getDocumentElement();
+            element.build();
+            return create(element, file.getAbsoluteFile().getParentFile());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Creates a benchmark configuration from its XML representation
+     *
+     * @param element the benchmark element
+     * @param baseDir the directory relative file names are resolved against
+     * @return the benchmark configuration
+     * @throws IOException if a file referred to by the configuration cannot be read
+     */
+    public static BenchmarkConfiguration create(OMElement element, File baseDir)
+            throws IOException {
+
+        if (!"benchmark".equals(element.getLocalName())) {
+            handleException("The root element of a benchmark configuration must be " +
+                    "'benchmark', found : " + element.getLocalName());
+        }
+
+        BenchmarkConfiguration config = new BenchmarkConfiguration();
+        String value = attribute(element, "name");
+        if (value != null) {
+            config.setName(value);
+        }
+        config.setRate(intAttribute(element, "rate", config.getRate(), 1));
+        config.setDuration(intAttribute(element, "duration", config.getDuration(), 1));
+        config.setWarmup(intAttribute(element, "warmup", config.getWarmup(), 0));
+        config.setConcurrency(intAttribute(element, "concurrency", config.getConcurrency(), 1));
+        config.setConnections(intAttribute(element, "connections", config.getConcurrency(), 1));
+        config.setTimeout(intAttribute(element, "timeout", (int) config.getTimeout(), 1));
+
+        OMElement synapse = element.getFirstChildWithName(new QName("synapse"));
+        if (synapse != null) {
+            config.setSynapseHome(attribute(synapse, "home"));
+            config.setSynapseXml(attribute(synapse, "xml"));
+            config.setAxis2Xml(attribute(synapse, "axis2xml"));
+            config.setAxis2Repository(attribute(synapse, "repository"));
+            if (config.getSynapseXml() == null) {
+                handleException("The synapse element requires the 'xml' attribute");
+            }
+        }
+
+        OMElement target = element.getFirstChildWithName(new QName("target"));
+        String url = target == null ? null : attribute(target, "url");
+        if (url == null) {
+            handleException("The target URL of the benchmark is not specified");
+        }
+        try {
+            config.setTarget(new URL(url));
+        } catch (MalformedURLException e) {
+            handleException("Invalid target URL : " + url, e);
+        }
+
+        Iterator backends = element.getChildrenWithName(new QName("backend"));
+        while (backends.hasNext()) {
+            OMElement backendElem = (OMElement) backends.next();
+            Backend backend = new Backend();
+            backend.setPort(intAttribute(backendElem, "port", 9000, 0));
+            backend.setStatus(intAttribute(backendElem, "status", backend.getStatus(), 100));
+            backend.setDelay(intAttribute(backendElem, "delay", 0, 0));
+            backend.setContentType(attribute(backendElem, "contentType"));
+            backend.setResponse(readContent(backendElem, baseDir));
+            config.getBackends().add(backend);
+        }
+
+        OMElement requests = element.getFirstChildWithName(new QName("requests"));
+        if (requests != null) {
+            value = attribute(requests, "order");
+            if (value != null) {
+                if (!ORDER_SEQUENTIAL.equals(value) && !ORDER_WEIGHTED.equals(value)) {
+                    handleException("The order of the requests must be either '" +
+                            ORDER_SEQUENTIAL + "' or '" + ORDER_WEIGHTED + "', found : " + value);
+                }
+                config.setOrder(value);
+            }
+            Iterator it = requests.getChildrenWithName(new QName("request"));
+            while (it.hasNext()) {
+                config.getRequests().add(createRequest((OMElement) it.next(), baseDir,
+                        config.getRequests().size()));
+            }
+        }
+        if (config.getRequests().isEmpty()) {
+            handleException("The benchmark configuration does not define any request");
+        }
+
+        return config;
+    }
+
+    private static BenchmarkRequest createRequest(OMElement element, File baseDir, int position)
+            throws IOException {
+
+        String name = attribute(element, "name");
+        BenchmarkRequest request = new BenchmarkRequest(
+                name != null ? name : "request" + position);
+        String value = attribute(element, "method");
+        if (value != null) {
+            request.setMethod(value.toUpperCase());
+        }
+        value = attribute(element, "path");
+        if (value != null) {
+            request.setPath(value);
+        }
+        request.setContentType(attribute(element, "contentType"));
+        request.setWeight(intAttribute(element, "weight", 1, 1));
+
+        Iterator headers = element.getChildrenWithName(new QName("header"));
+        while (headers.hasNext()) {
+            OMElement header = (OMElement) headers.next();
+            String headerName = attribute(header, "name");
+            if (headerName == null) {
+                handleException("A header of the request " + request.getName() +
+                        " does not have a name");
+            }
+            request.addHeader(headerName, header.getAttributeValue(new QName("value")));
+        }
+
+        OMElement body = element.getFirstChildWithName(new QName("body"));
+        if (body != null) {
+            request.setBody(readContent(body, baseDir));
+        }
+        return request;
+    }
+
+    /**
+     * Reads the content of an element, which is either the file named by its <tt>file</tt>
+     * attribute, its first child element or its text
+     */
+    private static byte[] readContent(OMElement element, File baseDir) throws IOException {
+        String fileName = attribute(element, "file");
+        if (fileName != null) {
+            File file = new File(fileName);
+            if (!file.isAbsolute() && baseDir != null) {
+                file = new File(baseDir, fileName);
+            }
+            return readFile(file);
+        }
+
+        String content;
+        if (element.getFirstElement() != null) {
+            content = element.getFirstElement().toString();
+        } else {
+            content = element.getText();
+            if (content == null || content.trim().length() == 0) {
+                return null;
+            }
+        }
+        try {
+            return content.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[4096];
+            int c;
+            while ((c = in.read(buffer)) != -1) {
+                out.write(buffer, 0, c);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String attribute(OMElement element, String name) {
+        String value = element.getAttributeValue(new QName(name));
+        return value == null || value.trim().length() == 0 ? null : value.trim();
+    }
+
+    private static int intAttribute(OMElement element, String name, int defaultValue,
+                                    int minValue) {
+        String value = attribute(element, name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int intValue = 0;
+        try {
+            intValue = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            handleException("Invalid value '" + value + "' for the attribute " + name +
+                    " of the element " + element.getLocalName());
+        }
+        if (intValue < minValue) {
+            handleException("The attribute " + name + " of the element " +
+                    element.getLocalName() + " must be at least " + minValue);
+        }
+        return intValue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public URL getTarget() {
+        return target;
+    }
+
+    public void setTarget(URL target) {
+        this.target = target;
+    }
+
+    /**
+     * @return number of requests per second sent to the target
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @return duration in seconds of the measured part of the run
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @return duration in seconds of the warm up, whose requests are not measured
+     */
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(int warmup) {
+        this.warmup = warmup;
+    }
+
+    /**
+     * @return maximum number of outstanding requests
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @return maximum number of connections opened to the target
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * @return time in milliseconds after which an outstanding request is counted as failed
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public String getOrder() {
+        return order;
+    }
+
+    public void setOrder(String order) {
+        this.order = order;
+    }
+
+    public String getSynapseHome() {
+        return synapseHome;
+    }
+
+    public void setSynapseHome(String synapseHome) {
+        this.synapseHome = synapseHome;
+    }
+
+    public String getSynapseXml() {
+        return synapseXml;
+    }
+
+    public void setSynapseXml(String synapseXml) {
+        this.synapseXml = synapseXml;
+    }
+
+    public String getAxis2Xml() {
+        return axis2Xml;
+    }
+
+    public void setAxis2Xml(String axis2Xml) {
+        this.axis2Xml = axis2Xml;
+    }
+
+    public String getAxis2Repository() {
+        return axis2Repository;
+    }
+
+    public void setAxis2Repository(String axis2Repository) {
+        this.axis2Repository = axis2Repository;
+    }
+
+    /**
+     * @return true if a Synapse instance has to be started for the benchmark
+     */
+    public boolean isStartSynapse() {
+        return synapseXml != null;
+    }
+
+    public List<Backend> getBackends() {
+        return backends;
+    }
+
+    public List<BenchmarkRequest> getRequests() {
+        return requests;
+    }
+
+    private static void handleException(String msg) {
+        log.error(msg);
+        throw new SynapseException(msg);
+    }
+
+    private static void handleException(String msg, Exception e) {
+        log.error(msg, e);
+        throw new SynapseException(msg, e);
+    }
+}
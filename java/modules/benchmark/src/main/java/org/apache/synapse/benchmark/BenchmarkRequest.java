@@ -0,0 +1,102 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recorded request replayed by the {@link LoadGenerator}
+ */
+public class BenchmarkRequest {
+
+    private final String name;
+    private String method = "POST";
+    private String path = "/";
+    private String contentType;
+    private byte[] body;
+    private int weight = 1;
+    private final List<String[]> headers = new ArrayList<String[]>();
+
+    /**
+     * @param name name of the request, used to report its latencies separately
+     */
+    public BenchmarkRequest(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public void setBody(byte[] body) {
+        this.body = body;
+    }
+
+    /**
+     * @return relative frequency of this request in a weighted request mix
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * @return the headers of the request as name and value pairs
+     */
+    public List<String[]> getHeaders() {
+        return headers;
+    }
+
+    public void addHeader(String name, String value) {
+        headers.add(new String[] {name, value});
+    }
+}
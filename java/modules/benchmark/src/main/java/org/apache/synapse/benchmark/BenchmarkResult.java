@@ -0,0 +1,321 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.benchmark;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The measurements of a benchmark run. Only the requests scheduled after the warm up are
+ * measured. The result is written as a JSON document, so that the results of different runs and
+ * versions can be compared by tools.
+ */
+public class BenchmarkResult {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * The measurements of one of the replayed requests
+     */
+    public static class RequestStats {
+
+        private final AtomicLong completed = new AtomicLong(0);
+        private final AtomicLong failed = new AtomicLong(0);
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        public long getCompleted() {
+            return completed.get();
+        }
+
+        public long getFailed() {
+            return failed.get();
+        }
+
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+    }
+
+    private final BenchmarkConfiguration config;
+    private final Map<String, RequestStats> requestStats = new LinkedHashMap<String, RequestStats>();
+    private final RequestStats totals = new RequestStats();
+    private final ConcurrentMap<Integer, AtomicLong> statusCodes =
+            new ConcurrentHashMap<Integer, AtomicLong>();
+    private final AtomicLong sent = new AtomicLong(0);
+
+    private long startTime;
+    private long elapsedNanos;
+    private JvmMetrics startMetrics;
+    private JvmMetrics endMetrics;
+
+    public BenchmarkResult(BenchmarkConfiguration config) {
+        this.config = config;
+        for (BenchmarkRequest request : config.getRequests()) {
+            if (!requestStats.containsKey(request.getName())) {
+                requestStats.put(request.getName(), new RequestStats());
+            }
+        }
+    }
+
+    /**
+     * Marks the start of the measured part of the run
+     */
+    void start() {
+        startTime = System.currentTimeMillis();
+        startMetrics = JvmMetrics.snapshot();
+    }
+
+    /**
+     * Marks the end of the measured part of the run
+     *
+     * @param elapsedNanos duration of the measured part of the run
+     */
+    void end(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+        endMetrics = JvmMetrics.snapshot();
+    }
+
+    void requestSent() {
+        sent.incrementAndGet();
+    }
+
+    /**
+     * Records a response. Responses with a status code of 400 or above are counted as failed
+     * requests, and their latency is not recorded.
+     */
+    void requestCompleted(BenchmarkRequest request, int statusCode, long latencyMicros) {
+        if (statusCode >= 400) {
+            requestFailed(request);
+        } else {
+            RequestStats stats = requestStats.get(request.getName());
+            stats.completed.incrementAndGet();
+            stats.latencies.record(latencyMicros);
+            totals.completed.incrementAndGet();
+            totals.latencies.record(latencyMicros);
+        }
+
+        AtomicLong count = statusCodes.get(statusCode);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong(0);
+            count = statusCodes.putIfAbsent(statusCode, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    void requestFailed(BenchmarkRequest request) {
+        requestStats.get(request.getName()).failed.incrementAndGet();
+        totals.failed.incrementAndGet();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getCompleted() {
+        return totals.getCompleted();
+    }
+
+    public long getFailed() {
+        return totals.getFailed();
+    }
+
+    /**
+     * @return latencies of all the measured requests
+     */
+    public LatencyHistogram getLatencies() {
+        return totals.getLatencies();
+    }
+
+    public RequestStats getRequestStats(String name) {
+        return requestStats.get(name);
+    }
+
+    /**
+     * @param statusCode an HTTP status code
+     * @return number of responses received with the given status code
+     */
+    public long getStatusCount(int statusCode) {
+        AtomicLong count = statusCodes.get(statusCode);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return completed requests per second
+     */
+    public double getThroughput() {
+        return elapsedNanos <= 0 ? 0 :
+                getCompleted() / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @return bytes allocated per completed request, or -1 if unknown
+     */
+    public long getAllocationPerRequest() {
+        if (startMetrics == null || endMetrics == null || startMetrics.getAllocatedBytes() < 0 ||
+                getCompleted() == 0) {
+            return -1;
+        }
+        return Math.max(0, endMetrics.getAllocatedBytes() - startMetrics.getAllocatedBytes()) /
+                getCompleted();
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String version = org.apache.synapse.ServerManager.class.getPackage() == null ? null :
+                org.apache.synapse.ServerManager.class.getPackage().getImplementationVersion();
+
+        json.append("{\n");
+        field(json, 1, "name", config.getName()).append(",\n");
+        field(json, 1, "synapseVersion", version == null ? "unknown" : version).append(",\n");
+        field(json, 1, "javaVersion", System.getProperty("java.version")).append(",\n");
+        field(json, 1, "timestamp", format.format(new Date(startTime))).append(",\n");
+        field(json, 1, "target", String.valueOf(config.getTarget())).append(",\n");
+        field(json, 1, "targetRate", config.getRate()).append(",\n");
+        field(json, 1, "concurrency", config.getConcurrency()).append(",\n");
+        field(json, 1, "durationSeconds", elapsedNanos / 1e9).append(",\n");
+        field(json, 1, "throughput", getThroughput()).append(",\n");
+        field(json, 1, "sent", getSent()).append(",\n");
+        field(json, 1, "completed", getCompleted()).append(",\n");
+        field(json, 1, "failed", getFailed()).append(",\n");
+
+        indent(json, 1).append("\"statusCodes\": {");
+        boolean first = true;
+        for (Map.Entry<Integer, AtomicLong> e :
+                new TreeMap<Integer, AtomicLong>(statusCodes).entrySet()) {
+            json.append(first ? "\n" : ",\n");
+            field(json, 2, String.valueOf(e.getKey()), e.getValue().get());
+            first = false;
+        }
+        if (!first) {
+            indent(json.append("\n"), 1);
+        }
+        json.append("},\n");
+
+        indent(json, 1).append("\"latencyMillis\": ");
+        latencies(json, 1, totals.getLatencies()).append(",\n");
+
+        indent(json, 1).append("\"gc\": {\n");
+        field(json, 2, "collections", endMetrics == null ? 0 :
+                endMetrics.getGcCount() - startMetrics.getGcCount()).append(",\n");
+        field(json, 2, "timeMillis", endMetrics == null ? 0 :
+                endMetrics.getGcTime() - startMetrics.getGcTime()).append("\n");
+        indent(json, 1).append("},\n");
+
+        field(json, 1, "allocatedBytesPerRequest", getAllocationPerRequest()).append(",\n");
+
+        indent(json, 1).append("\"requests\": {");
+        first = true;
+        for (Map.Entry<String, RequestStats> e : requestStats.entrySet()) {
+            json.append(first ? "\n" : ",\n");
+            indent(json, 2).append(quote(e.getKey())).append(": {\n");
+            field(json, 3, "completed", e.getValue().getCompleted()).append(",\n");
+            field(json, 3, "failed", e.getValue().getFailed()).append(",\n");
+            indent(json, 3).append("\"latencyMillis\": ");
+            latencies(json, 3, e.getValue().getLatencies()).append("\n");
+            indent(json, 2).append("}");
+            first = false;
+        }
+        json.append("\n");
+        indent(json, 1).append("}\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static StringBuilder latencies(StringBuilder json, int level,
+                                           LatencyHistogram histogram) {
+        json.append("{\n");
+        field(json, level + 1, "min", histogram.getMin() / 1000.0).append(",\n");
+        field(json, level + 1, "mean", histogram.getMean() / 1000.0).append(",\n");
+        for (double percentile : PERCENTILES) {
+            String name = "p" + (percentile == Math.floor(percentile) ?
+                    String.valueOf((int) percentile) : String.valueOf(percentile).replace(".", ""));
+            field(json, level + 1, name,
+                    histogram.getValueAtPercentile(percentile) / 1000.0).append(",\n");
+        }
+        field(json, level + 1, "max", histogram.getMax() / 1000.0).append("\n");
+        return indent(json, level).append("}");
+    }
+
+    private static StringBuilder field(StringBuilder json, int level, String name, Object value) {
+        indent(json, level).append(quote(name)).append(": ");
+        if (value instanceof Double) {
+            double d = (Double) value;
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                return json.append("null");
+            }
+            return json.append(String.format(Locale.US, "%.3f", d));
+        } else if (value instanceof Number) {
+            return json.append(value);
+        }
+        return json.append(quote(String.valueOf(value)));
+    }
+
+    private static StringBuilder indent(StringBuilder json, int level) {
+        for (int i = 0; i < level; i++) {
+            json.append("  ");
+        }
+        return json;
+    }
+
+    static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * A snapshot of the garbage collection and allocation counters of the JVM. The difference of
+ * two snapshots gives the GC activity and the memory allocated in between.
+ */
+public class JvmMetrics {
+
+    private final long gcCount;
+    private final long gcTime;
+    private final long allocatedBytes;
+
+    private JvmMetrics(long gcCount, long gcTime, long allocatedBytes) {
+        this.gcCount = gcCount;
+        this.gcTime = gcTime;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Takes a snapshot of the counters. The allocated bytes are the sum of the bytes allocated
+     * by the live threads, so the allocations of threads which terminate between two snapshots
+     * are not accounted for. They are -1 if the JVM does not measure thread allocations.
+     *
+     * @return the current values of the counters
+     */
+    public static JvmMetrics snapshot() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc.getCollectionCount() > 0) {
+                count += gc.getCollectionCount();
+            }
+            if (gc.getCollectionTime() > 0) {
+                time += gc.getCollectionTime();
+            }
+        }
+
+        long allocated = -1;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() &&
+                    sunThreads.isThreadAllocatedMemoryEnabled()) {
+                allocated = 0;
+                for (long bytes : sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                    if (bytes > 0) {
+                        allocated += bytes;
+                    }
+                }
+            }
+        }
+        return new JvmMetrics(count, time, allocated);
+    }
+
+    /**
+     * @return number of garbage collections since the start of the JVM
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return time in milliseconds spent in garbage collections since the start of the JVM
+     */
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    /**
+     * @return bytes allocated by the live threads, or -1 if unknown
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.benchmark;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpProcessorBuilder;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+import org.apache.synapse.SynapseException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the requests of a {@link BenchmarkConfiguration} against its target at the configured
+ * rate, using a non-blocking HTTP client. The load is open: requests are scheduled at fixed
+ * intervals whatever the response times are, and the latency of a request is measured from the
+ * time it was scheduled. Thus, when the target falls behind and the number of outstanding
+ * requests reaches the concurrency limit, the time requests wait for a free slot shows in the
+ * latencies instead of silently lowering the rate.
+ */
+public class LoadGenerator {
+
+    private static final Log log = LogFactory.getLog(LoadGenerator.class);
+
+    /** Seed of the weighted request selection, so that runs replay the same sequence */
+    private static final long SEED = 42;
+
+    private final BenchmarkConfiguration config;
+
+    public LoadGenerator(BenchmarkConfiguration config) {
+        this.config = config;
+    }
+
+    /**
+     * Runs the warm up and the measured part of the benchmark, and waits for the outstanding
+     * requests to complete
+     *
+     * @return the measurements of the run
+     * @throws IOException          if the HTTP client cannot be started
+     * @throws InterruptedException if the run is interrupted
+     */
+    public BenchmarkResult run() throws IOException, InterruptedException {
+        URL url = config.getTarget();
+        if (!"http".equalsIgnoreCase(url.getProtocol())) {
+            String msg = "Unsupported protocol in the target URL : " + url;
+            log.error(msg);
+            throw new SynapseException(msg);
+        }
+        HttpHost target = new HttpHost(url.getHost(),
+                url.getPort() == -1 ? url.getDefaultPort() : url.getPort(), "http");
+        String basePath = url.getPath();
+        if (basePath.endsWith("/")) {
+            basePath = basePath.substring(0, basePath.length() - 1);
+        }
+
+        HttpProcessor httpProcessor = HttpProcessorBuilder.create()
+                .add(new RequestContent())
+                .add(new RequestTargetHost())
+                .add(new RequestConnControl())
+                .add(new RequestUserAgent("SynapseBenchmark")).build();
+        final IOEventDispatch ioEventDispatch = new DefaultHttpClientIODispatch(
+                new HttpAsyncRequestExecutor(), ConnectionConfig.DEFAULT);
+        final ConnectingIOReactor ioReactor = new DefaultConnectingIOReactor(
+                IOReactorConfig.custom()
+                        .setIoThreadCount(Runtime.getRuntime().availableProcessors())
+                        .setConnectTimeout((int) config.getTimeout())
+                        .setSoTimeout((int) config.getTimeout())
+                        .setTcpNoDelay(true).build());
+        BasicNIOConnPool pool = new BasicNIOConnPool(ioReactor, ConnectionConfig.DEFAULT);
+        pool.setMaxTotal(config.getConnections());
+        pool.setDefaultMaxPerRoute(config.getConnections());
+
+        Thread reactorThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    ioReactor.execute(ioEventDispatch);
+                } catch (InterruptedIOException ignore) {
+                    // shutting down
+                } catch (IOException e) {
+                    log.error("I/O error in the load generator", e);
+                }
+            }
+        }, "benchmark-client");
+        reactorThread.start();
+
+        BenchmarkResult result = new BenchmarkResult(config);
+        try {
+            generate(new HttpAsyncRequester(httpProcessor), pool, target, basePath, result);
+        } finally {
+            pool.shutdown(1000);
+            ioReactor.shutdown(1000);
+            reactorThread.join(5000);
+        }
+        return result;
+    }
+
+    private void generate(HttpAsyncRequester requester, BasicNIOConnPool pool, HttpHost target,
+                          String basePath, final BenchmarkResult result)
+            throws InterruptedException {
+
+        final Semaphore permits = new Semaphore(config.getConcurrency());
+        RequestSelector selector = new RequestSelector(config.getRequests(),
+                BenchmarkConfiguration.ORDER_SEQUENTIAL.equals(config.getOrder()));
+
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(config.getWarmup());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(config.getDuration());
+        double interval = TimeUnit.SECONDS.toNanos(1) / (double) config.getRate();
+        boolean measuring = false;
+
+        log.info("Replaying " + config.getRequests().size() + " requests against " +
+                config.getTarget() + " at " + config.getRate() + " requests per second");
+
+        for (long i = 0; ; i++) {
+            final long scheduled = start + (long) (i * interval);
+            if (scheduled >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            if (!measuring && scheduled >= measureStart) {
+                log.info("Warm up completed, measuring for " + config.getDuration() + "s");
+                result.start();
+                measuring = true;
+            }
+
+            permits.acquire();
+            final BenchmarkRequest request = selector.next();
+            final boolean measured = measuring;
+            if (measured) {
+                result.requestSent();
+            }
+            requester.execute(new BasicAsyncRequestProducer(target,
+                    createHttpRequest(request, basePath)), new BasicAsyncResponseConsumer(),
+                    pool, HttpCoreContext.create(), new FutureCallback<HttpResponse>() {
+
+                public void completed(HttpResponse response) {
+                    try {
+                        if (measured) {
+                            result.requestCompleted(request,
+                                    response.getStatusLine().getStatusCode(),
+                                    (System.nanoTime() - scheduled) / 1000);
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                }
+
+                public void failed(Exception ex) {
+                    try {
+                        if (measured) {
+                            result.requestFailed(request);
+                        }
+                        if (log.isDebugEnabled()) {
+                            log.debug("Request " + request.getName() + " failed", ex);
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                }
+
+                public void cancelled() {
+                    try {
+                        if (measured) {
+                            result.requestFailed(request);
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        }
+        if (!measuring) {
+            result.start();
+        }
+
+        if (!permits.tryAcquire(config.getConcurrency(), config.getTimeout(),
+                TimeUnit.MILLISECONDS)) {
+            log.warn((config.getConcurrency() - permits.availablePermits()) +
+                    " requests were still outstanding at the end of the run");
+        }
+        result.end(System.nanoTime() - measureStart);
+    }
+
+    private HttpRequest createHttpRequest(BenchmarkRequest request, String basePath) {
+        String path = basePath + request.getPath();
+        BasicHttpRequest httpRequest;
+        if (request.getBody() != null) {
+            BasicHttpEntityEnclosingRequest enclosingRequest =
+                    new BasicHttpEntityEnclosingRequest(request.getMethod(), path);
+            enclosingRequest.setEntity(new NByteArrayEntity(request.getBody(),
+                    request.getContentType() == null ? ContentType.DEFAULT_BINARY :
+                            ContentType.parse(request.getContentType())));
+            httpRequest = enclosingRequest;
+        } else {
+            httpRequest = new BasicHttpRequest(request.getMethod(), path);
+        }
+        for (String[] header : request.getHeaders()) {
+            httpRequest.addHeader(header[0], header[1]);
+        }
+        return httpRequest;
+    }
+
+    /**
+     * Picks the next request to be sent, either in the recorded order or at random according
+     * to the weights of the requests. Only used by the thread scheduling the requests.
+     */
+    private static class RequestSelector {
+
+        private final BenchmarkRequest[] requests;
+        private final int[] cumulativeWeights;
+        private final boolean sequential;
+        private final Random random = new Random(SEED);
+        private int position = 0;
+
+        RequestSelector(List<BenchmarkRequest> requests, boolean sequential) {
+            this.requests = requests.toArray(new BenchmarkRequest[requests.size()]);
+            this.sequential = sequential;
+            cumulativeWeights = new int[this.requests.length];
+            int total = 0;
+            for (int i = 0; i < this.requests.length; i++) {
+                total += this.requests[i].getWeight();
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        BenchmarkRequest next() {
+            if (sequential) {
+                BenchmarkRequest request = requests[position];
+                position = (position + 1) % requests.length;
+                return request;
+            }
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int low = 0;
+            int high = cumulativeWeights.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeWeights[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return requests[low];
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.benchmark;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.DefaultHttpServerIODispatch;
+import org.apache.http.impl.nio.reactor.DefaultListeningIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestConsumer;
+import org.apache.http.nio.protocol.HttpAsyncExchange;
+import org.apache.http.nio.protocol.HttpAsyncRequestConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestHandler;
+import org.apache.http.nio.protocol.HttpAsyncService;
+import org.apache.http.nio.protocol.UriHttpAsyncRequestHandlerMapper;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.ListenerEndpoint;
+import org.apache.http.nio.reactor.ListeningIOReactor;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpProcessorBuilder;
+import org.apache.http.protocol.ResponseConnControl;
+import org.apache.http.protocol.ResponseContent;
+import org.apache.http.protocol.ResponseDate;
+import org.apache.http.protocol.ResponseServer;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A non-blocking HTTP server standing in for the backend services of a benchmarked Synapse
+ * configuration. It answers every request with a configured response, or echoes the request
+ * body if no response is configured. A configured delay is applied without holding an I/O
+ * thread, so that a slow backend can be simulated at high request rates.
+ */
+public class StubBackend {
+
+    private static final Log log = LogFactory.getLog(StubBackend.class);
+
+    private final BenchmarkConfiguration.Backend config;
+    private final AtomicLong requestCount = new AtomicLong(0);
+
+    private ListeningIOReactor ioReactor;
+    private ScheduledExecutorService delayExecutor;
+    private Thread reactorThread;
+    private int port;
+
+    public StubBackend(BenchmarkConfiguration.Backend config) {
+        this.config = config;
+    }
+
+    /**
+     * Starts listening on the configured port
+     *
+     * @throws IOException if the server cannot be started
+     */
+    public void start() throws IOException {
+        HttpProcessor httpProcessor = HttpProcessorBuilder.create()
+                .add(new ResponseDate())
+                .add(new ResponseServer("SynapseBenchmarkBackend"))
+                .add(new ResponseContent())
+                .add(new ResponseConnControl()).build();
+
+        UriHttpAsyncRequestHandlerMapper registry = new UriHttpAsyncRequestHandlerMapper();
+        registry.register("*", new StubRequestHandler());
+        final IOEventDispatch ioEventDispatch = new DefaultHttpServerIODispatch(
+                new HttpAsyncService(httpProcessor, registry), ConnectionConfig.DEFAULT);
+
+        if (config.getDelay() > 0) {
+            delayExecutor = Executors.newSingleThreadScheduledExecutor();
+        }
+        ioReactor = new DefaultListeningIOReactor(IOReactorConfig.custom()
+                .setIoThreadCount(Runtime.getRuntime().availableProcessors())
+                .setSoReuseAddress(true)
+                .setTcpNoDelay(true).build());
+        reactorThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    ioReactor.execute(ioEventDispatch);
+                } catch (InterruptedIOException ignore) {
+                    // shutting down
+                } catch (IOException e) {
+                    log.error("I/O error in the stub backend on port " + port, e);
+                }
+            }
+        }, "benchmark-backend-" + config.getPort());
+        reactorThread.start();
+
+        ListenerEndpoint endpoint = ioReactor.listen(new InetSocketAddress(config.getPort()));
+        try {
+            endpoint.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while starting the stub backend");
+        }
+        if (endpoint.getException() != null) {
+            stop();
+            IOException ioe = new IOException("Cannot listen on port " + config.getPort());
+            ioe.initCause(endpoint.getException());
+            throw ioe;
+        }
+        port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+        log.info("Stub backend listening on port " + port);
+    }
+
+    /**
+     * @return the port the backend listens on, which differs from the configured one if that
+     *         was zero
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return number of requests received
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public void stop() throws IOException {
+        if (delayExecutor != null) {
+            delayExecutor.shutdownNow();
+        }
+        ioReactor.shutdown();
+        try {
+            reactorThread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class StubRequestHandler implements HttpAsyncRequestHandler<HttpRequest> {
+
+        public HttpAsyncRequestConsumer<HttpRequest> processRequest(HttpRequest request,
+                                                                    HttpContext context) {
+            return new BasicAsyncRequestConsumer();
+        }
+
+        public void handle(HttpRequest request, final HttpAsyncExchange exchange,
+                           HttpContext context) throws HttpException, IOException {
+            requestCount.incrementAndGet();
+
+            HttpResponse response = exchange.getResponse();
+            response.setStatusCode(config.getStatus());
+            byte[] body = config.getResponse();
+            String contentType = config.getContentType();
+            if (body == null && request instanceof HttpEntityEnclosingRequest) {
+                HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+                if (entity != null) {
+                    body = EntityUtils.toByteArray(entity);
+                    if (contentType == null && entity.getContentType() != null) {
+                        contentType = entity.getContentType().getValue();
+                    }
+                }
+            }
+            if (body != null) {
+                response.setEntity(new NByteArrayEntity(body, contentType == null ?
+                        ContentType.DEFAULT_BINARY : ContentType.parse(contentType)));
+            }
+
+            if (delayExecutor == null) {
+                exchange.submitResponse();
+            } else {
+                delayExecutor.schedule(new Runnable() {
+                    public void run() {
+                        if (!exchange.isCompleted()) {
+                            exchange.submitResponse();
+                        }
+                    }
+                }, config.getDelay(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.benchmark;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.ServerConfigurationInformation;
+import org.apache.synapse.ServerManager;
+import org.apache.synapse.ServerState;
+import org.apache.synapse.SynapseException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a benchmark end to end in a single JVM: starts the stub backends, boots Synapse with the
+ * configuration under test, replays the recorded requests against it and writes the results
+ * as JSON. Usage:
+ * <pre>
+ * java org.apache.synapse.benchmark.SynapseBenchmark &lt;benchmark.xml&gt; [&lt;result.json&gt;]
+ * </pre>
+ * The results are written to the standard output if no result file is given. See
+ * {@link BenchmarkConfiguration} for the format of the benchmark configuration.
+ */
+public class SynapseBenchmark {
+
+    private static final Log log = LogFactory.getLog(SynapseBenchmark.class);
+
+    private final BenchmarkConfiguration config;
+    private final List<StubBackend> backends = new ArrayList<StubBackend>();
+    private ServerManager serverManager;
+
+    public SynapseBenchmark(BenchmarkConfiguration config) {
+        this.config = config;
+    }
+
+    /**
+     * Runs the benchmark
+     *
+     * @return the measurements of the run
+     * @throws Exception if the benchmark cannot be run
+     */
+    public BenchmarkResult run() throws Exception {
+        try {
+            for (BenchmarkConfiguration.Backend backendConfig : config.getBackends()) {
+                StubBackend backend = new StubBackend(backendConfig);
+                backend.start();
+                backends.add(backend);
+            }
+            if (config.isStartSynapse()) {
+                startSynapse();
+            }
+            return new LoadGenerator(config).run();
+        } finally {
+            if (serverManager != null) {
+                serverManager.shutdown();
+            }
+            for (StubBackend backend : backends) {
+                try {
+                    backend.stop();
+                } catch (IOException e) {
+                    log.warn("Error while stopping the stub backend on port " +
+                            backend.getPort(), e);
+                }
+            }
+        }
+    }
+
+    private void startSynapse() {
+        ServerConfigurationInformation information = new ServerConfigurationInformation();
+        String home = config.getSynapseHome() != null ?
+                config.getSynapseHome() : new File(".").getAbsolutePath();
+        information.setSynapseHome(home);
+        information.setSynapseXMLLocation(config.getSynapseXml());
+        information.setServerName("SynapseBenchmark");
+        if (config.getAxis2Xml() != null) {
+            information.setAxis2Xml(config.getAxis2Xml());
+        }
+        if (config.getAxis2Repository() != null) {
+            information.setAxis2RepoLocation(config.getAxis2Repository());
+            information.setResolveRoot(config.getAxis2Repository());
+        }
+
+        serverManager = new ServerManager();
+        serverManager.init(information, null);
+        if (serverManager.start() != ServerState.STARTED) {
+            String msg = "Synapse failed to start with the configuration " +
+                    config.getSynapseXml();
+            log.error(msg);
+            throw new SynapseException(msg);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: SynapseBenchmark <benchmark.xml> [<result.json>]");
+            System.exit(1);
+        }
+
+        BenchmarkConfiguration config = BenchmarkConfiguration.load(new File(args[0]));
+        BenchmarkResult result = new SynapseBenchmark(config).run();
+        String json = result.toJson();
+        if (args.length == 2) {
+            OutputStream out = new FileOutputStream(args[1]);
+            try {
+                out.write(json.getBytes("UTF-8"));
+            } finally {
+                out.close();
+            }
+            log.info("Benchmark results written to " + args[1]);
+        } else {
+            System.out.print(json);
+        }
+        System.exit(result.getFailed() == 0 ? 0 : 2);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.benchmark;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.synapse.SynapseException;
+
+import java.io.StringReader;
+
+public class LoadGeneratorTest extends TestCase {
+
+    private static final String CONFIG =
+            "<benchmark name=\"echo\" rate=\"200\" duration=\"1\" warmup=\"0\" concurrency=\"20\">\n" +
+            "  <target url=\"http://localhost:9000/services\"/>\n" +
+            "  <backend port=\"0\"/>\n" +
+            "  <requests order=\"weighted\">\n" +
+            "    <request name=\"getQuote\" path=\"/getQuote\" weight=\"3\" contentType=\"text/xml\">\n" +
+            "      <header name=\"SOAPAction\" value=\"urn:getQuote\"/>\n" +
+            "      <body><getQuote><symbol>IBM</symbol></getQuote></body>\n" +
+            "    </request>\n" +
+            "    <request name=\"ping\" method=\"get\" path=\"/ping\"/>\n" +
+            "  </requests>\n" +
+            "</benchmark>";
+
+    private BenchmarkConfiguration createConfiguration(String xml) throws Exception {
+        OMElement element = OMXMLBuilderFactory.createOMBuilder(
+                new StringReader(xml)).getDocumentElement();
+        return BenchmarkConfiguration.create(element, null);
+    }
+
+    public void testConfiguration() throws Exception {
+        BenchmarkConfiguration config = createConfiguration(CONFIG);
+        assertEquals("echo", config.getName());
+        assertEquals(200, config.getRate());
+        assertEquals(20, config.getConcurrency());
+        assertEquals(20, config.getConnections());
+        assertFalse(config.isStartSynapse());
+        assertEquals(1, config.getBackends().size());
+        assertNull(config.getBackends().get(0).getResponse());
+        assertEquals(2, config.getRequests().size());
+
+        BenchmarkRequest getQuote = config.getRequests().get(0);
+        assertEquals("POST", getQuote.getMethod());
+        assertEquals(3, getQuote.getWeight());
+        assertEquals("SOAPAction", getQuote.getHeaders().get(0)[0]);
+        assertTrue(new String(getQuote.getBody(), "UTF-8").contains("<symbol>IBM</symbol>"));
+
+        BenchmarkRequest ping = config.getRequests().get(1);
+        assertEquals("GET", ping.getMethod());
+        assertNull(ping.getBody());
+
+        try {
+            createConfiguration("<benchmark><target url=\"http://localhost\"/></benchmark>");
+            fail("A configuration without requests must be rejected");
+        } catch (SynapseException expected) {
+        }
+    }
+
+    public void testReplayAgainstStubBackend() throws Exception {
+        BenchmarkConfiguration config = createConfiguration(CONFIG);
+        StubBackend backend = new StubBackend(config.getBackends().get(0));
+        backend.start();
+        try {
+            config.setTarget(new java.net.URL("http://localhost:" + backend.getPort() +
+                    "/services"));
+            BenchmarkResult result = new LoadGenerator(config).run();
+
+            assertTrue(result.getSent() > 100);
+            assertEquals(result.getSent(), result.getCompleted());
+            assertEquals(0, result.getFailed());
+            assertEquals(result.getSent(), backend.getRequestCount());
+            assertTrue(result.getStatusCount(200) > 0);
+            assertEquals(result.getCompleted(), result.getRequestStats("getQuote").getCompleted()
+                    + result.getRequestStats("ping").getCompleted());
+            assertTrue(result.getRequestStats("getQuote").getCompleted() >
+                    result.getRequestStats("ping").getCompleted());
+
+            String json = result.toJson();
+            assertTrue(json.contains("\"name\": \"echo\""));
+            assertTrue(json.contains("\"p99\": "));
+            assertTrue(json.contains("\"getQuote\": {"));
+        } finally {
+            backend.stop();
+        }
+    }
+}
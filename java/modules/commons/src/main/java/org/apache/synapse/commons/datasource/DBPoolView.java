@@ -21,6 +21,7 @@ package org.apache.synapse.commons.datasource;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -32,6 +33,8 @@ public class DBPoolView implements DBPoolViewMBean {
     private int numIdle = 0;
     private final Map<String, Long> connectionsUsage = new HashMap<String, Long>();
     private String name;
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
 
     public DBPoolView(String name) {
         this.name = name;
@@ -77,9 +80,33 @@ public class DBPoolView implements DBPoolViewMBean {
         return connectionsUsage;
     }
 
+    public void incrementStatementCacheHits() {
+        statementCacheHits.incrementAndGet();
+    }
+
+    public void incrementStatementCacheMisses() {
+        statementCacheMisses.incrementAndGet();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    public double getStatementCacheHitRatio() {
+        long hits = statementCacheHits.get();
+        long total = hits + statementCacheMisses.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
     public void reset() {
         numActive = 0;
         numIdle = 0;
         connectionsUsage.clear();
+        statementCacheHits.set(0);
+        statementCacheMisses.set(0);
     }
 }
@@ -52,6 +52,27 @@ public interface DBPoolViewMBean {
      */
     public Map getConnectionUsage();
 
+    /**
+     * Number of prepared statements served from the per connection statement pool
+     *
+     * @return <code>long</code> number of statement cache hits
+     */
+    public long getStatementCacheHits();
+
+    /**
+     * Number of prepared statements that had to be prepared against the database
+     *
+     * @return <code>long</code> number of statement cache misses
+     */
+    public long getStatementCacheMisses();
+
+    /**
+     * Ratio of statement cache hits to all prepared statement requests
+     *
+     * @return <code>double</code> hit ratio between 0 and 1
+     */
+    public double getStatementCacheHitRatio();
+
     /**
      * reset statistics
      */
@@ -20,6 +20,9 @@
 package org.apache.synapse.commons.evaluators;
 
 import org.apache.axiom.om.OMElement;
+import org.apache.synapse.commons.evaluators.compiler.CompiledEvaluatorSet;
+import org.apache.synapse.commons.evaluators.compiler.Evaluation;
+import org.apache.synapse.commons.evaluators.compiler.EvaluatorCompiler;
 import org.apache.synapse.commons.evaluators.config.ConditionFactory;
 import org.apache.commons.logging.LogFactory;
 import org.apache.commons.logging.Log;
@@ -50,6 +53,9 @@ public class Parser {
     /** set of conditions to be evaluated */
     private Condition[] conditions = null;
 
+    /** the evaluators of the conditions, compiled to extract each source once per request */
+    private CompiledEvaluatorSet compiledConditions = null;
+
     /** Default priority to be used */
     private int defaultPriority = -1;
 
@@ -77,15 +83,16 @@ public class Parser {
      * @return priority as an integer
      */
     public int parse(EvaluatorContext context) {
-        for (Condition condition : conditions) {
+        Evaluation evaluation = compiledConditions.newEvaluation(context);
+        for (int i = 0; i < conditions.length; i++) {
             try {
-                if (condition.getEvaluator().evaluate(context)) {
-                    return condition.getPriority();
+                if (evaluation.evaluate(i)) {
+                    return conditions[i].getPriority();
                 }
             } catch (EvaluatorException e) {
                 String msg = "Error evaluating the "
                         + EvaluatorConstants.CONDITION + " with priority :"
-                        + condition.getPriority();
+                        + conditions[i].getPriority();
                 if (defaultPriority == -1) {
                     log.error(msg, e);
                 }
@@ -127,6 +134,12 @@ public class Parser {
 
         if (conditionList.size() > 1) {
             this.conditions = conditionList.toArray(new Condition[conditionList.size()]);
+
+            Evaluator[] evaluators = new Evaluator[conditions.length];
+            for (int i = 0; i < conditions.length; i++) {
+                evaluators[i] = conditions[i].getEvaluator();
+            }
+            this.compiledConditions = EvaluatorCompiler.compile(evaluators);
         } else if (conditionList.size() == 1 && defaultPriority == -1){
             handleException("No point in having one rule without a default priority");
         } else {
@@ -0,0 +1,72 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.evaluators.compiler;
+
+import org.apache.synapse.commons.evaluators.EvaluatorContext;
+
+/**
+ * An ordered set of evaluators compiled by the {@link EvaluatorCompiler}. The set is
+ * immutable and can be shared by any number of threads, each message being evaluated
+ * through its own {@link Evaluation}.
+ */
+public class CompiledEvaluatorSet {
+
+    private final Node[] roots;
+    private final SourceSlot[] slots;
+    private final int leafCount;
+
+    CompiledEvaluatorSet(Node[] roots, SourceSlot[] slots, int leafCount) {
+        this.roots = roots;
+        this.slots = slots;
+        this.leafCount = leafCount;
+    }
+
+    /**
+     * Start evaluating the set against a message
+     *
+     * @param context holds the information about the message
+     * @return a new evaluation for the message
+     */
+    public Evaluation newEvaluation(EvaluatorContext context) {
+        return new Evaluation(this, context, leafCount, slots.length);
+    }
+
+    /**
+     * Number of evaluators in the set
+     *
+     * @return the number of evaluators
+     */
+    public int size() {
+        return roots.length;
+    }
+
+    /**
+     * Number of distinct sources read by the evaluators in the set
+     *
+     * @return the number of sources
+     */
+    public int getSourceCount() {
+        return slots.length;
+    }
+
+    Node getRoot(int index) {
+        return roots[index];
+    }
+}
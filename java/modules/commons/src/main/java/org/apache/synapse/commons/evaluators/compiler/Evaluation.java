@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.evaluators.compiler;
+
+import org.apache.synapse.commons.evaluators.EvaluatorContext;
+import org.apache.synapse.commons.evaluators.EvaluatorException;
+
+/**
+ * The evaluation of a {@link CompiledEvaluatorSet} against a single message. It remembers the
+ * source texts already extracted and the conditions already resolved, so evaluating several
+ * evaluators of the set costs one extraction per source. An evaluation is not thread safe
+ * and must not outlive the message it was created for. If the message is modified between
+ * two calls, a new evaluation should be created so that the changes are seen.
+ */
+public class Evaluation {
+
+    private static final byte UNRESOLVED = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private static final Object NOT_EXTRACTED = new Object();
+
+    private final CompiledEvaluatorSet evaluatorSet;
+    private final EvaluatorContext context;
+
+    private final byte[] leaves;
+    private final Object[] sourceTexts;
+    private final boolean[] matched;
+
+    Evaluation(CompiledEvaluatorSet evaluatorSet, EvaluatorContext context,
+               int leafCount, int slotCount) {
+        this.evaluatorSet = evaluatorSet;
+        this.context = context;
+        this.leaves = new byte[leafCount];
+        this.sourceTexts = new Object[slotCount];
+        this.matched = new boolean[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            sourceTexts[i] = NOT_EXTRACTED;
+        }
+    }
+
+    /**
+     * Evaluate the evaluator at the given position of the compiled set
+     *
+     * @param index position of the evaluator in the compiled set
+     * @return result of the evaluator
+     * @throws EvaluatorException if an error occurs while evaluating
+     */
+    public boolean evaluate(int index) throws EvaluatorException {
+        return evaluatorSet.getRoot(index).evaluate(this);
+    }
+
+    /**
+     * Find the first evaluator at or after the given position which evaluates to true
+     *
+     * @param fromIndex position to start from
+     * @return position of the matching evaluator or -1 if none of them matches
+     * @throws EvaluatorException if an error occurs while evaluating
+     */
+    public int nextMatch(int fromIndex) throws EvaluatorException {
+        for (int i = fromIndex; i < evaluatorSet.size(); i++) {
+            if (evaluate(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public EvaluatorContext getContext() {
+        return context;
+    }
+
+    String getSourceText(SourceSlot slot) throws EvaluatorException {
+        Object text = sourceTexts[slot.getIndex()];
+        if (text == NOT_EXTRACTED) {
+            text = slot.getRetriever().getSourceText(context);
+            sourceTexts[slot.getIndex()] = text;
+        }
+        return (String) text;
+    }
+
+    boolean isResolved(int leaf) {
+        return leaves[leaf] != UNRESOLVED;
+    }
+
+    boolean isTrue(int leaf) {
+        return leaves[leaf] == TRUE;
+    }
+
+    void resolve(int leaf, boolean result) {
+        leaves[leaf] = result ? TRUE : FALSE;
+    }
+
+    /**
+     * Record that the combined pattern of a slot has been run
+     *
+     * @param slot the slot
+     * @return false if it had already been run for this message
+     */
+    boolean markMatched(SourceSlot slot) {
+        if (matched[slot.getIndex()]) {
+            return false;
+        }
+        matched[slot.getIndex()] = true;
+        return true;
+    }
+}
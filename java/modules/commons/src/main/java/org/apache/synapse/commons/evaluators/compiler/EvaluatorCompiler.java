@@ -0,0 +1,163 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.evaluators.compiler;
+
+import org.apache.synapse.commons.evaluators.AndEvaluator;
+import org.apache.synapse.commons.evaluators.EqualEvaluator;
+import org.apache.synapse.commons.evaluators.Evaluator;
+import org.apache.synapse.commons.evaluators.MatchEvaluator;
+import org.apache.synapse.commons.evaluators.NotEvaluator;
+import org.apache.synapse.commons.evaluators.OrEvaluator;
+import org.apache.synapse.commons.evaluators.source.HeaderTextRetriever;
+import org.apache.synapse.commons.evaluators.source.ParameterTextRetriever;
+import org.apache.synapse.commons.evaluators.source.PropertyTextRetriever;
+import org.apache.synapse.commons.evaluators.source.SOAPEnvelopeTextRetriever;
+import org.apache.synapse.commons.evaluators.source.SourceTextRetriever;
+import org.apache.synapse.commons.evaluators.source.URLTextRetriever;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles an ordered set of evaluator trees, as used by the priority {@link
+ * org.apache.synapse.commons.evaluators.Parser} or a conditional router, into a
+ * {@link CompiledEvaluatorSet}.</p>
+ * <p>
+ * Conditions of all the trees reading the same source share a single {@link SourceSlot}, so
+ * the source is extracted once per message whatever the number of conditions on it. Equal
+ * conditions on a source are answered together by one hash lookup and match conditions by one
+ * run of a pattern joining their regular expressions. The boolean operators keep their short
+ * circuit behaviour, and evaluators other than the built in ones are evaluated as they are.</p>
+ */
+public class EvaluatorCompiler {
+
+    private final List<SourceSlot> slots = new ArrayList<SourceSlot>();
+    private final Map<String, SourceSlot> slotsByKey = new HashMap<String, SourceSlot>();
+    private final Map<SourceTextRetriever, SourceSlot> slotsByRetriever =
+            new IdentityHashMap<SourceTextRetriever, SourceSlot>();
+    private int leafCount = 0;
+
+    private EvaluatorCompiler() {
+    }
+
+    /**
+     * Compile the given evaluators. The evaluators must not be modified afterwards.
+     *
+     * @param evaluators evaluators to be compiled, in the order they will be referred to
+     * @return the compiled evaluator set
+     */
+    public static CompiledEvaluatorSet compile(Evaluator... evaluators) {
+        EvaluatorCompiler compiler = new EvaluatorCompiler();
+        Node[] roots = new Node[evaluators.length];
+        for (int i = 0; i < evaluators.length; i++) {
+            roots[i] = compiler.compileNode(evaluators[i]);
+        }
+
+        for (SourceSlot slot : compiler.slots) {
+            slot.compile();
+        }
+        return new CompiledEvaluatorSet(roots,
+                compiler.slots.toArray(new SourceSlot[compiler.slots.size()]),
+                compiler.leafCount);
+    }
+
+    private Node compileNode(Evaluator evaluator) {
+        // exact class checks, a subclass may have changed the way it evaluates
+        Class type = evaluator != null ? evaluator.getClass() : null;
+
+        if (type == AndEvaluator.class && ((AndEvaluator) evaluator).getEvaluators() != null) {
+            return new Node.And(compileNodes(((AndEvaluator) evaluator).getEvaluators()));
+
+        } else if (type == OrEvaluator.class && ((OrEvaluator) evaluator).getEvaluators() != null) {
+            return new Node.Or(compileNodes(((OrEvaluator) evaluator).getEvaluators()));
+
+        } else if (type == NotEvaluator.class && ((NotEvaluator) evaluator).getEvaluator() != null) {
+            return new Node.Not(compileNode(((NotEvaluator) evaluator).getEvaluator()));
+
+        } else if (type == EqualEvaluator.class) {
+            EqualEvaluator equal = (EqualEvaluator) evaluator;
+            if (equal.getTextRetriever() != null && equal.getValue() != null) {
+                SourceSlot slot = getSlot(equal.getTextRetriever());
+                int leaf = leafCount++;
+                slot.addEqual(equal.getValue(), leaf);
+                return new Node.Equal(leaf, slot);
+            }
+
+        } else if (type == MatchEvaluator.class) {
+            MatchEvaluator match = (MatchEvaluator) evaluator;
+            if (match.getTextRetriever() != null && match.getRegex() != null) {
+                SourceSlot slot = getSlot(match.getTextRetriever());
+                int leaf = leafCount++;
+                return new Node.Match(leaf, slot, slot.addMatch(match.getRegex(), leaf));
+            }
+        }
+
+        return new Node.Delegate(evaluator);
+    }
+
+    private Node[] compileNodes(Evaluator[] evaluators) {
+        Node[] nodes = new Node[evaluators.length];
+        for (int i = 0; i < evaluators.length; i++) {
+            nodes[i] = compileNode(evaluators[i]);
+        }
+        return nodes;
+    }
+
+    /**
+     * Find the slot of a source. Retrievers of the built in types are identified by their
+     * type and source, any other retriever gets a slot of its own.
+     *
+     * @param retriever retriever of the source
+     * @return the slot of the source
+     */
+    private SourceSlot getSlot(SourceTextRetriever retriever) {
+        SourceSlot slot = slotsByRetriever.get(retriever);
+        if (slot != null) {
+            return slot;
+        }
+
+        String key = getSourceKey(retriever);
+        if (key != null) {
+            slot = slotsByKey.get(key);
+        }
+        if (slot == null) {
+            slot = new SourceSlot(slots.size(), retriever);
+            slots.add(slot);
+            if (key != null) {
+                slotsByKey.put(key, slot);
+            }
+        }
+        slotsByRetriever.put(retriever, slot);
+        return slot;
+    }
+
+    private static String getSourceKey(SourceTextRetriever retriever) {
+        Class type = retriever.getClass();
+        if (type == HeaderTextRetriever.class || type == ParameterTextRetriever.class ||
+                type == PropertyTextRetriever.class || type == URLTextRetriever.class ||
+                type == SOAPEnvelopeTextRetriever.class) {
+            return type.getName() + ":" + retriever.getSource();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.evaluators.compiler;
+
+import org.apache.synapse.commons.evaluators.Evaluator;
+import org.apache.synapse.commons.evaluators.EvaluatorException;
+
+/**
+ * A node of a compiled evaluator tree. Boolean operators are evaluated directly, while
+ * equal and match conditions are resolved through the {@link SourceSlot} of the source they
+ * read, so that all the conditions sharing a source are answered together.
+ */
+abstract class Node {
+
+    abstract boolean evaluate(Evaluation evaluation) throws EvaluatorException;
+
+    static class And extends Node {
+
+        private final Node[] children;
+
+        And(Node[] children) {
+            this.children = children;
+        }
+
+        boolean evaluate(Evaluation evaluation) throws EvaluatorException {
+            for (Node child : children) {
+                if (!child.evaluate(evaluation)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static class Or extends Node {
+
+        private final Node[] children;
+
+        Or(Node[] children) {
+            this.children = children;
+        }
+
+        boolean evaluate(Evaluation evaluation) throws EvaluatorException {
+            for (Node child : children) {
+                if (child.evaluate(evaluation)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static class Not extends Node {
+
+        private final Node child;
+
+        Not(Node child) {
+            this.child = child;
+        }
+
+        boolean evaluate(Evaluation evaluation) throws EvaluatorException {
+            return !child.evaluate(evaluation);
+        }
+    }
+
+    /**
+     * An equal condition. The first equal condition evaluated on a source looks the source
+     * text up in the value index of the slot, which resolves every equal condition of the slot.
+     */
+    static class Equal extends Node {
+
+        private final int leaf;
+        private final SourceSlot slot;
+
+        Equal(int leaf, SourceSlot slot) {
+            this.leaf = leaf;
+            this.slot = slot;
+        }
+
+        boolean evaluate(Evaluation evaluation) throws EvaluatorException {
+            if (!evaluation.isResolved(leaf)) {
+                slot.resolveEquals(evaluation);
+            }
+            return evaluation.isTrue(leaf);
+        }
+    }
+
+    /**
+     * A match condition. The first match condition evaluated on a source runs the combined
+     * pattern of the slot, which resolves the matched alternative and all the alternatives
+     * before it. Conditions left unresolved by that run fall back to their own pattern.
+     */
+    static class Match extends Node {
+
+        private final int leaf;
+        private final SourceSlot slot;
+        private final SourceSlot.Alternative alternative;
+
+        Match(int leaf, SourceSlot slot, SourceSlot.Alternative alternative) {
+            this.leaf = leaf;
+            this.slot = slot;
+            this.alternative = alternative;
+        }
+
+        boolean evaluate(Evaluation evaluation) throws EvaluatorException {
+            if (!evaluation.isResolved(leaf)) {
+                slot.resolveMatches(evaluation);
+            }
+            if (!evaluation.isResolved(leaf)) {
+                String text = evaluation.getSourceText(slot);
+                alternative.resolve(evaluation,
+                        text != null && alternative.getPattern().matcher(text).matches());
+            }
+            return evaluation.isTrue(leaf);
+        }
+    }
+
+    /**
+     * An evaluator the compiler does not know about, evaluated as it is.
+     */
+    static class Delegate extends Node {
+
+        private final Evaluator evaluator;
+
+        Delegate(Evaluator evaluator) {
+            this.evaluator = evaluator;
+        }
+
+        boolean evaluate(Evaluation evaluation) throws EvaluatorException {
+            return evaluator.evaluate(evaluation.getContext());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.evaluators.compiler;
+
+import org.apache.synapse.commons.evaluators.EvaluatorException;
+import org.apache.synapse.commons.evaluators.source.SourceTextRetriever;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A source (header, parameter, property, URL or XPath) read by one or more compiled
+ * conditions. The source text is extracted at most once per message, and the conditions
+ * reading it are indexed by the compiler:
+ * <ul>
+ *     <li>the values of all the equal conditions are kept in a single hash map</li>
+ *     <li>the regular expressions of all the match conditions are joined into a single
+ *     pattern of alternatives, each one wrapped in its own capturing group</li>
+ * </ul>
+ */
+class SourceSlot {
+
+    private final int index;
+    private final SourceTextRetriever retriever;
+
+    /** Leaves of the equal conditions, keyed by the case folded value they compare with */
+    private final Map<String, List<Integer>> equalValues = new HashMap<String, List<Integer>>();
+    private final List<Integer> equalLeaves = new ArrayList<Integer>();
+    private Map<String, int[]> equalIndex;
+    private int[] allEqualLeaves;
+
+    /** Distinct regular expressions of the match conditions, in the order of appearance */
+    private final List<Alternative> alternatives = new ArrayList<Alternative>();
+    private Pattern combinedPattern;
+    private Alternative[] combinedAlternatives;
+
+    SourceSlot(int index, SourceTextRetriever retriever) {
+        this.index = index;
+        this.retriever = retriever;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    SourceTextRetriever getRetriever() {
+        return retriever;
+    }
+
+    void addEqual(String value, int leaf) {
+        String key = fold(value);
+        List<Integer> leaves = equalValues.get(key);
+        if (leaves == null) {
+            leaves = new ArrayList<Integer>();
+            equalValues.put(key, leaves);
+        }
+        leaves.add(leaf);
+        equalLeaves.add(leaf);
+    }
+
+    Alternative addMatch(Pattern pattern, int leaf) {
+        for (Alternative alternative : alternatives) {
+            if (alternative.pattern.pattern().equals(pattern.pattern()) &&
+                    alternative.pattern.flags() == pattern.flags()) {
+                alternative.addLeaf(leaf);
+                return alternative;
+            }
+        }
+
+        Alternative alternative = new Alternative(pattern);
+        alternative.addLeaf(leaf);
+        alternatives.add(alternative);
+        return alternative;
+    }
+
+    /**
+     * Build the lookup structures once all the conditions have been added
+     */
+    void compile() {
+        equalIndex = new HashMap<String, int[]>();
+        for (Map.Entry<String, List<Integer>> entry : equalValues.entrySet()) {
+            equalIndex.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        allEqualLeaves = toArray(equalLeaves);
+
+        List<Alternative> combinable = new ArrayList<Alternative>();
+        for (Alternative alternative : alternatives) {
+            if (isCombinable(alternative.pattern)) {
+                combinable.add(alternative);
+            }
+        }
+        if (combinable.size() < 2) {
+            return;
+        }
+
+        StringBuilder regex = new StringBuilder();
+        int group = 1;
+        for (Alternative alternative : combinable) {
+            if (group > 1) {
+                regex.append('|');
+            }
+            regex.append('(').append(alternative.pattern.pattern()).append(')');
+            alternative.group = group;
+            group += alternative.pattern.matcher("").groupCount() + 1;
+        }
+
+        try {
+            Pattern pattern = Pattern.compile(regex.toString());
+            if (pattern.matcher("").groupCount() == group - 1) {
+                combinedPattern = pattern;
+                combinedAlternatives = combinable.toArray(new Alternative[combinable.size()]);
+            }
+        } catch (PatternSyntaxException ignore) {
+            // the conditions are matched one by one
+        }
+    }
+
+    /**
+     * Resolve all the equal conditions of this source with a single hash lookup
+     *
+     * @param evaluation the evaluation of the current message
+     * @throws EvaluatorException if the source text cannot be extracted
+     */
+    void resolveEquals(Evaluation evaluation) throws EvaluatorException {
+        String text = evaluation.getSourceText(this);
+        int[] matched = text != null ? equalIndex.get(fold(text)) : null;
+        for (int leaf : allEqualLeaves) {
+            evaluation.resolve(leaf, false);
+        }
+        if (matched != null) {
+            for (int leaf : matched) {
+                evaluation.resolve(leaf, true);
+            }
+        }
+    }
+
+    /**
+     * Run the combined pattern of this source once per message. With a full match, the
+     * alternatives are tried in order, so every alternative before the first one that
+     * captured did not match, and the alternatives after it are left unresolved.
+     *
+     * @param evaluation the evaluation of the current message
+     * @throws EvaluatorException if the source text cannot be extracted
+     */
+    void resolveMatches(Evaluation evaluation) throws EvaluatorException {
+        if (combinedPattern == null || !evaluation.markMatched(this)) {
+            return;
+        }
+
+        String text = evaluation.getSourceText(this);
+        if (text == null) {
+            for (Alternative alternative : alternatives) {
+                alternative.resolve(evaluation, false);
+            }
+            return;
+        }
+
+        Matcher matcher = combinedPattern.matcher(text);
+        boolean matches = matcher.matches();
+        for (Alternative alternative : combinedAlternatives) {
+            if (matches && matcher.start(alternative.group) != -1) {
+                alternative.resolve(evaluation, true);
+                return;
+            }
+            alternative.resolve(evaluation, false);
+        }
+    }
+
+    /**
+     * Fold the case of a string so that two strings are equal after folding exactly when
+     * {@link String#equalsIgnoreCase(String)} considers them equal
+     *
+     * @param value the string to fold
+     * @return the folded string
+     */
+    static String fold(String value) {
+        char[] chars = new char[value.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Patterns are only joined when wrapping them in a group cannot change what they match:
+     * no flags set on the pattern object, no back references which would be renumbered,
+     * and no quoting or comments which could swallow the closing parenthesis.
+     *
+     * @param pattern the pattern to check
+     * @return true if the pattern can be part of the combined pattern
+     */
+    private static boolean isCombinable(Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return false;
+        }
+        String regex = pattern.pattern();
+        if (regex.contains("\\Q") || regex.contains("\\k") || regex.contains("#")) {
+            return false;
+        }
+        for (int i = 0; i < regex.length() - 1; i++) {
+            if (regex.charAt(i) == '\\') {
+                if (Character.isDigit(regex.charAt(i + 1))) {
+                    return false;
+                }
+                i++;
+            }
+        }
+        return true;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * A distinct regular expression of this source and the match conditions using it
+     */
+    static class Alternative {
+
+        private final Pattern pattern;
+        private final List<Integer> leaves = new ArrayList<Integer>();
+        private int group = -1;
+
+        Alternative(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        Pattern getPattern() {
+            return pattern;
+        }
+
+        void addLeaf(int leaf) {
+            leaves.add(leaf);
+        }
+
+        void resolve(Evaluation evaluation, boolean result) {
+            for (int leaf : leaves) {
+                evaluation.resolve(leaf, result);
+            }
+        }
+    }
+}
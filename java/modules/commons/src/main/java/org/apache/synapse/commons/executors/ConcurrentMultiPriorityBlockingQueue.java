@@ -0,0 +1,510 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.executors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A MultiPriorityBlockingQueue that does not serialize the producers and consumers on a single
+ * lock. </p>
+ *
+ * <p> Each priority is backed by a lock-free queue, and the capacity of the fixed size queues
+ * is reserved with atomic counters. The next queue is selected with an atomic cursor over a
+ * weighted schedule in which every queue appears as many times as its priority, so that
+ * consumers take consecutive elements from a queue in proportion to its priority, like the
+ * PRRNextQueueAlgorithm, skipping over the empty queues. A lock is only used to park the
+ * consumers while all the queues are empty, and the producers while their queue is full. </p>
+ *
+ * <p> The InternalQueues given to this queue only describe the priorities and capacities, the
+ * elements are not stored in them. The NextQueueAlgorithm is not used. </p>
+ *
+ * @param <E> E should implement the Importance interface.
+ */
+public class ConcurrentMultiPriorityBlockingQueue<E> extends MultiPriorityBlockingQueue<E> {
+
+    /** Priorities of the queues, highest first */
+    private final int[] priorities;
+
+    /** Elements of each priority */
+    private final Queue<E>[] lanes;
+
+    /** Number of elements of each priority, including the ones being inserted */
+    private final AtomicInteger[] sizes;
+
+    /** Capacity of each priority */
+    private final int[] capacities;
+
+    /** Total capacity */
+    private final int capacity;
+
+    /** Index of the queue for each slot, every queue taking priority consecutive slots */
+    private final int[] schedule;
+
+    /** Position in the schedule, advanced by every poll */
+    private final AtomicLong cursor = new AtomicLong();
+
+    /** Number of elements in the queue */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /** Lock used only for parking */
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    /** Waiting queue for takes */
+    private final Condition notEmpty = waitLock.newCondition();
+
+    /** Waiting queue for puts */
+    private final Condition notFull = waitLock.newCondition();
+
+    /** Number of consumers parked or about to park */
+    private final AtomicInteger takeWaiters = new AtomicInteger();
+
+    /** Number of producers parked or about to park */
+    private final AtomicInteger putWaiters = new AtomicInteger();
+
+    /**
+     * Create a queue with the priorities and capacities of the given queues.
+     *
+     * @param queues list of InternalQueue describing the priorities
+     * @param isFixedQueues weather fixed size queues are used
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentMultiPriorityBlockingQueue(List<InternalQueue<E>> queues,
+                                                boolean isFixedQueues) {
+        super(queues, isFixedQueues, null);
+
+        // the queues are sorted by the super class, highest priority first
+        List<InternalQueue<E>> sorted = getQueues();
+        int n = sorted.size();
+        priorities = new int[n];
+        capacities = new int[n];
+        lanes = new Queue[n];
+        sizes = new AtomicInteger[n];
+
+        long totalCapacity = 0;
+        int weights = 0;
+        int gcd = 0;
+        for (int i = 0; i < n; i++) {
+            InternalQueue<E> q = sorted.get(i);
+            priorities[i] = q.getPriority();
+            capacities[i] = isFixedQueues ? q.getCapacity() : Integer.MAX_VALUE;
+            lanes[i] = new ConcurrentLinkedQueue<E>();
+            sizes[i] = new AtomicInteger();
+            totalCapacity += capacities[i];
+            gcd = gcd(gcd, Math.max(1, priorities[i]));
+        }
+        capacity = (int) Math.min(Integer.MAX_VALUE, totalCapacity);
+
+        for (int i = 0; i < n; i++) {
+            weights += Math.max(1, priorities[i]) / gcd;
+        }
+        schedule = new int[weights];
+        int slot = 0;
+        for (int i = 0; i < n; i++) {
+            for (int w = 0; w < Math.max(1, priorities[i]) / gcd; w++) {
+                schedule[slot++] = i;
+            }
+        }
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * Put the specified value in to the queue. The put will block until space available
+     * in the corresponding internal queue.
+     *
+     * @param e object that implements the Importance interface
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void put(E e) throws InterruptedException {
+        int index = getIndexForElement(e);
+        if (tryInsert(index, e)) {
+            return;
+        }
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        putWaiters.incrementAndGet();
+        try {
+            while (!tryInsert(index, e)) {
+                try {
+                    notFull.await();
+                } catch (InterruptedException ie) {
+                    notFull.signal();
+                    throw ie;
+                }
+            }
+        } finally {
+            putWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add the element if space available in the internal queue corresponding to the
+     * priority of the object.
+     *
+     * @param e element to be added
+     * @return true if element is added
+     */
+    public boolean offer(E e) {
+        return tryInsert(getIndexForElement(e), e);
+    }
+
+    /**
+     * Try to add the element within the given time period. This method blocks only if the
+     * internal queue corresponding to the priority of the element is full.
+     *
+     * @param e element to be added
+     * @param timeout time to wait if space not available
+     * @param unit time unit
+     * @return true if the element is added
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        int index = getIndexForElement(e);
+        if (tryInsert(index, e)) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        putWaiters.incrementAndGet();
+        try {
+            for (;;) {
+                if (tryInsert(index, e)) {
+                    return true;
+                }
+                if (nanos <= 0) {
+                    return false;
+                }
+                try {
+                    nanos = notFull.awaitNanos(nanos);
+                } catch (InterruptedException ie) {
+                    notFull.signal();
+                    throw ie;
+                }
+            }
+        } finally {
+            putWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get an element. Block until an element is available
+     *
+     * @return an element
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        // announce the consumer before checking again, so that a producer either sees it
+        // or the element it inserted is seen by the consumer
+        takeWaiters.incrementAndGet();
+        try {
+            while ((e = poll()) == null) {
+                try {
+                    notEmpty.await();
+                } catch (InterruptedException ie) {
+                    notEmpty.signal();
+                    throw ie;
+                }
+            }
+            return e;
+        } finally {
+            takeWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get an element. If an element is not available wait the specified timeout.
+     *
+     * @param timeout waiting time for element to be available
+     * @param unit time unit
+     * @return an object, null if the timeout expired
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        takeWaiters.incrementAndGet();
+        try {
+            for (;;) {
+                e = poll();
+                if (e != null) {
+                    return e;
+                }
+                if (nanos <= 0) {
+                    return null;
+                }
+                try {
+                    nanos = notEmpty.awaitNanos(nanos);
+                } catch (InterruptedException ie) {
+                    notEmpty.signal();
+                    throw ie;
+                }
+            }
+        } finally {
+            takeWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get an element without blocking. The queue to take from is selected by the weighted
+     * schedule, moving on to the next priorities if it is empty.
+     *
+     * @return an element, null if all the queues are empty
+     */
+    public E poll() {
+        if (count.get() <= 0) {
+            return null;
+        }
+        int start = schedule[(int) (cursor.getAndIncrement() % schedule.length)];
+        for (int i = 0; i < lanes.length; i++) {
+            int index = (start + i) % lanes.length;
+            E e = lanes[index].poll();
+            if (e != null) {
+                removed(index);
+                return e;
+            }
+        }
+        return null;
+    }
+
+    public E peek() {
+        for (Queue<E> lane : lanes) {
+            E e = lane.peek();
+            if (e != null) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * We always give high priority to highest priority elements. We try to drain all the
+     * high priority items first.
+     *
+     * @param c collection to drain the items
+     * @return number of elements copied
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * We always give high priority to highest priority elements. We try to drain all the
+     * high priority items first.
+     *
+     * @param c collection to drain the items
+     * @param maxElements maximum elements to copy
+     * @return number of elements copied
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        int elementsCopied = 0;
+        for (int i = 0; i < lanes.length && elementsCopied < maxElements; i++) {
+            E e;
+            while (elementsCopied < maxElements && (e = lanes[i].poll()) != null) {
+                removed(i);
+                c.add(e);
+                elementsCopied++;
+            }
+        }
+        return elementsCopied;
+    }
+
+    public int remainingCapacity() {
+        return capacity - count.get();
+    }
+
+    public int size() {
+        // the count is updated after the element is inserted and may be negative briefly
+        return Math.max(0, count.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean remove(Object o) {
+        for (int i = 0; i < lanes.length; i++) {
+            if (lanes[i].remove(o)) {
+                removed(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(Object o) {
+        for (Queue<E> lane : lanes) {
+            if (lane.contains(o)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        for (int i = 0; i < lanes.length; i++) {
+            while (lanes[i].poll() != null) {
+                removed(i);
+            }
+        }
+    }
+
+    public Iterator<E> iterator() {
+        final Iterator<E> snapshot = snapshot().iterator();
+        return new Iterator<E>() {
+            private E last;
+
+            public boolean hasNext() {
+                return snapshot.hasNext();
+            }
+
+            public E next() {
+                last = snapshot.next();
+                return last;
+            }
+
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                ConcurrentMultiPriorityBlockingQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    @SuppressWarnings({"SuspiciousToArrayCall"})
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    public Map<Integer, Integer> getQueueSizes() {
+        Map<Integer, Integer> map = new TreeMap<Integer, Integer>();
+        for (int i = 0; i < lanes.length; i++) {
+            map.put(priorities[i], sizes[i].get());
+        }
+        return map;
+    }
+
+    private List<E> snapshot() {
+        List<E> list = new ArrayList<E>();
+        for (Queue<E> lane : lanes) {
+            list.addAll(lane);
+        }
+        return list;
+    }
+
+    private boolean tryInsert(int index, E e) {
+        AtomicInteger size = sizes[index];
+        for (;;) {
+            int s = size.get();
+            if (s >= capacities[index]) {
+                return false;
+            }
+            if (size.compareAndSet(s, s + 1)) {
+                break;
+            }
+        }
+        lanes[index].offer(e);
+        count.incrementAndGet();
+        if (takeWaiters.get() > 0) {
+            signal(notEmpty, false);
+        }
+        return true;
+    }
+
+    private void removed(int index) {
+        sizes[index].decrementAndGet();
+        count.decrementAndGet();
+        if (putWaiters.get() > 0) {
+            // producers of different priorities wait on the same condition
+            signal(notFull, true);
+        }
+    }
+
+    private void signal(Condition condition, boolean all) {
+        final ReentrantLock lock = this.waitLock;
+        lock.lock();
+        try {
+            if (all) {
+                condition.signalAll();
+            } else {
+                condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getIndexForElement(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        int priority = ((Importance) e).getPriority();
+        for (int i = 0; i < priorities.length; i++) {
+            if (priorities[i] == priority) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+}
@@ -451,6 +451,25 @@ public class MultiPriorityBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Get the number of elements waiting in each of the internal queues
+     *
+     * @return a map of the number of elements keyed by the priority of the queue
+     */
+    public Map<Integer, Integer> getQueueSizes() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            Map<Integer, Integer> sizes = new TreeMap<Integer, Integer>();
+            for (InternalQueue<E> internalQueue : queues) {
+                sizes.put(internalQueue.getPriority(), internalQueue.size());
+            }
+            return sizes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private InternalQueue<E> getQueueForPriority(int priority) {
         for (InternalQueue<E> q : queues) {
             if (q.getPriority() == priority) {
@@ -53,6 +53,8 @@ public class PriorityExecutor {
     private String fileName;
     /** Weather executor is initializer */
     private boolean initialzed;
+    /** Per priority queue and wait time statistics */
+    private final PriorityExecutorView view = new PriorityExecutorView(this);
 
     /**
      * Execute a given task with the priority specified. If the task throws an exception,
@@ -119,6 +121,24 @@ public class PriorityExecutor {
         }
     }
 
+    /**
+     * Get the statistics view of the executor, which can be registered as an MBean
+     *
+     * @return the statistics view
+     */
+    public PriorityExecutorView getView() {
+        return view;
+    }
+
+    /**
+     * Get the number of threads actively executing tasks
+     *
+     * @return number of active threads, 0 if the executor is not initialized
+     */
+    public int getActiveCount() {
+        return initialzed ? executor.getActiveCount() : 0;
+    }
+
     /**
      * Set the name of the executor
      *
@@ -261,12 +281,16 @@ public class PriorityExecutor {
 
         private int priority = 1;
 
+        /** Time the worker was queued, to measure how long it waited for a thread */
+        private final long queuedTime = System.nanoTime();
+
         private Worker(Runnable runnable, int priority) {
             this.priority = priority;
             this.runnable = runnable;
         }
 
         public void run() {
+            view.taskStarted(priority, System.nanoTime() - queuedTime);
             try {
                 runnable.run();
             } catch (Throwable e) {
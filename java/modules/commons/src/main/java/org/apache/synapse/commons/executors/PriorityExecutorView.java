@@ -0,0 +1,119 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.executors;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PriorityExecutorView MBean can be used to monitor a PriorityExecutor per priority. For each
+ * priority it gives the number of tasks waiting in the queue, the number of tasks executed and
+ * the average and maximum time (in milliseconds) tasks waited in the queue before a thread
+ * picked them up. All maps are keyed by priority.
+ */
+public class PriorityExecutorView implements PriorityExecutorViewMBean {
+
+    private final PriorityExecutor executor;
+
+    private final ConcurrentMap<Integer, WaitStats> stats =
+            new ConcurrentHashMap<Integer, WaitStats>();
+
+    public PriorityExecutorView(PriorityExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Record that a task is picked up by a thread of the executor
+     *
+     * @param priority  priority of the task
+     * @param waitNanos time the task waited in the queue, in nanoseconds
+     */
+    void taskStarted(int priority, long waitNanos) {
+        WaitStats s = stats.get(priority);
+        if (s == null) {
+            WaitStats newStats = new WaitStats();
+            s = stats.putIfAbsent(priority, newStats);
+            if (s == null) {
+                s = newStats;
+            }
+        }
+        s.record(waitNanos);
+    }
+
+    public Map getQueueSizes() {
+        MultiPriorityBlockingQueue<Runnable> queue = executor.getQueue();
+        if (queue == null) {
+            return new TreeMap<Integer, Integer>();
+        }
+        return queue.getQueueSizes();
+    }
+
+    public Map getExecutedTasks() {
+        Map<Integer, Long> map = new TreeMap<Integer, Long>();
+        for (Map.Entry<Integer, WaitStats> e : stats.entrySet()) {
+            map.put(e.getKey(), e.getValue().count.get());
+        }
+        return map;
+    }
+
+    public Map getAverageWaitTimes() {
+        Map<Integer, Double> map = new TreeMap<Integer, Double>();
+        for (Map.Entry<Integer, WaitStats> e : stats.entrySet()) {
+            long count = e.getValue().count.get();
+            map.put(e.getKey(), count == 0 ? 0.0 :
+                    e.getValue().totalWait.get() / (count * 1000000.0));
+        }
+        return map;
+    }
+
+    public Map getMaxWaitTimes() {
+        Map<Integer, Double> map = new TreeMap<Integer, Double>();
+        for (Map.Entry<Integer, WaitStats> e : stats.entrySet()) {
+            map.put(e.getKey(), e.getValue().maxWait.get() / 1000000.0);
+        }
+        return map;
+    }
+
+    public int getActiveThreads() {
+        return executor.getActiveCount();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private static class WaitStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalWait = new AtomicLong();
+        private final AtomicLong maxWait = new AtomicLong();
+
+        private void record(long waitNanos) {
+            count.incrementAndGet();
+            totalWait.addAndGet(waitNanos);
+            long max = maxWait.get();
+            while (waitNanos > max && !maxWait.compareAndSet(max, waitNanos)) {
+                max = maxWait.get();
+            }
+        }
+    }
+}
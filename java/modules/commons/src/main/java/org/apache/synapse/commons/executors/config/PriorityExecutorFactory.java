@@ -48,6 +48,7 @@ public class PriorityExecutorFactory {
             new QName(ExecutorConstants.BEFORE_EXECUTE_HANDLER);
 
     public static final QName NEXT_QUEUE_ATT = new QName(ExecutorConstants.NEXT_QUEUE);
+    public static final QName CONCURRENT_ATT = new QName(ExecutorConstants.CONCURRENT);
 
     public static final QName MAX_ATT = new QName(ExecutorConstants.MAX);
     public static final QName CORE_ATT = new QName(ExecutorConstants.CORE);
@@ -101,8 +102,22 @@ public class PriorityExecutorFactory {
             List<InternalQueue<Runnable>> intQueues
                     = createQueues(queueQName, queuesEle, isFixedSize);
 
-            MultiPriorityBlockingQueue<Runnable> queue =
-                    new MultiPriorityBlockingQueue<Runnable>(intQueues, isFixedSize, nqa);
+            boolean isConcurrent = false;
+            OMAttribute concurrentAtt = queuesEle.getAttribute(CONCURRENT_ATT);
+            if (concurrentAtt != null) {
+                isConcurrent = Boolean.parseBoolean(concurrentAtt.getAttributeValue());
+            }
+
+            MultiPriorityBlockingQueue<Runnable> queue;
+            if (isConcurrent) {
+                if (nqa != null) {
+                    log.warn(ExecutorConstants.NEXT_QUEUE + " is ignored by " +
+                            ExecutorConstants.CONCURRENT + " queues");
+                }
+                queue = new ConcurrentMultiPriorityBlockingQueue<Runnable>(intQueues, isFixedSize);
+            } else {
+                queue = new MultiPriorityBlockingQueue<Runnable>(intQueues, isFixedSize, nqa);
+            }
 
             executor.setQueue(queue);
         } else {
@@ -57,6 +57,11 @@ public class PriorityExecutorSerializer {
                     algo.getClass().getName()));
         }
 
+        if (queue instanceof ConcurrentMultiPriorityBlockingQueue) {
+            queuesEle.addAttribute(fac.createOMAttribute(ExecutorConstants.CONCURRENT,
+                    nullNS, Boolean.toString(true)));
+        }
+
         if (!queue.isFixedSizeQueues()) {
             queuesEle.addAttribute(fac.createOMAttribute(ExecutorConstants.IS_FIXED_SIZE,
                     nullNS, Boolean.toString(false)));
@@ -0,0 +1,204 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.evaluators.compiler;
+
+import junit.framework.TestCase;
+import org.apache.synapse.commons.evaluators.AndEvaluator;
+import org.apache.synapse.commons.evaluators.EqualEvaluator;
+import org.apache.synapse.commons.evaluators.Evaluator;
+import org.apache.synapse.commons.evaluators.EvaluatorContext;
+import org.apache.synapse.commons.evaluators.EvaluatorException;
+import org.apache.synapse.commons.evaluators.MatchEvaluator;
+import org.apache.synapse.commons.evaluators.NotEvaluator;
+import org.apache.synapse.commons.evaluators.OrEvaluator;
+import org.apache.synapse.commons.evaluators.source.HeaderTextRetriever;
+import org.apache.synapse.commons.evaluators.source.ParameterTextRetriever;
+import org.apache.synapse.commons.evaluators.source.SourceTextRetriever;
+import org.apache.synapse.commons.evaluators.source.URLTextRetriever;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class EvaluatorCompilerTest extends TestCase {
+
+    private static final String[] VALUES = {"foo", "FOO", "bar", "foobar", "abc", "aa", "", null};
+
+    public void testSameResultsAsEvaluators() throws EvaluatorException {
+        Evaluator[] evaluators = {
+                equal(new HeaderTextRetriever("h1"), "foo"),
+                equal(new HeaderTextRetriever("h1"), "bar"),
+                match(new HeaderTextRetriever("h1"), "foo.*"),
+                match(new HeaderTextRetriever("h1"), "(?i)FOO"),
+                match(new HeaderTextRetriever("h1"), "(a)\\1"),
+                and(equal(new HeaderTextRetriever("h1"), "foobar"),
+                        match(new HeaderTextRetriever("h2"), "a.c")),
+                or(match(new HeaderTextRetriever("h2"), "a+"),
+                        equal(new ParameterTextRetriever("p"), "bar")),
+                not(equal(new HeaderTextRetriever("h2"), "abc")),
+                match(new HeaderTextRetriever("h2"), "[a-c]+"),
+                match(urlRetriever("path"), "/services/.*"),
+                equal(urlRetriever("path"), "/services/foo")
+        };
+        CompiledEvaluatorSet compiled = EvaluatorCompiler.compile(evaluators);
+        assertEquals(evaluators.length, compiled.size());
+        assertEquals(4, compiled.getSourceCount());
+
+        for (String h1 : VALUES) {
+            for (String h2 : VALUES) {
+                for (String p : new String[] {"foo", "bar"}) {
+                    EvaluatorContext context = createContext(h1, h2, p);
+                    Evaluation evaluation = compiled.newEvaluation(context);
+                    for (int i = 0; i < evaluators.length; i++) {
+                        assertEquals("evaluator " + i + " with h1=" + h1 + ", h2=" + h2,
+                                evaluators[i].evaluate(context), evaluation.evaluate(i));
+                    }
+
+                    // in reverse order, so that alternatives are resolved the other way around
+                    evaluation = compiled.newEvaluation(context);
+                    for (int i = evaluators.length - 1; i >= 0; i--) {
+                        assertEquals("evaluator " + i + " with h1=" + h1 + ", h2=" + h2,
+                                evaluators[i].evaluate(context), evaluation.evaluate(i));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testNextMatch() throws EvaluatorException {
+        CompiledEvaluatorSet compiled = EvaluatorCompiler.compile(
+                match(new HeaderTextRetriever("h1"), "a.*"),
+                match(new HeaderTextRetriever("h1"), "ab"),
+                match(new HeaderTextRetriever("h1"), "abc"),
+                match(new HeaderTextRetriever("h1"), "ab."));
+
+        Evaluation evaluation = compiled.newEvaluation(createContext("abc", null, null));
+        assertEquals(0, evaluation.nextMatch(0));
+        assertEquals(2, evaluation.nextMatch(1));
+        assertEquals(3, evaluation.nextMatch(3));
+
+        evaluation = compiled.newEvaluation(createContext("xyz", null, null));
+        assertEquals(-1, evaluation.nextMatch(0));
+    }
+
+    public void testSourceExtractedOnce() throws EvaluatorException {
+        CountingRetriever retriever = new CountingRetriever("h1");
+        Evaluator[] evaluators = new Evaluator[50];
+        for (int i = 0; i < evaluators.length; i++) {
+            if (i % 2 == 0) {
+                evaluators[i] = equal(retriever, "value" + i);
+            } else {
+                evaluators[i] = match(retriever, "value" + i + "[a-z]*");
+            }
+        }
+        CompiledEvaluatorSet compiled = EvaluatorCompiler.compile(evaluators);
+        assertEquals(1, compiled.getSourceCount());
+
+        Evaluation evaluation = compiled.newEvaluation(createContext("value49", null, null));
+        assertEquals(49, evaluation.nextMatch(0));
+        assertEquals(1, retriever.count);
+
+        evaluation = compiled.newEvaluation(createContext("none", null, null));
+        assertEquals(-1, evaluation.nextMatch(0));
+        assertEquals(2, retriever.count);
+    }
+
+    public void testCaseFolding() {
+        String[] values = {"foo", "FOO", "fOo", "\u0130", "i", "I", "\u0131", "\u00df", "SS"};
+        for (String a : values) {
+            for (String b : values) {
+                assertEquals(a + " and " + b, a.equalsIgnoreCase(b),
+                        SourceSlot.fold(a).equals(SourceSlot.fold(b)));
+            }
+        }
+    }
+
+    private EvaluatorContext createContext(String h1, String h2, String param) {
+        Map<String, String> headers = new HashMap<String, String>();
+        if (h1 != null) {
+            headers.put("h1", h1);
+        }
+        if (h2 != null) {
+            headers.put("h2", h2);
+        }
+        String url = "http://localhost:8280/services/" + (h1 != null ? h1 : "none");
+        if (param != null) {
+            url += "?p=" + param;
+        }
+        return new EvaluatorContext(url, headers);
+    }
+
+    private URLTextRetriever urlRetriever(String fragment) {
+        URLTextRetriever retriever = new URLTextRetriever();
+        retriever.setSource(fragment);
+        return retriever;
+    }
+
+    private Evaluator equal(SourceTextRetriever retriever, String value) {
+        EqualEvaluator equal = new EqualEvaluator();
+        equal.setTextRetriever(retriever);
+        equal.setValue(value);
+        return equal;
+    }
+
+    private Evaluator match(SourceTextRetriever retriever, String regex) {
+        MatchEvaluator match = new MatchEvaluator();
+        match.setTextRetriever(retriever);
+        match.setRegex(Pattern.compile(regex));
+        return match;
+    }
+
+    private Evaluator and(Evaluator... evaluators) {
+        AndEvaluator and = new AndEvaluator();
+        and.setEvaluators(evaluators);
+        return and;
+    }
+
+    private Evaluator or(Evaluator... evaluators) {
+        OrEvaluator or = new OrEvaluator();
+        or.setEvaluators(evaluators);
+        return or;
+    }
+
+    private Evaluator not(Evaluator evaluator) {
+        NotEvaluator not = new NotEvaluator();
+        not.setEvaluator(evaluator);
+        return not;
+    }
+
+    private static class CountingRetriever implements SourceTextRetriever {
+
+        private final String source;
+        private int count = 0;
+
+        CountingRetriever(String source) {
+            this.source = source;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public String getSourceText(EvaluatorContext context) throws EvaluatorException {
+            count++;
+            return context.getHeader(source);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.commons.executors;
+
+import org.apache.synapse.commons.executors.queues.UnboundedQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Compare the throughput of the MultiPriorityBlockingQueue and the
+ * ConcurrentMultiPriorityBlockingQueue with concurrent producers and consumers. This is not
+ * run as part of the tests, run it with
+ * <pre>java MultiPriorityBlockingQueueBenchmark [threads] [items per producer]</pre>
+ * Producers and consumers are started in equal numbers, the producers spreading their items
+ * over three priorities. Each implementation is measured a few times after a warm up.
+ */
+public class MultiPriorityBlockingQueueBenchmark {
+
+    private static final int[] PRIORITIES = {1, 10, 100};
+
+    private static final int WARMUP_ROUNDS = 3;
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int items = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        System.out.println("threads = " + threads + ", items per producer = " + items);
+        for (boolean concurrent : new boolean[] {false, true}) {
+            String name = concurrent ? "ConcurrentMultiPriorityBlockingQueue" :
+                    "MultiPriorityBlockingQueue";
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                run(createQueue(concurrent), threads, items);
+            }
+            double total = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                total += run(createQueue(concurrent), threads, items);
+            }
+            System.out.println(name + " : " + Math.round(total / ROUNDS) + " ops/s");
+        }
+    }
+
+    private static MultiPriorityBlockingQueue<DummyTask> createQueue(boolean concurrent) {
+        List<InternalQueue<DummyTask>> queues = new ArrayList<InternalQueue<DummyTask>>();
+        for (int p : PRIORITIES) {
+            queues.add(new UnboundedQueue<DummyTask>(p));
+        }
+        if (concurrent) {
+            return new ConcurrentMultiPriorityBlockingQueue<DummyTask>(queues, false);
+        }
+        return new MultiPriorityBlockingQueue<DummyTask>(queues, false, null);
+    }
+
+    /**
+     * Move items through the queue with the given number of producers and consumers.
+     *
+     * @return the number of items put and taken per second
+     */
+    private static double run(final MultiPriorityBlockingQueue<DummyTask> queue,
+                              int threads, final int items) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads * 2);
+        final DummyTask[] tasks = new DummyTask[PRIORITIES.length];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new DummyTask(PRIORITIES[i]);
+        }
+
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    await(start);
+                    for (int i = 0; i < items; i++) {
+                        queue.offer(tasks[i % tasks.length]);
+                    }
+                    done.countDown();
+                }
+            }).start();
+            new Thread(new Runnable() {
+                public void run() {
+                    await(start);
+                    try {
+                        for (int i = 0; i < items; i++) {
+                            queue.take();
+                        }
+                    } catch (InterruptedException ignore) {
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return (2.0 * threads * items) / (elapsed / 1000000000.0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ignore) {
+        }
+    }
+}
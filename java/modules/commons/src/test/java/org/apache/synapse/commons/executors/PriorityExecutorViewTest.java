@@ -0,0 +1,101 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.executors;
+
+import junit.framework.TestCase;
+import org.apache.synapse.commons.executors.queues.UnboundedQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the per priority statistics of the PriorityExecutor.
+ */
+public class PriorityExecutorViewTest extends TestCase {
+
+    private PriorityExecutor executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        List<InternalQueue<Runnable>> queues = new ArrayList<InternalQueue<Runnable>>();
+        queues.add(new UnboundedQueue<Runnable>(10));
+        queues.add(new UnboundedQueue<Runnable>(1));
+
+        executor = new PriorityExecutor();
+        executor.setCore(1);
+        executor.setMax(1);
+        executor.setQueue(new MultiPriorityBlockingQueue<Runnable>(queues, false, null));
+        executor.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.destroy();
+        super.tearDown();
+    }
+
+    public void testStatistics() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+
+        // occupy the only thread so that the following tasks are queued
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    blocked.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignore) {
+                }
+                done.countDown();
+            }
+        }, 10);
+
+        Runnable task = new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        };
+        executor.execute(task, 10);
+        executor.execute(task, 1);
+        executor.execute(task, 1);
+
+        PriorityExecutorView view = executor.getView();
+        Map sizes = view.getQueueSizes();
+        assertEquals(1, sizes.get(10));
+        assertEquals(2, sizes.get(1));
+
+        Thread.sleep(20);
+        blocked.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        // the counts are updated before the tasks run
+        Map executed = view.getExecutedTasks();
+        assertEquals(2L, executed.get(10));
+        assertEquals(2L, executed.get(1));
+        assertTrue((Double) view.getMaxWaitTimes().get(1) >= 20.0);
+        assertEquals(0, view.getQueueSizes().get(1));
+
+        view.reset();
+        assertTrue(view.getExecutedTasks().isEmpty());
+    }
+}
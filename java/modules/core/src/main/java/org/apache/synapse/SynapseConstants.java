@@ -100,6 +100,10 @@ public final class SynapseConstants {
     /** ServerManager MBean category and id */
     public static final String SERVER_MANAGER_MBEAN = "ServerManager";
     public static final String RECEIVING_SEQUENCE = "RECEIVING_SEQUENCE";
+    /** Holds the point from which a suspended mediation should be resumed */
+    public static final String CONTINUATION_STATE = "_SYNAPSE_CONTINUATION_STATE";
+    /** Handler which takes over the response of an asynchronously sent message */
+    public static final String RESPONSE_CONTINUATION = "_SYNAPSE_RESPONSE_CONTINUATION";
     public static final String SYNAPSE__FUNCTION__STACK = "_SYNAPSE_FUNCTION_STACK";
     public static final String SYNAPSE_WSDL_RESOLVER = "synapse.wsdl.resolver";
     public static final String SYNAPSE_SCHEMA_RESOLVER = "synapse.schema.resolver";
@@ -290,6 +294,12 @@ public final class SynapseConstants {
             = "synapse.sal.endpoints.sesssion.timeout.default";    
 
     public static final long SAL_ENDPOINTS_DEFAULT_SESSION_TIMEOUT = 120000;
+
+    public static final String PROP_SAL_ENDPOINT_MAX_SESSIONS
+            = "synapse.sal.endpoints.sessions.max";
+
+    /** No limit on the number of locally established SAL sessions */
+    public static final int SAL_ENDPOINTS_DEFAULT_MAX_SESSIONS = -1;
     
 
     /** A name to use for anonymous sequences in the sequence stack */
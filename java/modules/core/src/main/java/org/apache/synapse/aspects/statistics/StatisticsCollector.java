@@ -1,95 +1,252 @@
-/*
- *  Licensed to the Apache Software Foundation (ASF) under one
- *  or more contributor license agreements.  See the NOTICE file
- *  distributed with this work for additional information
- *  regarding copyright ownership.  The ASF licenses this file
- *  to you under the Apache License, Version 2.0 (the
- *  "License"); you may not use this file except in compliance
- *  with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing,
- *  software distributed under the License is distributed on an
- *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- *  KIND, either express or implied.  See the License for the
- *  specific language governing permissions and limitations
- *  under the License.
- */
-package org.apache.synapse.aspects.statistics;
-
-import org.apache.synapse.aspects.statistics.mbean.StatisticsView;
-import org.apache.synapse.commons.jmx.MBeanRegistrar;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
-/**
- * Collects statistics and provides those collected data
- */
-@SuppressWarnings("unused")
-public class StatisticsCollector {
-
-    private final ConcurrentLinkedQueue<StatisticsRecord> statisticsCollection =
-            new ConcurrentLinkedQueue<StatisticsRecord>();
-
-    public StatisticsCollector() {
-        MBeanRegistrar registrar = MBeanRegistrar.getInstance();
-        synchronized (registrar) {
-            registrar.registerMBean(new StatisticsView(this),
-                    "StatisticsView", "StatisticsView");
-        }
-    }
-
-    /**
-     * Registering a statistics record
-     *
-     * @param statisticsRecord statistics record instance
-     */
-    public void collect(StatisticsRecord statisticsRecord) {
-        this.statisticsCollection.offer(statisticsRecord);
-    }
-
-    /**
-     * Check whether given statistics record has  already been registered
-     *
-     * @param statisticsRecord statisticsRecord statistics record instance
-     * @return True if there
-     */
-    public boolean contains(StatisticsRecord statisticsRecord) {
-        return statisticsCollection.contains(statisticsRecord);
-    }
-
-    /**
-     * Clear all the existing statistics
-     */
-    public void clearStatistics() {
-        this.statisticsCollection.clear();
-    }
-
-    /**
-     * Returns All collected statistics records
-     *
-     * @return A list of StatisticsRecord
-     */
-    public List<StatisticsRecord> getStatisticsRecords() {
-        List<StatisticsRecord> records = new ArrayList<StatisticsRecord>();
-        records.addAll(statisticsCollection);
-        return records;
-    }
-
-    /**
-     * Return and clear collected statistics records
-     *
-     * @return A list of StatisticsRecord
-     */
-    public List<StatisticsRecord> getAndClearStatisticsRecords() {
-        List<StatisticsRecord> records = new ArrayList<StatisticsRecord>();
-        records.addAll(statisticsCollection);
-        for (StatisticsRecord record : records) {
-            statisticsCollection.remove(record);
-        }
-        return records;
-    }
-}
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.aspects.statistics;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.aspects.ComponentType;
+import org.apache.synapse.aspects.statistics.mbean.StatisticsView;
+import org.apache.synapse.aspects.statistics.view.InOutStatisticsView;
+import org.apache.synapse.aspects.statistics.view.Statistics;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Collects statistics and provides those collected data. Statistics records are not retained;
+ * each record is folded into per component counters as soon as it is collected. The counters
+ * are kept both as running totals and as a ring of fixed length time windows, so that the
+ * recent behaviour of a component can be inspected without any periodic cleanup.
+ */
+@SuppressWarnings("unused")
+public class StatisticsCollector {
+
+    private static final Log log = LogFactory.getLog(StatisticsCollector.class);
+
+    private static final long DEFAULT_WINDOW_INTERVAL = 1000 * 60;
+    private static final int DEFAULT_WINDOW_COUNT = 15;
+    private static final String WINDOW_INTERVAL = "statistics.window.interval";
+    private static final String WINDOW_COUNT = "statistics.window.count";
+
+    private static final ComponentType[] AGGREGATED_TYPES = {
+            ComponentType.PROXYSERVICE, ComponentType.SEQUENCE, ComponentType.ENDPOINT};
+
+    private final long windowInterval;
+    private final AtomicReferenceArray<StatisticsWindow> windows;
+    private volatile StatisticsWindow totals = new StatisticsWindow(-1);
+
+    public StatisticsCollector() {
+        this.windowInterval = getPositiveProperty(WINDOW_INTERVAL, DEFAULT_WINDOW_INTERVAL);
+        this.windows = new AtomicReferenceArray<StatisticsWindow>(
+                (int) getPositiveProperty(WINDOW_COUNT, DEFAULT_WINDOW_COUNT));
+        if (log.isDebugEnabled()) {
+            log.debug("Statistics will be aggregated over " + windows.length() +
+                    " windows of " + windowInterval / 1000 + " s.");
+        }
+
+        MBeanRegistrar registrar = MBeanRegistrar.getInstance();
+        synchronized (registrar) {
+            registrar.registerMBean(new StatisticsView(this),
+                    "StatisticsView", "StatisticsView");
+        }
+    }
+
+    private static long getPositiveProperty(String name, long defaultValue) {
+        String value = SynapsePropertiesLoader.getPropertyValue(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed > 0 && parsed <= Integer.MAX_VALUE) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        log.warn("Invalid value : " + value + " for " + name + ", must be a positive " +
+                "number. Using the default : " + defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Aggregates a statistics record into the running totals and the current time window
+     *
+     * @param statisticsRecord statistics record instance
+     */
+    public void collect(StatisticsRecord statisticsRecord) {
+        if (statisticsRecord == null) {
+            return;
+        }
+
+        StatisticsWindow window = getWindow(System.currentTimeMillis() / windowInterval);
+        StatisticsWindow currentTotals = totals;
+        StatisticsUpdateStrategy strategy = new StatisticsUpdateStrategy(statisticsRecord);
+        for (ComponentType type : AGGREGATED_TYPES) {
+            Iterator<String> logIds = statisticsRecord.getAllLogIds(type);
+            while (logIds.hasNext()) {
+                String id = logIds.next();
+                strategy.updateStatistics(id, type, currentTotals.getView(id, type));
+                strategy.updateStatistics(id, type, window.getView(id, type));
+            }
+        }
+    }
+
+    /**
+     * Clear all the existing statistics
+     */
+    public void clearStatistics() {
+        totals = new StatisticsWindow(-1);
+        for (int i = 0; i < windows.length(); i++) {
+            windows.set(i, null);
+        }
+    }
+
+    /**
+     * Returns the statistics collected for all the components of the given type since the
+     * startup, or since the statistics were last cleared
+     *
+     * @param type type of the components
+     * @return A map of statistics views keyed by the component id
+     */
+    public Map<String, InOutStatisticsView> getStatistics(ComponentType type) {
+        return new HashMap<String, InOutStatisticsView>(totals.getViews(type));
+    }
+
+    /**
+     * Returns the statistics collected for a given component since the startup, or since the
+     * statistics were last cleared
+     *
+     * @param id   id of the component
+     * @param type type of the component
+     * @return the statistics view of the component, or null if nothing has been collected
+     */
+    public InOutStatisticsView getStatistics(String id, ComponentType type) {
+        return totals.getViews(type).get(id);
+    }
+
+    /**
+     * Returns the statistics collected for all the components of the given type over the most
+     * recent time windows, including the window in progress
+     *
+     * @param type        type of the components
+     * @param windowCount number of windows to aggregate, capped at the number of retained windows
+     * @return A map of statistics views keyed by the component id
+     */
+    public Map<String, InOutStatisticsView> getRecentStatistics(ComponentType type,
+                                                                int windowCount) {
+
+        long currentIndex = System.currentTimeMillis() / windowInterval;
+        int count = Math.min(windowCount, windows.length());
+        Map<String, InOutStatisticsView> recent = new HashMap<String, InOutStatisticsView>();
+
+        for (int i = 0; i < windows.length(); i++) {
+            StatisticsWindow window = windows.get(i);
+            if (window == null || window.index <= currentIndex - count) {
+                continue;
+            }
+            for (InOutStatisticsView view : window.getViews(type).values()) {
+                InOutStatisticsView merged = recent.get(view.getResourceId());
+                if (merged == null) {
+                    merged = new InOutStatisticsView(view.getResourceId(), Statistics.ALL, type);
+                    recent.put(view.getResourceId(), merged);
+                }
+                merged.getInStatistics().merge(view.getInStatistics());
+                if (merged.getOutStatistics() != null) {
+                    merged.getOutStatistics().merge(view.getOutStatistics());
+                }
+            }
+        }
+        return recent;
+    }
+
+    /**
+     * @return the length of a statistics window in milliseconds
+     */
+    public long getWindowInterval() {
+        return windowInterval;
+    }
+
+    /**
+     * @return the number of statistics windows retained
+     */
+    public int getWindowCount() {
+        return windows.length();
+    }
+
+    private StatisticsWindow getWindow(long index) {
+        int slot = (int) (index % windows.length());
+        while (true) {
+            StatisticsWindow window = windows.get(slot);
+            if (window != null && window.index >= index) {
+                // a late reporter may find the slot already rolled over to a newer window
+                return window;
+            }
+            StatisticsWindow newWindow = new StatisticsWindow(index);
+            if (windows.compareAndSet(slot, window, newWindow)) {
+                return newWindow;
+            }
+        }
+    }
+
+    /**
+     * Statistics views of all the components, collected over one time window
+     */
+    private static class StatisticsWindow {
+
+        private final long index;
+        private final Map<ComponentType, ConcurrentMap<String, InOutStatisticsView>> views =
+                new EnumMap<ComponentType, ConcurrentMap<String, InOutStatisticsView>>(
+                        ComponentType.class);
+
+        StatisticsWindow(long index) {
+            this.index = index;
+            for (ComponentType type : AGGREGATED_TYPES) {
+                views.put(type, new ConcurrentHashMap<String, InOutStatisticsView>());
+            }
+        }
+
+        Map<String, InOutStatisticsView> getViews(ComponentType type) {
+            Map<String, InOutStatisticsView> typeViews = views.get(type);
+            if (typeViews == null) {
+                return new HashMap<String, InOutStatisticsView>();
+            }
+            return typeViews;
+        }
+
+        InOutStatisticsView getView(String id, ComponentType type) {
+            ConcurrentMap<String, InOutStatisticsView> typeViews = views.get(type);
+            InOutStatisticsView view = typeViews.get(id);
+            if (view == null) {
+                InOutStatisticsView newView = new InOutStatisticsView(id, Statistics.ALL, type);
+                view = typeViews.putIfAbsent(id, newView);
+                if (view == null) {
+                    view = newView;
+                }
+            }
+            return view;
+        }
+    }
+}
@@ -151,8 +151,8 @@ public class StatisticsReporter {
     }
 
     /**
-     * Ends statistics reporting for any component. Only at this point, the statistics record is put
-     * into the <code>StatisticsCollector </code>
+     * Ends statistics reporting for any component. Only at this point, the statistics record is
+     * aggregated by the <code>StatisticsCollector </code>
      * Any component means that this statistics log (check point) is valid for sequence, endpoint,
      * and proxy.
      *
@@ -201,9 +201,7 @@ public class StatisticsReporter {
 
         synCtx.getPropertyKeySet().remove(SynapseConstants.STATISTICS_STACK);
 
-        if (!collector.contains(record)) {
-            collector.collect(record);
-        }
+        collector.collect(record);
     }
 
     /**
@@ -26,14 +26,13 @@ import java.util.List;
 
 /**
  * Updates the given statistics base on statistics logs in the given statistics record.
- * This is to use only at viewing statistics
  */
 public class StatisticsUpdateStrategy {
 
-    private final StatisticsRecord statisticsRecord;
+    private final List<StatisticsLog> statisticsLogs;
 
     public StatisticsUpdateStrategy(StatisticsRecord statisticsRecord) {
-        this.statisticsRecord = statisticsRecord;
+        this.statisticsLogs = statisticsRecord.getAllStatisticsLogs();
     }
 
     public void updateStatistics(String id,
@@ -42,7 +41,6 @@ public class StatisticsUpdateStrategy {
 
         StatisticsLog startLog = null;
         StatisticsLog endLog = null;
-        final List<StatisticsLog> statisticsLogs = statisticsRecord.getAllStatisticsLogs();
         for (StatisticsLog log : statisticsLogs) {
 
             if (log == null) {
@@ -21,12 +21,10 @@ package org.apache.synapse.aspects.statistics.mbean;
 import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.aspects.statistics.StatisticsCollector;
 import org.apache.synapse.aspects.statistics.view.InOutStatisticsView;
-import org.apache.synapse.aspects.statistics.view.StatisticsViewStrategy;
-import org.apache.synapse.aspects.statistics.view.SystemViewStrategy;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @see org.apache.synapse.aspects.statistics.mbean.StatisticsViewMBean
@@ -34,70 +32,79 @@ import java.util.Map;
 public class StatisticsView implements StatisticsViewMBean {
 
     private final StatisticsCollector collector;
-    private final StatisticsViewStrategy systemViewStrategy = new SystemViewStrategy();
 
     public StatisticsView(StatisticsCollector collector) {
         this.collector = collector;
     }
 
     public List<String> getSystemEndpointStats(String id) {
-        return getAsList(
-                this.systemViewStrategy.determineView(id,
-                        collector.getStatisticsRecords(),
-                        ComponentType.ENDPOINT));
+        return getAsList(collector.getStatistics(id, ComponentType.ENDPOINT));
     }
 
     public List<String> getSystemSequenceStats(String id) {
-        return getAsList(this.systemViewStrategy.determineView(id,
-                collector.getStatisticsRecords(),
-                ComponentType.SEQUENCE));
+        return getAsList(collector.getStatistics(id, ComponentType.SEQUENCE));
     }
 
     public List<String> getSystemProxyServiceStats(String id) {
-        return getAsList(this.systemViewStrategy.determineView(id,
-                collector.getStatisticsRecords(),
-                ComponentType.PROXYSERVICE));
+        return getAsList(collector.getStatistics(id, ComponentType.PROXYSERVICE));
 
     }
 
     public List<String> getSystemEndpointsStats() {
-        return getAllStatsAsList(
-                this.systemViewStrategy.determineView(collector.getStatisticsRecords(),
-                        ComponentType.ENDPOINT));
+        return getAsList(collector.getStatistics(ComponentType.ENDPOINT).values());
     }
 
     public List<String> getSystemSequencesStats() {
-        return getAllStatsAsList(
-                this.systemViewStrategy.determineView(collector.getStatisticsRecords(),
-                        ComponentType.SEQUENCE));
+        return getAsList(collector.getStatistics(ComponentType.SEQUENCE).values());
     }
 
     public List<String> getSystemProxyServicesStats() {
-        return getAllStatsAsList(
-                this.systemViewStrategy.determineView(collector.getStatisticsRecords(),
-                        ComponentType.PROXYSERVICE));
+        return getAsList(collector.getStatistics(ComponentType.PROXYSERVICE).values());
 
     }
 
+    public List<String> getRecentEndpointsStats(int windowCount) {
+        return getAsList(collector.getRecentStatistics(
+                ComponentType.ENDPOINT, windowCount).values());
+    }
+
+    public List<String> getRecentSequencesStats(int windowCount) {
+        return getAsList(collector.getRecentStatistics(
+                ComponentType.SEQUENCE, windowCount).values());
+    }
+
+    public List<String> getRecentProxyServicesStats(int windowCount) {
+        return getAsList(collector.getRecentStatistics(
+                ComponentType.PROXYSERVICE, windowCount).values());
+    }
+
+    public long getWindowInterval() {
+        return collector.getWindowInterval();
+    }
+
+    public int getWindowCount() {
+        return collector.getWindowCount();
+    }
+
     public void clearAllStatistics() {
         this.collector.clearStatistics();
     }
 
-    private List<String> getAsList(Map<String, InOutStatisticsView> viewMap) {
+    private List<String> getAsList(InOutStatisticsView view) {
         List<String> returnList = new ArrayList<String>();
-        for (InOutStatisticsView view : viewMap.values()) {
-            if (view != null) {
-                returnList.add(view.toString());
-            }
+        if (view != null) {
+            returnList.add(view.toString());
         }
         return returnList;
     }
 
-    private List<String> getAllStatsAsList(Map<String, Map<String, InOutStatisticsView>> statsMap) {
-        List<String> tobeReturn = new ArrayList<String>();
-        for (Map<String, InOutStatisticsView> viewMap : statsMap.values()) {
-            tobeReturn.addAll(getAsList(viewMap));
+    private List<String> getAsList(Collection<InOutStatisticsView> views) {
+        List<String> returnList = new ArrayList<String>();
+        for (InOutStatisticsView view : views) {
+            if (view != null) {
+                returnList.add(view.toString());
+            }
         }
-        return tobeReturn;
+        return returnList;
     }
 }
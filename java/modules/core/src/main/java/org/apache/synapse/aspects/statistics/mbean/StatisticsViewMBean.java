@@ -37,5 +37,15 @@ public interface StatisticsViewMBean {
 
     List<String> getSystemProxyServicesStats();
 
+    List<String> getRecentEndpointsStats(int windowCount);
+
+    List<String> getRecentSequencesStats(int windowCount);
+
+    List<String> getRecentProxyServicesStats(int windowCount);
+
+    long getWindowInterval();
+
+    int getWindowCount();
+
     void clearAllStatistics();
 }
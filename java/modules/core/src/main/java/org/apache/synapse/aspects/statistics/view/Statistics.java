@@ -22,9 +22,16 @@ import org.apache.synapse.aspects.statistics.ErrorLog;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * The statistics data structure
+ * The statistics data structure. All the counters are updated in place using atomic
+ * operations, so that a single instance can be shared by the threads reporting statistics
+ * without any locking.
  */
 
 public class Statistics {
@@ -32,37 +39,51 @@ public class Statistics {
     public static final String ALL = "all";
 
     /**
-     * Maximum processing time for a one way flow
+     * Upper bounds (inclusive, in milliseconds) of the processing time histogram buckets.
+     * The last bucket holds everything above the last bound.
      */
-    private long maxProcessingTime = 0;
+    public static final long[] LATENCY_BUCKETS =
+            {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000};
+
     /**
-     * Minimum processing time for a one way flow
+     * Maximum number of error log entries retained for a one way flow
+     */
+    private static final int MAX_ERROR_LOGS = 100;
+
+    /**
+     * Maximum processing time for a one way flow
      */
-    private long minProcessingTime = -1;
+    private final AtomicLong maxProcessingTime = new AtomicLong(0);
     /**
-     * Average processing time for a one way flow
+     * Minimum processing time for a one way flow
      */
-    private double avgProcessingTime = 0;
+    private final AtomicLong minProcessingTime = new AtomicLong(-1);
     /**
      * Total processing time for a one way flow
      */
-    private double totalProcessingTime;
+    private final AtomicLong totalProcessingTime = new AtomicLong(0);
     /**
      * The number of access count for a one way flow
      */
-    private int count = 0;
+    private final AtomicInteger count = new AtomicInteger(0);
     /**
      * The number of fault count for a one way flow
      */
-    private int faultCount = 0;
+    private final AtomicInteger faultCount = new AtomicInteger(0);
+    /**
+     * Processing time histogram, one counter per bucket in LATENCY_BUCKETS plus an overflow
+     */
+    private final AtomicLongArray latencyHistogram =
+            new AtomicLongArray(LATENCY_BUCKETS.length + 1);
     /**
      * Identifier for this statistics , whose statistics
      */
     private String id;
     /**
-     * List of Error log entries
+     * Most recent error log entries
      */
-    private final List<ErrorLog> errorLogs = new ArrayList<ErrorLog>();
+    private final Queue<ErrorLog> errorLogs = new ConcurrentLinkedQueue<ErrorLog>();
+    private final AtomicInteger errorLogCount = new AtomicInteger(0);
 
     public Statistics(String id) {
         this.id = id;
@@ -80,57 +101,136 @@ public class Statistics {
             return;
         }
 
-        count++;
+        count.incrementAndGet();
         if (isFault) {
-            faultCount++;
+            faultCount.incrementAndGet();
         }
+        totalProcessingTime.addAndGet(currentProcessingTime);
+        latencyHistogram.incrementAndGet(bucketOf(currentProcessingTime));
 
-        if (maxProcessingTime < currentProcessingTime) {
-            maxProcessingTime = currentProcessingTime;
+        long max;
+        while ((max = maxProcessingTime.get()) < currentProcessingTime) {
+            if (maxProcessingTime.compareAndSet(max, currentProcessingTime)) {
+                break;
+            }
         }
-        if (minProcessingTime > currentProcessingTime) {
-            minProcessingTime = currentProcessingTime;
+        long min;
+        while ((min = minProcessingTime.get()) == -1 || min > currentProcessingTime) {
+            if (minProcessingTime.compareAndSet(min, currentProcessingTime)) {
+                break;
+            }
         }
-        if (minProcessingTime == -1) {
-            minProcessingTime = currentProcessingTime;
+    }
+
+    /**
+     * Adds the counters of the given statistics to this statistics. Error logs are not merged.
+     *
+     * @param other statistics to be merged into this one
+     */
+    public void merge(Statistics other) {
+        if (other == null || other.getCount() == 0) {
+            return;
+        }
+
+        count.addAndGet(other.getCount());
+        faultCount.addAndGet(other.getFaultCount());
+        totalProcessingTime.addAndGet(other.totalProcessingTime.get());
+        for (int i = 0; i < latencyHistogram.length(); i++) {
+            latencyHistogram.addAndGet(i, other.latencyHistogram.get(i));
+        }
+
+        long otherMax = other.getMaxProcessingTime();
+        long max;
+        while ((max = maxProcessingTime.get()) < otherMax) {
+            if (maxProcessingTime.compareAndSet(max, otherMax)) {
+                break;
+            }
+        }
+        long otherMin = other.getMinProcessingTime();
+        long min;
+        while ((min = minProcessingTime.get()) == -1 || min > otherMin) {
+            if (minProcessingTime.compareAndSet(min, otherMin)) {
+                break;
+            }
         }
-        totalProcessingTime = totalProcessingTime + currentProcessingTime;
-        avgProcessingTime = totalProcessingTime / count;
     }
 
     /**
      * @return Returns the Maximum processing time
      */
     public long getMaxProcessingTime() {
-        return maxProcessingTime;
+        return maxProcessingTime.get();
     }
 
     /**
      * @return Returns the Average processing time
      */
     public double getAvgProcessingTime() {
-        return avgProcessingTime;
+        int currentCount = count.get();
+        if (currentCount == 0) {
+            return 0;
+        }
+        return (double) totalProcessingTime.get() / currentCount;
     }
 
     /**
      * @return Returns the minimum processing time
      */
     public long getMinProcessingTime() {
-        return minProcessingTime;
+        return minProcessingTime.get();
     }
 
     /**
      * @return Returns the fault count
      */
     public int getFaultCount() {
-        return faultCount;
+        return faultCount.get();
     }
 
     /**
      * @return Returns the total count that represents number of access in a one way flow
      */
     public int getCount() {
-        return count;
+        return count.get();
+    }
+
+    /**
+     * @return a snapshot of the processing time histogram, bucketed as in LATENCY_BUCKETS
+     */
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[latencyHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencyHistogram.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * Estimates a processing time percentile from the histogram. The returned value is the
+     * upper bound of the bucket the percentile falls in, or -1 if there is no data.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the estimated processing time for the given percentile
+     */
+    public long getProcessingTimePercentile(double percentile) {
+        long[] histogram = getLatencyHistogram();
+        long total = 0;
+        for (long value : histogram) {
+            total += value;
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return LATENCY_BUCKETS[i];
+            }
+        }
+        return maxProcessingTime.get();
     }
 
     public String getId() {
@@ -142,22 +242,36 @@ public class Statistics {
     }
 
     public List<ErrorLog> getErrorLogs() {
-        return errorLogs;
+        return new ArrayList<ErrorLog>(errorLogs);
     }
 
     public void addErrorLog(ErrorLog errorLog) {
         if (errorLog != null) {
-            this.errorLogs.add(errorLog);
+            this.errorLogs.offer(errorLog);
+            if (errorLogCount.incrementAndGet() > MAX_ERROR_LOGS) {
+                if (errorLogs.poll() != null) {
+                    errorLogCount.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static int bucketOf(long processingTime) {
+        for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+            if (processingTime <= LATENCY_BUCKETS[i]) {
+                return i;
+            }
         }
+        return LATENCY_BUCKETS.length;
     }
 
     public String toString() {
         return new StringBuffer()
-                .append("[Avg Processing Time : ").append(avgProcessingTime).append(" ]")
-                .append(" [Max Processing Time : ").append(maxProcessingTime).append(" ]")
-                .append(" [Min Processing Time : ").append(minProcessingTime).append(" ]")
-                .append(" [Total Request Count : ").append(count).append(" ]")
-                .append(" [Total Fault Response Count : ").append(faultCount).append(" ]")
+                .append("[Avg Processing Time : ").append(getAvgProcessingTime()).append(" ]")
+                .append(" [Max Processing Time : ").append(getMaxProcessingTime()).append(" ]")
+                .append(" [Min Processing Time : ").append(getMinProcessingTime()).append(" ]")
+                .append(" [Total Request Count : ").append(getCount()).append(" ]")
+                .append(" [Total Fault Response Count : ").append(getFaultCount()).append(" ]")
                 .toString();
     }
 }
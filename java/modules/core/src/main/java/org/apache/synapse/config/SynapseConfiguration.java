@@ -1411,6 +1411,11 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         synapseTimer.cancel();
         synapseTimer = null;
 
+        // stop delivering events to the subscribers of the event sources
+        for (SynapseEventSource eventSource : eventSources.values()) {
+            eventSource.destroy();
+        }
+
         // stop and shutdown all the proxy services
         for (ProxyService p : getProxyServices()) {
 
@@ -1519,6 +1524,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
                     getAxisConfiguration().removeService(name);
                 }
                 eventSources.remove(name);
+                eventSource.destroy();
                 for (SynapseObserver o : observers) {
                     o.eventSourceRemoved(eventSource);
                 }
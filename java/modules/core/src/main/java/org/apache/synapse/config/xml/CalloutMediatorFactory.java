@@ -37,7 +37,7 @@ import java.util.Properties;
  * Factory for {@link CalloutMediator} instances.
  * 
  * <pre>
- * &lt;callout [serviceURL="string"] [action="string"][passHeaders="true|false"] [initAxis2ClientOptions="true|false"]&gt;
+ * &lt;callout [serviceURL="string"] [action="string"][passHeaders="true|false"] [initAxis2ClientOptions="true|false"] [blocking="true|false"]&gt;
  *      &lt;configuration [axis2xml="string"] [repository="string"]/&gt;?
  *      &lt;endpoint/&gt;?
  *      &lt;source xpath="expression" | key="string"&gt;?
@@ -56,6 +56,7 @@ public class CalloutMediatorFactory extends AbstractMediatorFactory {
     private static final QName ATT_REPOSITORY = new QName("repository");
     private static final QName ATT_PASS_HEADERS = new QName("passHeaders");
     private static final QName ATT_INIT_AXI2_CLIENT_OPTIONS = new QName("initAxis2ClientOptions");
+    private static final QName ATT_BLOCKING = new QName("blocking");
     private static final QName Q_CONFIG
             = new QName(XMLConfigConstants.SYNAPSE_NAMESPACE, "configuration");
     private static final QName Q_SOURCE
@@ -80,6 +81,7 @@ public class CalloutMediatorFactory extends AbstractMediatorFactory {
         OMAttribute attAction     = elem.getAttribute(ATT_ACTION);
         OMAttribute attPassHeaders = elem.getAttribute(ATT_PASS_HEADERS);
         OMAttribute attInitClientOptions = elem.getAttribute(ATT_INIT_AXI2_CLIENT_OPTIONS);
+        OMAttribute attBlocking = elem.getAttribute(ATT_BLOCKING);
         OMElement epElement = elem.getFirstChildWithName(Q_ENDPOINT);
         OMElement   configElt     = elem.getFirstChildWithName(Q_CONFIG);
         OMElement   sourceElt     = elem.getFirstChildWithName(Q_SOURCE);
@@ -116,6 +118,11 @@ public class CalloutMediatorFactory extends AbstractMediatorFactory {
             callout.setInitClientOptions(false);
         }
 
+        if (attBlocking != null &&
+                JavaUtils.isFalseExplicitly(attBlocking.getAttributeValue())) {
+            callout.setBlocking(false);
+        }
+
         if (configElt != null) {
 
             OMAttribute axis2xmlAttr = configElt.getAttribute(ATT_AXIS2XML);
@@ -19,6 +19,7 @@
 
 package org.apache.synapse.config.xml;
 
+import org.apache.axiom.om.OMAttribute;
 import org.apache.axiom.om.OMElement;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.SynapseConstants;
@@ -55,6 +56,7 @@ import java.util.Properties;
  *     &lt;parameter [value="" | expression=""] type="int|string"/&gt;*
  *     &lt;result name="string" column="int|string"/&gt;*
  *   &lt;/statement&gt;+
+ *   &lt;cache timeout="long" [size="int"] [negativeCaching="true|false"]/&gt;?
  * &lt;/dblookup&gt;
  * </pre>
  */
@@ -62,15 +64,49 @@ public class DBLookupMediatorFactory extends AbstractDBMediatorFactory {
 
     private static final QName DBLOOKUP_Q =
         new QName(SynapseConstants.SYNAPSE_NAMESPACE, "dblookup");
+    private static final QName CACHE_Q =
+        new QName(SynapseConstants.SYNAPSE_NAMESPACE, "cache");
+    private static final QName ATT_TIMEOUT = new QName("timeout");
+    private static final QName ATT_SIZE = new QName("size");
+    private static final QName ATT_NEGATIVE_CACHING = new QName("negativeCaching");
 
     public Mediator createSpecificMediator(OMElement elem, Properties properties) {
 
         DBLookupMediator mediator = new DBLookupMediator();
         buildDataSource(elem, mediator);
         processStatements(elem, mediator);
+
+        OMElement cache = elem.getFirstChildWithName(CACHE_Q);
+        if (cache != null) {
+            OMAttribute timeout = cache.getAttribute(ATT_TIMEOUT);
+            if (timeout == null) {
+                handleException("The timeout attribute is required for the lookup cache");
+            } else {
+                mediator.setCacheTimeout(parseLong(timeout));
+            }
+            OMAttribute size = cache.getAttribute(ATT_SIZE);
+            if (size != null) {
+                mediator.setCacheSize((int) parseLong(size));
+            }
+            OMAttribute negativeCaching = cache.getAttribute(ATT_NEGATIVE_CACHING);
+            if (negativeCaching != null) {
+                mediator.setNegativeCaching(
+                        Boolean.parseBoolean(negativeCaching.getAttributeValue()));
+            }
+        }
         return mediator;
     }
 
+    private long parseLong(OMAttribute attribute) {
+        try {
+            return Long.parseLong(attribute.getAttributeValue().trim());
+        } catch (NumberFormatException e) {
+            handleException("Invalid value : " + attribute.getAttributeValue() +
+                    " for the attribute : " + attribute.getLocalName());
+        }
+        return -1;
+    }
+
     public QName getTagQName() {
         return DBLOOKUP_Q;
     }
@@ -41,6 +41,17 @@ public class DBLookupMediatorSerializer extends AbstractDBMediatorSerializer {
         saveTracingState(dbLookup,mediator);
         serializeDBInformation(mediator, dbLookup);
 
+        if (mediator.getCacheTimeout() > 0) {
+            OMElement cache = fac.createOMElement("cache", synNS, dbLookup);
+            cache.addAttribute(fac.createOMAttribute(
+                    "timeout", nullNS, Long.toString(mediator.getCacheTimeout())));
+            cache.addAttribute(fac.createOMAttribute(
+                    "size", nullNS, Integer.toString(mediator.getCacheSize())));
+            if (mediator.isNegativeCaching()) {
+                cache.addAttribute(fac.createOMAttribute("negativeCaching", nullNS, "true"));
+            }
+        }
+
         return dbLookup;
     }
 
@@ -24,6 +24,7 @@ import org.apache.axiom.om.OMAttribute;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.mediators.db.DBReportMediator;
+import org.apache.synapse.mediators.db.DBReportWriter;
 
 import javax.xml.namespace.QName;
 import java.util.Properties;
@@ -53,6 +54,8 @@ import java.util.Properties;
  *     &lt;sql&gt;insert into something values(?, ?, ?, ?)&lt;/sql&gt;
  *     &lt;parameter [value="" | expression=""] type="int|string"/&gt;*
  *    &lt;/statement&gt;+
+ *   &lt;writeBehind [batchSize="int"] [flushInterval="long"] [queueSize="int"]
+ *                [durability="strict|relaxed"] [maxRetries="int"] [queueTimeout="long"]/&gt;?
  * &lt;/dblreport&gt;
  * </pre>
  */
@@ -61,6 +64,14 @@ public class DBReportMediatorFactory extends AbstractDBMediatorFactory {
     private static final QName DBREPORT_Q =
             new QName(SynapseConstants.SYNAPSE_NAMESPACE, "dbreport");
     private static final QName DBREPORT_USE_TX = new QName("useTransaction");
+    private static final QName WRITE_BEHIND_Q =
+            new QName(SynapseConstants.SYNAPSE_NAMESPACE, "writeBehind");
+    private static final QName ATT_BATCH_SIZE = new QName("batchSize");
+    private static final QName ATT_FLUSH_INTERVAL = new QName("flushInterval");
+    private static final QName ATT_QUEUE_SIZE = new QName("queueSize");
+    private static final QName ATT_DURABILITY = new QName("durability");
+    private static final QName ATT_MAX_RETRIES = new QName("maxRetries");
+    private static final QName ATT_QUEUE_TIMEOUT = new QName("queueTimeout");
 
     public Mediator createSpecificMediator(OMElement elem, Properties properties) {
         DBReportMediator mediator = new DBReportMediator();
@@ -76,9 +87,64 @@ public class DBReportMediatorFactory extends AbstractDBMediatorFactory {
         }
         buildDataSource(elem, mediator);
         processStatements(elem, mediator);
+
+        OMElement writeBehind = elem.getFirstChildWithName(WRITE_BEHIND_Q);
+        if (writeBehind != null) {
+            if (mediator.isUseTransaction()) {
+                handleException("Write-behind cannot be used by a DB report mediator " +
+                        "participating in a transaction");
+            }
+            mediator.setWriteBehind(true);
+
+            OMAttribute batchSize = writeBehind.getAttribute(ATT_BATCH_SIZE);
+            if (batchSize != null) {
+                mediator.setBatchSize((int) parseLong(batchSize));
+            }
+            OMAttribute flushInterval = writeBehind.getAttribute(ATT_FLUSH_INTERVAL);
+            if (flushInterval != null) {
+                mediator.setFlushInterval(parseLong(flushInterval));
+            }
+            OMAttribute queueSize = writeBehind.getAttribute(ATT_QUEUE_SIZE);
+            if (queueSize != null) {
+                mediator.setQueueSize((int) parseLong(queueSize));
+            }
+            OMAttribute durability = writeBehind.getAttribute(ATT_DURABILITY);
+            if (durability != null) {
+                String value = durability.getAttributeValue();
+                if (!DBReportWriter.DURABILITY_STRICT.equals(value) &&
+                        !DBReportWriter.DURABILITY_RELAXED.equals(value)) {
+                    handleException("Invalid durability : " + value + " for write-behind, " +
+                            "expected strict or relaxed");
+                }
+                mediator.setDurability(value);
+            }
+            OMAttribute maxRetries = writeBehind.getAttribute(ATT_MAX_RETRIES);
+            if (maxRetries != null) {
+                mediator.setMaxRetries((int) parseLong(maxRetries));
+            }
+            OMAttribute queueTimeout = writeBehind.getAttribute(ATT_QUEUE_TIMEOUT);
+            if (queueTimeout != null) {
+                mediator.setQueueTimeout(parseLong(queueTimeout));
+            }
+        }
         return mediator;
     }
 
+    private long parseLong(OMAttribute attribute) {
+        try {
+            long value = Long.parseLong(attribute.getAttributeValue().trim());
+            if (value <= 0) {
+                handleException("The attribute : " + attribute.getLocalName() +
+                        " must be a positive number");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            handleException("Invalid value : " + attribute.getAttributeValue() +
+                    " for the attribute : " + attribute.getLocalName());
+        }
+        return -1;
+    }
+
     public QName getTagQName() {
         return DBREPORT_Q;
     }
@@ -44,6 +44,22 @@ public class DBReportMediatorSerializer extends AbstractDBMediatorSerializer {
         saveTracingState(dbReport, mediator);
         serializeDBInformation(mediator, dbReport);
 
+        if (mediator.isWriteBehind()) {
+            OMElement writeBehind = fac.createOMElement("writeBehind", synNS, dbReport);
+            writeBehind.addAttribute(fac.createOMAttribute(
+                    "batchSize", nullNS, Integer.toString(mediator.getBatchSize())));
+            writeBehind.addAttribute(fac.createOMAttribute(
+                    "flushInterval", nullNS, Long.toString(mediator.getFlushInterval())));
+            writeBehind.addAttribute(fac.createOMAttribute(
+                    "queueSize", nullNS, Integer.toString(mediator.getQueueSize())));
+            writeBehind.addAttribute(fac.createOMAttribute(
+                    "durability", nullNS, mediator.getDurability()));
+            writeBehind.addAttribute(fac.createOMAttribute(
+                    "maxRetries", nullNS, Integer.toString(mediator.getMaxRetries())));
+            writeBehind.addAttribute(fac.createOMAttribute(
+                    "queueTimeout", nullNS, Long.toString(mediator.getQueueTimeout())));
+        }
+
         return dbReport;
     }
 
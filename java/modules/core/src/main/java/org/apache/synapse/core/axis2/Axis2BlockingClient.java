@@ -44,6 +44,7 @@ import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.endpoints.IndirectEndpoint;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.util.MessageHelper;
+import org.apache.synapse.util.concurrent.RouteConcurrencyLimiter;
 
 import javax.xml.namespace.QName;
 
@@ -154,6 +155,8 @@ public class Axis2BlockingClient {
 
         // Invoke
         boolean isOutOnly = isOutOnly(synapseInMsgCtx, axisOutMsgCtx);
+        String route = RouteConcurrencyLimiter.getRoute(endpointReferenceValue);
+        boolean routeAcquired = RouteConcurrencyLimiter.getInstance().acquire(route);
         try {
             if (isOutOnly) {
                 if (log.isDebugEnabled()) {
@@ -198,6 +201,10 @@ public class Axis2BlockingClient {
             }
             handleException("Error sending Message to url : " +
                     ((AbstractEndpoint) endpoint).getDefinition().getAddress());
+        } finally {
+            if (routeAcquired) {
+                RouteConcurrencyLimiter.getInstance().release(route);
+            }
         }
         return null;
     }
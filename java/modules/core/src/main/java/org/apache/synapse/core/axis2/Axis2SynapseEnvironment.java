@@ -44,7 +44,9 @@ import org.apache.synapse.mediators.base.SequenceMediator;
 import org.apache.synapse.rest.RESTRequestHandler;
 import org.apache.synapse.task.SynapseTaskManager;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.apache.synapse.util.concurrent.RouteConcurrencyLimiter;
 import org.apache.synapse.util.concurrent.SynapseThreadPool;
+import org.apache.synapse.util.concurrent.VirtualThreadExecutor;
 import org.apache.synapse.util.xpath.ext.SynapseXpathFunctionContextProvider;
 import org.apache.synapse.util.xpath.ext.SynapseXpathVariableResolver;
 
@@ -104,11 +106,49 @@ public class Axis2SynapseEnvironment implements SynapseEnvironment {
             keepAlive = Long.parseLong(synCfg.getProperty(SynapseThreadPool.SYN_THREAD_ALIVE));
         } catch (Exception ignore) {}
 
-        this.executorService = new SynapseThreadPool(coreThreads, maxThreads, keepAlive, qLength,
-            synCfg.getProperty(SynapseThreadPool.SYN_THREAD_GROUP,
-                SynapseThreadPool.SYNAPSE_THREAD_GROUP),
-            synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
-                SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX));
+        String threadMode = synCfg.getProperty(SynapseThreadPool.SYN_THREAD_MODE,
+            SynapseThreadPool.THREAD_MODE_PLATFORM);
+        String threadIdPrefix = synCfg.getProperty(SynapseThreadPool.SYN_THREAD_IDPREFIX,
+            SynapseThreadPool.SYNAPSE_THREAD_ID_PREFIX);
+
+        if (SynapseThreadPool.THREAD_MODE_VIRTUAL.equals(threadMode)) {
+            if (VirtualThreadExecutor.isSupported()) {
+                int maxConcurrency = -1;
+                try {
+                    maxConcurrency = Integer.parseInt(
+                        synCfg.getProperty(SynapseThreadPool.SYN_THREAD_VIRTUAL_MAX));
+                } catch (Exception ignore) {}
+
+                try {
+                    this.executorService = new VirtualThreadExecutor(
+                        threadIdPrefix + "-virtual", maxConcurrency);
+                    log.info("Using virtual threads for asynchronous mediation" +
+                        (maxConcurrency > 0 ? ", with at most " + maxConcurrency +
+                            " concurrent tasks" : ""));
+                } catch (RuntimeException e) {
+                    log.warn("Virtual threads could not be used. Using a pool of platform " +
+                        "threads for asynchronous mediation", e);
+                }
+            } else {
+                log.warn("Virtual threads are not supported by this JVM. Using a pool of " +
+                    "platform threads for asynchronous mediation");
+            }
+        }
+
+        if (this.executorService == null) {
+            this.executorService = new SynapseThreadPool(coreThreads, maxThreads, keepAlive,
+                qLength, synCfg.getProperty(SynapseThreadPool.SYN_THREAD_GROUP,
+                    SynapseThreadPool.SYNAPSE_THREAD_GROUP), threadIdPrefix);
+        }
+
+        try {
+            RouteConcurrencyLimiter.getInstance().setMaxPerRoute(Integer.parseInt(
+                synCfg.getProperty(SynapseThreadPool.SYN_THREAD_ROUTE_MAX)));
+        } catch (Exception ignore) {}
+        try {
+            RouteConcurrencyLimiter.getInstance().setAcquireTimeout(Long.parseLong(
+                synCfg.getProperty(SynapseThreadPool.SYN_THREAD_ROUTE_TIMEOUT)));
+        } catch (Exception ignore) {}
 
         taskManager = new SynapseTaskManager();
         restHandler = new RESTRequestHandler();
@@ -0,0 +1,51 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import org.apache.synapse.MessageContext;
+
+/**
+ * Takes over the response to a message sent asynchronously on behalf of a suspended mediation,
+ * instead of injecting the response into the out flow. The handler is set on the outgoing
+ * message under {@link org.apache.synapse.SynapseConstants#RESPONSE_CONTINUATION}, and is
+ * invoked by the {@link SynapseCallbackReceiver} on the thread that received the response.
+ * Failed sends are reported through the fault stack of the outgoing message as usual, while
+ * requests for which no response or fault will ever be delivered (e.g. timed out with the
+ * discard action) are reported through {@link #onDiscard(MessageContext)}, so that the
+ * suspended mediation always completes.
+ */
+public interface ResponseContinuation {
+
+    /**
+     * Invoked when the response for the outgoing message has been received
+     *
+     * @param response the response message
+     */
+    public void onResponse(MessageContext response);
+
+    /**
+     * Invoked when the outgoing message has been given up on without invoking its fault
+     * handlers. This may be called while holding the lock of the callback store, so
+     * implementations must not continue the mediation on the calling thread.
+     *
+     * @param request the outgoing message
+     */
+    public void onDiscard(MessageContext request);
+}
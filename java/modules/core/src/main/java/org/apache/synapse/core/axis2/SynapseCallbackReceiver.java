@@ -309,6 +309,7 @@ public class SynapseCallbackReceiver implements MessageReceiver {
                     log.warn("Synapse timed out for the request with Message ID : " + messageID +
                             ". Ignoring fault handlers since the timeout action is DISCARD.");
                     faultStack.removeAllElements();
+                    discardContinuation(synapseOutMsgCtx);
                 } else {
                     ((FaultHandler) faultStack.pop()).handleFault(synapseOutMsgCtx, null);
                 }
@@ -455,7 +456,17 @@ public class SynapseCallbackReceiver implements MessageReceiver {
             }
 
             StatisticsReporter.reportForAllOnResponseReceived(synapseInMessageContext);
-            
+
+            // the request was sent by a suspended mediation, which takes over the response
+            Object continuation = synapseOutMsgCtx.getProperty(
+                    SynapseConstants.RESPONSE_CONTINUATION);
+            if (continuation instanceof ResponseContinuation) {
+                synapseInMessageContext.getPropertyKeySet().remove(
+                        SynapseConstants.RESPONSE_CONTINUATION);
+                ((ResponseContinuation) continuation).onResponse(synapseInMessageContext);
+                return;
+            }
+
             // send the response message through the synapse mediation flow
             try {
                 synapseOutMsgCtx.getEnvironment().injectMessage(synapseInMessageContext);
@@ -472,6 +483,20 @@ public class SynapseCallbackReceiver implements MessageReceiver {
         }
     }
 
+    /**
+     * Tells the suspended mediation which sent the given message, if any, that no response
+     * will be delivered for it, as the message was discarded without invoking its fault handlers
+     *
+     * @param synapseOutMsgCtx the discarded outgoing message
+     */
+    static void discardContinuation(org.apache.synapse.MessageContext synapseOutMsgCtx) {
+        Object continuation = synapseOutMsgCtx.getProperty(
+                SynapseConstants.RESPONSE_CONTINUATION);
+        if (continuation instanceof ResponseContinuation) {
+            ((ResponseContinuation) continuation).onDiscard(synapseOutMsgCtx);
+        }
+    }
+
     /**
      * It is possible for us (Synapse) to cause the creation of a duplicate relatesTo as we
      * try to hold onto the outgoing message ID even for POX messages using the relates to
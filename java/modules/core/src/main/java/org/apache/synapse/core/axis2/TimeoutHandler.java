@@ -25,8 +25,6 @@ import org.apache.synapse.FaultHandler;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.ServerContextInformation;
-import org.apache.synapse.aspects.statistics.StatisticsCleaner;
-import org.apache.synapse.aspects.statistics.StatisticsCollector;
 import org.apache.synapse.config.SynapseConfigUtils;
 import org.apache.synapse.endpoints.dispatch.SALSessions;
 
@@ -58,7 +56,6 @@ public class TimeoutHandler extends TimerTask {
     /*This is the timeout for otherwise non-expiring callbacks to ensure system stability over time */
     private long globalTimeout = SynapseConstants.DEFAULT_GLOBAL_TIMEOUT;
     private static final String SEND_TIMEOUT_MESSAGE = "Send timeout";
-    private StatisticsCleaner statisticsCleaner;
     private ServerContextInformation contextInfo = null;
 
     public TimeoutHandler(Map callbacks, ServerContextInformation contextInfo) {
@@ -88,17 +85,6 @@ public class TimeoutHandler extends TimerTask {
 
     private void processCallbacks() {
 
-        //clear the expired statistics
-        if (statisticsCleaner == null) {
-            StatisticsCollector collector = SynapseConfigUtils.getStatisticsCollector(contextInfo);
-            if (collector != null) {
-                statisticsCleaner = new StatisticsCleaner(collector);
-            }
-        }
-        if (statisticsCleaner != null) {
-            statisticsCleaner.clean();
-        }
-
         //clear all the expired sessions
         SALSessions.getInstance().clearSessions();
 
@@ -149,6 +135,9 @@ public class TimeoutHandler extends TimerTask {
                                     }
                                 }
 
+                            } else {
+                                SynapseCallbackReceiver.discardContinuation(
+                                        callback.getSynapseOutMsgCtx());
                             }
                         }
 
@@ -156,6 +145,8 @@ public class TimeoutHandler extends TimerTask {
                         log.warn("Expiring message ID : " + key + "; dropping message after " +
                                 "global timeout of : " + (globalTimeout / 1000) + " seconds");
                         callbackStore.remove(key);
+                        SynapseCallbackReceiver.discardContinuation(
+                                callback.getSynapseOutMsgCtx());
                     }
                 }
             }
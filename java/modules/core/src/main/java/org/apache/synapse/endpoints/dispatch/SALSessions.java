@@ -26,6 +26,8 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.IndirectEndpoint;
 import org.apache.synapse.endpoints.SALoadbalanceEndpoint;
@@ -33,9 +35,20 @@ import org.apache.synapse.endpoints.DynamicLoadbalanceEndpoint;
 import org.apache.synapse.util.Replicator;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Keeps the states of the sessions
+ * Keeps the states of the sessions. In a non-clustered environment the sessions are kept in a
+ * concurrent map. Expired sessions are evicted lazily when they are looked up, and otherwise
+ * from an expiry queue which is drained periodically, so that no full scan of the sessions is
+ * required. The number of local sessions can be bounded, in which case the least recently used
+ * sessions are evicted once the bound is reached.
  */
 public class SALSessions {
 
@@ -50,18 +63,28 @@ public class SALSessions {
     /* Is this env. support clustering*/
     private boolean isClustered = false;
 
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
 
     /*Cache all path with its endpoint sequence. This is only need for a clustered environment */
     private final Map<List<String>, List<Endpoint>> namesToEndpointsMap =
-            new HashMap<List<String>, List<Endpoint>>();
+            new ConcurrentHashMap<List<String>, List<Endpoint>>();
 
     /* Non- clustered environment , all the established sessions*/
-    private final Map<String, SessionInformation> establishedSessions =
-            new HashMap<String, SessionInformation>();
+    private final ConcurrentMap<String, SessionInformation> establishedSessions =
+            new ConcurrentHashMap<String, SessionInformation>();
+    /* Non- clustered environment , established sessions ordered by their expiry time */
+    private final DelayQueue<SessionExpiry> expiryQueue = new DelayQueue<SessionExpiry>();
     /* all child endpoints .  This is only need for a clustered environment*/
     private final Map<String, Map<String, Endpoint>> childEndpoints =
-            new HashMap<String, Map<String, Endpoint>>();
+            new ConcurrentHashMap<String, Map<String, Endpoint>>();
+
+    /* Maximum number of local sessions, a non-positive value means no limit */
+    private int maxSessions = SynapseConstants.SAL_ENDPOINTS_DEFAULT_MAX_SESSIONS;
+
+    private final AtomicLong createdSessionCount = new AtomicLong(0);
+    private final AtomicLong expiredSessionCount = new AtomicLong(0);
+    private final AtomicLong evictedSessionCount = new AtomicLong(0);
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
 
     private SALSessions() {
     }
@@ -87,6 +110,11 @@ public class SALSessions {
                 isClustered = isClusteringEnable;
                 configCtx = cc;
             }
+            maxSessions = Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                    SynapseConstants.PROP_SAL_ENDPOINT_MAX_SESSIONS,
+                    String.valueOf(SynapseConstants.SAL_ENDPOINTS_DEFAULT_MAX_SESSIONS)));
+            MBeanRegistrar.getInstance().registerMBean(
+                    new SALSessionsView(this), "SALSessions", "SALSessions");
             initialized = true;
         }
     }
@@ -204,10 +232,20 @@ public class SALSessions {
                         sessionID + " and it's endpoint sequence : " + endpoints);
             }
 
+            createdSessionCount.incrementAndGet();
             if (isClustered) {
                 Replicator.setAndReplicateState(SESSION_IDS + sessionID, newInformation, configCtx);
             } else {
                 establishedSessions.put(sessionID, newInformation);
+                expiryQueue.offer(new SessionExpiry(newInformation));
+                if (maxSessions > 0 && establishedSessions.size() > maxSessions &&
+                        evicting.compareAndSet(false, true)) {
+                    try {
+                        evictSessions();
+                    } finally {
+                        evicting.set(false);
+                    }
+                }
             }
         }
     }
@@ -244,10 +282,15 @@ public class SALSessions {
             if (log.isDebugEnabled()) {
                 log.debug("Session has been expired for session with id: " + sessionID);
             }
-            removeSession(sessionID);
+            if (!isClustered && establishedSessions.remove(sessionID, information)) {
+                expiredSessionCount.incrementAndGet();
+            } else {
+                removeSession(sessionID);
+            }
             return null;
         }
 
+        information.touch();
         return information;
     }
 
@@ -313,7 +356,7 @@ public class SALSessions {
     /**
      * Clear all the expired sessions
      */
-    public synchronized void clearSessions() {
+    public void clearSessions() {
 
         if (!initialized) {
             return;
@@ -345,31 +388,33 @@ public class SALSessions {
                     if (log.isDebugEnabled()) {
                         log.debug("Clearing expired sessions");
                     }
-
-                    for (String key : toBeRemoved) {
-                        Replicator.removeAndReplicateState(key, configCtx);
-                    }
+                    // replicate all the removals at once, rather than one message per session
+                    Replicator.removeAndReplicateState(toBeRemoved, configCtx);
+                    expiredSessionCount.addAndGet(toBeRemoved.size());
                 }
 
             } else {
 
-                List<String> toBeRemoved = new ArrayList<String>();
-                for (SessionInformation information : establishedSessions.values()) {
+                SessionExpiry expiry;
+                while ((expiry = expiryQueue.poll()) != null) {
+                    SessionInformation information = expiry.information;
+                    String id = information.getId();
+                    if (establishedSessions.get(id) != information) {
+                        // already removed or renewed, the renewed session has its own entry
+                        continue;
+                    }
 
-                    if (information != null && information.isExpired()) {
-                        String id = information.getId();
+                    if (information.isExpired()) {
                         if (log.isDebugEnabled()) {
                             log.debug("Expired session with id :" + id);
                         }
-                        toBeRemoved.add(id);
-                    }
-                }
-
-                if (!toBeRemoved.isEmpty()) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Clearing expired sessions");
+                        if (establishedSessions.remove(id, information)) {
+                            expiredSessionCount.incrementAndGet();
+                        }
+                    } else {
+                        // the expiry time has been extended since the session was queued
+                        expiryQueue.offer(new SessionExpiry(information));
                     }
-                    establishedSessions.keySet().removeAll(toBeRemoved);
                 }
             }
         } catch (Throwable ignored) {
@@ -377,6 +422,93 @@ public class SALSessions {
         }
     }
 
+    /**
+     * @return the number of sessions currently established
+     */
+    public int getSessionCount() {
+
+        if (!isClustered) {
+            return establishedSessions.size();
+        }
+
+        int count = 0;
+        for (Iterator<String> props = configCtx.getPropertyNames(); props.hasNext();) {
+            Object name = props.next();
+            if (name instanceof String && ((String) name).startsWith(SESSION_IDS)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getCreatedSessionCount() {
+        return createdSessionCount.get();
+    }
+
+    public long getExpiredSessionCount() {
+        return expiredSessionCount.get();
+    }
+
+    public long getEvictedSessionCount() {
+        return evictedSessionCount.get();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Bound the number of sessions kept locally
+     *
+     * @param maxSessions maximum number of sessions, a non-positive value means no limit
+     */
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    /*
+     * Removes the least recently used sessions once the local store grows beyond its bound.
+     * A tenth of the bound is evicted at a time, so that the scan is amortized over many
+     * session creations.
+     */
+    private void evictSessions() {
+
+        // expired sessions go first
+        clearSessions();
+
+        int excess = establishedSessions.size() - maxSessions;
+        if (excess <= 0) {
+            return;
+        }
+
+        int batch = Math.max(excess, maxSessions / 10);
+        PriorityQueue<SessionInformation> oldest = new PriorityQueue<SessionInformation>(
+                batch, new Comparator<SessionInformation>() {
+            public int compare(SessionInformation o1, SessionInformation o2) {
+                long diff = o2.getLastAccessTime() - o1.getLastAccessTime();
+                return diff > 0 ? 1 : (diff < 0 ? -1 : 0);
+            }
+        });
+        for (SessionInformation information : establishedSessions.values()) {
+            oldest.offer(information);
+            if (oldest.size() > batch) {
+                // drop the most recently used one
+                oldest.poll();
+            }
+        }
+
+        for (SessionInformation information : oldest) {
+            if (establishedSessions.remove(information.getId(), information)) {
+                evictedSessionCount.incrementAndGet();
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Session store reached its limit of " + maxSessions +
+                    " sessions. Evicted " + oldest.size() + " least recently used sessions");
+        }
+    }
+
     public boolean isInitialized() {
         return initialized;
     }
@@ -400,6 +532,7 @@ public class SALSessions {
         log.info("Clearing all states ");
         initialized = false;
         establishedSessions.clear();
+        expiryQueue.clear();
         namesToEndpointsMap.clear();
         childEndpoints.clear();
     }
@@ -634,4 +767,28 @@ public class SALSessions {
         }
         return information;
     }
-}
\ No newline at end of file
+
+    /*
+     * An entry of the expiry queue. The expiry time is captured when the entry is queued; the
+     * session itself is checked again when the entry becomes due.
+     */
+    private static class SessionExpiry implements Delayed {
+
+        private final SessionInformation information;
+        private final long expiryTime;
+
+        SessionExpiry(SessionInformation information) {
+            this.information = information;
+            this.expiryTime = information.getExpiryTime();
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiryTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        public int compareTo(Delayed o) {
+            long diff = getDelay(TimeUnit.MILLISECONDS) - o.getDelay(TimeUnit.MILLISECONDS);
+            return diff > 0 ? 1 : (diff < 0 ? -1 : 0);
+        }
+    }
+}
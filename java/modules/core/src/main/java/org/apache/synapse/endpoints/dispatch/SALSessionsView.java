@@ -0,0 +1,49 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.dispatch;
+
+public class SALSessionsView implements SALSessionsViewMBean {
+
+    private SALSessions sessions;
+
+    public SALSessionsView(SALSessions sessions) {
+        this.sessions = sessions;
+    }
+
+    public int getSessionCount() {
+        return sessions.getSessionCount();
+    }
+
+    public long getCreatedSessionCount() {
+        return sessions.getCreatedSessionCount();
+    }
+
+    public long getExpiredSessionCount() {
+        return sessions.getExpiredSessionCount();
+    }
+
+    public long getEvictedSessionCount() {
+        return sessions.getEvictedSessionCount();
+    }
+
+    public int getMaxSessions() {
+        return sessions.getMaxSessions();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.dispatch;
+
+/**
+ * JMX MBean interface for monitoring the sessions of the session affinity load balance
+ * endpoints.
+ */
+public interface SALSessionsViewMBean {
+
+    /**
+     * Get the number of sessions currently established
+     *
+     * @return An integer
+     */
+    public int getSessionCount();
+
+    /**
+     * Get the number of sessions established since the startup
+     *
+     * @return A long
+     */
+    public long getCreatedSessionCount();
+
+    /**
+     * Get the number of sessions removed since the startup as they were expired
+     *
+     * @return A long
+     */
+    public long getExpiredSessionCount();
+
+    /**
+     * Get the number of live sessions evicted since the startup to keep the session
+     * store within its bound
+     *
+     * @return A long
+     */
+    public long getEvictedSessionCount();
+
+    /**
+     * Get the maximum number of sessions kept locally, a non-positive value means no limit
+     *
+     * @return An integer
+     */
+    public int getMaxSessions();
+
+}
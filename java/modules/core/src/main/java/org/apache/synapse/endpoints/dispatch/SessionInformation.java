@@ -35,10 +35,11 @@ public class SessionInformation implements Serializable {
     private String id;
     private String rootEndpointName;
     private List<String> path;
-    private long expiryTime;
+    private volatile long expiryTime;
     private long expireTimeWindow;
     private transient List<Endpoint> endpointList;
     private transient Member member;
+    private transient volatile long lastAccessTime = System.currentTimeMillis();
 
     public SessionInformation(String id, List<Endpoint> endpointList, long expiryTime) {
         this.id = id;
@@ -93,6 +94,21 @@ public class SessionInformation implements Serializable {
         this.rootEndpointName = rootEndpointName;
     }
 
+    /**
+     * @return the time this session was last looked up on this node
+     */
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    /**
+     * Records an access to this session, used to pick the sessions to evict when the
+     * local session store is full
+     */
+    public void touch() {
+        this.lastAccessTime = System.currentTimeMillis();
+    }
+
     public boolean isExpired() {
         return expiryTime < System.currentTimeMillis();
     }
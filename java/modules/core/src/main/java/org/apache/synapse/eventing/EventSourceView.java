@@ -0,0 +1,83 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exposes the per subscriber delivery statistics of an event source
+ */
+public class EventSourceView implements EventSourceViewMBean {
+
+    private final SynapseEventSource eventSource;
+
+    public EventSourceView(SynapseEventSource eventSource) {
+        this.eventSource = eventSource;
+    }
+
+    public int getSubscriberCount() {
+        return eventSource.getSubscriberChannels().size();
+    }
+
+    public Map<String, Integer> getSubscriberQueueDepths() {
+        Map<String, Integer> depths = new HashMap<String, Integer>();
+        for (SubscriberChannel channel : eventSource.getSubscriberChannels()) {
+            depths.put(channel.getSubscriptionId(), channel.getQueueDepth());
+        }
+        return depths;
+    }
+
+    public Map<String, Long> getSubscriberLag() {
+        Map<String, Long> lag = new HashMap<String, Long>();
+        for (SubscriberChannel channel : eventSource.getSubscriberChannels()) {
+            lag.put(channel.getSubscriptionId(), channel.getLag());
+        }
+        return lag;
+    }
+
+    public Map<String, Long> getSubscriberDeliveredEvents() {
+        Map<String, Long> delivered = new HashMap<String, Long>();
+        for (SubscriberChannel channel : eventSource.getSubscriberChannels()) {
+            delivered.put(channel.getSubscriptionId(), channel.getDelivered());
+        }
+        return delivered;
+    }
+
+    public Map<String, Long> getSubscriberDroppedEvents() {
+        Map<String, Long> dropped = new HashMap<String, Long>();
+        for (SubscriberChannel channel : eventSource.getSubscriberChannels()) {
+            dropped.put(channel.getSubscriptionId(), channel.getDropped());
+        }
+        return dropped;
+    }
+
+    public Map<String, Long> getSubscriberFailedEvents() {
+        Map<String, Long> failed = new HashMap<String, Long>();
+        for (SubscriberChannel channel : eventSource.getSubscriberChannels()) {
+            failed.put(channel.getSubscriptionId(), channel.getFailed());
+        }
+        return failed;
+    }
+
+    public long getDisconnectedSubscribers() {
+        return eventSource.getDisconnectedSubscribers();
+    }
+}
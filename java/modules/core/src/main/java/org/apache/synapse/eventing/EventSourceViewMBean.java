@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing;
+
+import java.util.Map;
+
+/**
+ * MBean for monitoring the event delivery of an event source
+ */
+public interface EventSourceViewMBean {
+
+    /**
+     * @return number of subscribers events are being delivered to
+     */
+    public int getSubscriberCount();
+
+    /**
+     * @return number of queued events per subscription id
+     */
+    public Map<String, Integer> getSubscriberQueueDepths();
+
+    /**
+     * @return time in milliseconds the oldest queued event has been waiting, per subscription id
+     */
+    public Map<String, Long> getSubscriberLag();
+
+    /**
+     * @return number of events delivered per subscription id
+     */
+    public Map<String, Long> getSubscriberDeliveredEvents();
+
+    /**
+     * @return number of events dropped per subscription id
+     */
+    public Map<String, Long> getSubscriberDroppedEvents();
+
+    /**
+     * @return number of events failed to be sent per subscription id
+     */
+    public Map<String, Long> getSubscriberFailedEvents();
+
+    /**
+     * @return number of subscribers disconnected for lagging behind
+     */
+    public long getDisconnectedSubscribers();
+}
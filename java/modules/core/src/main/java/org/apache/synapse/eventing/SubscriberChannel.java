@@ -0,0 +1,335 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.FaultHandler;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.core.axis2.ResponseContinuation;
+import org.apache.synapse.endpoints.Endpoint;
+
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the events of a single subscriber. Events are queued per subscriber and at most
+ * maxInFlight of them are sent at once, so that a slow subscriber does not hold back the
+ * others. Events are sent through the subscriber endpoint without waiting for the subscriber,
+ * and an event stays in flight until the response (or a fault) for it is received, so the
+ * queue fills up when the subscriber is slow without holding any thread. Each completion
+ * sends the next queued event.
+ * When the queue is full the overflow policy either drops the oldest queued event, drops
+ * the new event, or parks the new event on this channel until space is available (up to a
+ * timeout), without holding up the dispatcher. A subscriber that keeps overflowing its
+ * queue, or whose oldest queued event waited longer than the maximum lag, for lagThreshold
+ * consecutive events is reported as lagging so that the event source can back it off or
+ * disconnect it.
+ */
+class SubscriberChannel {
+
+    private static final Log log = LogFactory.getLog(SubscriberChannel.class);
+
+    private final String subscriptionId;
+    private final String address;
+    private final Endpoint endpoint;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final int queueSize;
+    private final String overflowPolicy;
+    private final long parkTimeout;
+    private final long maxLag;
+    private final int lagThreshold;
+
+    /** Queued events, guarded by this channel */
+    private final LinkedList<QueuedEvent> queue = new LinkedList<QueuedEvent>();
+    /** Events waiting for queue space with the park overflow policy, guarded by this channel */
+    private final LinkedList<QueuedEvent> parked = new LinkedList<QueuedEvent>();
+    private int inFlight = 0;
+    private int lagCount = 0;
+    private long backOffUntil = 0;
+    private boolean closed = false;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final Runnable senderTask = new Runnable() {
+        public void run() {
+            sendQueued();
+        }
+    };
+
+    SubscriberChannel(String subscriptionId, String address, Endpoint endpoint,
+                      Executor executor, int maxInFlight, int queueSize,
+                      String overflowPolicy, long parkTimeout, long maxLag, int lagThreshold) {
+        this.subscriptionId = subscriptionId;
+        this.address = address;
+        this.endpoint = endpoint;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.queueSize = Math.max(1, queueSize);
+        this.overflowPolicy = overflowPolicy;
+        this.parkTimeout = parkTimeout;
+        this.maxLag = maxLag;
+        this.lagThreshold = Math.max(1, lagThreshold);
+    }
+
+    /**
+     * Queue an event for delivery to the subscriber, and send the queued events while less
+     * than maxInFlight events are in flight. This never waits for queue space or for the
+     * subscriber
+     *
+     * @param event the event, owned by this channel from now on
+     * @return false if the subscriber has been lagging behind for lagThreshold events
+     */
+    boolean enqueue(MessageContext event) {
+        boolean keepingUp = offer(event);
+        sendQueued();
+        return keepingUp;
+    }
+
+    private synchronized boolean offer(MessageContext event) {
+        long now = System.currentTimeMillis();
+        if (closed || now < backOffUntil) {
+            dropped.incrementAndGet();
+            return true;
+        }
+
+        boolean lagging = false;
+        if (queue.size() < queueSize) {
+            queue.addLast(new QueuedEvent(event, now));
+        } else {
+            lagging = true;
+            if (SynapseEventingConstants.OVERFLOW_PARK.equals(overflowPolicy)) {
+                expireParked(now);
+                if (parked.size() < queueSize) {
+                    parked.addLast(new QueuedEvent(event, now));
+                } else {
+                    dropped.incrementAndGet();
+                }
+            } else if (SynapseEventingConstants.OVERFLOW_DROP_NEWEST.equals(overflowPolicy)) {
+                dropped.incrementAndGet();
+            } else {
+                queue.removeFirst();
+                dropped.incrementAndGet();
+                queue.addLast(new QueuedEvent(event, now));
+            }
+        }
+        if (maxLag > 0 && now - queue.getFirst().enqueuedTime > maxLag) {
+            lagging = true;
+        }
+
+        if (!lagging) {
+            lagCount = 0;
+            return true;
+        }
+        if (++lagCount < lagThreshold) {
+            return true;
+        }
+        lagCount = 0;
+        return false;
+    }
+
+    /**
+     * Stop sending events to the subscriber for the given time, dropping the queued events
+     *
+     * @param interval back off time in milliseconds
+     */
+    synchronized void backOff(long interval) {
+        backOffUntil = System.currentTimeMillis() + interval;
+        discardQueue();
+    }
+
+    /**
+     * Stop sending events to the subscriber for good, dropping the queued events
+     */
+    synchronized void close() {
+        closed = true;
+        discardQueue();
+    }
+
+    synchronized boolean isAccepting() {
+        return !closed && System.currentTimeMillis() >= backOffUntil;
+    }
+
+    /**
+     * Count an event that was not offered to the channel as it was not accepting events
+     */
+    void discard() {
+        dropped.incrementAndGet();
+    }
+
+    String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    String getAddress() {
+        return address;
+    }
+
+    synchronized int getQueueDepth() {
+        return queue.size() + parked.size();
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return time in milliseconds the oldest queued event has been waiting, 0 if none
+     */
+    synchronized long getLag() {
+        return queue.isEmpty() ? 0 : System.currentTimeMillis() - queue.getFirst().enqueuedTime;
+    }
+
+    long getDelivered() {
+        return delivered.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Send queued events until maxInFlight events are in flight or the queue is empty
+     */
+    private void sendQueued() {
+        QueuedEvent event;
+        while ((event = next()) != null) {
+            send(event.message);
+        }
+    }
+
+    private synchronized QueuedEvent next() {
+        if (inFlight >= maxInFlight) {
+            return null;
+        }
+        QueuedEvent event = queue.poll();
+        if (event == null) {
+            return null;
+        }
+        inFlight++;
+        // move the parked events that have not timed out into the freed queue space
+        expireParked(System.currentTimeMillis());
+        while (queue.size() < queueSize && !parked.isEmpty()) {
+            queue.addLast(parked.removeFirst());
+        }
+        return event;
+    }
+
+    private void expireParked(long now) {
+        while (!parked.isEmpty() && now - parked.getFirst().enqueuedTime > parkTimeout) {
+            parked.removeFirst();
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void discardQueue() {
+        dropped.addAndGet(queue.size() + parked.size());
+        queue.clear();
+        parked.clear();
+    }
+
+    private void send(MessageContext event) {
+        Delivery delivery = new Delivery();
+        // a response is requested, so that the event stays in flight until the subscriber
+        // has accepted it
+        event.getPropertyKeySet().remove(SynapseConstants.OUT_ONLY);
+        event.pushFaultHandler(delivery);
+        event.setProperty(SynapseConstants.RESPONSE_CONTINUATION, delivery);
+        try {
+            endpoint.send(event);
+        } catch (Exception e) {
+            log.error("Event sending failure to : " + address, e);
+            delivery.complete(false, true);
+        }
+    }
+
+    /**
+     * Tracks the completion of a single event sent to the subscriber. The in flight slot of
+     * the event is released once, and the next queued events are sent
+     */
+    private class Delivery extends FaultHandler implements ResponseContinuation {
+
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        public void onResponse(MessageContext response) {
+            complete(true, true);
+        }
+
+        public void onFault(MessageContext synCtx) {
+            log.error("Event sending failure to : " + address + " : " +
+                    synCtx.getProperty(SynapseConstants.ERROR_MESSAGE));
+            complete(false, true);
+        }
+
+        public void onDiscard(MessageContext request) {
+            log.error("Event sending to : " + address + " timed out");
+            // the caller may hold the callback store lock, send the next events later
+            if (complete(false, false)) {
+                try {
+                    executor.execute(senderTask);
+                } catch (RejectedExecutionException e) {
+                    log.warn("Unable to resume sending events to : " + address, e);
+                }
+            }
+        }
+
+        private boolean complete(boolean success, boolean sendNext) {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            if (success) {
+                delivered.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Event push to  : " + address);
+                }
+            } else {
+                failed.incrementAndGet();
+            }
+            synchronized (SubscriberChannel.this) {
+                inFlight--;
+            }
+            if (sendNext) {
+                sendQueued();
+            }
+            return true;
+        }
+    }
+
+    private static class QueuedEvent {
+        private final MessageContext message;
+        private final long enqueuedTime;
+
+        private QueuedEvent(MessageContext message, long enqueuedTime) {
+            this.message = message;
+            this.enqueuedTime = enqueuedTime;
+        }
+    }
+}
@@ -35,12 +35,15 @@ import org.apache.synapse.SynapseException;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.AddressEndpoint;
 import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.SynapseMessageReceiver;
 import org.apache.synapse.eventing.builders.ResponseMessageBuilder;
 import org.apache.synapse.eventing.builders.SubscriptionMessageBuilder;
+import org.apache.synapse.eventing.managers.DefaultInMemorySubscriptionManager;
 import org.apache.synapse.util.MessageHelper;
 import org.wso2.eventing.EventingConstants;
 import org.wso2.eventing.Subscription;
@@ -49,9 +52,17 @@ import org.wso2.eventing.SubscriptionManager;
 import org.wso2.eventing.exceptions.EventException;
 
 import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Eventsource that accepts the event requests using a message receiver.
@@ -61,6 +72,8 @@ import java.util.Map;
  * UnsubscribeOP, RenewOP, GetstatusOP, SubscriptionEndOP}
  * based on the action in the request eventsource identify the operation and send it for processing.
  * Eventsource link with a subscription manager to store the subscriptions.
+ * Events are queued per subscriber and sent to the subscribers concurrently, see
+ * {@link SubscriberChannel}.
  */
 public class SynapseEventSource extends SynapseMessageReceiver {
 
@@ -71,6 +84,34 @@ public class SynapseEventSource extends SynapseMessageReceiver {
     /* Contains properties used in the configuration and possess confidential information such as
      encrypted passwords  */
     private Map<String, String> configurationProperties = new HashMap<String, String>();
+    /* Endpoints of the subscribers, keyed by the subscriber endpoint URL. An endpoint is kept
+     as long as a delivery channel uses it, guarded by the subscriberChannels lock */
+    private final Map<String, Endpoint> subscriberEndpoints = new HashMap<String, Endpoint>();
+    /* Delivery channels of the subscribers, released along with the subscription */
+    private final Map<Subscription, SubscriberChannel> subscriberChannels =
+            Collections.synchronizedMap(new WeakHashMap<Subscription, SubscriberChannel>());
+    private final AtomicLong disconnectedSubscribers = new AtomicLong();
+
+    private static final String MBEAN_CATEGORY = "EventSource";
+
+    private final int maxInFlight = Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+            SynapseEventingConstants.SUBSCRIBER_MAX_IN_FLIGHT, "4"));
+    private final int queueSize = Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+            SynapseEventingConstants.SUBSCRIBER_QUEUE_SIZE, "1000"));
+    private final String overflowPolicy = SynapsePropertiesLoader.getPropertyValue(
+            SynapseEventingConstants.SUBSCRIBER_OVERFLOW_POLICY,
+            SynapseEventingConstants.OVERFLOW_DROP_OLDEST);
+    private final long parkTimeout = Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+            SynapseEventingConstants.SUBSCRIBER_PARK_TIMEOUT, "1000"));
+    private final long maxLag = Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+            SynapseEventingConstants.SUBSCRIBER_MAX_LAG, "60000"));
+    private final int lagThreshold = Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+            SynapseEventingConstants.SUBSCRIBER_LAG_THRESHOLD, "100"));
+    private final String lagAction = SynapsePropertiesLoader.getPropertyValue(
+            SynapseEventingConstants.SUBSCRIBER_LAG_ACTION,
+            SynapseEventingConstants.LAG_ACTION_BACKOFF);
+    private final long backOff = Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+            SynapseEventingConstants.SUBSCRIBER_BACKOFF, "30000"));
 
     public SynapseEventSource(String name) {
         this.name = name;
@@ -90,6 +131,14 @@ public class SynapseEventSource extends SynapseMessageReceiver {
 
     public void setSubscriptionManager(SubscriptionManager subscriptionManager) {
         this.subscriptionManager = subscriptionManager;
+        if (subscriptionManager instanceof DefaultInMemorySubscriptionManager) {
+            ((DefaultInMemorySubscriptionManager) subscriptionManager).setRemovalListener(
+                    new DefaultInMemorySubscriptionManager.RemovalListener() {
+                        public void subscriptionRemoved(Subscription subscription) {
+                            releaseSubscriber(subscription);
+                        }
+                    });
+        }
     }
 
     public String getFileName() {
@@ -111,6 +160,25 @@ public class SynapseEventSource extends SynapseMessageReceiver {
                 .addParameter(EventingConstants.SUBSCRIPTION_MANAGER, subscriptionManager);
         eventSourceService.addParameter(SynapseEventingConstants.SERVICE_TYPE,
                 SynapseEventingConstants.EVENTING_ST);
+        MBeanRegistrar.getInstance().registerMBean(new EventSourceView(this),
+                MBEAN_CATEGORY, this.name);
+    }
+
+    /**
+     * Stop delivering events to the subscribers and release the event source
+     */
+    public void destroy() {
+        MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, this.name);
+        synchronized (subscriberChannels) {
+            for (SubscriberChannel channel : subscriberChannels.values()) {
+                channel.close();
+            }
+            subscriberChannels.clear();
+            for (Endpoint endpoint : subscriberEndpoints.values()) {
+                endpoint.destroy();
+            }
+            subscriberEndpoints.clear();
+        }
     }
 
     /**
@@ -186,11 +254,37 @@ public class SynapseEventSource extends SynapseMessageReceiver {
      */
     public void dispatchEvents(org.apache.synapse.MessageContext msgCtx) {
 
-        List<Subscription> subscribers = null;
+        List<Subscription> subscriptions;
+        try {
+            MessageContext axis2MsgCtx = ((Axis2MessageContext) msgCtx).getAxis2MessageContext();
+            Event<MessageContext> event = new Event(axis2MsgCtx);
+            subscriptions = subscriptionManager.getMatchingSubscriptions(event);
+        } catch (EventException e) {
+            log.error("Matching subscriptions fetching error", e);
+            return;
+        }
+
+        if (subscriptions.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("No matching subscriptions for the event");
+            }
+            return;
+        }
+
+        // Take a snapshot of the event, as mediation of the original message carries on
+        org.apache.synapse.MessageContext eventCtx;
+        try {
+            eventCtx = MessageHelper.cloneMessageContext(msgCtx);
+        } catch (AxisFault axisFault) {
+            log.error("Error taking a copy of the event " + axisFault.toString());
+            return;
+        }
+        // Set one way message for events
+        eventCtx.setProperty(SynapseConstants.OUT_ONLY, "true");
 
         // Call event dispatcher
         msgCtx.getEnvironment().getExecutorService()
-                .execute(new EventDispatcher(msgCtx));
+                .execute(new EventDispatcher(eventCtx, subscriptions));
     }
 
     /**
@@ -200,35 +294,126 @@ public class SynapseEventSource extends SynapseMessageReceiver {
         private org.apache.synapse.MessageContext synCtx;
         private List<Subscription> subscriptions;
 
-        EventDispatcher(org.apache.synapse.MessageContext synCtx) {
+        EventDispatcher(org.apache.synapse.MessageContext synCtx,
+                        List<Subscription> subscriptions) {
             this.synCtx = synCtx;
+            this.subscriptions = subscriptions;
         }
 
         public void run() {
-            try {
-                MessageContext msgCtx = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
-                Event<MessageContext> event = new Event(msgCtx);
-                subscriptions = subscriptionManager.getMatchingSubscriptions(event);
-            } catch (EventException e) {
-                handleException("Matching subscriptions fetching error", e);
-            }
-
-            for (Subscription subscription : subscriptions) {
-                synCtx.setProperty(SynapseConstants.OUT_ONLY,
-                        "true");    // Set one way message for events
+            Iterator<Subscription> iterator = subscriptions.iterator();
+            while (iterator.hasNext()) {
+                Subscription subscription = iterator.next();
+                SubscriberChannel channel =
+                        getSubscriberChannel(subscription, synCtx.getEnvironment());
+                if (!channel.isAccepting()) {
+                    channel.discard();
+                    continue;
+                }
                 try {
-                    getEndpointFromURL(subscription.getEndpointUrl(), synCtx.getEnvironment())
-                            .send(MessageHelper.cloneMessageContext(synCtx));
+                    // sending modifies the message, so every subscriber gets its own copy
+                    // of the event snapshot, except for the last one which takes the snapshot
+                    org.apache.synapse.MessageContext event = iterator.hasNext() ?
+                            MessageHelper.cloneMessageContext(synCtx) : synCtx;
+                    if (!channel.enqueue(event)) {
+                        handleLaggingSubscriber(subscription, channel);
+                    }
                 } catch (AxisFault axisFault) {
                     log.error("Event sending failure " + axisFault.toString());
                 }
-                if (log.isDebugEnabled()) {
-                    log.debug("Event push to  : " + subscription.getEndpointUrl());
-                }
             }
         }
     }
 
+    SubscriberChannel getSubscriberChannel(Subscription subscription, SynapseEnvironment se) {
+        synchronized (subscriberChannels) {
+            SubscriberChannel channel = subscriberChannels.get(subscription);
+            if (channel == null) {
+                // the channels of subscriptions dropped by subscription managers which do not
+                // report removals are only cleared once collected, release their endpoints
+                releaseUnusedEndpoints();
+                String address = subscription.getEndpointUrl().trim();
+                channel = new SubscriberChannel(subscription.getId(), address,
+                        getEndpointFromURL(address, se), se.getExecutorService(), maxInFlight,
+                        queueSize, overflowPolicy, parkTimeout, maxLag, lagThreshold);
+                subscriberChannels.put(subscription, channel);
+            }
+            return channel;
+        }
+    }
+
+    /**
+     * Back off or disconnect a subscriber that does not keep up with the events
+     *
+     * @param subscription the lagging subscription
+     * @param channel      the delivery channel of the subscription
+     */
+    private void handleLaggingSubscriber(Subscription subscription, SubscriberChannel channel) {
+        if (SynapseEventingConstants.LAG_ACTION_DISCONNECT.equals(lagAction)) {
+            log.warn("Subscriber : " + channel.getAddress() + " of the event source : " + name +
+                    " is falling behind, disconnecting subscription : " + subscription.getId());
+            releaseSubscriber(subscription);
+            disconnectedSubscribers.incrementAndGet();
+            try {
+                subscriptionManager.unsubscribe(subscription.getId());
+            } catch (EventException e) {
+                log.error("Error removing the subscription : " + subscription.getId(), e);
+            }
+        } else {
+            log.warn("Subscriber : " + channel.getAddress() + " of the event source : " + name +
+                    " is falling behind, backing off for " + backOff + "ms");
+            channel.backOff(backOff);
+        }
+    }
+
+    /**
+     * Stop delivering events to a removed subscription, and release its endpoint unless
+     * another subscription still uses it
+     *
+     * @param subscription the removed subscription
+     */
+    void releaseSubscriber(Subscription subscription) {
+        synchronized (subscriberChannels) {
+            SubscriberChannel channel = subscriberChannels.remove(subscription);
+            if (channel == null) {
+                return;
+            }
+            channel.close();
+            releaseUnusedEndpoints();
+        }
+    }
+
+    private void releaseUnusedEndpoints() {
+        Set<String> used = new HashSet<String>();
+        for (SubscriberChannel channel : subscriberChannels.values()) {
+            used.add(channel.getAddress());
+        }
+        Iterator<Map.Entry<String, Endpoint>> it = subscriberEndpoints.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Endpoint> entry = it.next();
+            if (!used.contains(entry.getKey())) {
+                it.remove();
+                entry.getValue().destroy();
+            }
+        }
+    }
+
+    int getSubscriberEndpointCount() {
+        synchronized (subscriberChannels) {
+            return subscriberEndpoints.size();
+        }
+    }
+
+    Collection<SubscriberChannel> getSubscriberChannels() {
+        synchronized (subscriberChannels) {
+            return new ArrayList<SubscriberChannel>(subscriberChannels.values());
+        }
+    }
+
+    long getDisconnectedSubscribers() {
+        return disconnectedSubscribers.get();
+    }
+
     /**
      * Process the subscription message request
      *
@@ -298,7 +483,11 @@ public class SynapseEventSource extends SynapseMessageReceiver {
             log.debug("UnSubscribe response recived for SynapseSubscription ID : " +
                     subscription.getId());
         }
+        Subscription stored = subscriptionManager.getSubscription(subscription.getId());
         if (subscriptionManager.unsubscribe(subscription.getId())) {
+            if (stored != null) {
+                releaseSubscriber(stored);
+            }
             //send the response
             if (log.isDebugEnabled()) {
                 log.debug("Sending UnSubscribe responce for SynapseSubscription ID : " +
@@ -417,14 +606,21 @@ public class SynapseEventSource extends SynapseMessageReceiver {
      * @return AddressEndpoint address endpoint
      */
     private Endpoint getEndpointFromURL(String endpointUrl, SynapseEnvironment se) {
-        AddressEndpoint endpoint = new AddressEndpoint();
+        String address = endpointUrl.trim();
+        Endpoint endpoint = subscriberEndpoints.get(address);
+        if (endpoint != null) {
+            return endpoint;
+        }
+
+        AddressEndpoint addressEndpoint = new AddressEndpoint();
         EndpointDefinition def = new EndpointDefinition();
-        def.setAddress(endpointUrl.trim());
-        endpoint.setDefinition(def);
+        def.setAddress(address);
+        addressEndpoint.setDefinition(def);
 
-        endpoint.init(se);
+        addressEndpoint.init(se);
+        subscriberEndpoints.put(address, addressEndpoint);
 
-        return endpoint;
+        return addressEndpoint;
     }
 
     /**
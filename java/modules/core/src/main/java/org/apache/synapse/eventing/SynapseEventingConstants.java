@@ -28,4 +28,29 @@ public class SynapseEventingConstants {
     public static final String STATIC_ENTRY = "staticEntry";
     public static final String SERVICE_TYPE = "serviceType";
     public static final String EVENTING_ST  = "eventing";
+
+    /** Maximum number of events awaiting the response of a single subscriber */
+    public static final String SUBSCRIBER_MAX_IN_FLIGHT = "synapse.eventing.subscriber.maxInFlight";
+    /** Maximum number of events queued for a single subscriber */
+    public static final String SUBSCRIBER_QUEUE_SIZE = "synapse.eventing.subscriber.queueSize";
+    /** What to do when a subscriber queue is full - drop-oldest, drop-newest or park */
+    public static final String SUBSCRIBER_OVERFLOW_POLICY =
+            "synapse.eventing.subscriber.overflowPolicy";
+    /** Time in milliseconds an event may wait for queue space with the park overflow policy */
+    public static final String SUBSCRIBER_PARK_TIMEOUT = "synapse.eventing.subscriber.parkTimeout";
+    /** Time in milliseconds an event may wait in a subscriber queue before it is lagging */
+    public static final String SUBSCRIBER_MAX_LAG = "synapse.eventing.subscriber.maxLag";
+    /** Number of consecutive events a subscriber may lag behind before it is acted upon */
+    public static final String SUBSCRIBER_LAG_THRESHOLD =
+            "synapse.eventing.subscriber.lagThreshold";
+    /** What to do with a lagging subscriber - backoff or disconnect */
+    public static final String SUBSCRIBER_LAG_ACTION = "synapse.eventing.subscriber.lagAction";
+    /** Time in milliseconds no events are sent to a lagging subscriber that is backed off */
+    public static final String SUBSCRIBER_BACKOFF = "synapse.eventing.subscriber.backoff";
+
+    public static final String OVERFLOW_DROP_OLDEST = "drop-oldest";
+    public static final String OVERFLOW_DROP_NEWEST = "drop-newest";
+    public static final String OVERFLOW_PARK = "park";
+    public static final String LAG_ACTION_BACKOFF = "backoff";
+    public static final String LAG_ACTION_DISCONNECT = "disconnect";
 }
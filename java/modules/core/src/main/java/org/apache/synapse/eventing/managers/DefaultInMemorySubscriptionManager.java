@@ -25,28 +25,68 @@ import org.apache.axiom.util.UIDGenerator;
 import org.apache.axis2.context.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.eventing.SynapseEventingConstants;
-import org.apache.synapse.eventing.filters.TopicBasedEventFilter;
 import org.apache.synapse.util.xpath.SynapseXPath;
+import org.apache.axiom.om.OMElement;
 import org.jaxen.JaxenException;
 import org.wso2.eventing.*;
 import org.wso2.eventing.exceptions.EventException;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
- *
+ * In memory subscription manager. Subscriptions are indexed by their topic filter, so that the
+ * topic of an event is evaluated once and the matching subscriptions are looked up in the
+ * index, and expiring subscriptions are removed by a timer when they expire. A
+ * {@link RemovalListener} is told about the subscriptions removed, either by unsubscribing
+ * or by expiring, so that the resources held for them can be released.
  */
 public class DefaultInMemorySubscriptionManager implements SubscriptionManager<MessageContext> {
 
+    /** Timer shared by all the subscription managers to remove expired subscriptions */
+    private static final ScheduledExecutorService expiryTimer =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "subscription-expiry");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
     private final Map<String, Subscription> store =
             new ConcurrentHashMap<String, Subscription>();
+    private final TopicSubscriptionIndex index = new TopicSubscriptionIndex();
+    private final Map<String, ScheduledFuture<?>> expiryTasks =
+            new ConcurrentHashMap<String, ScheduledFuture<?>>();
     private String topicHeaderName;
     private String topicHeaderNS;
     private SynapseXPath topicXPath;
     private final Map<String, String> properties = new HashMap<String, String>();
+    private volatile RemovalListener removalListener;
     private static final Log log = LogFactory.getLog(DefaultInMemorySubscriptionManager.class);
 
+    /**
+     * Gets notified of the subscriptions removed from a subscription manager
+     */
+    public interface RemovalListener {
+
+        /**
+         * Called once a subscription has been removed, outside of the lock of the manager
+         *
+         * @param subscription the removed subscription
+         */
+        void subscriptionRemoved(Subscription subscription);
+    }
+
+    public void setRemovalListener(RemovalListener removalListener) {
+        this.removalListener = removalListener;
+    }
+
     public List<Subscription> getStaticSubscriptions() {
         LinkedList<Subscription> list = new LinkedList<Subscription>();
         for (Subscription storeSubscription : store.values()) {
@@ -57,29 +97,37 @@ public class DefaultInMemorySubscriptionManager implements SubscriptionManager<M
         return list;
     }
 
-    public String subscribe(Subscription subscription) throws EventException {
+    public synchronized String subscribe(Subscription subscription) throws EventException {
         if (subscription.getId() == null) {
             subscription.setId(UIDGenerator.generateURNString());
         }
         store.put(subscription.getId(), subscription);
+        index.add(subscription);
+        scheduleExpiry(subscription.getId(), subscription.getExpires());
         return subscription.getId();
 
     }
 
-  public boolean unsubscribe(String id) throws EventException {
-        if (store.containsKey(id)) {
-            store.remove(id);
-            return true;
-        } else {
-            return false;
+    public boolean unsubscribe(String id) throws EventException {
+        Subscription subscription;
+        synchronized (this) {
+            subscription = store.remove(id);
+            if (subscription == null) {
+                return false;
+            }
+            index.remove(id);
+            cancelExpiry(id);
         }
+        notifyRemoval(subscription);
+        return true;
     }
 
 
-    public boolean renew(Subscription subscription) throws EventException {
+    public synchronized boolean renew(Subscription subscription) throws EventException {
         Subscription subscriptionOld = getSubscription(subscription.getId());
         if (subscriptionOld != null) {
             subscriptionOld.setExpires(subscription.getExpires());
+            scheduleExpiry(subscriptionOld.getId(), subscriptionOld.getExpires());
             return true;
         } else {
             return false;
@@ -104,32 +152,20 @@ public class DefaultInMemorySubscriptionManager implements SubscriptionManager<M
 
     public List<Subscription> getMatchingSubscriptions(Event<MessageContext> event)
             throws EventException {
-        final LinkedList<Subscription> list = new LinkedList<Subscription>();
-        for (Map.Entry<String, Subscription> stringSubscriptionEntry : store.entrySet()) {
-            //TODO : pick the filter based on the dialect
-            //XPathBasedEventFilter filter = new XPathBasedEventFilter();
-            TopicBasedEventFilter filter = new TopicBasedEventFilter();
-            if (filter != null) {
-                filter.setResultValue(stringSubscriptionEntry.getValue().getFilterValue());
-                filter.setSourceXpath(topicXPath);
-                //evaluatedValue = topicXPath.stringValueOf(mc);
-            }
-            if (filter == null || filter.match(event)) {
-                Subscription subscription = stringSubscriptionEntry.getValue();
-                Calendar current = Calendar.getInstance(); //Get current date and time
-                if (subscription.getExpires() != null) {
-                    if (current.before(subscription.getExpires())) {
-                        // add only valid subscriptions by checking the expiration
-                        list.add(subscription);
-                    }
-                } else {
-                    // If a expiration dosen't exisits treat it as a never expire subscription, valid till unsubscribe
-                    list.add(subscription);
-                }
-
+        //TODO : pick the filter based on the dialect
+        // the topic is evaluated once per event, and matched against the subscription index
+        // with the same semantics as the TopicBasedEventFilter
+        String topic = null;
+        try {
+            OMElement topicNode = (OMElement) topicXPath.selectSingleNode(
+                    event.getMessage().getEnvelope());
+            if (topicNode != null) {
+                topic = topicNode.getText();
             }
+        } catch (JaxenException e) {
+            handleException("Error evaluating the topic xpath", e);
         }
-        return list;
+        return index.match(topic);
     }
 
     public Subscription getSubscription(String id) {
@@ -141,6 +177,67 @@ public class DefaultInMemorySubscriptionManager implements SubscriptionManager<M
     }
 
 
+    /**
+     * Schedule the removal of the given subscription when it expires, replacing any removal
+     * scheduled earlier. Subscriptions without an expiry time are kept until unsubscribed
+     *
+     * @param id the subscription id
+     * @param expires the expiry time of the subscription, may be null
+     */
+    private void scheduleExpiry(final String id, Calendar expires) {
+        cancelExpiry(id);
+        if (expires == null) {
+            return;
+        }
+        long delay = expires.getTimeInMillis() - System.currentTimeMillis();
+        expiryTasks.put(id, expiryTimer.schedule(new Runnable() {
+            public void run() {
+                expire(id);
+            }
+        }, Math.max(0, delay), TimeUnit.MILLISECONDS));
+    }
+
+    private void cancelExpiry(String id) {
+        ScheduledFuture<?> task = expiryTasks.remove(id);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    private void expire(String id) {
+        Subscription subscription;
+        synchronized (this) {
+            subscription = store.get(id);
+            if (subscription == null) {
+                return;
+            }
+            Calendar expires = subscription.getExpires();
+            if (expires != null && expires.getTimeInMillis() > System.currentTimeMillis()) {
+                // renewed after the removal was scheduled
+                scheduleExpiry(id, expires);
+                return;
+            }
+            store.remove(id);
+            index.remove(id);
+            expiryTasks.remove(id);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Removed the expired subscription : " + id);
+        }
+        notifyRemoval(subscription);
+    }
+
+    private void notifyRemoval(Subscription subscription) {
+        RemovalListener listener = removalListener;
+        if (listener != null) {
+            try {
+                listener.subscriptionRemoved(subscription);
+            } catch (Exception e) {
+                log.error("Error releasing the subscription : " + subscription.getId(), e);
+            }
+        }
+    }
+
     public void init() {
         try {
             //TODO: pick values from the constants
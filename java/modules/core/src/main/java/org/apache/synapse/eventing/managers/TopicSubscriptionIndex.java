@@ -0,0 +1,152 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing.managers;
+
+import org.wso2.eventing.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Topic trie used to look up the subscriptions matching an event topic without evaluating
+ * every subscription. Topics are split into segments on '/', and a subscription matches an
+ * event whose topic equals its filter value or lies underneath it (i.e. "weather" matches
+ * "weather" and "weather/storms"). A '*' segment in a subscription filter matches exactly
+ * one segment of the event topic.
+ * <p/>
+ * Lookups are lock free, while subscribing and unsubscribing are serialized.
+ */
+class TopicSubscriptionIndex {
+
+    static final String SEPARATOR = "/";
+    static final String WILDCARD = "*";
+
+    private final Node root = new Node();
+
+    /** The topic each indexed subscription is stored under, keyed by subscription id */
+    private final Map<String, String> topics = new HashMap<String, String>();
+
+    /**
+     * Index the given subscription under its filter value, replacing any subscription
+     * previously indexed with the same id. Subscriptions without a filter value never match.
+     *
+     * @param subscription the subscription to be indexed
+     */
+    synchronized void add(Subscription subscription) {
+        remove(subscription.getId());
+        String topic = subscription.getFilterValue();
+        if (topic == null) {
+            return;
+        }
+
+        Node node = root;
+        for (String segment : split(topic)) {
+            Node child = node.children.get(segment);
+            if (child == null) {
+                child = new Node();
+                node.children.put(segment, child);
+            }
+            node = child;
+        }
+        node.subscriptions.put(subscription.getId(), subscription);
+        topics.put(subscription.getId(), topic);
+    }
+
+    /**
+     * Remove the subscription with the given id, pruning the branches left empty
+     *
+     * @param id the subscription id
+     * @return true if the subscription was indexed
+     */
+    synchronized boolean remove(String id) {
+        String topic = topics.remove(id);
+        if (topic == null) {
+            return false;
+        }
+
+        String[] segments = split(topic);
+        Node[] path = new Node[segments.length + 1];
+        path[0] = root;
+        for (int i = 0; i < segments.length; i++) {
+            path[i + 1] = path[i].children.get(segments[i]);
+        }
+        path[segments.length].subscriptions.remove(id);
+        for (int i = segments.length; i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].children.remove(segments[i - 1]);
+        }
+        return true;
+    }
+
+    /**
+     * Find the subscriptions matching the given event topic
+     *
+     * @param topic the topic evaluated from the event, may be null
+     * @return the matching subscriptions
+     */
+    List<Subscription> match(String topic) {
+        if (topic == null) {
+            return Collections.emptyList();
+        }
+        List<Subscription> matches = new ArrayList<Subscription>();
+        collect(root, split(topic), 0, matches);
+        return matches;
+    }
+
+    synchronized int size() {
+        return topics.size();
+    }
+
+    private void collect(Node node, String[] segments, int index, List<Subscription> matches) {
+        // every subscription along the path matches, as topics cover all of their sub topics
+        matches.addAll(node.subscriptions.values());
+        if (index == segments.length) {
+            return;
+        }
+
+        Node child = node.children.get(segments[index]);
+        if (child != null) {
+            collect(child, segments, index + 1, matches);
+        }
+        if (!WILDCARD.equals(segments[index])) {
+            Node wildcard = node.children.get(WILDCARD);
+            if (wildcard != null) {
+                collect(wildcard, segments, index + 1, matches);
+            }
+        }
+    }
+
+    private static String[] split(String topic) {
+        return topic.split(SEPARATOR, -1);
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new ConcurrentHashMap<String, Node>();
+        private final Map<String, Subscription> subscriptions =
+                new ConcurrentHashMap<String, Subscription>();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && subscriptions.isEmpty();
+        }
+    }
+}
@@ -62,13 +62,7 @@ public abstract class AbstractListMediator extends AbstractMediator
                 }
             }
 
-            for (Mediator mediator : mediators) {
-                // ensure correct trace state after each invocation of a mediator
-                synCtx.setTracingState(myEffectiveTraceState);
-                if (!mediator.mediate(synCtx)) {
-                    return false;
-                }
-            }
+            return mediateChildren(synCtx, 0, myEffectiveTraceState);
         } catch (SynapseException e) {
             throw e;
         } catch (Exception e) {
@@ -79,6 +73,54 @@ public abstract class AbstractListMediator extends AbstractMediator
         return true;
     }
 
+    /**
+     * Continues the mediation of a suspended message from the given child mediator. List
+     * mediators which do more than running their children (e.g. reporting statistics) override
+     * this to do the same for the resumed children.
+     *
+     * @param synCtx the message being resumed
+     * @param startIndex index of the first child mediator to run
+     * @return false if the mediation was stopped, true otherwise
+     * @see ContinuationState
+     */
+    protected boolean mediate(MessageContext synCtx, int startIndex) {
+
+        int parentsEffectiveTraceState = synCtx.getTracingState();
+        setEffectiveTraceState(synCtx);
+        int myEffectiveTraceState = synCtx.getTracingState();
+
+        try {
+            return mediateChildren(synCtx, startIndex, myEffectiveTraceState);
+        } catch (SynapseException e) {
+            throw e;
+        } catch (Exception e) {
+            handleException("Runtime error occurred while mediating the message", e, synCtx);
+        } finally {
+            synCtx.setTracingState(parentsEffectiveTraceState);
+        }
+        return true;
+    }
+
+    private boolean mediateChildren(MessageContext synCtx, int startIndex, int traceState) {
+        ContinuationState.enter();
+        try {
+            for (int i = startIndex; i < mediators.size(); i++) {
+                // ensure correct trace state after each invocation of a mediator
+                synCtx.setTracingState(traceState);
+                if (!mediators.get(i).mediate(synCtx)) {
+                    if (ContinuationState.isSuspended(synCtx)) {
+                        // remember where to continue once the message is resumed
+                        ContinuationState.addFrame(synCtx, this, i + 1);
+                    }
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            ContinuationState.exit();
+        }
+    }
+
     public List<Mediator> getList() {
         return mediators;
     }
@@ -0,0 +1,276 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators;
+
+import org.apache.synapse.FaultHandler;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.mediators.template.TemplateContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the point at which the mediation of a message was suspended, so that it can be resumed
+ * later on a different thread. A mediator which hands the message off to an asynchronous
+ * operation (e.g. a non-blocking callout) calls {@link #suspend(MessageContext)} and returns
+ * false. Each enclosing list mediator then records the position of the next mediator to run,
+ * from the innermost to the outermost, and the mediation thread is released. When the
+ * asynchronous operation completes, {@link #resume(MessageContext)} continues mediation from
+ * the recorded positions. Each position keeps the fault handlers and the template frames which
+ * were in effect for its list mediator, so that the resumed mediators see the same onError
+ * handlers and template parameters as if the mediation had not been suspended.
+ * <p>
+ * Only the positions of list mediators are recorded. A parent which is not a list mediator is
+ * resumed as if it had returned right after its child, so a mediator which does more work after
+ * its children return (e.g. the conditional router evaluating the remaining routes) must run
+ * them between {@link #enterBarrier()} and {@link #exitBarrier()}. Mediation can not be
+ * suspended below such a barrier, see {@link #canSuspend()}, and a mediator finding it can not
+ * suspend should complete its operation synchronously instead.
+ * <p>
+ * The asynchronous operation may complete before the suspending thread has finished unwinding
+ * the list mediators. Therefore the completion handler should not resume the message directly,
+ * but hand the resumption to {@link #onReady(Runnable)}, which runs it only once all positions
+ * have been recorded.
+ */
+public class ContinuationState {
+
+    /** Tracks the list mediators being run by the current thread */
+    private static final ThreadLocal<Unwinding> unwinding = new ThreadLocal<Unwinding>() {
+        protected Unwinding initialValue() {
+            return new Unwinding();
+        }
+    };
+
+    private final List<Frame> frames = new ArrayList<Frame>();
+
+    /** Counts down the completion of the operation and the unwinding of the mediation */
+    private final AtomicInteger arrivals = new AtomicInteger(2);
+
+    private volatile Runnable resumption;
+
+    private ContinuationState() {
+    }
+
+    /**
+     * Marks the mediation of the given message as suspended. The calling mediator must return
+     * false from its mediate method immediately after this call.
+     *
+     * @param synCtx the message being mediated
+     * @return the state of the suspended mediation
+     */
+    public static ContinuationState suspend(MessageContext synCtx) {
+        ContinuationState state = new ContinuationState();
+        synCtx.setProperty(SynapseConstants.CONTINUATION_STATE, state);
+
+        Unwinding current = unwinding.get();
+        if (current.depth == 0) {
+            state.seal();
+        } else {
+            current.suspended.add(state);
+        }
+        return state;
+    }
+
+    /**
+     * Runs the given resumption of the suspended message once the suspending thread has
+     * finished unwinding. This is either done immediately on the calling thread, or later on
+     * the suspending thread.
+     *
+     * @param resumption the task resuming the message, typically by calling
+     * {@link #resume(MessageContext)}
+     */
+    public void onReady(Runnable resumption) {
+        this.resumption = resumption;
+        if (arrivals.decrementAndGet() == 0) {
+            resumption.run();
+        }
+    }
+
+    private void seal() {
+        if (arrivals.decrementAndGet() == 0) {
+            resumption.run();
+        }
+    }
+
+    /**
+     * Called by a list mediator before running its child mediators
+     */
+    static void enter() {
+        unwinding.get().depth++;
+    }
+
+    /**
+     * Called by a list mediator after running its child mediators. When the outermost list
+     * mediator returns, every message suspended on this thread is ready to be resumed.
+     */
+    static void exit() {
+        Unwinding current = unwinding.get();
+        if (--current.depth == 0 && !current.suspended.isEmpty()) {
+            List<ContinuationState> states = new ArrayList<ContinuationState>(current.suspended);
+            current.suspended.clear();
+            for (ContinuationState state : states) {
+                state.seal();
+            }
+        }
+    }
+
+    /**
+     * Called by a mediator which is not a list mediator, before running child mediators after
+     * which it does more work. Must be paired with {@link #exitBarrier()} in a finally block.
+     */
+    public static void enterBarrier() {
+        unwinding.get().barriers++;
+    }
+
+    /**
+     * Called by a mediator after running the child mediators guarded by
+     * {@link #enterBarrier()}
+     */
+    public static void exitBarrier() {
+        unwinding.get().barriers--;
+    }
+
+    /**
+     * @return true if the mediation on the current thread may be suspended, false if one of
+     * the mediators being run would not be resumed properly
+     */
+    public static boolean canSuspend() {
+        return unwinding.get().barriers == 0;
+    }
+
+    /**
+     * @param synCtx a message
+     * @return true if the mediation of the message has been suspended
+     */
+    public static boolean isSuspended(MessageContext synCtx) {
+        return synCtx.getProperty(SynapseConstants.CONTINUATION_STATE) instanceof ContinuationState;
+    }
+
+    /**
+     * Records the position from which the given list mediator should continue once the
+     * message is resumed
+     *
+     * @param synCtx the suspended message
+     * @param mediator the list mediator that was running when the message got suspended
+     * @param nextIndex index of the next child mediator to be run
+     */
+    static void addFrame(MessageContext synCtx, AbstractListMediator mediator, int nextIndex) {
+        ContinuationState state = (ContinuationState) synCtx.getProperty(
+                SynapseConstants.CONTINUATION_STATE);
+        if (state != null) {
+            Stack<TemplateContext> functionStack = (Stack<TemplateContext>) synCtx.getProperty(
+                    SynapseConstants.SYNAPSE__FUNCTION__STACK);
+            state.frames.add(new Frame(mediator, nextIndex,
+                    new ArrayList<FaultHandler>(synCtx.getFaultStack()),
+                    functionStack != null ? new ArrayList<TemplateContext>(functionStack) : null));
+        }
+    }
+
+    /**
+     * Restores the fault handlers and template frames in effect at the point the mediation
+     * was suspended. This must be done before the outcome of the asynchronous operation is
+     * applied to the message, so that a failure is handled by the right fault handler.
+     *
+     * @param synCtx the suspended message
+     */
+    public void restore(MessageContext synCtx) {
+        if (!frames.isEmpty()) {
+            frames.get(0).restore(synCtx);
+        }
+    }
+
+    /**
+     * Continues the mediation of a suspended message. If the message gets suspended again
+     * while resuming, the remaining outer positions are carried over to the new state.
+     *
+     * @param synCtx the suspended message
+     * @return false if the mediation was stopped (or suspended again), true otherwise
+     */
+    public static boolean resume(MessageContext synCtx) {
+        ContinuationState state = (ContinuationState) synCtx.getProperty(
+                SynapseConstants.CONTINUATION_STATE);
+        synCtx.getPropertyKeySet().remove(SynapseConstants.CONTINUATION_STATE);
+        if (state == null) {
+            return true;
+        }
+
+        List<Frame> frames = state.frames;
+        for (int i = 0; i < frames.size(); i++) {
+            Frame frame = frames.get(i);
+            frame.restore(synCtx);
+            if (!frame.mediator.mediate(synCtx, frame.nextIndex)) {
+                if (isSuspended(synCtx)) {
+                    ContinuationState newState = (ContinuationState) synCtx.getProperty(
+                            SynapseConstants.CONTINUATION_STATE);
+                    newState.frames.addAll(frames.subList(i + 1, frames.size()));
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of list mediators waiting to be resumed
+     */
+    public int getDepth() {
+        return frames.size();
+    }
+
+    private static class Unwinding {
+
+        private int depth = 0;
+        private int barriers = 0;
+        private final List<ContinuationState> suspended = new ArrayList<ContinuationState>();
+    }
+
+    private static class Frame {
+
+        private final AbstractListMediator mediator;
+        private final int nextIndex;
+        private final List<FaultHandler> faultHandlers;
+        private final List<TemplateContext> templateFrames;
+
+        private Frame(AbstractListMediator mediator, int nextIndex,
+                      List<FaultHandler> faultHandlers, List<TemplateContext> templateFrames) {
+            this.mediator = mediator;
+            this.nextIndex = nextIndex;
+            this.faultHandlers = faultHandlers;
+            this.templateFrames = templateFrames;
+        }
+
+        private void restore(MessageContext synCtx) {
+            Stack<FaultHandler> faultStack = synCtx.getFaultStack();
+            faultStack.clear();
+            faultStack.addAll(faultHandlers);
+
+            if (templateFrames != null) {
+                Stack<TemplateContext> functionStack = new Stack<TemplateContext>();
+                functionStack.addAll(templateFrames);
+                synCtx.setProperty(SynapseConstants.SYNAPSE__FUNCTION__STACK, functionStack);
+            } else {
+                synCtx.getPropertyKeySet().remove(SynapseConstants.SYNAPSE__FUNCTION__STACK);
+            }
+        }
+    }
+}
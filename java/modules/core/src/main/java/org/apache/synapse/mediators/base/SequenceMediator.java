@@ -24,6 +24,7 @@ import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.aspects.statistics.StatisticsReporter;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractListMediator;
+import org.apache.synapse.mediators.ContinuationState;
 import org.apache.synapse.mediators.Value;
 import org.apache.synapse.mediators.MediatorFaultHandler;
 
@@ -116,16 +117,7 @@ public class SequenceMediator extends AbstractListMediator implements Nameable {
                 // if we pushed an error handler, pop it from the fault stack
                 // before we exit normally without an exception
                 if (errorHandlerMediator != null) {
-                    Stack faultStack = synCtx.getFaultStack();
-                    if (faultStack != null && !faultStack.isEmpty()) {
-                        Object o = faultStack.peek();
-
-                        if (o instanceof MediatorFaultHandler &&
-                                errorHandlerMediator.equals(
-                                        ((MediatorFaultHandler) o).getFaultMediator())) {
-                            faultStack.pop();
-                        }
-                    }
+                    popErrorHandler(synCtx, errorHandlerMediator);
                 }
 
                 if (synLog.isTraceOrDebugEnabled()) {
@@ -140,18 +132,9 @@ public class SequenceMediator extends AbstractListMediator implements Nameable {
                 return result;
 
             } finally {
-
-                if (isStatisticsEnable()) {
-                    boolean shouldReport = Boolean.parseBoolean(
-                            String.valueOf(synCtx.getProperty(SynapseConstants.OUT_ONLY)));
-                    if (!shouldReport) {
-                        shouldReport = !(Boolean.parseBoolean(String.valueOf(
-                                synCtx.getProperty(SynapseConstants.SENDING_REQUEST))));
-                    }
-                    if (shouldReport) {
-                        StatisticsReporter.reportForComponent(synCtx,
-                                getAspectConfiguration(), ComponentType.SEQUENCE);
-                    }
+                // a suspended sequence reports its end once it is resumed and completes
+                if (!ContinuationState.isSuspended(synCtx)) {
+                    reportEnd(synCtx);
                 }
             }
 
@@ -179,6 +162,77 @@ public class SequenceMediator extends AbstractListMediator implements Nameable {
         return false;
     }
 
+    /**
+     * Continues this sequence from the given child mediator, once a message suspended while
+     * mediating through it is resumed. The onError handler of the sequence is already in place,
+     * since the fault handlers in effect when the message got suspended are restored before
+     * resuming, so it only has to be popped when the sequence completes.
+     *
+     * @param synCtx the message being resumed
+     * @param startIndex index of the first child mediator to run
+     * @return as per standard mediator result
+     */
+    @Override
+    protected boolean mediate(MessageContext synCtx, int startIndex) {
+
+        SynapseLog synLog = getLog(synCtx);
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Resuming : Sequence <" + (name == null ? "anonymous" : name) +
+                    "> from mediator : " + startIndex);
+        }
+
+        try {
+            // the start of the sequence was reported before it got suspended
+            boolean result = super.mediate(synCtx, startIndex);
+
+            if (errorHandler != null) {
+                Mediator errorHandlerMediator = synCtx.getSequence(errorHandler);
+                if (errorHandlerMediator != null) {
+                    popErrorHandler(synCtx, errorHandlerMediator);
+                }
+            }
+
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug(
+                        "End : Sequence <" + (name == null ? "anonymous" : name) + ">");
+            }
+            return result;
+
+        } finally {
+            if (!ContinuationState.isSuspended(synCtx)) {
+                reportEnd(synCtx);
+            }
+        }
+    }
+
+    private void popErrorHandler(MessageContext synCtx, Mediator errorHandlerMediator) {
+        Stack faultStack = synCtx.getFaultStack();
+        if (faultStack != null && !faultStack.isEmpty()) {
+            Object o = faultStack.peek();
+
+            if (o instanceof MediatorFaultHandler &&
+                    errorHandlerMediator.equals(
+                            ((MediatorFaultHandler) o).getFaultMediator())) {
+                faultStack.pop();
+            }
+        }
+    }
+
+    private void reportEnd(MessageContext synCtx) {
+        if (isStatisticsEnable()) {
+            boolean shouldReport = Boolean.parseBoolean(
+                    String.valueOf(synCtx.getProperty(SynapseConstants.OUT_ONLY)));
+            if (!shouldReport) {
+                shouldReport = !(Boolean.parseBoolean(String.valueOf(
+                        synCtx.getProperty(SynapseConstants.SENDING_REQUEST))));
+            }
+            if (shouldReport) {
+                StatisticsReporter.reportForComponent(synCtx,
+                        getAspectConfiguration(), ComponentType.SEQUENCE);
+            }
+        }
+    }
+
     /**
      * This method will ensure that each and every sequence wil only be initialized atmost once
      * @param se - enviorenment to be initialized
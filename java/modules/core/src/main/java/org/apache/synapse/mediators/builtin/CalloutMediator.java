@@ -25,6 +25,8 @@ import org.apache.axiom.soap.SOAPBody;
 import org.apache.axiom.soap.SOAPHeader;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.Constants;
+import org.apache.axis2.context.OperationContext;
+import org.apache.synapse.FaultHandler;
 import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
@@ -33,26 +35,41 @@ import org.apache.synapse.SynapseLog;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2BlockingClient;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.ResponseContinuation;
 import org.apache.synapse.endpoints.AbstractEndpoint;
 import org.apache.synapse.endpoints.AddressEndpoint;
 import org.apache.synapse.endpoints.DefaultEndpoint;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.ContinuationState;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.apache.synapse.util.MessageHelper;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
 
 import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * <callout [serviceURL="string"] [action="string"][passHeaders="true|false"] [initAxis2ClientOptions="true|false"]>
+ * <callout [serviceURL="string"] [action="string"][passHeaders="true|false"] [initAxis2ClientOptions="true|false"] [blocking="true|false"]>
  * <configuration [axis2xml="string"] [repository="string"]/>?
  * <endpoint/>?
  * <source xpath="expression" | key="string">? <!-- key can be a MC property or entry key -->
  * <target xpath="expression" | key="string"/>?
  * <enableSec policy="string" | outboundPolicy="String" | inboundPolicy="String"/>?
  * </callout>
+ *
+ * By default the service is invoked through a blocking client, which holds the mediation thread
+ * until the response arrives. When blocking is set to false, the request is sent through the
+ * regular (non-blocking) transport sender and the mediation is suspended. Once the response
+ * arrives, it is placed on the message as specified by the target, and the mediation continues
+ * with the mediator following the callout on the thread that received the response, under the
+ * fault handlers of the enclosing sequences. Send failures and timeouts, including timeouts with
+ * the discard action, resume the mediation through those fault handlers. A non-blocking callout
+ * fails the message when placed within a mediator which can not be resumed, such as a
+ * conditional router route or an onStore sequence.
  */
 public class CalloutMediator extends AbstractMediator implements ManagedLifecycle {
 
@@ -90,6 +107,8 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
 
     private Axis2BlockingClient blockingMsgSender = null;
 
+    private boolean blocking = true;
+
     public boolean mediate(MessageContext synCtx) {
 
         SynapseLog synLog = getLog(synCtx);
@@ -158,6 +177,24 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
                 }
             }
 
+            if (!blocking) {
+                if ("true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY))) {
+                    endpoint.send(synapseOutMsgCtx);
+                    synLog.traceOrDebug("End : Callout mediator");
+                    return true;
+                }
+
+                if (!ContinuationState.canSuspend()) {
+                    handleException("A non-blocking callout can not suspend the mediation " +
+                            "within a mediator which continues after its child mediators " +
+                            "return, use a blocking callout instead", synCtx);
+                }
+                sendNonBlocking(synCtx, synapseOutMsgCtx);
+                synLog.traceOrDebug("Callout mediator : mediation suspended until the response " +
+                        "is received");
+                return false;
+            }
+
             MessageContext resultMsgCtx = null;
             try {
                 if ("true".equals(synCtx.getProperty(SynapseConstants.OUT_ONLY))) {
@@ -177,28 +214,7 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
             }
 
             if (resultMsgCtx != null) {
-                if (targetXPath != null) {
-                    Object o = targetXPath.evaluate(synCtx);
-                    OMElement result = resultMsgCtx.getEnvelope().getBody().getFirstElement();
-                    if (o != null && o instanceof OMElement) {
-                        OMNode tgtNode = (OMElement) o;
-                        tgtNode.insertSiblingAfter(result);
-                        tgtNode.detach();
-                    } else if (o != null && o instanceof List && !((List) o).isEmpty()) {
-                        // Always fetches *only* the first
-                        OMNode tgtNode = (OMElement) ((List) o).get(0);
-                        tgtNode.insertSiblingAfter(result);
-                        tgtNode.detach();
-                    } else {
-                        handleException("Evaluation of target XPath expression : " +
-                                        targetXPath.toString() + " did not yeild an OMNode", synCtx);
-                    }
-                } else if (targetKey != null) {
-                    OMElement result = resultMsgCtx.getEnvelope().getBody().getFirstElement();
-                    synCtx.setProperty(targetKey, result);
-                } else {
-                    synCtx.setEnvelope(resultMsgCtx.getEnvelope());
-                }
+                handleResponse(synCtx, resultMsgCtx);
             } else {
                 synLog.traceOrDebug("Service returned a null response");
             }
@@ -215,6 +231,120 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
         return true;
     }
 
+    /**
+     * Places the response of the service on the message as specified by the target
+     *
+     * @param synCtx the message on which the callout was performed
+     * @param resultMsgCtx the response of the service
+     * @throws AxisFault if the response envelope cannot be set
+     * @throws JaxenException if the target XPath cannot be evaluated
+     */
+    private void handleResponse(MessageContext synCtx, MessageContext resultMsgCtx)
+            throws AxisFault, JaxenException {
+
+        if (targetXPath != null) {
+            Object o = targetXPath.evaluate(synCtx);
+            OMElement result = resultMsgCtx.getEnvelope().getBody().getFirstElement();
+            if (o != null && o instanceof OMElement) {
+                OMNode tgtNode = (OMElement) o;
+                tgtNode.insertSiblingAfter(result);
+                tgtNode.detach();
+            } else if (o != null && o instanceof List && !((List) o).isEmpty()) {
+                // Always fetches *only* the first
+                OMNode tgtNode = (OMElement) ((List) o).get(0);
+                tgtNode.insertSiblingAfter(result);
+                tgtNode.detach();
+            } else {
+                handleException("Evaluation of target XPath expression : " +
+                                targetXPath.toString() + " did not yeild an OMNode", synCtx);
+            }
+        } else if (targetKey != null) {
+            OMElement result = resultMsgCtx.getEnvelope().getBody().getFirstElement();
+            synCtx.setProperty(targetKey, result);
+        } else {
+            synCtx.setEnvelope(resultMsgCtx.getEnvelope());
+        }
+    }
+
+    /**
+     * Sends the request through the endpoint without waiting for the response, and suspends
+     * the mediation of the original message until the response (or a fault) arrives
+     *
+     * @param synCtx the message being mediated
+     * @param synapseOutMsgCtx the request to be sent to the service
+     */
+    private void sendNonBlocking(MessageContext synCtx, MessageContext synapseOutMsgCtx) {
+        ContinuationState state = ContinuationState.suspend(synCtx);
+
+        CalloutContinuation continuation = new CalloutContinuation(synCtx, state);
+        synapseOutMsgCtx.pushFaultHandler(continuation);
+        synapseOutMsgCtx.setProperty(SynapseConstants.RESPONSE_CONTINUATION, continuation);
+
+        // the response to the client is written by the resumed mediation, so the transport
+        // must not send an empty 202 Accepted when this thread returns
+        OperationContext opCtx =
+                ((Axis2MessageContext) synCtx).getAxis2MessageContext().getOperationContext();
+        if (opCtx != null) {
+            opCtx.setProperty(Constants.RESPONSE_WRITTEN, "SKIP");
+        }
+
+        try {
+            endpoint.send(synapseOutMsgCtx);
+        } catch (RuntimeException e) {
+            synCtx.getPropertyKeySet().remove(SynapseConstants.CONTINUATION_STATE);
+            throw e;
+        }
+    }
+
+    private void resumeWithResponse(MessageContext synCtx, ContinuationState state,
+                                    MessageContext response) {
+        SynapseLog synLog = getLog(synCtx);
+        state.restore(synCtx);
+        try {
+            RelayUtils.buildMessage(((Axis2MessageContext) response).getAxis2MessageContext(),
+                    false);
+
+            if (synLog.isTraceTraceEnabled()) {
+                synLog.traceTrace("Response payload received : " + response.getEnvelope());
+            }
+
+            handleResponse(synCtx, response);
+            synLog.traceOrDebug("End : Callout mediator");
+            ContinuationState.resume(synCtx);
+
+        } catch (SynapseException e) {
+            handleResumeError(synCtx, e);
+        } catch (Exception e) {
+            handleResumeError(synCtx, new SynapseException("Error while processing the " +
+                    "callout response from service : " + serviceURL, e));
+        }
+    }
+
+    private void resumeWithFault(MessageContext synCtx, ContinuationState state,
+                                 Object errorCode, Object errorMessage, Object errorDetail,
+                                 Exception e) {
+        state.restore(synCtx);
+        synCtx.setProperty(SynapseConstants.SENDING_FAULT, Boolean.TRUE);
+        synCtx.setProperty(SynapseConstants.ERROR_CODE, errorCode);
+        synCtx.setProperty(SynapseConstants.ERROR_MESSAGE, errorMessage);
+        synCtx.setProperty(SynapseConstants.ERROR_DETAIL, errorDetail);
+        synCtx.setProperty(SynapseConstants.ERROR_EXCEPTION, e);
+
+        handleResumeError(synCtx,
+                new SynapseException("Error while performing the callout operation", e));
+    }
+
+    private void handleResumeError(MessageContext synCtx, SynapseException e) {
+        synCtx.getPropertyKeySet().remove(SynapseConstants.CONTINUATION_STATE);
+        Stack faultStack = synCtx.getFaultStack();
+        if (faultStack != null && !faultStack.isEmpty()) {
+            ((FaultHandler) faultStack.pop()).handleFault(synCtx, e);
+        } else {
+            log.error("Error while resuming the mediation after the callout, " +
+                    "no error handlers found - [Message Dropped]", e);
+        }
+    }
+
     private void handleFault(MessageContext synCtx, Exception ex) {
         synCtx.setProperty(SynapseConstants.SENDING_FAULT, Boolean.TRUE);
 
@@ -285,8 +415,10 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
     }
 
     public void init(SynapseEnvironment synEnv) {
-        blockingMsgSender = new Axis2BlockingClient(clientRepository, axis2xml);
-        blockingMsgSender.setInitClientOptions(initClientOptions);
+        if (blocking) {
+            blockingMsgSender = new Axis2BlockingClient(clientRepository, axis2xml);
+            blockingMsgSender.setInitClientOptions(initClientOptions);
+        }
 
         EndpointDefinition endpointDefinition = null;
 
@@ -308,6 +440,11 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
         }
         // If the endpoint is specified, we'll look it up at mediation time.
 
+        if (isWrappingEndpointCreated && !blocking) {
+            // non-blocking calls go through the endpoint, which must be initialized
+            endpoint.init(synEnv);
+        }
+
         if (endpointDefinition != null && isSecurityOn()) {
             endpointDefinition.setSecurityOn(true);
             if (wsSecPolicyKey != null) {
@@ -324,12 +461,14 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
     }
 
     public void destroy() {
-        if (!isWrappingEndpointCreated) {
+        if (!isWrappingEndpointCreated || !blocking) {
             endpoint.destroy();
         }
-        try {
-            blockingMsgSender.cleanup();
-        } catch (AxisFault ignore) {}
+        if (blockingMsgSender != null) {
+            try {
+                blockingMsgSender.cleanup();
+            } catch (AxisFault ignore) {}
+        }
     }
 
     public String getServiceURL() {
@@ -412,6 +551,19 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
         this.initClientOptions = initClientOptions;
     }
 
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Should the mediation thread wait for the response of the service?
+     *
+     * @param blocking false to suspend the mediation and resume it once the response arrives
+     */
+    public void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+
     /**
      * Is WS-Security turned on?
      *
@@ -509,4 +661,65 @@ public class CalloutMediator extends AbstractMediator implements ManagedLifecycl
         this.endpoint = endpoint;
     }
 
+    /**
+     * Resumes the suspended mediation exactly once, whether the callout completes with a
+     * response, a fault or is discarded on a timeout
+     */
+    private class CalloutContinuation extends FaultHandler implements ResponseContinuation {
+
+        private final MessageContext synCtx;
+        private final ContinuationState state;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        private CalloutContinuation(MessageContext synCtx, ContinuationState state) {
+            this.synCtx = synCtx;
+            this.state = state;
+        }
+
+        public void onResponse(final MessageContext response) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            state.onReady(new Runnable() {
+                public void run() {
+                    resumeWithResponse(synCtx, state, response);
+                }
+            });
+        }
+
+        public void onFault(final MessageContext faultCtx) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            state.onReady(new Runnable() {
+                public void run() {
+                    resumeWithFault(synCtx, state,
+                            faultCtx.getProperty(SynapseConstants.ERROR_CODE),
+                            faultCtx.getProperty(SynapseConstants.ERROR_MESSAGE),
+                            faultCtx.getProperty(SynapseConstants.ERROR_DETAIL),
+                            (Exception) faultCtx.getProperty(SynapseConstants.ERROR_EXCEPTION));
+                }
+            });
+        }
+
+        public void onDiscard(MessageContext request) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            // the caller may hold the callback store lock, so resume on a mediation thread
+            final Runnable resumption = new Runnable() {
+                public void run() {
+                    resumeWithFault(synCtx, state, SynapseConstants.HANDLER_TIME_OUT,
+                            "Callout timed out without a response from : " + serviceURL, null,
+                            null);
+                }
+            };
+            state.onReady(new Runnable() {
+                public void run() {
+                    synCtx.getEnvironment().getExecutorService().execute(resumption);
+                }
+            });
+        }
+    }
+
 }
@@ -20,6 +20,7 @@
 package org.apache.synapse.mediators.db;
 
 import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbcp.DelegatingStatement;
 import org.apache.commons.dbcp.datasources.PerUserPoolDataSource;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.ManagedLifecycle;
@@ -28,10 +29,12 @@ import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
 import org.apache.synapse.commons.datasource.*;
 import org.apache.synapse.commons.datasource.factory.DataSourceFactory;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.commons.jmx.MBeanRepository;
 import org.apache.synapse.securevault.secret.SecretManager;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.util.concurrent.RouteConcurrencyLimiter;
 
 import javax.naming.Context;
 import javax.sql.DataSource;
@@ -40,11 +43,15 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.sql.Date;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 /**
  * This abstract DB mediator will perform common DB connection pooling etc. for all DB mediators
  */
 public abstract class AbstractDBMediator extends AbstractMediator implements ManagedLifecycle {
 
+    private static final String POOL_MBEAN_CATEGORY = "DatabaseConnectionPool";
+
     /** The information needed to create a data source */
     private DataSourceInformation dataSourceInformation;
 
@@ -60,6 +67,18 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
     /** MBean for DBPool monitoring */
     private DBPoolView dbPoolView;
 
+    /** Id of the DBPool MBean registered for a custom data source, if any */
+    private String poolMBeanId;
+
+    /**
+     * Driver level statements handed out so far, per physical connection. A statement served
+     * again from the statement pool of its connection is counted as a hit, anything else as a
+     * miss. The statements of a connection are only touched by the thread which has checked
+     * the connection out, so they are not synchronized
+     */
+    private final ConcurrentMap<Connection, Map<Object, Boolean>> preparedStatements =
+            new ConcurrentHashMap<Connection, Map<Object, Boolean>>();
+
     /** Statements */
     private final List<Statement> statementList = new ArrayList<Statement>();
 
@@ -78,7 +97,21 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
         if (dataSourceName != null) {
             dataSource = lookupDataSource(dataSourceName, jndiProperties);
         } else if (dataSourceInformation != null) {
+            if (dataSourceInformation.isPoolPreparedStatements() &&
+                    dataSourceInformation.getMaxOpenPreparedStatements() <= 0) {
+                // only the fixed statement list of this mediator is ever prepared on the
+                // connections of its own pool, so bound the per connection statement pool by it
+                dataSourceInformation.setMaxOpenPreparedStatements(
+                        Math.max(1, statementList.size()));
+            }
             dataSource = createCustomDataSource(dataSourceInformation);
+            if (dataSource != null && dbPoolView == null) {
+                dbPoolView = new DBPoolView(getDSName());
+                poolMBeanId = (getDSName() + "_" + Integer.toHexString(System.identityHashCode(this)))
+                        .replaceAll("[^\\w.\\-/]", "_");
+                MBeanRegistrar.getInstance().registerMBean(
+                        dbPoolView, POOL_MBEAN_CATEGORY, poolMBeanId);
+            }
         }
     }
 
@@ -90,6 +123,11 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
             // Don't touch the globally configured JNDI data sources
             return;
         }
+        if (poolMBeanId != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean(POOL_MBEAN_CATEGORY, poolMBeanId);
+            poolMBeanId = null;
+        }
+        preparedStatements.clear();
         if (this.dataSource instanceof BasicDataSource) {
             try {
                 ((BasicDataSource) this.dataSource).close();
@@ -121,9 +159,18 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
             }
         }
 
-        for (Statement aStatement : statementList) {
-            if (aStatement != null) {
-                processStatement(aStatement, synCtx);
+        // bound the number of messages hitting the same database at once
+        String route = getDSName();
+        boolean routeAcquired = RouteConcurrencyLimiter.getInstance().acquire(route);
+        try {
+            for (Statement aStatement : statementList) {
+                if (aStatement != null) {
+                    processStatement(aStatement, synCtx);
+                }
+            }
+        } finally {
+            if (routeAcquired) {
+                RouteConcurrencyLimiter.getInstance().release(route);
             }
         }
 
@@ -212,6 +259,22 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
      */
     protected PreparedStatement getPreparedStatement(Statement stmnt, Connection con,
                                                      MessageContext msgCtx) throws SQLException {
+        return getPreparedStatement(stmnt, con, getParameterValues(stmnt, msgCtx), msgCtx);
+    }
+
+    /**
+     * Return a Prepared statement for the given Statement object and already evaluated
+     * parameter values, which is ready to be executed
+     * @param stmnt SQL statement to be executed
+     * @param con The connection to be used
+     * @param values the parameter values evaluated by {@link #getParameterValues}
+     * @param msgCtx Current message context
+     * @return a PreparedStatement
+     * @throws SQLException on error
+     */
+    protected PreparedStatement getPreparedStatement(Statement stmnt, Connection con,
+                                                     List<String> values,
+                                                     MessageContext msgCtx) throws SQLException {
 
         SynapseLog synLog = getLog(msgCtx);
 
@@ -249,13 +312,96 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
             }
         }
 
+        PreparedStatement ps = prepareStatement(stmnt, con);
+        setParameters(ps, stmnt, values, msgCtx);
+
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Successfully prepared statement : " + stmnt.getRawStatement() +
+                " against DataSource : " + getDSName());
+        }
+        return ps;
+    }
+
+    /**
+     * Prepare the given statement on the given connection. Statements must be closed once
+     * executed, so that pooling data sources can hand the same driver statement out again
+     * for the next message using the same physical connection
+     * @param stmnt SQL statement to be prepared
+     * @param con The connection to be used
+     * @return a PreparedStatement without any parameters set
+     * @throws SQLException on error
+     */
+    PreparedStatement prepareStatement(Statement stmnt, Connection con) throws SQLException {
+
         PreparedStatement ps = con.prepareStatement(stmnt.getRawStatement());
 
-        // set parameters if any
-        List<Statement.Parameter> params = stmnt.getParameters();
-        int column = 1;
+        DBPoolView dbPoolView = getDbPoolView();
+        if (dbPoolView != null) {
+            if (isReused(ps)) {
+                dbPoolView.incrementStatementCacheHits();
+            } else {
+                dbPoolView.incrementStatementCacheMisses();
+            }
+        }
+        return ps;
+    }
+
+    /**
+     * Check whether the driver statement behind the given statement has been handed out
+     * before on its physical connection
+     * @param ps the statement just prepared
+     * @return true if the statement was served again from the statement pool
+     * @throws SQLException on error
+     */
+    private boolean isReused(PreparedStatement ps) throws SQLException {
+
+        Object driverStatement = ps;
+        if (ps instanceof DelegatingStatement) {
+            driverStatement = ((DelegatingStatement) ps).getInnermostDelegate();
+        }
+        if (!(driverStatement instanceof java.sql.Statement)) {
+            return false;
+        }
+        Connection driverConnection = ((java.sql.Statement) driverStatement).getConnection();
+        if (driverConnection == null) {
+            return false;
+        }
+
+        Map<Object, Boolean> statements = preparedStatements.get(driverConnection);
+        if (statements == null) {
+            // a new physical connection, forget the ones the pool has closed meanwhile
+            removeClosedConnections();
+            statements = new WeakHashMap<Object, Boolean>();
+            preparedStatements.put(driverConnection, statements);
+        }
+        return statements.put(driverStatement, Boolean.TRUE) != null;
+    }
+
+    private void removeClosedConnections() {
+        for (Iterator<Connection> it = preparedStatements.keySet().iterator(); it.hasNext();) {
+            Connection con = it.next();
+            try {
+                if (con.isClosed()) {
+                    it.remove();
+                }
+            } catch (SQLException e) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Evaluate the values of the parameters of the given statement against the current message
+     * @param stmnt SQL statement to be executed
+     * @param msgCtx Current message context
+     * @return the parameter values, in the order of the parameters of the statement
+     */
+    protected List<String> getParameterValues(Statement stmnt, MessageContext msgCtx) {
+
+        SynapseLog synLog = getLog(msgCtx);
+        List<String> values = new ArrayList<String>();
 
-        for (Statement.Parameter param : params) {
+        for (Statement.Parameter param : stmnt.getParameters()) {
             if (param == null) {
                 continue;
             }
@@ -263,10 +409,36 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
                     param.getPropertyName() : param.getXpath().stringValueOf(msgCtx));
 
             if (synLog.isTraceOrDebugEnabled()) {
-                synLog.traceOrDebug("Setting as parameter : " + column + " value : " + value +
-                        " as JDBC Type : " + param.getType() + "(see java.sql.Types for valid " +
-                        "types)");
+                synLog.traceOrDebug("Setting as parameter : " + (values.size() + 1) +
+                        " value : " + value + " as JDBC Type : " + param.getType() +
+                        "(see java.sql.Types for valid types)");
             }
+            values.add(value);
+        }
+        return values;
+    }
+
+    /**
+     * Set the given parameter values on a prepared statement, converting each value to the
+     * JDBC type of the corresponding parameter
+     * @param ps the prepared statement
+     * @param stmnt SQL statement the prepared statement was created for
+     * @param values the parameter values evaluated by {@link #getParameterValues}
+     * @param msgCtx Current message context, or null if the values are set outside of the
+     * mediation of a message (i.e. by a write-behind writer)
+     * @throws SQLException on error
+     */
+    protected void setParameters(PreparedStatement ps, Statement stmnt, List<String> values,
+                                 MessageContext msgCtx) throws SQLException {
+
+        int column = 1;
+        Iterator<String> valueIterator = values.iterator();
+
+        for (Statement.Parameter param : stmnt.getParameters()) {
+            if (param == null) {
+                continue;
+            }
+            String value = valueIterator.next();
 
             switch (param.getType()) {
                 // according to J2SE 1.5 /docs/guide/jdbc/getstart/mapping.html
@@ -385,16 +557,14 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
                             stmnt.getRawStatement() +
                             " used by a DB mediator against DataSource : " + getDSName() +
                             " (see java.sql.Types for valid type values)";
-                    handleException(msg, msgCtx);
+                    if (msgCtx != null) {
+                        handleException(msg, msgCtx);
+                    } else {
+                        handleException(msg);
+                    }
                 }
             }
         }
-
-        if (synLog.isTraceOrDebugEnabled()) {
-            synLog.traceOrDebug("Successfully prepared statement : " + stmnt.getRawStatement() +
-                " against DataSource : " + getDSName());
-        }
-        return ps;
     }
 
     /**
@@ -0,0 +1,201 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size and time bounded cache of the rows returned by the statements of a DB lookup
+ * mediator. Rows are keyed by the statement, its results mapping and the values of its
+ * parameters evaluated against the message. When negative caching is enabled, the fact that a
+ * lookup returned no rows is cached as well. Once the cache is full, the least recently used
+ * rows are evicted.
+ */
+public class DBLookupCache {
+
+    private final long timeout;
+
+    private final int maxSize;
+
+    private final boolean negativeCaching;
+
+    private final Map<String, CachedRow> rows;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong negativeHits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    /**
+     * @param timeout time in milliseconds a row is kept in the cache
+     * @param maxSize maximum number of rows kept in the cache
+     * @param negativeCaching whether lookups which returned no rows should be cached
+     */
+    public DBLookupCache(long timeout, final int maxSize, boolean negativeCaching) {
+        this.timeout = timeout;
+        this.maxSize = maxSize;
+        this.negativeCaching = negativeCaching;
+        this.rows = new LinkedHashMap<String, CachedRow>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRow> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Create the cache key of a lookup
+     *
+     * @param stmnt the statement
+     * @param values the parameter values of the statement
+     * @return the key identifying the result of the lookup
+     */
+    public static String createKey(Statement stmnt, List<String> values) {
+        StringBuilder key = new StringBuilder(stmnt.getRawStatement());
+        // statements with the same SQL may map different columns to the result properties
+        for (Map.Entry<String, String> result :
+                new TreeMap<String, String>(stmnt.getResultsMap()).entrySet()) {
+            key.append('\u0002').append(result.getKey()).append('\u0000')
+                    .append(result.getValue());
+        }
+        key.append('\u0003');
+        for (String value : values) {
+            // separate the values so that different parameter lists never produce the same key
+            key.append('\u0000').append(value == null ? "\u0001" : value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key the key of the lookup
+     * @return the cached row, or null if the lookup is not cached or the entry has expired
+     */
+    public CachedRow get(String key) {
+        CachedRow row;
+        synchronized (rows) {
+            row = rows.get(key);
+            if (row != null && row.expiryTime <= System.currentTimeMillis()) {
+                rows.remove(key);
+                row = null;
+            }
+        }
+
+        if (row == null) {
+            misses.incrementAndGet();
+        } else if (row.values == null) {
+            negativeHits.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return row;
+    }
+
+    /**
+     * Cache the result of a lookup
+     *
+     * @param key the key of the lookup
+     * @param values the result properties set from the first row returned, or null if the
+     * lookup returned no rows
+     */
+    public void put(String key, Map<String, String> values) {
+        if (values == null && !negativeCaching) {
+            return;
+        }
+        CachedRow row = new CachedRow(values, System.currentTimeMillis() + timeout);
+        synchronized (rows) {
+            rows.put(key, row);
+        }
+    }
+
+    public void clear() {
+        synchronized (rows) {
+            rows.clear();
+        }
+    }
+
+    public int getSize() {
+        synchronized (rows) {
+            return rows.size();
+        }
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isNegativeCaching() {
+        return negativeCaching;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getNegativeHitCount() {
+        return negativeHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        negativeHits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * The cached result of a lookup
+     */
+    public static class CachedRow {
+
+        private final Map<String, String> values;
+        private final long expiryTime;
+
+        private CachedRow(Map<String, String> values, long expiryTime) {
+            this.values = values;
+            this.expiryTime = expiryTime;
+        }
+
+        /**
+         * @return the result properties of the lookup, or null if it returned no rows
+         */
+        public Map<String, String> getValues() {
+            return values;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+/**
+ * Exposes the usage of the result cache of a DB lookup mediator
+ */
+public class DBLookupCacheView implements DBLookupCacheViewMBean {
+
+    private final DBLookupCache cache;
+
+    private final String dataSource;
+
+    public DBLookupCacheView(DBLookupCache cache, String dataSource) {
+        this.cache = cache;
+        this.dataSource = dataSource;
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    public int getSize() {
+        return cache.getSize();
+    }
+
+    public int getMaxSize() {
+        return cache.getMaxSize();
+    }
+
+    public long getTimeout() {
+        return cache.getTimeout();
+    }
+
+    public boolean isNegativeCaching() {
+        return cache.isNegativeCaching();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getNegativeHitCount() {
+        return cache.getNegativeHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public double getHitRatio() {
+        long hits = cache.getHitCount() + cache.getNegativeHitCount();
+        long total = hits + cache.getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public void resetStatistics() {
+        cache.resetStatistics();
+    }
+}
@@ -21,36 +21,99 @@ package org.apache.synapse.mediators.db;
 
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.core.SynapseEnvironment;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Connection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Simple database table lookup mediator. Designed only for read/lookup
+ * Simple database table lookup mediator. Designed only for read/lookup. The results of the
+ * lookups may optionally be cached for a given time, in which case messages with the same
+ * parameter values are served from the cache instead of querying the database.
  */
 public class DBLookupMediator extends AbstractDBMediator {
 
+    private static final String CACHE_MBEAN_CATEGORY = "DBLookupCache";
+
+    /** Time in milliseconds lookup results are cached, non-positive to disable caching */
+    private long cacheTimeout = -1;
+
+    /** Maximum number of lookup results cached */
+    private int cacheSize = 1000;
+
+    /** Should lookups which returned no rows be cached? */
+    private boolean negativeCaching = false;
+
+    private DBLookupCache cache;
+
+    private String cacheMBeanId;
+
+    public void init(SynapseEnvironment se) {
+        super.init(se);
+        if (cacheTimeout > 0) {
+            cache = new DBLookupCache(cacheTimeout, cacheSize, negativeCaching);
+            cacheMBeanId = (getDSName() + "_" + Integer.toHexString(System.identityHashCode(this)))
+                    .replaceAll("[^\\w.\\-/]", "_");
+            MBeanRegistrar.getInstance().registerMBean(
+                    new DBLookupCacheView(cache, getDSName()), CACHE_MBEAN_CATEGORY, cacheMBeanId);
+        }
+    }
+
+    public void destroy() {
+        if (cacheMBeanId != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean(CACHE_MBEAN_CATEGORY, cacheMBeanId);
+            cacheMBeanId = null;
+        }
+        cache = null;
+        super.destroy();
+    }
+
     protected void processStatement(Statement stmnt, MessageContext msgCtx) {
 
         SynapseLog synLog = getLog(msgCtx);
 
+        List<String> values = getParameterValues(stmnt, msgCtx);
+        String cacheKey = null;
+        DBLookupCache cache = this.cache;
+        if (cache != null) {
+            cacheKey = DBLookupCache.createKey(stmnt, values);
+            DBLookupCache.CachedRow cachedRow = cache.get(cacheKey);
+            if (cachedRow != null) {
+                if (synLog.isTraceOrDebugEnabled()) {
+                    synLog.traceOrDebug("Using the cached result of statement : " +
+                            stmnt.getRawStatement());
+                }
+                if (cachedRow.getValues() != null) {
+                    setResultProperties(cachedRow.getValues(), msgCtx);
+                }
+                return;
+            }
+        }
+
         // execute the prepared statement, and extract the first result row and
         // set as message context properties, any results that have been specified
         Connection con = null;
+        PreparedStatement ps = null;
         ResultSet rs = null;
         try {
             con = this.getDataSource().getConnection();
-            PreparedStatement ps = getPreparedStatement(stmnt, con, msgCtx);
+            ps = getPreparedStatement(stmnt, con, values, msgCtx);
             rs = ps.executeQuery();
 
+            Map<String, String> results = null;
             if (rs.next()) {
                 if (synLog.isTraceOrDebugEnabled()) {
                     synLog.traceOrDebug(
                         "Processing the first row returned : " + stmnt.getRawStatement());
                 }
 
+                results = new HashMap<String, String>();
                 for (String propName : stmnt.getResultsMap().keySet()) {
 
                     String columnStr =  stmnt.getResultsMap().get(propName);
@@ -68,7 +131,7 @@ public class DBLookupMediator extends AbstractDBMediator {
                                     " returned value : " + obj +
                                     " Setting this as the message property : " + propName);
                         }
-                        msgCtx.setProperty(propName, obj.toString());
+                        results.put(propName, obj.toString());
                     } else {
                         if (synLog.isTraceOrDebugEnabled()) {
                             synLog.traceOrDebugWarn("Column : " + columnStr +
@@ -76,12 +139,17 @@ public class DBLookupMediator extends AbstractDBMediator {
                         }
                     }
                 }
+                setResultProperties(results, msgCtx);
             } else {
                 if (synLog.isTraceOrDebugEnabled()) {
                     synLog.traceOrDebug("Statement : "
                         + stmnt.getRawStatement() + " returned 0 rows");
                 }
             }
+
+            if (cache != null) {
+                cache.put(cacheKey, results);
+            }
             
         } catch (SQLException e) {
             handleException("Error executing statement : " + stmnt.getRawStatement() +
@@ -96,6 +164,11 @@ public class DBLookupMediator extends AbstractDBMediator {
                     rs.close();
                 } catch (SQLException ignore) {}
             }
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {}
+            }
             if (con != null) {
                 try {
                     con.close();
@@ -104,4 +177,37 @@ public class DBLookupMediator extends AbstractDBMediator {
         }
     }
 
+    private void setResultProperties(Map<String, String> results, MessageContext msgCtx) {
+        for (Map.Entry<String, String> result : results.entrySet()) {
+            msgCtx.setProperty(result.getKey(), result.getValue());
+        }
+    }
+
+    public long getCacheTimeout() {
+        return cacheTimeout;
+    }
+
+    public void setCacheTimeout(long cacheTimeout) {
+        this.cacheTimeout = cacheTimeout;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public boolean isNegativeCaching() {
+        return negativeCaching;
+    }
+
+    public void setNegativeCaching(boolean negativeCaching) {
+        this.negativeCaching = negativeCaching;
+    }
+
+    public DBLookupCache getCache() {
+        return cache;
+    }
 }
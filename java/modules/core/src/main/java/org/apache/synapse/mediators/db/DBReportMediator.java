@@ -21,16 +21,47 @@ package org.apache.synapse.mediators.db;
 
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.core.SynapseEnvironment;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Connection;
 
 /**
- * A mediator that writes (i.e. inserts one row) to a table using message information
+ * A mediator that writes (i.e. inserts one row) to a table using message information. With
+ * write-behind enabled, the rows are queued and written in the background in JDBC batches
+ * by a {@link DBReportWriter}, instead of one round trip and commit per message.
  */
 public class DBReportMediator extends AbstractDBMediator {
 
+    private static final String WRITER_MBEAN_CATEGORY = "DBReportWriter";
+
+    /** Should rows be written in the background in batches? */
+    private boolean writeBehind = false;
+
+    /** Maximum number of rows written in one batch */
+    private int batchSize = 100;
+
+    /** Maximum time in milliseconds a row waits before being written */
+    private long flushInterval = 1000;
+
+    /** Maximum number of rows waiting to be written */
+    private int queueSize = 10000;
+
+    /** Durability of the queued rows, strict or relaxed */
+    private String durability = DBReportWriter.DURABILITY_STRICT;
+
+    /** Number of times a failed batch is retried before writing its rows one by one */
+    private int maxRetries = 3;
+
+    /** Maximum time in milliseconds a message waits for room in a full queue */
+    private long queueTimeout = 5000;
+
+    private DBReportWriter writer;
+
+    private String writerMBeanId;
+
     public boolean isUseTransaction() {
         return useTransaction;
     }
@@ -43,15 +74,49 @@ public class DBReportMediator extends AbstractDBMediator {
     // default do not participate in a distribute tx
     boolean useTransaction = false;
 
+    public void init(SynapseEnvironment se) {
+        super.init(se);
+        if (writeBehind) {
+            writer = new DBReportWriter(this, batchSize, flushInterval, queueSize, durability,
+                    maxRetries, queueTimeout);
+            writerMBeanId = (getDSName() + "_" + Integer.toHexString(System.identityHashCode(this)))
+                    .replaceAll("[^\\w.\\-/]", "_");
+            MBeanRegistrar.getInstance().registerMBean(
+                    new DBReportWriterView(writer, getDSName()), WRITER_MBEAN_CATEGORY,
+                    writerMBeanId);
+        }
+    }
+
+    public void destroy() {
+        if (writer != null) {
+            // write the queued rows while the data source is still available
+            writer.destroy();
+            writer = null;
+            MBeanRegistrar.getInstance().unRegisterMBean(WRITER_MBEAN_CATEGORY, writerMBeanId);
+        }
+        super.destroy();
+    }
+
     protected void processStatement(Statement stmnt, MessageContext msgCtx) {
 
 
         SynapseLog synLog = getLog(msgCtx);
 
+        DBReportWriter writer = this.writer;
+        if (writer != null) {
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Queuing a row to be written using statement : " +
+                        stmnt.getRawStatement());
+            }
+            writer.add(stmnt, getParameterValues(stmnt, msgCtx));
+            return;
+        }
+
         Connection con = null;
+        PreparedStatement ps = null;
         try {
             con = this.getDataSource().getConnection();
-            PreparedStatement ps = getPreparedStatement(stmnt, con, msgCtx);
+            ps = getPreparedStatement(stmnt, con, msgCtx);
             con = ps.getConnection();
             int count = ps.executeUpdate();
 
@@ -81,6 +146,12 @@ public class DBReportMediator extends AbstractDBMediator {
                     " against DataSource : " + getDSName(), e, msgCtx);
         }
         finally {
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {
+                }
+            }
             if (con != null) {
                 try {
                     con.close();
@@ -89,4 +160,64 @@ public class DBReportMediator extends AbstractDBMediator {
             }
         }
     }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public String getDurability() {
+        return durability;
+    }
+
+    public void setDurability(String durability) {
+        this.durability = durability;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    public void setQueueTimeout(long queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+
+    public DBReportWriter getWriter() {
+        return writer;
+    }
 }
@@ -0,0 +1,429 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer of a DB report mediator. Instead of executing and committing the
+ * statements of the mediator for each message, the evaluated parameter values are queued and
+ * written in the background with JDBC batches, one transaction per batch. A batch is written
+ * once the queue holds a batch worth of rows, or when the flush interval elapses.
+ * <p>
+ * With strict durability, messages wait up to the queue timeout for room in the queue when it
+ * is full, and fail once it elapses. A failed batch is retried on the following flushes, up to
+ * the maximum number of retries. After that its rows are written one by one, so that a row the
+ * database keeps rejecting (a constraint violation or bad data) does not hold back the others;
+ * such rows are logged with their values and counted as rejected. Rows failing because the
+ * database cannot be reached are kept for the next flush instead. With relaxed durability, rows
+ * are dropped (and counted) when the queue is full or a batch fails. In both cases the rows
+ * still queued are written when the mediator is destroyed.
+ */
+public class DBReportWriter {
+
+    private static final Log log = LogFactory.getLog(DBReportWriter.class);
+
+    public static final String DURABILITY_STRICT = "strict";
+    public static final String DURABILITY_RELAXED = "relaxed";
+
+    private final DBReportMediator mediator;
+
+    private final int batchSize;
+
+    private final boolean strict;
+
+    private final int maxRetries;
+
+    private final long queueTimeout;
+
+    private final BlockingQueue<Row> queue;
+
+    /** Rows of a failed batch waiting to be retried, only used with strict durability */
+    private final List<Row> retryRows = new ArrayList<Row>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong queuedCount = new AtomicLong(0);
+    private final AtomicLong writtenCount = new AtomicLong(0);
+    private final AtomicLong batchCount = new AtomicLong(0);
+    private final AtomicLong failedBatchCount = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+
+    private final Runnable flushTask = new Runnable() {
+        public void run() {
+            flushScheduled.set(false);
+            try {
+                flush();
+            } catch (Throwable t) {
+                log.error("Error writing DB report batch against DataSource : " +
+                        mediator.getDSName(), t);
+            }
+        }
+    };
+
+    /**
+     * @param mediator the DB report mediator whose statements are written
+     * @param batchSize maximum number of rows written in one batch
+     * @param flushInterval maximum time in milliseconds a row waits in the queue
+     * @param queueSize maximum number of rows held in the queue
+     * @param durability {@link #DURABILITY_STRICT} or {@link #DURABILITY_RELAXED}
+     * @param maxRetries number of times a failed batch is retried before its rows are
+     * written one by one, only used with strict durability
+     * @param queueTimeout maximum time in milliseconds a message waits for room in a full
+     * queue, only used with strict durability
+     */
+    public DBReportWriter(DBReportMediator mediator, int batchSize, long flushInterval,
+                          int queueSize, String durability, int maxRetries, long queueTimeout) {
+        this.mediator = mediator;
+        this.batchSize = batchSize;
+        this.strict = !DURABILITY_RELAXED.equals(durability);
+        this.maxRetries = maxRetries;
+        this.queueTimeout = queueTimeout;
+        this.queue = new ArrayBlockingQueue<Row>(queueSize);
+
+        final String threadName = "dbreport-writer-" + mediator.getDSName();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, threadName);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(flushTask, flushInterval, flushInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a row to be written
+     *
+     * @param stmnt the statement to be executed
+     * @param values the parameter values of the statement
+     */
+    public void add(Statement stmnt, List<String> values) {
+        Row row = new Row(stmnt, values);
+        if (strict) {
+            boolean queued;
+            try {
+                queued = queue.offer(row, queueTimeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SynapseException("Interrupted while queuing a DB report row for " +
+                        "DataSource : " + mediator.getDSName(), e);
+            }
+            if (!queued) {
+                droppedCount.incrementAndGet();
+                throw new SynapseException("DB report queue for DataSource : " +
+                        mediator.getDSName() + " is still full after " + queueTimeout +
+                        " ms. Cannot write the row for statement : " + stmnt.getRawStatement());
+            }
+        } else if (!queue.offer(row)) {
+            droppedCount.incrementAndGet();
+            log.warn("DB report queue for DataSource : " + mediator.getDSName() +
+                    " is full. Dropping the row for statement : " + stmnt.getRawStatement());
+            return;
+        }
+
+        queuedCount.incrementAndGet();
+        if (queue.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(flushTask);
+            } catch (RuntimeException e) {
+                // the writer is being shut down, the rows are flushed by destroy
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write all the queued rows, in batches
+     */
+    public synchronized void flush() {
+        while (true) {
+            List<Row> batch = new ArrayList<Row>(retryRows);
+            retryRows.clear();
+            queue.drainTo(batch, Math.max(batchSize - batch.size(), 0));
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                writeBatch(batch);
+                batchCount.incrementAndGet();
+                writtenCount.addAndGet(batch.size());
+            } catch (Exception e) {
+                failedBatchCount.incrementAndGet();
+                if (!strict) {
+                    log.error("Error writing a batch of " + batch.size() + " rows against " +
+                            "DataSource : " + mediator.getDSName() + ". Rows dropped", e);
+                    droppedCount.addAndGet(batch.size());
+                    return;
+                }
+
+                int attempts = 0;
+                for (Row row : batch) {
+                    attempts = Math.max(attempts, ++row.attempts);
+                }
+                if (attempts <= maxRetries) {
+                    log.error("Error writing a batch of " + batch.size() + " rows against " +
+                            "DataSource : " + mediator.getDSName() + ". Will be retried (" +
+                            attempts + " of " + maxRetries + ")", e);
+                    retryRows.addAll(batch);
+                    return;
+                }
+
+                log.error("Error writing a batch of " + batch.size() + " rows against " +
+                        "DataSource : " + mediator.getDSName() + ". Writing the rows one by one",
+                        e);
+                if (!writeRows(batch)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the rows of a batch which failed repeatedly one at a time, rejecting the rows the
+     * database does not accept
+     *
+     * @param batch the rows of the failed batch
+     * @return false if the database could not be reached, in which case the rows not yet
+     * written are kept to be retried
+     */
+    private boolean writeRows(List<Row> batch) {
+        Connection con;
+        try {
+            con = mediator.getDataSource().getConnection();
+        } catch (SQLException e) {
+            log.error("Cannot connect to DataSource : " + mediator.getDSName() + ". " +
+                    batch.size() + " rows will be retried", e);
+            retryRows.addAll(batch);
+            return false;
+        }
+
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Row row = batch.get(i);
+                try {
+                    writeBatch(Collections.singletonList(row), con);
+                    writtenCount.incrementAndGet();
+                } catch (SQLException e) {
+                    if (isConnectionFailure(e)) {
+                        log.error("Lost the connection to DataSource : " + mediator.getDSName() +
+                                ". " + (batch.size() - i) + " rows will be retried", e);
+                        retryRows.addAll(batch.subList(i, batch.size()));
+                        return false;
+                    }
+                    reject(row, e);
+                } catch (SynapseException e) {
+                    reject(row, e);
+                }
+            }
+            return true;
+        } finally {
+            try {
+                con.close();
+            } catch (SQLException ignore) {}
+        }
+    }
+
+    private void reject(Row row, Exception e) {
+        rejectedCount.incrementAndGet();
+        log.error("DataSource : " + mediator.getDSName() + " rejected the row " + row.values +
+                " for statement : " + row.stmnt.getRawStatement() + ". Row dropped", e);
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientException || e instanceof SQLRecoverableException ||
+                e instanceof SQLNonTransientConnectionException ||
+                (state != null && state.startsWith("08"));
+    }
+
+    private void writeBatch(List<Row> batch) throws SQLException {
+        Connection con = mediator.getDataSource().getConnection();
+        try {
+            writeBatch(batch, con);
+        } finally {
+            try {
+                con.close();
+            } catch (SQLException ignore) {}
+        }
+    }
+
+    private void writeBatch(List<Row> batch, Connection con) throws SQLException {
+        // group the rows by statement, executing the statements in their configured order
+        Map<Statement, List<List<String>>> rowsByStatement =
+                new LinkedHashMap<Statement, List<List<String>>>();
+        for (Statement stmnt : mediator.getStatementList()) {
+            rowsByStatement.put(stmnt, new ArrayList<List<String>>());
+        }
+        for (Row row : batch) {
+            List<List<String>> rows = rowsByStatement.get(row.stmnt);
+            if (rows == null) {
+                rows = new ArrayList<List<String>>();
+                rowsByStatement.put(row.stmnt, rows);
+            }
+            rows.add(row.values);
+        }
+
+        boolean autoCommit = con.getAutoCommit();
+        try {
+            if (autoCommit) {
+                con.setAutoCommit(false);
+            }
+            for (Map.Entry<Statement, List<List<String>>> entry : rowsByStatement.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    continue;
+                }
+                PreparedStatement ps = mediator.prepareStatement(entry.getKey(), con);
+                try {
+                    for (List<String> values : entry.getValue()) {
+                        mediator.setParameters(ps, entry.getKey(), values, null);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                } finally {
+                    ps.close();
+                }
+            }
+            con.commit();
+
+            if (log.isDebugEnabled()) {
+                log.debug("Wrote a batch of " + batch.size() + " rows against DataSource : " +
+                        mediator.getDSName());
+            }
+        } catch (SQLException e) {
+            try {
+                con.rollback();
+            } catch (SQLException ignore) {}
+            throw e;
+        } catch (RuntimeException e) {
+            try {
+                con.rollback();
+            } catch (SQLException ignore) {}
+            throw e;
+        } finally {
+            try {
+                if (autoCommit) {
+                    con.setAutoCommit(true);
+                }
+            } catch (SQLException ignore) {}
+        }
+    }
+
+    /**
+     * Stop the background writer and write the rows still queued
+     */
+    public void destroy() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+
+        int pending = getPendingCount();
+        if (pending > 0) {
+            log.warn(pending + " DB report rows could not be written against DataSource : " +
+                    mediator.getDSName());
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (this) {
+            return queue.size() + retryRows.size();
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isStrict() {
+        return strict;
+    }
+
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatchCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    private static class Row {
+
+        private final Statement stmnt;
+        private final List<String> values;
+        /** Number of failed attempts to write the row */
+        private int attempts = 0;
+
+        private Row(Statement stmnt, List<String> values) {
+            this.stmnt = stmnt;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+/**
+ * Exposes the write-behind queue of a DB report mediator
+ */
+public class DBReportWriterView implements DBReportWriterViewMBean {
+
+    private final DBReportWriter writer;
+
+    private final String dataSource;
+
+    public DBReportWriterView(DBReportWriter writer, String dataSource) {
+        this.writer = writer;
+        this.dataSource = dataSource;
+    }
+
+    public String getDataSource() {
+        return dataSource;
+    }
+
+    public int getBatchSize() {
+        return writer.getBatchSize();
+    }
+
+    public boolean isStrictDurability() {
+        return writer.isStrict();
+    }
+
+    public int getPendingCount() {
+        return writer.getPendingCount();
+    }
+
+    public long getQueuedCount() {
+        return writer.getQueuedCount();
+    }
+
+    public long getWrittenCount() {
+        return writer.getWrittenCount();
+    }
+
+    public long getBatchCount() {
+        return writer.getBatchCount();
+    }
+
+    public long getFailedBatchCount() {
+        return writer.getFailedBatchCount();
+    }
+
+    public long getDroppedCount() {
+        return writer.getDroppedCount();
+    }
+
+    public long getRejectedCount() {
+        return writer.getRejectedCount();
+    }
+
+    public void flush() {
+        writer.flush();
+    }
+}
@@ -20,10 +20,15 @@
 package org.apache.synapse.mediators.filters.router;
 
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.evaluators.Evaluator;
 import org.apache.synapse.commons.evaluators.EvaluatorContext;
 import org.apache.synapse.commons.evaluators.EvaluatorException;
+import org.apache.synapse.commons.evaluators.compiler.CompiledEvaluatorSet;
+import org.apache.synapse.commons.evaluators.compiler.Evaluation;
+import org.apache.synapse.commons.evaluators.compiler.EvaluatorCompiler;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.ContinuationState;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -40,6 +45,9 @@ public class ConditionalRouterMediator extends AbstractMediator {
 
     private List<ConditionalRoute> conditionalRoutes = new ArrayList<ConditionalRoute>();
 
+    /** Route conditions compiled on first use, so that each source is read once per message */
+    private volatile CompiledEvaluatorSet compiledRoutes;
+
     private boolean continueAfter;
     
     private boolean continueAfterExplicitlySet;
@@ -69,13 +77,24 @@ public class ConditionalRouterMediator extends AbstractMediator {
         context.setMessageContext(((Axis2MessageContext) synCtx).getAxis2MessageContext());
 
         try {
-            for (ConditionalRoute conditionalRoute : conditionalRoutes) {
-                if (conditionalRoute.getEvaluator().evaluate(context)) {
+            CompiledEvaluatorSet compiled = getCompiledRoutes();
+            Evaluation evaluation = compiled.newEvaluation(context);
+            int index = evaluation.nextMatch(0);
+            while (index != -1) {
+                ConditionalRoute conditionalRoute = conditionalRoutes.get(index);
+                // the remaining routes are evaluated after the target returns
+                ContinuationState.enterBarrier();
+                try {
                     conditionalRoute.getTarget().mediate(synCtx);
-                    if (conditionalRoute.isBreakRoute()) {
-                        break;
-                    }
+                } finally {
+                    ContinuationState.exitBarrier();
+                }
+                if (conditionalRoute.isBreakRoute()) {
+                    break;
                 }
+                // the target may have changed the message, the remaining routes must see it
+                evaluation = compiled.newEvaluation(context);
+                index = evaluation.nextMatch(index + 1);
             }
         } catch (EvaluatorException ee) {
             handleException("Couldn't evaluate the route condition", ee, synCtx);
@@ -89,6 +108,20 @@ public class ConditionalRouterMediator extends AbstractMediator {
 
     public void addRoute(ConditionalRoute conditionalRoute) {
         conditionalRoutes.add(conditionalRoute);
+        compiledRoutes = null;
+    }
+
+    private CompiledEvaluatorSet getCompiledRoutes() {
+        CompiledEvaluatorSet compiled = compiledRoutes;
+        if (compiled == null || compiled.size() != conditionalRoutes.size()) {
+            Evaluator[] evaluators = new Evaluator[conditionalRoutes.size()];
+            for (int i = 0; i < evaluators.length; i++) {
+                evaluators[i] = conditionalRoutes.get(i).getEvaluator();
+            }
+            compiled = EvaluatorCompiler.compile(evaluators);
+            compiledRoutes = compiled;
+        }
+        return compiled;
     }
 
     public boolean isContinueAfter() {
@@ -26,6 +26,7 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.ContinuationState;
 import org.apache.synapse.message.store.MessageStore;
 
 /**
@@ -56,7 +57,13 @@ public class MessageStoreMediator extends AbstractMediator{
                 if(onStoreSequence != null) {
                     Mediator sequence = synCtx.getSequence(onStoreSequence);
                     if(sequence != null) {
-                        sequence.mediate(synCtx);
+                        // the message is stored after the sequence returns
+                        ContinuationState.enterBarrier();
+                        try {
+                            sequence.mediate(synCtx);
+                        } finally {
+                            ContinuationState.exitBarrier();
+                        }
                     }
                 }
 
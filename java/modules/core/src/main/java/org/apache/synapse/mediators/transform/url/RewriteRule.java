@@ -24,6 +24,8 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.commons.evaluators.Evaluator;
 import org.apache.synapse.commons.evaluators.EvaluatorContext;
 import org.apache.synapse.commons.evaluators.EvaluatorException;
+import org.apache.synapse.commons.evaluators.compiler.CompiledEvaluatorSet;
+import org.apache.synapse.commons.evaluators.compiler.EvaluatorCompiler;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 
@@ -47,6 +49,7 @@ public class RewriteRule {
     private static final Log log = LogFactory.getLog(RewriteRule.class);
 
     private Evaluator condition;
+    private CompiledEvaluatorSet compiledCondition;
     private List<RewriteAction> actions = new ArrayList<RewriteAction>();
 
     public void rewrite(URIFragments fragments,
@@ -64,7 +67,7 @@ public class RewriteRule {
             }
 
             try {
-                if (!condition.evaluate(ctx)) {
+                if (!compiledCondition.newEvaluation(ctx).evaluate(0)) {
                     if (log.isTraceEnabled()) {
                         log.trace("Condition evaluated to 'false' - Skipping the current action");
                     }
@@ -111,6 +114,7 @@ public class RewriteRule {
 
     public void setCondition(Evaluator condition) {
         this.condition = condition;
+        this.compiledCondition = condition != null ? EvaluatorCompiler.compile(condition) : null;
     }
 
     public void addRewriteAction(RewriteAction action) {
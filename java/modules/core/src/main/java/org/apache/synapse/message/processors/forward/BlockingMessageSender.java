@@ -44,6 +44,7 @@ import org.apache.synapse.SynapseException;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.endpoints.EndpointDefinition;
 import org.apache.synapse.util.MessageHelper;
+import org.apache.synapse.util.concurrent.RouteConcurrencyLimiter;
 
 
 import java.util.Iterator;
@@ -156,6 +157,9 @@ public class BlockingMessageSender {
 
             sc.setOptions(options);
             OMElement result = null;
+            // bound the number of messages forwarded to the same backend at once
+            String route = RouteConcurrencyLimiter.getRoute(serviceUrl);
+            boolean routeAcquired = RouteConcurrencyLimiter.getInstance().acquire(route);
             try {
                 OMElement payload = axis2Ctx.getEnvelope().getBody().getFirstElement();
                 if(outOnlyMessage) {
@@ -180,6 +184,10 @@ public class BlockingMessageSender {
                 log.error("Error sending Message to url : " + serviceUrl ,axisFault);
                 throw new Exception("Error while Sending Message" , axisFault);
 
+            } finally {
+                if (routeAcquired) {
+                    RouteConcurrencyLimiter.getInstance().release(route);
+                }
             }
 
             if(!outOnlyMessage) {
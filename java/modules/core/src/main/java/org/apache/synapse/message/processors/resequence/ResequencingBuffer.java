@@ -0,0 +1,146 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.message.processors.resequence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the ids of the stored messages ordered by their sequence numbers, so that the
+ * resequencer finds the next message to send without scanning the message store. The sequence
+ * number of a message is given once, when the message is stored, and messages are released
+ * as soon as they form a contiguous run starting at the next expected sequence number.
+ */
+class ResequencingBuffer {
+
+    /** Ids of the pending messages keyed by sequence number */
+    private final TreeMap<Integer, String> pending = new TreeMap<Integer, String>();
+
+    /** Sequence numbers of the pending messages keyed by message id */
+    private final Map<String, Integer> sequenceNumbers = new HashMap<String, Integer>();
+
+    /** Sequence number of the message that should be sent next */
+    private int nextSeqNo;
+
+    /** Whether the starting sequence number has been selected */
+    private boolean initialized = false;
+
+    /**
+     * Add a stored message to the buffer
+     *
+     * @param messageId id of the stored message
+     * @param seqNo     sequence number of the message
+     * @return false if the message has the sequence number of another pending message, or a
+     *         sequence number that was already sent or skipped, in which case it is not added
+     */
+    public synchronized boolean add(String messageId, int seqNo) {
+        if (sequenceNumbers.containsKey(messageId)) {
+            // already indexed, when observed while the existing messages are indexed
+            return true;
+        }
+        if ((initialized && seqNo < nextSeqNo) || pending.containsKey(seqNo)) {
+            return false;
+        }
+        pending.put(seqNo, messageId);
+        sequenceNumbers.put(messageId, seqNo);
+        return true;
+    }
+
+    /**
+     * Remove a message that was removed from the message store by some other party
+     *
+     * @param messageId id of the removed message
+     */
+    public synchronized void remove(String messageId) {
+        Integer seqNo = sequenceNumbers.remove(messageId);
+        if (seqNo != null) {
+            pending.remove(seqNo);
+        }
+    }
+
+    /**
+     * Select the smallest pending sequence number as the starting sequence number
+     *
+     * @return true if the starting sequence number is selected
+     */
+    public synchronized boolean initialize() {
+        if (!initialized && !pending.isEmpty()) {
+            nextSeqNo = pending.firstKey();
+            initialized = true;
+        }
+        return initialized;
+    }
+
+    /**
+     * Remove the contiguous run of messages starting at the next expected sequence number
+     *
+     * @return ids of the released messages in sequence number order
+     */
+    public synchronized List<String> release() {
+        List<String> released = new ArrayList<String>();
+        if (!initialized) {
+            return released;
+        }
+        String messageId;
+        while ((messageId = pending.remove(nextSeqNo)) != null) {
+            sequenceNumbers.remove(messageId);
+            released.add(messageId);
+            nextSeqNo++;
+        }
+        return released;
+    }
+
+    /**
+     * Check whether messages are waiting for a missing sequence number
+     *
+     * @return true if there are pending messages but none can be released
+     */
+    public synchronized boolean hasGap() {
+        return initialized && !pending.isEmpty() && pending.firstKey() > nextSeqNo;
+    }
+
+    /**
+     * Give up on the missing sequence numbers and continue from the smallest pending one
+     *
+     * @param expectedSeqNo the sequence number the gap was detected at
+     * @return true if the gap still existed and was skipped
+     */
+    public synchronized boolean skipGap(int expectedSeqNo) {
+        if (nextSeqNo != expectedSeqNo || !hasGap()) {
+            return false;
+        }
+        nextSeqNo = pending.firstKey();
+        return true;
+    }
+
+    public synchronized int getNextSeqNo() {
+        return nextSeqNo;
+    }
+
+    public synchronized boolean isInitialized() {
+        return initialized;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+}
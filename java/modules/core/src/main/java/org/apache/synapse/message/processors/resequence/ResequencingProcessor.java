@@ -20,24 +20,35 @@ package org.apache.synapse.message.processors.resequence;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.core.SynapseEnvironment;
-import org.apache.synapse.message.processors.ScheduledMessageProcessor;
+import org.apache.synapse.message.processors.AbstractMessageProcessor;
 import org.apache.synapse.message.store.MessageStore;
+import org.apache.synapse.message.store.MessageStoreObserver;
 import org.apache.synapse.util.xpath.SynapseXPath;
-import org.quartz.*;
 
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This class will be used as the processor of the resequencer and set up
- * the necessary environment for the ResequencingJob.
- * This should be run periodically after given time interval and
- * for that this should be inherited from ScheduledMessageProcessor class
+ * This class will be used as the processor of the resequencer. It observes the attached message
+ * store and evaluates the sequence number of each message once, when the message is stored,
+ * keeping the message ids in a {@link ResequencingBuffer} ordered by sequence number. Whenever
+ * the next expected message is available, it and the contiguous run of messages following it
+ * are removed from the store and passed to the next sequence, one at a time, on the thread of
+ * the processor. If a gap timeout is configured, missing sequence numbers are skipped once
+ * the following messages have waited for that long.
  */
-public class ResequencingProcessor extends ScheduledMessageProcessor {
+public class ResequencingProcessor extends AbstractMessageProcessor
+        implements MessageStoreObserver {
 
     /**
      * Log is set to the current class
@@ -50,26 +61,62 @@ public class ResequencingProcessor extends ScheduledMessageProcessor {
     private AtomicBoolean active = new AtomicBoolean(true);
 
     /**
-     * To indicate whether the starting sequence number is set while initializing the processor
+     * Pending messages ordered by sequence number
      */
-    private AtomicBoolean initSeqNo = new AtomicBoolean(false);
+    private final ResequencingBuffer buffer = new ResequencingBuffer();
 
     /**
-     * Sequence number of the message that should be send next
+     * Number of messages that the Resequencing processor should wait for before selecting the
+     * starting sequence number. Default value is 4
      */
-    private AtomicInteger nextSeqNo = new AtomicInteger(Integer.MAX_VALUE);
+    private int requiredInitMsgs = 4;
 
     /**
-     * Number of messages interested to come
-     * Number of messages that the Resequencing processor should wait for before selecting the starting sequence number.
-     * Default value is 4
+     * Number of STARTING_NUMBER_INIT_DELAY periods to wait for the required number of
+     * messages to come
      */
-    private AtomicInteger requiredInitMsgs = new AtomicInteger(4);
+    private int requiredInitMsgsDelay = 5;
 
     /**
-     * Time to wait for interested number of messages to come
+     * Time in milliseconds to wait for a missing sequence number, 0 to wait indefinitely
      */
-    private AtomicInteger requiredInitMsgsDelay = new AtomicInteger(5);
+    private long gapTimeout = 0;
+
+    /**
+     * xpath expression to extract the sequence number
+     */
+    private SynapseXPath seqNoxPath;
+
+    /**
+     * Name of the sequence that the messages are passed to
+     */
+    private String sequence;
+
+    /**
+     * Message store that the processor observes
+     */
+    private MessageStore store;
+
+    /**
+     * Releases the messages and runs the timers of the processor
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Set when the required number of messages did not come in time, after which the
+     * starting sequence number is selected from the first available messages
+     */
+    private volatile boolean initTimedOut = false;
+
+    /**
+     * Timer of the gap currently waited for, only accessed by the processor thread
+     */
+    private ScheduledFuture<?> gapTimer;
+
+    /**
+     * Sequence number the current gap timer was started for
+     */
+    private int gapSeqNo;
 
     /**
      * xpath expression to extract the sequence number
@@ -92,15 +139,14 @@ public class ResequencingProcessor extends ScheduledMessageProcessor {
     public static final String REQ_INIT_MSGS_DELAY = "requiredInitMessagesDelay";
 
     /**
-     * Delay time period required for Resequencer processor while initializing starting sequence number
+     * Time in milliseconds to wait for a missing sequence number before skipping it
      */
-    public static final int STARTING_NUMBER_INIT_DELAY = 6000;
+    public static final String GAP_TIMEOUT = "gapTimeout";
 
     /**
-     * Number of times currently processor waited until required number of messages come
-     * Max value is determined by   requiredInitMsgs variable value
+     * Delay time period required for Resequencer processor while initializing starting sequence number
      */
-    public int tried = 0;
+    public static final int STARTING_NUMBER_INIT_DELAY = 6000;
 
     public static final String DELETE_DUPLICATES="deleteDuplicateMessages";
 
@@ -115,89 +161,256 @@ public class ResequencingProcessor extends ScheduledMessageProcessor {
     @Override
     public void init(SynapseEnvironment se) {
         super.init(se);
+        readParameters();
 
-        /** Set the initial sequence number */
-        findFirstSeqNum();
+        store = configuration.getMessageStore(messageStore);
+        if (store == null) {
+            handleException("Message store " + messageStore + " of the resequencing processor " +
+                    name + " does not exist");
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "resequencer-" + name);
+                t.setDaemon(true);
+                return t;
+            }
+        });
 
+        /** Index the messages already in the store, and observe the newly stored ones */
+        store.registerObserver(this);
+        for (MessageContext messageContext : store.getAll()) {
+            index(messageContext);
+        }
+
+        /** Set the initial sequence number */
+        if (buffer.initialize()) {
+            submit(new ReleaseTask());
+        } else {
+            executor.schedule(new Runnable() {
+                public void run() {
+                    initTimedOut = true;
+                    if (buffer.initialize()) {
+                        release();
+                    } else {
+                        log.warn("Resequencer " + name + " did not receive the required " +
+                                "number of messages to select the starting sequence number, " +
+                                "it will be selected from the next message");
+                    }
+                }
+            }, (long) requiredInitMsgsDelay * STARTING_NUMBER_INIT_DELAY, TimeUnit.MILLISECONDS);
+        }
     }
 
+    private void readParameters() {
+        if (parameters == null) {
+            handleException("Parameters " + SEQUENCE_NUMBER_XPATH + " and " + NEXT_SEQUENCE +
+                    " are required by the resequencing processor");
+        }
 
-    /**
-     * This method use to find the minimum sequence number in the message store at the startup
-     */
-    private void findFirstSeqNum() {
-        MessageStore store = configuration.getMessageStore(messageStore);
-        SynapseXPath seqNoxPath = null;
+        /** Extract the SynapseXpath object from parameters to identify the sequence number of the message */
+        if (parameters.get(SEQUENCE_NUMBER_XPATH) instanceof SynapseXPath) {
+            seqNoxPath = (SynapseXPath) parameters.get(SEQUENCE_NUMBER_XPATH);
+        } else {
+            handleException("Parameter " + SEQUENCE_NUMBER_XPATH + " must be an xpath expression");
+        }
+        sequence = (String) parameters.get(NEXT_SEQUENCE);
 
-        /** Extract the SynapseXpath configuration.getMessageStore(messageStore)object from parameters to
-         * identify the sequence number of the message */
-        if (parameters != null && parameters.get(ResequencingProcessor.SEQUENCE_NUMBER_XPATH) != null) {
-            seqNoxPath = (SynapseXPath) parameters.get(ResequencingProcessor.SEQUENCE_NUMBER_XPATH);
+        try {
+            /** Extract the number of messages interested to come */
+            if (parameters.get(REQ_INIT_MSGS) != null) {
+                requiredInitMsgs = Integer.parseInt((String) parameters.get(REQ_INIT_MSGS));
+            }
+            /** Extract the delay wait until the interested messages come */
+            if (parameters.get(REQ_INIT_MSGS_DELAY) != null) {
+                requiredInitMsgsDelay = Integer.parseInt(
+                        (String) parameters.get(REQ_INIT_MSGS_DELAY));
+            }
+            if (parameters.get(GAP_TIMEOUT) != null) {
+                gapTimeout = Long.parseLong((String) parameters.get(GAP_TIMEOUT));
+            }
+        } catch (NumberFormatException e) {
+            handleException("Invalid numeric parameter for the resequencing processor " + name +
+                    " : " + e.getMessage());
         }
 
+        /** Extract whether to delete duplicate messages */
+        if ("TRUE".equalsIgnoreCase((String) parameters.get(DELETE_DUPLICATES))) {
+            deleteDuplicates.set(true);
+        }
+    }
 
-        /** Iterate through message store */
-        for (int messageIndex = 0; ; messageIndex++) {
+    public void messageAdded(String messageId) {
+        MessageContext messageContext = store.get(messageId);
+        if (messageContext == null || !index(messageContext)) {
+            return;
+        }
 
-            try {
-                MessageContext messageContext = store.get(messageIndex);
-                if (messageContext == null) {
-                    break;
+        if (buffer.isInitialized()) {
+            submit(new ReleaseTask());
+        } else if (initTimedOut || buffer.size() >= requiredInitMsgs) {
+            submit(new Runnable() {
+                public void run() {
+                    if (buffer.initialize()) {
+                        release();
+                    }
                 }
+            });
+        }
+    }
+
+    public void messageRemoved(String messageId) {
+        buffer.remove(messageId);
+    }
+
+    /**
+     * Evaluate the sequence number of a stored message and add it to the buffer
+     *
+     * @param messageContext the stored message
+     * @return true if the message was added to the buffer
+     */
+    private boolean index(MessageContext messageContext) {
+        final String messageId = messageContext.getMessageID();
+        int sequenceNo;
+        try {
+            sequenceNo = Integer.parseInt(seqNoxPath.stringValueOf(messageContext));
+        } catch (Exception e) {
+            log.warn("Can't Find sequence number from message " + messageId + " : " +
+                    e.getMessage());
+            return false;
+        }
 
-                /** Extract the sequence number from the message */
-                int sequenceNo = Integer.parseInt(seqNoxPath.stringValueOf(messageContext));
+        if (buffer.add(messageId, sequenceNo)) {
+            return true;
+        }
 
-                /** If the sequence number is smaller that current next-sequence number, current next-sequence
-                 * number get replaced */
-                if (sequenceNo < getNextSeqNo()) {
-                    setNextSeqNo(sequenceNo);
-                    /** To indicate that starting sequence number is initialized */
-                    initSeqNo = new AtomicBoolean(true);
+        if (log.isDebugEnabled()) {
+            log.debug("Message " + messageId + " with sequence number " + sequenceNo +
+                    " is a duplicate or arrived after its sequence number was passed");
+        }
+        /** Remove messages which have less sequence number than required */
+        if (getDeleteDuplicates()) {
+            submit(new Runnable() {
+                public void run() {
+                    store.remove(messageId);
                 }
+            });
+        }
+        return false;
+    }
+
+    /**
+     * Send the contiguous run of messages starting at the next sequence number, and start
+     * the gap timer if the following messages wait for a missing one. Only called by the
+     * processor thread, so that messages are sent one at a time and in order.
+     */
+    private void release() {
+        if (!isActive()) {
+            return;
+        }
 
-            } catch (NumberFormatException e) {
-                handleException("Invalid xPath parameter - Sequence number specified is not an integer ");
-            } catch (Exception e) {
-                handleException("Failed to initialize starting sequence number at startup: " + e.getMessage());
+        List<String> released = buffer.release();
+        for (String messageId : released) {
+            MessageContext messageContext = store.get(messageId);
+            /** Remove selected message from store */
+            store.remove(messageId);
+            if (messageContext != null) {
+                send(messageContext, sequence);
             }
         }
 
+        if (gapTimeout > 0 && buffer.hasGap()) {
+            final int expected = buffer.getNextSeqNo();
+            if (gapTimer == null || gapSeqNo != expected) {
+                cancelGapTimer();
+                gapSeqNo = expected;
+                gapTimer = executor.schedule(new Runnable() {
+                    public void run() {
+                        gapTimer = null;
+                        if (buffer.skipGap(expected)) {
+                            log.warn("Resequencer " + name + " skipped missing sequence " +
+                                    "numbers starting at " + expected + " after waiting " +
+                                    gapTimeout + "ms");
+                            release();
+                        }
+                    }
+                }, gapTimeout, TimeUnit.MILLISECONDS);
+            }
+        } else {
+            cancelGapTimer();
+        }
     }
 
     /**
-     * Get the job details with Name and Job Class
+     * Run a task on the processor thread. Tasks submitted after the processor is destroyed
+     * are ignored, the messages stay in the store.
      *
-     * @return jobDetail - created JobDetail object with Name and JobClass
+     * @param task the task to run
      */
-    @Override
-    protected JobBuilder getJobBuilder() {
-        return JobBuilder.newJob(ResequencingJob.class).withIdentity(
-                name + "-resequencing-job", SCHEDULED_MESSAGE_PROCESSOR_GROUP);
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Resequencer " + name + " is destroyed, ignoring task");
+            }
+        }
+    }
+
+    private void cancelGapTimer() {
+        if (gapTimer != null) {
+            gapTimer.cancel(false);
+            gapTimer = null;
+        }
     }
 
     /**
-     * Get the map that contains parameters related  to Resequencing job
+     * Transmit the message in to a given sequence
      *
-     * @return jobDataMap - created Job Data Map along with the processor instance
-     */
+     * @param messageContext - the content of the message that is transferred by Resequencer from message store
+     * @param sequence       - the sequence name that the message should be passed
+     * @return boolean         - to indicate the success of transferring the message
+     */
+    private boolean send(MessageContext messageContext, String sequence) {
+        Mediator processingSequence = messageContext.getSequence(sequence);
+        if (processingSequence == null) {
+            log.error("Sequence " + sequence + " not found, dropping message " +
+                    messageContext.getMessageID());
+            return false;
+        }
+        try {
+            processingSequence.mediate(messageContext);
+            return true;
+        } catch (Exception e) {
+            log.error("Error while mediating message " + messageContext.getMessageID() +
+                    " through sequence " + sequence, e);
+            return false;
+        }
+    }
+
+    public void start() {
+        activate();
+    }
+
+    public void stop() {
+        deactivate();
+    }
+
     @Override
-    protected JobDataMap getJobDataMap() {
-        JobDataMap jdm = new JobDataMap();
-        jdm.put(PROCESSOR_INSTANCE, this);
-        return jdm;
+    public boolean isStarted() {
+        return isActive();
     }
 
     /**
-     * Destroy the processor's resequencing job
+     * Destroy the processor
      */
-    @Override
     public void destroy() {
-        try {
-            scheduler.deleteJob(new JobKey(name + "-resequencing-job",
-                    ScheduledMessageProcessor.SCHEDULED_MESSAGE_PROCESSOR_GROUP));
-            scheduler.shutdown();
-        } catch (SchedulerException e) {
+        deactivate();
+        if (store != null) {
+            store.unregisterObserver(this);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
         }
     }
 
@@ -207,6 +420,9 @@ public class ResequencingProcessor extends ScheduledMessageProcessor {
      */
     public void activate() {
         active.set(true);
+        if (executor != null) {
+            submit(new ReleaseTask());
+        }
     }
 
     /**
@@ -231,43 +447,17 @@ public class ResequencingProcessor extends ScheduledMessageProcessor {
      *
      * @return nextSeqNo - The sequence number of the message that to be send next
      */
-    public synchronized int getNextSeqNo() {
-        return nextSeqNo.get();
-    }
-
-    /**
-     * This method allow to change the value of nextSeqNo variable, which is used to determine
-     * the sequence number of the message next to go
-     *
-     * @param value - The value to set
-     */
-    public synchronized void setNextSeqNo(int value) {
-        nextSeqNo.set(value);
-    }
-
-    /**
-     * Increase the sequence number by one
-     */
-    public synchronized void incrementNextSeqNo() {
-        nextSeqNo.incrementAndGet();
+    public int getNextSeqNo() {
+        return buffer.getNextSeqNo();
     }
 
     /**
      * Indicate whether the initial sequencer number is set
      *
-     * @return initSeqNo - boolean value containing true or false
+     * @return true if the starting sequence number is selected
      */
-    public AtomicBoolean isInitSeqNo() {
-        return initSeqNo;
-    }
-
-    /**
-     * Set or clear the initSeqNo value
-     *
-     * @param initSeqNo - boolean value to set
-     */
-    public void setInitSeqNo(AtomicBoolean initSeqNo) {
-        this.initSeqNo = initSeqNo;
+    public boolean isInitSeqNo() {
+        return buffer.isInitialized();
     }
 
     /**
@@ -275,35 +465,26 @@ public class ResequencingProcessor extends ScheduledMessageProcessor {
      *
      * @return requiredInitMsgs - int value of required messages
      */
-    public AtomicInteger getRequiredInitMsgs() {
+    public int getRequiredInitMsgs() {
         return requiredInitMsgs;
     }
 
-    /**
-     * Set the number of messages required before set starting sequence number
-     *
-     * @param requiredInitMsgs - number of messages need to wait
-     */
-    public void setRequiredInitMsgs(AtomicInteger requiredInitMsgs) {
-        this.requiredInitMsgs = requiredInitMsgs;
-    }
-
     /**
      * Delay until requiredInitMsgs get set
      *
      * @return requiredInitMessagesDelay delay value
      */
-    public AtomicInteger getRequiredInitMsgsDelay() {
+    public int getRequiredInitMsgsDelay() {
         return requiredInitMsgsDelay;
     }
 
     /**
-     * Set the delay until requiredInitMsgs get set
+     * Time to wait for a missing sequence number
      *
-     * @param requiredInitMsgsDelay - value for delay
+     * @return gap timeout in milliseconds, 0 if missing sequence numbers are waited for indefinitely
      */
-    public void setRequiredInitMsgsDelay(AtomicInteger requiredInitMsgsDelay) {
-        this.requiredInitMsgsDelay = requiredInitMsgsDelay;
+    public long getGapTimeout() {
+        return gapTimeout;
     }
 
     /**
@@ -315,14 +496,14 @@ public class ResequencingProcessor extends ScheduledMessageProcessor {
     }
 
     /**
-     * Set to delete duplicate messages
-     * @param deleteDuplicates
+     * Releases the messages that can be sent
      */
-    public void setDeleteDuplicates(AtomicBoolean deleteDuplicates) {
-        this.deleteDuplicates = deleteDuplicates;
+    private class ReleaseTask implements Runnable {
+        public void run() {
+            release();
+        }
     }
 
-
     /**
      * Handling errors are done here.
      * This will log the error messages and throws SynapseException
@@ -336,4 +517,4 @@ public class ResequencingProcessor extends ScheduledMessageProcessor {
         throw new SynapseException(msg);
     }
 
-}
\ No newline at end of file
+}
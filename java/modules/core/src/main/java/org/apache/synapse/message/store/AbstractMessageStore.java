@@ -23,9 +23,8 @@ import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.core.SynapseEnvironment;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -72,10 +71,11 @@ public abstract class AbstractMessageStore implements MessageStore {
     protected String fileName;
 
     /**
-     * List that holds the MessageStore observers registered with the Message Store
+     * List that holds the MessageStore observers registered with the Message Store. Observers
+     * may be registered while notifications are sent, hence a copy on write list
      */
-    protected List<MessageStoreObserver> messageStoreObservers =
-            new ArrayList<MessageStoreObserver>();
+    protected CopyOnWriteArrayList<MessageStoreObserver> messageStoreObservers =
+            new CopyOnWriteArrayList<MessageStoreObserver>();
 
     protected Lock lock = new ReentrantLock();
 
@@ -99,13 +99,13 @@ public abstract class AbstractMessageStore implements MessageStore {
 
 
     public void registerObserver(MessageStoreObserver observer) {
-        if(observer != null && !messageStoreObservers.contains(observer)) {
-            messageStoreObservers.add(observer);
+        if(observer != null) {
+            messageStoreObservers.addIfAbsent(observer);
         }
     }
 
     public void unregisterObserver(MessageStoreObserver observer) {
-        if(observer != null && messageStoreObservers.contains(observer)) {
+        if(observer != null) {
             messageStoreObservers.remove(observer);
         }
     }
@@ -24,19 +24,26 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * InMemory Message store will store Failed Messages in the local memory
+ * InMemory Message store will store Failed Messages in the local memory. The messages are
+ * indexed by message id, so that looking up and removing a message by id does not scan the
+ * store
  */
 public class InMemoryMessageStore extends AbstractMessageStore {
 
     private static final Log log = LogFactory.getLog(InMemoryMessageStore.class);
 
-    /** The map that keeps the stored messages */
-    private Queue<MessageContext> messageList = new ConcurrentLinkedQueue<MessageContext>();
+    /** The stored messages in the order they were stored, guarded by the lock */
+    private Set<MessageContext> messageList = new LinkedHashSet<MessageContext>();
+
+    /** The first stored message of each message id, guarded by the lock */
+    private Map<String, MessageContext> messageIndex = new HashMap<String, MessageContext>();
+
+    /** Number of stored messages sharing their id with an earlier one, guarded by the lock */
+    private int duplicateIds = 0;
 
     private Lock lock = new ReentrantLock();
 
@@ -45,7 +52,13 @@ public class InMemoryMessageStore extends AbstractMessageStore {
         try {
             if (messageContext != null) {
                 messageContext.getEnvelope().build();
-                messageList.offer(messageContext);
+                if (messageList.add(messageContext)) {
+                    if (messageIndex.containsKey(messageContext.getMessageID())) {
+                        duplicateIds++;
+                    } else {
+                        messageIndex.put(messageContext.getMessageID(), messageContext);
+                    }
+                }
                 // Notify observers
                 notifyMessageAddition(messageContext.getMessageID());
                 if (log.isDebugEnabled()) {
@@ -62,8 +75,9 @@ public class InMemoryMessageStore extends AbstractMessageStore {
     public MessageContext poll() {
         lock.lock();
         try {
-            MessageContext context = messageList.poll();
+            MessageContext context = first();
             if (context != null) {
+                delete(context);
                 // notify observers
                 notifyMessageRemoval(context.getMessageID());
             }
@@ -74,16 +88,23 @@ public class InMemoryMessageStore extends AbstractMessageStore {
     }
 
     public MessageContext peek() {
-        return messageList.peek();        
+        lock.lock();
+        try {
+            return first();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public MessageContext remove() throws NoSuchElementException {
         lock.lock();
         try {
-            MessageContext msgCtx = messageList.remove();
-            if (msgCtx != null) {
-                notifyMessageRemoval(msgCtx.getMessageID());
+            MessageContext msgCtx = first();
+            if (msgCtx == null) {
+                throw new NoSuchElementException();
             }
+            delete(msgCtx);
+            notifyMessageRemoval(msgCtx.getMessageID());
             return msgCtx;
         } finally {
             lock.unlock();
@@ -112,15 +133,9 @@ public class InMemoryMessageStore extends AbstractMessageStore {
         lock.lock();
         try {
             if (messageID != null) {
-                MessageContext removable = null;
-                for (MessageContext msgCtx : messageList) {
-                    if (msgCtx.getMessageID().equals(messageID)) {
-                        removable = msgCtx;
-                        break;
-                    }
-                }
-
-                if (removable != null && messageList.remove(removable)) {
+                MessageContext removable = messageIndex.get(messageID);
+                if (removable != null) {
+                    delete(removable);
                     notifyMessageRemoval(messageID);
                 }
             }
@@ -158,11 +173,7 @@ public class InMemoryMessageStore extends AbstractMessageStore {
         lock.lock();
         try {
             if (messageId != null) {
-                for (MessageContext msgCtx : messageList) {
-                    if (msgCtx.getMessageID().equals(messageId)) {
-                        return msgCtx;
-                    }
-                }
+                return messageIndex.get(messageId);
             }
         } finally {
             lock.unlock();
@@ -171,6 +182,38 @@ public class InMemoryMessageStore extends AbstractMessageStore {
     }
 
     public int size() {
-        return messageList.size();
+        lock.lock();
+        try {
+            return messageList.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MessageContext first() {
+        Iterator<MessageContext> it = messageList.iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * Remove a stored message, indexing the next message with the same id if there is one
+     */
+    private void delete(MessageContext msgCtx) {
+        messageList.remove(msgCtx);
+        String messageId = msgCtx.getMessageID();
+        if (messageIndex.get(messageId) != msgCtx) {
+            duplicateIds--;
+            return;
+        }
+        messageIndex.remove(messageId);
+        if (duplicateIds > 0) {
+            for (MessageContext next : messageList) {
+                if (messageId.equals(next.getMessageID())) {
+                    messageIndex.put(messageId, next);
+                    duplicateIds--;
+                    break;
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
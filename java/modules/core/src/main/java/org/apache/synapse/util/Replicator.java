@@ -21,16 +21,33 @@ package org.apache.synapse.util;
 import org.apache.axis2.clustering.ClusteringFault;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import java.util.Collection;
+
 /**
- * Helper class for replicating states
+ * Helper class for replicating states. The state is always updated in the local configuration
+ * context at once. Unless the replication interval is set to zero or less, the replication
+ * itself is deferred to a {@link StateReplicationQueue}, so that the mediation threads do not
+ * wait on the cluster and repeated updates of the same state are coalesced.
  */
 public class Replicator {
 
     private static final Log log = LogFactory.getLog(Replicator.class);
 
+    /** Maximum time in milliseconds an update may wait before it is replicated */
+    public static final String REPLICATION_INTERVAL = "synapse.cluster.replication.interval";
+    private static final long DEFAULT_REPLICATION_INTERVAL = 100;
+
+    private static final String REPLICATION_QUEUE = "synapse.cluster.replication.queue";
+
+    private static final Object queueLock = new Object();
+
+    private static volatile long replicationInterval = -1;
+    private static volatile boolean intervalLoaded = false;
+
     /**
      * Helper method to replicates states of the property with given key
      * Removes the property and then replicates the current state so that all instances
@@ -43,22 +60,35 @@ public class Replicator {
 
         if (configCtx != null && key != null) {
 
-            try {
-                if (log.isDebugEnabled()) {
-                    log.debug("Start replicating the property removal with key : " + key);
-                }
+            if (log.isDebugEnabled()) {
+                log.debug("Start replicating the property removal with key : " + key);
+            }
 
-                configCtx.removePropertyNonReplicable(key);
-                org.apache.axis2.clustering.state.Replicator.replicate(
-                        configCtx, new String[]{key});
+            configCtx.removePropertyNonReplicable(key);
+            replicate(configCtx, key);
+        }
+    }
+
+    /**
+     * Helper method to remove a set of properties and replicate the removal of all of them
+     * with a single replication request
+     *
+     * @param keys      The keys of the properties
+     * @param configCtx Axis2 configuration context
+     */
+    public static void removeAndReplicateState(Collection<String> keys,
+                                               ConfigurationContext configCtx) {
 
-                if (log.isDebugEnabled()) {
-                    log.debug("Completed replication of the property removal with key : " + key);
-                }
+        if (configCtx != null && keys != null && !keys.isEmpty()) {
 
-            } catch (ClusteringFault clusteringFault) {
-                handleException("Error during the replicating states ", clusteringFault);
+            if (log.isDebugEnabled()) {
+                log.debug("Start replicating the removal of " + keys.size() + " properties");
+            }
+
+            for (String key : keys) {
+                configCtx.removePropertyNonReplicable(key);
             }
+            replicate(configCtx, keys.toArray(new String[keys.size()]));
         }
     }
 
@@ -74,23 +104,79 @@ public class Replicator {
 
         if (configCtx != null && key != null && value != null) {
 
-            try {
-                if (log.isDebugEnabled()) {
-                    log.debug("Start replicating the property with key : " + key +
-                            " value : " + value);
-                }
+            if (log.isDebugEnabled()) {
+                log.debug("Start replicating the property with key : " + key +
+                        " value : " + value);
+            }
 
-                configCtx.setNonReplicableProperty(key, value);
-                org.apache.axis2.clustering.state.Replicator.replicate(
-                        configCtx, new String[]{key});
+            configCtx.setNonReplicableProperty(key, value);
+            replicate(configCtx, key);
+        }
+    }
 
-                if (log.isDebugEnabled()) {
-                    log.debug("Completed replication of the property with key : " + key);
-                }
+    /**
+     * Replicates all the state changes of the given configuration context which are still
+     * waiting in the replication queue
+     *
+     * @param configCtx Axis2 configuration context
+     */
+    public static void flush(ConfigurationContext configCtx) {
+        StateReplicationQueue queue = getReplicationQueue(configCtx);
+        if (queue != null) {
+            queue.flush();
+        }
+    }
+
+    /**
+     * Returns the replication queue of the given configuration context, creating it if
+     * required. Returns null if the state changes are to be replicated synchronously.
+     *
+     * @param configCtx Axis2 configuration context
+     * @return the replication queue or null
+     */
+    public static StateReplicationQueue getReplicationQueue(ConfigurationContext configCtx) {
+
+        StateReplicationQueue queue =
+                (StateReplicationQueue) configCtx.getPropertyNonReplicable(REPLICATION_QUEUE);
+        if (queue != null) {
+            return queue;
+        }
+
+        if (!intervalLoaded) {
+            replicationInterval = Long.parseLong(SynapsePropertiesLoader.getPropertyValue(
+                    REPLICATION_INTERVAL, String.valueOf(DEFAULT_REPLICATION_INTERVAL)));
+            intervalLoaded = true;
+        }
+        if (replicationInterval <= 0) {
+            return null;
+        }
+
+        synchronized (queueLock) {
+            queue = (StateReplicationQueue) configCtx.getPropertyNonReplicable(REPLICATION_QUEUE);
+            if (queue == null) {
+                queue = new StateReplicationQueue(configCtx,
+                        StateReplicationQueue.CLUSTERING_AGENT_SENDER, replicationInterval);
+                configCtx.setNonReplicableProperty(REPLICATION_QUEUE, queue);
+            }
+        }
+        return queue;
+    }
+
+    private static void replicate(ConfigurationContext configCtx, String... keys) {
+
+        StateReplicationQueue queue = getReplicationQueue(configCtx);
+        if (queue != null) {
+            queue.add(keys);
+            return;
+        }
 
-            } catch (ClusteringFault clusteringFault) {
-                handleException("Error during the replicating states ", clusteringFault);
+        try {
+            org.apache.axis2.clustering.state.Replicator.replicate(configCtx, keys);
+            if (log.isDebugEnabled()) {
+                log.debug("Completed replication of " + keys.length + " properties");
             }
+        } catch (ClusteringFault clusteringFault) {
+            handleException("Error during the replicating states ", clusteringFault);
         }
     }
 
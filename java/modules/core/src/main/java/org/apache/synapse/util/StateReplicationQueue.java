@@ -0,0 +1,195 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.util;
+
+import org.apache.axis2.clustering.ClusteringFault;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replicates the state kept in a configuration context across the cluster asynchronously.
+ * The keys of the changed properties are queued, and the queued keys are replicated together
+ * in a single replication request once the replication interval elapses. A key changed several
+ * times within an interval is replicated only once, with the value it has at the time of the
+ * replication, and keys which did not change are never replicated.
+ */
+public class StateReplicationQueue {
+
+    private static final Log log = LogFactory.getLog(StateReplicationQueue.class);
+
+    private static final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "synapse-state-replicator");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    /**
+     * Sends the current values of a set of properties of a configuration context to the other
+     * members of the cluster
+     */
+    public interface ReplicationSender {
+
+        /**
+         * Replicates the given properties. A property which is no longer present in the
+         * configuration context is replicated as a removal.
+         *
+         * @param configCtx the configuration context holding the properties
+         * @param keys      keys of the properties to be replicated
+         * @throws ClusteringFault if the replication fails
+         */
+        public void replicate(ConfigurationContext configCtx, String[] keys)
+                throws ClusteringFault;
+    }
+
+    /**
+     * Replicates through the clustering agent of the Axis2 configuration
+     */
+    public static final ReplicationSender CLUSTERING_AGENT_SENDER = new ReplicationSender() {
+        public void replicate(ConfigurationContext configCtx, String[] keys)
+                throws ClusteringFault {
+            org.apache.axis2.clustering.state.Replicator.replicate(configCtx, keys);
+        }
+    };
+
+    private final ConfigurationContext configCtx;
+    private final ReplicationSender sender;
+    private final long interval;
+
+    private final ConcurrentMap<String, Boolean> pendingKeys =
+            new ConcurrentHashMap<String, Boolean>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final AtomicLong updateCount = new AtomicLong(0);
+    private final AtomicLong batchCount = new AtomicLong(0);
+    private final AtomicLong replicatedKeyCount = new AtomicLong(0);
+
+    private final Runnable flushTask = new Runnable() {
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param configCtx the configuration context whose state is replicated
+     * @param sender    sender used to replicate the queued keys
+     * @param interval  time in milliseconds an update may wait before being replicated
+     */
+    public StateReplicationQueue(ConfigurationContext configCtx, ReplicationSender sender,
+                                 long interval) {
+        this.configCtx = configCtx;
+        this.sender = sender;
+        this.interval = interval;
+    }
+
+    /**
+     * Queues the given keys for replication
+     *
+     * @param keys keys of the properties which have been changed
+     */
+    public void add(String... keys) {
+        for (String key : keys) {
+            pendingKeys.put(key, Boolean.TRUE);
+        }
+        updateCount.addAndGet(keys.length);
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(flushTask, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Replicates all the queued keys. If the replication fails the keys are queued again, so
+     * that they are retried with the next batch.
+     */
+    public synchronized void flush() {
+
+        // updates arriving from now on have to schedule another flush
+        flushScheduled.set(false);
+
+        List<String> keys = new ArrayList<String>(pendingKeys.size());
+        for (Iterator<String> it = pendingKeys.keySet().iterator(); it.hasNext();) {
+            keys.add(it.next());
+            it.remove();
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Replicating " + keys.size() + " changed properties : " + keys);
+        }
+
+        try {
+            sender.replicate(configCtx, keys.toArray(new String[keys.size()]));
+            batchCount.incrementAndGet();
+            replicatedKeyCount.addAndGet(keys.size());
+        } catch (ClusteringFault clusteringFault) {
+            log.error("Error during the replicating states, the replication will be retried",
+                    clusteringFault);
+            add(keys.toArray(new String[keys.size()]));
+        } catch (RuntimeException e) {
+            log.error("Unexpected error during the replicating states", e);
+        }
+    }
+
+    /**
+     * @return number of keys waiting to be replicated
+     */
+    public int getPendingCount() {
+        return pendingKeys.size();
+    }
+
+    /**
+     * @return number of property updates queued since the creation of this queue
+     */
+    public long getUpdateCount() {
+        return updateCount.get();
+    }
+
+    /**
+     * @return number of replication requests sent since the creation of this queue
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return number of keys replicated since the creation of this queue
+     */
+    public long getReplicatedKeyCount() {
+        return replicatedKeyCount.get();
+    }
+}
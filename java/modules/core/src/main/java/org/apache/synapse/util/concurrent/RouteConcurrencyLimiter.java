@@ -0,0 +1,175 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import org.apache.synapse.SynapseException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of blocking calls made to the same backend at once. A route is any key
+ * identifying a backend, such as the host and port of a service or the name of a data source.
+ * With a thread pool the number of concurrent blocking calls is implicitly bounded by the pool
+ * size; with virtual threads it is not, so this limiter keeps a single backend from being
+ * flooded. By default there is no limit, in which case acquiring a route costs nothing. A
+ * caller waits at most the acquire timeout for a call to be allowed, so that a saturated route
+ * (or a leaked permit) fails the message instead of holding the mediation thread forever.
+ */
+public class RouteConcurrencyLimiter {
+
+    private static final RouteConcurrencyLimiter INSTANCE = new RouteConcurrencyLimiter();
+
+    private final ConcurrentMap<String, Semaphore> routes =
+            new ConcurrentHashMap<String, Semaphore>();
+
+    private volatile int maxPerRoute = -1;
+
+    private volatile long acquireTimeout = 30000;
+
+    private RouteConcurrencyLimiter() {
+    }
+
+    public static RouteConcurrencyLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits until a call to the given route is allowed. Every successful acquire must be
+     * followed by a {@link #release(String)} of the same route.
+     *
+     * @param route the route to be called
+     * @return true if a permit was taken, false if calls to the route are not limited
+     * @throws SynapseException if no call was allowed within the acquire timeout
+     */
+    public boolean acquire(String route) {
+        Semaphore semaphore = getSemaphore(route);
+        if (semaphore == null) {
+            return false;
+        }
+
+        try {
+            if (!semaphore.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SynapseException("Timed out after " + acquireTimeout + "ms waiting " +
+                        "for one of the " + maxPerRoute + " concurrent calls to : " + route);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SynapseException("Interrupted while waiting to call : " + route, e);
+        }
+    }
+
+    /**
+     * Releases a permit taken by {@link #acquire(String)}
+     *
+     * @param route the route which was called
+     */
+    public void release(String route) {
+        Semaphore semaphore = routes.get(route);
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * @param route a route
+     * @return the number of calls in progress to the given route, or -1 if it is not limited
+     */
+    public int getInFlightCount(String route) {
+        Semaphore semaphore = routes.get(route);
+        if (semaphore == null || maxPerRoute <= 0) {
+            return -1;
+        }
+        return maxPerRoute - semaphore.availablePermits();
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of concurrent calls per route. Routes already in use keep the
+     * limit they were created with until {@link #reset()} is called.
+     *
+     * @param maxPerRoute maximum concurrent calls per route, non-positive for no limit
+     */
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    /**
+     * Sets the maximum time to wait for a call to a saturated route to be allowed
+     *
+     * @param acquireTimeout timeout in milliseconds, non-positive to fail at once
+     */
+    public void setAcquireTimeout(long acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public void reset() {
+        routes.clear();
+    }
+
+    /**
+     * Concurrent calls are limited per backend, which is identified by the scheme, host and
+     * port of the endpoint address
+     *
+     * @param address endpoint address
+     * @return the route of the address
+     */
+    public static String getRoute(String address) {
+        if (address == null) {
+            return null;
+        }
+        try {
+            URI uri = new URI(address);
+            if (uri.getHost() != null) {
+                return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+            }
+        } catch (URISyntaxException ignore) {
+        }
+        return address;
+    }
+
+    private Semaphore getSemaphore(String route) {
+        if (route == null || maxPerRoute <= 0) {
+            return null;
+        }
+
+        Semaphore semaphore = routes.get(route);
+        if (semaphore == null) {
+            Semaphore newSemaphore = new Semaphore(maxPerRoute, true);
+            semaphore = routes.putIfAbsent(route, newSemaphore);
+            if (semaphore == null) {
+                semaphore = newSemaphore;
+            }
+        }
+        return semaphore;
+    }
+}
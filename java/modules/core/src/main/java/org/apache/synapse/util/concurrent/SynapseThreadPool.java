@@ -41,6 +41,14 @@ public class SynapseThreadPool extends ThreadPoolExecutor {
     public static final String SYN_THREAD_QLEN     = "synapse.threads.qlen";
     public static final String SYN_THREAD_GROUP    = "synapse.threads.group";
     public static final String SYN_THREAD_IDPREFIX = "synapse.threads.idprefix";
+    public static final String SYN_THREAD_MODE     = "synapse.threads.mode";
+    public static final String SYN_THREAD_VIRTUAL_MAX   = "synapse.threads.virtual.max";
+    public static final String SYN_THREAD_ROUTE_MAX     = "synapse.threads.route.max";
+    public static final String SYN_THREAD_ROUTE_TIMEOUT = "synapse.threads.route.timeout";
+
+    // execution modes
+    public static final String THREAD_MODE_PLATFORM = "platform";
+    public static final String THREAD_MODE_VIRTUAL  = "virtual";
 
     /**
      * Constructor for the Synapse thread poll
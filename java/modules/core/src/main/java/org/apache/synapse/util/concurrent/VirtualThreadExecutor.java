@@ -0,0 +1,169 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor service which runs each task on a new virtual thread. Virtual threads are
+ * looked up reflectively, so that Synapse can still be built for and run on older JVMs; use
+ * {@link #isSupported()} to check whether the running JVM provides them.
+ * <p/>
+ * Blocking a virtual thread does not hold a platform thread, so tasks making blocking backend
+ * calls do not exhaust the executor. The number of tasks running at once can still be bounded,
+ * in which case tasks beyond the bound wait on their own virtual thread rather than in a queue.
+ * Threads are named with the given prefix followed by a sequence number, so that they can be
+ * told apart in thread dumps.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private static final Log log = LogFactory.getLog(VirtualThreadExecutor.class);
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final AtomicInteger activeCount = new AtomicInteger(0);
+
+    /**
+     * @param namePrefix     prefix for the names of the virtual threads
+     * @param maxConcurrency maximum number of tasks running at once, non-positive for no limit
+     */
+    public VirtualThreadExecutor(String namePrefix, int maxConcurrency) {
+        this.executor = createThreadPerTaskExecutor(namePrefix);
+        if (executor == null) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads are not supported by this JVM");
+        }
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+    }
+
+    /**
+     * Checks whether the running JVM supports virtual threads
+     *
+     * @return true if virtual threads are available
+     */
+    public static boolean isSupported() {
+        // the API is present but disabled on JVMs where virtual threads are a preview feature,
+        // so an executor is actually created and used rather than just looking the API up
+        ExecutorService probe = createThreadPerTaskExecutor("synapse-virtual-probe");
+        if (probe == null) {
+            return false;
+        }
+        try {
+            probe.submit(new Runnable() {
+                public void run() {
+                }
+            }).get(10, TimeUnit.SECONDS);
+            return true;
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Virtual threads are not usable", e);
+            }
+            return false;
+        } finally {
+            probe.shutdownNow();
+        }
+    }
+
+    public void execute(final Runnable command) {
+        executor.execute(new Runnable() {
+            public void run() {
+                if (permits != null) {
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                activeCount.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    activeCount.decrementAndGet();
+                    if (permits != null) {
+                        permits.release();
+                    }
+                }
+            }
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public List<Runnable> shutdownNow() {
+        return executor.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    public boolean isTerminated() {
+        return executor.isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return number of tasks currently running
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    private static ExecutorService createThreadPerTaskExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class)
+                    .invoke(builder, namePrefix + "-", 1L);
+            ThreadFactory factory =
+                    (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor =
+                    Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Virtual threads are not available", e);
+            }
+            return null;
+        } catch (LinkageError e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Virtual threads are not available", e);
+            }
+            return null;
+        }
+    }
+}
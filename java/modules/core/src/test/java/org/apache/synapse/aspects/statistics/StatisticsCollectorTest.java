@@ -0,0 +1,95 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.aspects.statistics;
+
+import junit.framework.TestCase;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.aspects.ComponentType;
+import org.apache.synapse.aspects.statistics.view.InOutStatisticsView;
+import org.apache.synapse.aspects.statistics.view.Statistics;
+
+import java.util.Map;
+
+public class StatisticsCollectorTest extends TestCase {
+
+    public void testEndpointStatisticsAggregation() {
+        StatisticsCollector collector = new StatisticsCollector();
+        collector.collect(createEndpointRecord("msg1", "ep1", 1000, 1030, false));
+        collector.collect(createEndpointRecord("msg2", "ep1", 2000, 2010, true));
+        collector.collect(createEndpointRecord("msg3", "ep2", 3000, 3500, false));
+
+        Map<String, InOutStatisticsView> views = collector.getStatistics(ComponentType.ENDPOINT);
+        assertEquals(2, views.size());
+
+        Statistics ep1 = collector.getStatistics("ep1", ComponentType.ENDPOINT).getInStatistics();
+        assertEquals(2, ep1.getCount());
+        assertEquals(1, ep1.getFaultCount());
+        assertEquals(30, ep1.getMaxProcessingTime());
+        assertEquals(10, ep1.getMinProcessingTime());
+        assertEquals(20.0, ep1.getAvgProcessingTime());
+
+        Map<String, InOutStatisticsView> recent =
+                collector.getRecentStatistics(ComponentType.ENDPOINT, 1);
+        assertEquals(2, recent.get("ep1").getInStatistics().getCount());
+        assertEquals(1, recent.get("ep2").getInStatistics().getCount());
+
+        collector.clearStatistics();
+        assertTrue(collector.getStatistics(ComponentType.ENDPOINT).isEmpty());
+        assertTrue(collector.getRecentStatistics(ComponentType.ENDPOINT, 1).isEmpty());
+    }
+
+    public void testConcurrentUpdates() throws Exception {
+        final Statistics statistics = new Statistics("test");
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 1; j <= 1000; j++) {
+                        statistics.update(j, j % 10 == 0);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8000, statistics.getCount());
+        assertEquals(800, statistics.getFaultCount());
+        assertEquals(1000, statistics.getMaxProcessingTime());
+        assertEquals(1, statistics.getMinProcessingTime());
+        assertEquals(500.5, statistics.getAvgProcessingTime());
+        assertEquals(1000, statistics.getProcessingTimePercentile(100));
+        assertEquals(500, statistics.getProcessingTimePercentile(50));
+    }
+
+    private StatisticsRecord createEndpointRecord(String messageId, String endpoint,
+                                                  long start, long end, boolean fault) {
+        StatisticsRecord record = new StatisticsRecord(messageId, "127.0.0.1", "localhost");
+        record.collect(new StatisticsLog(endpoint, start, ComponentType.ENDPOINT));
+        StatisticsLog endLog = new StatisticsLog(SynapseConstants.SYNAPSE_ASPECTS, end,
+                ComponentType.ANY);
+        endLog.setFault(fault);
+        endLog.setEndAnyLog(true);
+        record.collect(endLog);
+        return record;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.cluster;
+
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.endpoints.EndpointContext;
+import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.endpoints.dispatch.SessionInformation;
+import org.apache.synapse.util.Replicator;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replication scenarios run against an {@link InProcessCluster}, measuring the replication cost
+ * per request and the time it takes for a change to be visible on all the nodes. The scenarios
+ * drive the same replication calls as the runtime does, so that the results reflect the cost of
+ * the state kept by endpoints and SAL sessions in clustered mode.
+ * <p>
+ * Running this class prints the results of the scenarios for a range of cluster sizes and
+ * latencies. The replication interval of {@link Replicator} can be changed through the
+ * <tt>synapse.cluster.replication.interval</tt> property in synapse.properties.
+ */
+public class ClusterReplicationBenchmark {
+
+    private static final String SESSION_KEY_PREFIX = "synapse.salep.sessionids.";
+
+    private static final long CONVERGENCE_TIMEOUT = 30000;
+
+    /**
+     * The outcome of a scenario
+     */
+    public static class Result {
+
+        private final String scenario;
+        private final int nodes;
+        private final long latency;
+        private final int requests;
+        private final long requestTime;
+        private final long replicationCount;
+        private final long replicationTime;
+        private final long convergenceTime;
+
+        Result(String scenario, InProcessCluster cluster, int requests, long requestTime,
+               long convergenceTime) {
+            this.scenario = scenario;
+            this.nodes = cluster.size();
+            this.latency = cluster.getLatency();
+            this.requests = requests;
+            this.requestTime = requestTime;
+            this.replicationCount = cluster.getReplicationCount();
+            this.replicationTime = cluster.getReplicationTime();
+            this.convergenceTime = convergenceTime;
+        }
+
+        public String getScenario() {
+            return scenario;
+        }
+
+        public int getNodes() {
+            return nodes;
+        }
+
+        public int getRequests() {
+            return requests;
+        }
+
+        /**
+         * @return average time in microseconds spent by a request in the replicated calls
+         */
+        public double getRequestCost() {
+            return requests == 0 ? 0 : requestTime / 1000.0 / requests;
+        }
+
+        /**
+         * @return average time in microseconds spent in the state managers per request
+         */
+        public double getReplicationCost() {
+            return requests == 0 ? 0 : replicationTime / 1000.0 / requests;
+        }
+
+        /**
+         * @return number of replication requests sent to the cluster
+         */
+        public long getReplicationCount() {
+            return replicationCount;
+        }
+
+        /**
+         * @return time in milliseconds until the last change was visible on all the nodes,
+         *         or -1 if the cluster did not converge
+         */
+        public long getConvergenceTime() {
+            return convergenceTime;
+        }
+
+        public String toString() {
+            return String.format("%-10s nodes=%-3d latency=%-4d requests=%-7d " +
+                    "request=%8.2fus replication=%8.2fus batches=%-7d convergence=%dms",
+                    scenario, nodes, latency, requests, getRequestCost(), getReplicationCost(),
+                    replicationCount, convergenceTime);
+        }
+    }
+
+    /**
+     * Establishes sessions concurrently on all the nodes, replicating each of them the same way
+     * the SAL sessions do in clustered mode
+     *
+     * @param cluster  the cluster to run the scenario on
+     * @param threads  number of concurrent clients, spread over the nodes
+     * @param requests number of sessions established by each client
+     * @return the outcome of the scenario
+     * @throws InterruptedException if the scenario is interrupted
+     */
+    public static Result runSessionScenario(final InProcessCluster cluster, int threads,
+                                            final int requests) throws InterruptedException {
+        cluster.resetStatistics();
+        final AtomicLong requestTime = new AtomicLong(0);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int client = t;
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        ConfigurationContext configCtx =
+                                cluster.getConfigurationContext(client % cluster.size());
+                        long expiry = System.currentTimeMillis() + 60000;
+                        for (int i = 0; i < requests; i++) {
+                            String id = client + "-" + i;
+                            SessionInformation session = new SessionInformation(id,
+                                    Collections.<Endpoint>emptyList(), expiry);
+                            long start = System.nanoTime();
+                            Replicator.setAndReplicateState(SESSION_KEY_PREFIX + id, session,
+                                    configCtx);
+                            requestTime.addAndGet(System.nanoTime() - start);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "cluster-client-" + t).start();
+        }
+        done.await();
+
+        // the sessions of a client are replicated in order, so its last one arrives last
+        final String[] lastKeys = new String[threads];
+        for (int t = 0; t < threads; t++) {
+            lastKeys[t] = SESSION_KEY_PREFIX + t + "-" + (requests - 1);
+        }
+        long convergence = cluster.awaitCondition(new InProcessCluster.NodeCondition() {
+            public boolean isSatisfied(int node, ConfigurationContext configCtx) {
+                for (String key : lastKeys) {
+                    if (configCtx.getPropertyNonReplicable(key) == null) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }, CONVERGENCE_TIMEOUT);
+        return new Result("sessions", cluster, threads * requests, requestTime.get(),
+                convergence);
+    }
+
+    /**
+     * Suspends and reactivates an endpoint on alternating nodes, waiting each time until all
+     * the nodes see the new state of the endpoint
+     *
+     * @param cluster the cluster to run the scenario on
+     * @param rounds  number of suspend and reactivate rounds
+     * @return the outcome of the scenario, with the average convergence time of a state change
+     * @throws InterruptedException if the scenario is interrupted
+     */
+    public static Result runEndpointScenario(InProcessCluster cluster, int rounds)
+            throws InterruptedException {
+        String name = "clusterBenchmarkEndpoint";
+        EndpointDefinition definition = new EndpointDefinition();
+        definition.setInitialSuspendDuration(60000);
+        definition.setSuspendMaximumDuration(60000);
+
+        final EndpointContext[] contexts = new EndpointContext[cluster.size()];
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = new EndpointContext(name, definition, true,
+                    cluster.getConfigurationContext(i), null);
+        }
+
+        cluster.resetStatistics();
+        long requestTime = 0;
+        long convergence = 0;
+        for (int r = 0; r < rounds; r++) {
+            EndpointContext context = contexts[r % contexts.length];
+            for (final int state : new int[] {EndpointContext.ST_SUSPENDED,
+                    EndpointContext.ST_ACTIVE}) {
+                long start = System.nanoTime();
+                if (state == EndpointContext.ST_SUSPENDED) {
+                    context.onFault();
+                } else {
+                    context.switchOn();
+                }
+                requestTime += System.nanoTime() - start;
+
+                long time = cluster.awaitCondition(new InProcessCluster.NodeCondition() {
+                    public boolean isSatisfied(int node, ConfigurationContext configCtx) {
+                        return contexts[node].isState(state);
+                    }
+                }, CONVERGENCE_TIMEOUT);
+                if (time < 0) {
+                    return new Result("endpoint", cluster, 2 * r, requestTime, -1);
+                }
+                convergence += time;
+            }
+        }
+        return new Result("endpoint", cluster, 2 * rounds, requestTime,
+                rounds == 0 ? 0 : convergence / (2 * rounds));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {1, 2, 4, 8, 16};
+        long[] latencies = {0, 1, 5};
+        for (long latency : latencies) {
+            for (boolean synchronousSend : new boolean[] {false, true}) {
+                if (latency == 0 && synchronousSend) {
+                    continue;
+                }
+                System.out.println("latency=" + latency + "ms " +
+                        (synchronousSend ? "synchronous" : "asynchronous") + " delivery");
+                for (int size : sizes) {
+                    InProcessCluster cluster = new InProcessCluster(size);
+                    cluster.setLatency(latency);
+                    cluster.setSynchronousSend(synchronousSend);
+                    try {
+                        System.out.println(runSessionScenario(cluster, 4 * size, 2000));
+                        System.out.println(runEndpointScenario(cluster, 20));
+                    } finally {
+                        cluster.shutdown();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.cluster;
+
+import org.apache.axis2.clustering.ClusteringAgent;
+import org.apache.axis2.clustering.ClusteringFault;
+import org.apache.axis2.clustering.state.StateManager;
+import org.apache.axis2.context.AbstractContext;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.context.PropertyDifference;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.util.Replicator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cluster of Synapse nodes running in a single JVM. Each node has its own Axis2
+ * configuration context, whose Axis2 configuration carries a loopback stand-in for the
+ * clustering agent and its state manager. Thus clustered mode is switched on for everything
+ * which checks for a clustering agent (endpoints, SAL sessions, the throttle mediator), and all
+ * the state replicated through {@link org.apache.axis2.clustering.state.Replicator} or
+ * {@link Replicator} is copied into the configuration contexts of the other nodes.
+ * <p>
+ * As with a real clustering agent, the replicated values are serialized when they are sent and
+ * deserialized by each receiving member, so they have to be serializable. The delivery to the
+ * other members can be delayed by an injectable latency, either on the sending thread (like a
+ * sender waiting for the acknowledgements of the members) or asynchronously. The time spent in
+ * the state manager on the sending threads and the number of replication requests are counted,
+ * so that the replication cost can be measured against the number of nodes and the load.
+ */
+public class InProcessCluster {
+
+    /**
+     * A condition on the state of a node of the cluster
+     */
+    public interface NodeCondition {
+
+        /**
+         * @param node      index of the node
+         * @param configCtx configuration context of the node
+         * @return true if the node satisfies the condition
+         */
+        public boolean isSatisfied(int node, ConfigurationContext configCtx);
+    }
+
+    private final ConfigurationContext[] configCtxs;
+    private final SynapseEnvironment[] environments;
+
+    private final ScheduledExecutorService deliveryExecutor =
+            Executors.newSingleThreadScheduledExecutor();
+
+    private volatile long latency = 0;
+    private volatile boolean synchronousSend = false;
+
+    private final AtomicInteger pendingDeliveries = new AtomicInteger(0);
+    private final AtomicLong replicationCount = new AtomicLong(0);
+    private final AtomicLong replicatedKeyCount = new AtomicLong(0);
+    private final AtomicLong replicationTime = new AtomicLong(0);
+    private final AtomicLong deliveryCount = new AtomicLong(0);
+
+    /**
+     * @param size number of nodes in the cluster
+     */
+    public InProcessCluster(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("A cluster requires at least one node");
+        }
+        configCtxs = new ConfigurationContext[size];
+        environments = new SynapseEnvironment[size];
+        for (int i = 0; i < size; i++) {
+            AxisConfiguration axisCfg = new AxisConfiguration();
+            axisCfg.setClusteringAgent(createClusteringAgent(i));
+            configCtxs[i] = new ConfigurationContext(axisCfg);
+            environments[i] = new Axis2SynapseEnvironment(configCtxs[i],
+                    new SynapseConfiguration());
+        }
+    }
+
+    /**
+     * @return number of nodes in the cluster
+     */
+    public int size() {
+        return configCtxs.length;
+    }
+
+    /**
+     * @param node index of the node
+     * @return the Axis2 configuration context of the node
+     */
+    public ConfigurationContext getConfigurationContext(int node) {
+        return configCtxs[node];
+    }
+
+    /**
+     * @param node index of the node
+     * @return the Synapse environment of the node
+     */
+    public SynapseEnvironment getSynapseEnvironment(int node) {
+        return environments[node];
+    }
+
+    /**
+     * Sets the time it takes for a replication request to reach the other members
+     *
+     * @param latency latency in milliseconds, zero delivers the updates at once
+     */
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Whether the sending thread waits for the delivery of its updates to all the members
+     *
+     * @param synchronousSend true to deliver the updates on the sending thread
+     */
+    public void setSynchronousSend(boolean synchronousSend) {
+        this.synchronousSend = synchronousSend;
+    }
+
+    public boolean isSynchronousSend() {
+        return synchronousSend;
+    }
+
+    /**
+     * Sends the state changes still waiting in the replication queues of all the nodes
+     */
+    public void flush() {
+        for (ConfigurationContext configCtx : configCtxs) {
+            Replicator.flush(configCtx);
+        }
+    }
+
+    /**
+     * Waits until all the nodes satisfy the given condition
+     *
+     * @param condition the condition to be satisfied by all the nodes
+     * @param timeout   maximum time to wait in milliseconds
+     * @return the time it took in milliseconds, or -1 if the timeout elapsed
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public long awaitCondition(NodeCondition condition, long timeout)
+            throws InterruptedException {
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (true) {
+            boolean satisfied = true;
+            for (int i = 0; i < configCtxs.length && satisfied; i++) {
+                satisfied = condition.isSatisfied(i, configCtxs[i]);
+            }
+            long now = System.nanoTime();
+            if (satisfied) {
+                return TimeUnit.NANOSECONDS.toMillis(now - start);
+            }
+            if (now >= deadline) {
+                return -1;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits until the given property has the given value on all the nodes
+     *
+     * @param key      key of the property
+     * @param expected the expected value, or null if the property is expected to be removed
+     * @param timeout  maximum time to wait in milliseconds
+     * @return the time it took in milliseconds, or -1 if the timeout elapsed
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public long awaitConvergence(final String key, final Object expected, long timeout)
+            throws InterruptedException {
+
+        return awaitCondition(new NodeCondition() {
+            public boolean isSatisfied(int node, ConfigurationContext configCtx) {
+                Object value = configCtx.getPropertyNonReplicable(key);
+                return expected == null ? value == null : expected.equals(value);
+            }
+        }, timeout);
+    }
+
+    /**
+     * @return number of updates sent but not yet delivered to a member
+     */
+    public int getPendingDeliveries() {
+        return pendingDeliveries.get();
+    }
+
+    /**
+     * @return number of replication requests received by the state managers
+     */
+    public long getReplicationCount() {
+        return replicationCount.get();
+    }
+
+    /**
+     * @return number of properties replicated by the state managers
+     */
+    public long getReplicatedKeyCount() {
+        return replicatedKeyCount.get();
+    }
+
+    /**
+     * @return total time in nanoseconds the sending threads spent in the state managers
+     */
+    public long getReplicationTime() {
+        return replicationTime.get();
+    }
+
+    /**
+     * @return number of updates applied to the members
+     */
+    public long getDeliveryCount() {
+        return deliveryCount.get();
+    }
+
+    public void resetStatistics() {
+        replicationCount.set(0);
+        replicatedKeyCount.set(0);
+        replicationTime.set(0);
+        deliveryCount.set(0);
+    }
+
+    public void shutdown() {
+        deliveryExecutor.shutdownNow();
+    }
+
+    private ClusteringAgent createClusteringAgent(final int node) {
+        final StateManager stateManager = (StateManager) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] {StateManager.class},
+                new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("updateContext".equals(name)) {
+                    if (args.length == 1) {
+                        replicateDifferences(node, (AbstractContext) args[0]);
+                    } else {
+                        replicate(node, (AbstractContext) args[0], (String[]) args[1]);
+                    }
+                    return null;
+                } else if ("updateContexts".equals(name)) {
+                    for (AbstractContext ctx : (AbstractContext[]) args[0]) {
+                        replicateDifferences(node, ctx);
+                    }
+                    return null;
+                } else if ("isContextClusterable".equals(name)) {
+                    return args[0] instanceof ConfigurationContext;
+                }
+                return defaultInvocation(proxy, method, args, "StateManager of node " + node);
+            }
+        });
+        return (ClusteringAgent) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] {ClusteringAgent.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("getStateManager".equals(method.getName())) {
+                    return stateManager;
+                }
+                return defaultInvocation(proxy, method, args, "ClusteringAgent of node " + node);
+            }
+        });
+    }
+
+    private static Object defaultInvocation(Object proxy, Method method, Object[] args,
+                                            String description) {
+        String name = method.getName();
+        if ("equals".equals(name)) {
+            return proxy == args[0];
+        } else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("toString".equals(name)) {
+            return description;
+        }
+
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type.isPrimitive() && type != void.class) {
+            throw new UnsupportedOperationException(method.toString());
+        }
+        return null;
+    }
+
+    private void replicate(int node, AbstractContext ctx, String[] keys) throws ClusteringFault {
+        if (!(ctx instanceof ConfigurationContext)) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, byte[]> updates = new HashMap<String, byte[]>();
+        for (String key : keys) {
+            updates.put(key, serialize(key, ctx.getPropertyNonReplicable(key)));
+        }
+        send(node, updates);
+        replicationTime.addAndGet(System.nanoTime() - start);
+    }
+
+    private void replicateDifferences(int node, AbstractContext ctx) throws ClusteringFault {
+        if (!(ctx instanceof ConfigurationContext)) {
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, byte[]> updates = new HashMap<String, byte[]>();
+        synchronized (ctx) {
+            for (PropertyDifference diff : ctx.getPropertyDifferences().values()) {
+                updates.put(diff.getKey(),
+                        diff.isRemoved() ? null : serialize(diff.getKey(), diff.getValue()));
+            }
+            ctx.clearPropertyDifferences();
+        }
+        if (!updates.isEmpty()) {
+            send(node, updates);
+        }
+        replicationTime.addAndGet(System.nanoTime() - start);
+    }
+
+    private void send(int node, final Map<String, byte[]> updates) throws ClusteringFault {
+        replicationCount.incrementAndGet();
+        replicatedKeyCount.addAndGet(updates.size());
+
+        final List<ConfigurationContext> members = new ArrayList<ConfigurationContext>();
+        for (int i = 0; i < configCtxs.length; i++) {
+            if (i != node) {
+                members.add(configCtxs[i]);
+            }
+        }
+        if (members.isEmpty()) {
+            return;
+        }
+
+        long delay = latency;
+        if (delay <= 0 || synchronousSend) {
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ClusteringFault("Interrupted while replicating the state");
+                }
+            }
+            for (ConfigurationContext member : members) {
+                deliver(member, updates);
+            }
+        } else {
+            pendingDeliveries.incrementAndGet();
+            deliveryExecutor.schedule(new Runnable() {
+                public void run() {
+                    try {
+                        for (ConfigurationContext member : members) {
+                            deliver(member, updates);
+                        }
+                    } catch (ClusteringFault ignore) {
+                        // the values have been serialized by this harness, so they can be read
+                    } finally {
+                        pendingDeliveries.decrementAndGet();
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void deliver(ConfigurationContext member, Map<String, byte[]> updates)
+            throws ClusteringFault {
+        for (Map.Entry<String, byte[]> update : updates.entrySet()) {
+            if (update.getValue() == null) {
+                member.removePropertyNonReplicable(update.getKey());
+            } else {
+                member.setNonReplicableProperty(update.getKey(),
+                        deserialize(update.getKey(), update.getValue()));
+            }
+        }
+        deliveryCount.incrementAndGet();
+    }
+
+    private static byte[] serialize(String key, Object value) throws ClusteringFault {
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof Serializable)) {
+            throw new ClusteringFault("The value of the property " + key + " is not serializable");
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(value);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new ClusteringFault("Cannot serialize the value of the property " + key, e);
+        }
+    }
+
+    private static Object deserialize(String key, byte[] data) throws ClusteringFault {
+        try {
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data));
+            return in.readObject();
+        } catch (IOException e) {
+            throw new ClusteringFault("Cannot deserialize the value of the property " + key, e);
+        } catch (ClassNotFoundException e) {
+            throw new ClusteringFault("Cannot deserialize the value of the property " + key, e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.cluster;
+
+import junit.framework.TestCase;
+import org.apache.axis2.clustering.ClusteringFault;
+import org.apache.axis2.clustering.state.Replicator;
+import org.apache.axis2.context.ConfigurationContext;
+
+public class InProcessClusterTest extends TestCase {
+
+    private InProcessCluster cluster;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cluster = new InProcessCluster(3);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cluster.shutdown();
+        super.tearDown();
+    }
+
+    public void testStateIsReplicatedToAllMembers() throws Exception {
+        ConfigurationContext node1 = cluster.getConfigurationContext(1);
+        org.apache.synapse.util.Replicator.setAndReplicateState("state", 3, node1);
+        cluster.flush();
+        assertTrue(cluster.awaitConvergence("state", 3, 10000) >= 0);
+
+        org.apache.synapse.util.Replicator.removeAndReplicateState("state", node1);
+        cluster.flush();
+        assertTrue(cluster.awaitConvergence("state", null, 10000) >= 0);
+        assertTrue(cluster.getReplicationCount() >= 2);
+        assertEquals(2 * cluster.getReplicationCount(), cluster.getDeliveryCount());
+    }
+
+    public void testValuesAreCopied() throws Exception {
+        ConfigurationContext node0 = cluster.getConfigurationContext(0);
+        StringBuffer value = new StringBuffer("replicated");
+        node0.setNonReplicableProperty("value", value);
+        Replicator.replicate(node0, new String[] {"value"});
+
+        Object copy = cluster.getConfigurationContext(2).getPropertyNonReplicable("value");
+        assertNotSame(value, copy);
+        assertEquals("replicated", copy.toString());
+    }
+
+    public void testPropertyDifferencesAreReplicated() throws Exception {
+        ConfigurationContext node2 = cluster.getConfigurationContext(2);
+        node2.setProperty("counter", 7);
+        Replicator.replicate(node2);
+        assertEquals(7, cluster.getConfigurationContext(0).getPropertyNonReplicable("counter"));
+        assertEquals(7, cluster.getConfigurationContext(1).getPropertyNonReplicable("counter"));
+        assertEquals(1, cluster.getReplicatedKeyCount());
+
+        // nothing changed since the last replication
+        Replicator.replicate(node2);
+        assertEquals(1, cluster.getReplicatedKeyCount());
+    }
+
+    public void testLatency() throws Exception {
+        cluster.setLatency(200);
+        ConfigurationContext node0 = cluster.getConfigurationContext(0);
+        node0.setNonReplicableProperty("state", "SUSPENDED");
+        Replicator.replicate(node0, new String[] {"state"});
+
+        assertNull(cluster.getConfigurationContext(1).getPropertyNonReplicable("state"));
+        assertEquals(1, cluster.getPendingDeliveries());
+        assertTrue(cluster.awaitConvergence("state", "SUSPENDED", 10000) >= 0);
+        assertEquals(0, cluster.getPendingDeliveries());
+
+        cluster.setSynchronousSend(true);
+        node0.setNonReplicableProperty("state", "ACTIVE");
+        long start = System.currentTimeMillis();
+        Replicator.replicate(node0, new String[] {"state"});
+        assertTrue(System.currentTimeMillis() - start >= 150);
+        assertEquals("ACTIVE", cluster.getConfigurationContext(1).getPropertyNonReplicable("state"));
+    }
+
+    public void testNonSerializableValue() throws Exception {
+        ConfigurationContext node0 = cluster.getConfigurationContext(0);
+        node0.setNonReplicableProperty("lock", new Object());
+        try {
+            Replicator.replicate(node0, new String[] {"lock"});
+            fail("Expected a ClusteringFault");
+        } catch (ClusteringFault expected) {
+            assertNull(cluster.getConfigurationContext(1).getPropertyNonReplicable("lock"));
+        }
+    }
+
+    public void testSessionScenario() throws Exception {
+        ClusterReplicationBenchmark.Result result =
+                ClusterReplicationBenchmark.runSessionScenario(cluster, 3, 50);
+        assertEquals(150, result.getRequests());
+        assertTrue(result.getConvergenceTime() >= 0);
+        assertTrue(result.getReplicationCount() > 0);
+    }
+
+    public void testEndpointScenario() throws Exception {
+        cluster.setLatency(5);
+        ClusterReplicationBenchmark.Result result =
+                ClusterReplicationBenchmark.runEndpointScenario(cluster, 3);
+        assertEquals(6, result.getRequests());
+        assertTrue(result.getConvergenceTime() >= 0);
+    }
+}
@@ -136,5 +136,12 @@ public class CalloutMediatorSerializationTest extends AbstractTestCase {
         assertTrue(serialization(inputXml, calloutMediatorSerializer));
     }
 
-}
+    public void testCalloutMediatorSerializationScenarioNine() {
+        String inputXml = "<callout xmlns=\"http://ws.apache.org/ns/synapse\" " +
+                "serviceURL=\"http://localhost:9000/services/SimpleStockQuoteService\" " +
+                "blocking=\"false\"><target key=\"quote\"/></callout>";
+        assertTrue(serialization(inputXml, calloutMediatorFactory, calloutMediatorSerializer));
+        assertTrue(serialization(inputXml, calloutMediatorSerializer));
+    }
 
+}
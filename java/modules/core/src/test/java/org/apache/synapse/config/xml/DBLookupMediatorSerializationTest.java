@@ -80,4 +80,20 @@ public class DBLookupMediatorSerializationTest extends AbstractTestCase {
         assertTrue(serialization(inputXml, dbLookupFactory, dbLookupSerializer));
         assertTrue(serialization(inputXml, dbLookupSerializer));
     }
+
+    public void testDBLookupMediatorSerializationWithCache() throws Exception {
+
+        String inputXml =
+            "<syn:dblookup xmlns:syn=\"http://ws.apache.org/ns/synapse\">" +
+                    "<syn:connection><syn:pool><syn:dsName>lookupdb</syn:dsName>" +
+                    "</syn:pool></syn:connection><syn:statement><syn:sql>" +
+                    "<![CDATA[select id from table where name = ?]]></syn:sql>" +
+                    "<syn:parameter value=\"ABC\" type=\"VARCHAR\"/>" +
+                    "<syn:result name=\"id\" column=\"id\"/></syn:statement>" +
+                    "<syn:cache timeout=\"60000\" size=\"500\" negativeCaching=\"true\"/>" +
+                    "</syn:dblookup>";
+
+        assertTrue(serialization(inputXml, dbLookupFactory, dbLookupSerializer));
+        assertTrue(serialization(inputXml, dbLookupSerializer));
+    }
 }
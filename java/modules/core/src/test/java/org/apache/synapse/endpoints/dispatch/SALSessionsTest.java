@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.dispatch;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.endpoints.Endpoint;
+import org.apache.synapse.mediators.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SALSessionsTest extends TestCase {
+
+    private SALSessions sessions = SALSessions.getInstance();
+
+    protected void setUp() throws Exception {
+        sessions.initialize(false, null);
+    }
+
+    protected void tearDown() throws Exception {
+        sessions.reset();
+    }
+
+    public void testSessionExpiry() throws Exception {
+        sessions.updateSession(getMessageContext(100), "session1");
+        sessions.updateSession(getMessageContext(60000), "session2");
+        assertEquals(2, sessions.getSessionCount());
+        assertNotNull(sessions.getSession("session1"));
+
+        Thread.sleep(200);
+        sessions.clearSessions();
+        assertEquals(1, sessions.getSessionCount());
+        assertNull(sessions.getSession("session1"));
+        assertNotNull(sessions.getSession("session2"));
+        assertTrue(sessions.getExpiredSessionCount() > 0);
+
+        sessions.removeSession("session2");
+        assertEquals(0, sessions.getSessionCount());
+    }
+
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        sessions.setMaxSessions(10);
+        for (int i = 0; i < 10; i++) {
+            sessions.updateSession(getMessageContext(60000), "session" + i);
+            Thread.sleep(5);
+        }
+        assertNotNull(sessions.getSession("session0"));
+
+        sessions.updateSession(getMessageContext(60000), "session10");
+        assertTrue(sessions.getSessionCount() <= 10);
+        assertTrue(sessions.getEvictedSessionCount() > 0);
+        assertNotNull(sessions.getSession("session0"));
+        assertNotNull(sessions.getSession("session10"));
+        assertNull(sessions.getSession("session1"));
+    }
+
+    private MessageContext getMessageContext(long timeout) throws Exception {
+        MessageContext msgContext = TestUtils.createLightweightSynapseMessageContext("<test/>");
+        List<Endpoint> endpoints = new ArrayList<Endpoint>();
+        AddressEndpoint endpoint = new AddressEndpoint();
+        endpoint.setName("ep1");
+        endpoints.add(endpoint);
+        msgContext.setProperty(SynapseConstants.PROP_SAL_ENDPOINT_ENDPOINT_LIST, endpoints);
+        msgContext.getConfiguration().setProperty(
+                SynapseConstants.PROP_SAL_ENDPOINT_DEFAULT_SESSION_TIMEOUT,
+                String.valueOf(timeout));
+        return msgContext;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing;
+
+import junit.framework.TestCase;
+import org.apache.synapse.FaultHandler;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.core.axis2.ResponseContinuation;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.mediators.TestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class SubscriberChannelTest extends TestCase {
+
+    private final List<Runnable> tasks = new ArrayList<Runnable>();
+    private final List<MessageContext> sent =
+            Collections.synchronizedList(new ArrayList<MessageContext>());
+
+    private final Executor executor = new Executor() {
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    };
+
+    private final AddressEndpoint endpoint = new AddressEndpoint() {
+        public void send(MessageContext synCtx) {
+            sent.add(synCtx);
+        }
+    };
+
+    public void testBoundedInFlight() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_DROP_OLDEST, 10);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(channel.enqueue(createEvent()));
+        }
+        // the events stay in flight until the subscriber responds
+        assertEquals(2, sent.size());
+        assertEquals(2, channel.getInFlight());
+        assertEquals(3, channel.getQueueDepth());
+        assertTrue(tasks.isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            respond(sent.get(i));
+        }
+        assertEquals(5, sent.size());
+        assertEquals(5, channel.getDelivered());
+        assertEquals(0, channel.getInFlight());
+        assertEquals(0, channel.getQueueDepth());
+        assertEquals(0, channel.getLag());
+    }
+
+    public void testEventSentWithResponse() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_DROP_OLDEST, 10);
+        MessageContext event = createEvent();
+        event.setProperty(SynapseConstants.OUT_ONLY, "true");
+        assertTrue(channel.enqueue(event));
+        assertNull(event.getProperty(SynapseConstants.OUT_ONLY));
+        assertTrue(event.getProperty(SynapseConstants.RESPONSE_CONTINUATION)
+                instanceof ResponseContinuation);
+
+        // a late second completion of the same event is ignored
+        respond(event);
+        respond(event);
+        assertEquals(1, channel.getDelivered());
+        assertEquals(0, channel.getInFlight());
+    }
+
+    public void testFailedDelivery() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_DROP_OLDEST, 10);
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+
+        ((FaultHandler) sent.get(0).getFaultStack().pop()).handleFault(sent.get(0));
+        assertEquals(1, channel.getFailed());
+        assertEquals(3, sent.size());
+
+        // a discarded event sends the next events on the executor
+        ((ResponseContinuation) sent.get(1).getProperty(
+                SynapseConstants.RESPONSE_CONTINUATION)).onDiscard(sent.get(1));
+        assertEquals(2, channel.getFailed());
+        assertEquals(1, channel.getInFlight());
+        assertEquals(1, tasks.size());
+    }
+
+    public void testDropOldest() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_DROP_OLDEST, 2);
+        fill(channel);
+        MessageContext first = createEvent();
+        assertTrue(channel.enqueue(first));
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+        assertEquals(2, channel.getQueueDepth());
+        assertEquals(1, channel.getDropped());
+
+        drain();
+        assertEquals(4, sent.size());
+        assertFalse(sent.contains(first));
+    }
+
+    public void testDropNewest() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_DROP_NEWEST, 2);
+        fill(channel);
+        MessageContext first = createEvent();
+        assertTrue(channel.enqueue(first));
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+        assertEquals(2, channel.getQueueDepth());
+        assertEquals(1, channel.getDropped());
+
+        drain();
+        assertTrue(sent.contains(first));
+    }
+
+    public void testLagReportedAfterRepeatedOverflow() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_DROP_OLDEST, 1);
+        fill(channel);
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+        assertFalse(channel.enqueue(createEvent()));
+        assertEquals(3, channel.getDropped());
+
+        // the subscriber caught up, so the lag count starts over
+        drain();
+        fill(channel);
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+    }
+
+    public void testParkDoesNotBlock() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_PARK, 1);
+        fill(channel);
+        MessageContext first = createEvent();
+        MessageContext parked = createEvent();
+        assertTrue(channel.enqueue(first));
+        long start = System.currentTimeMillis();
+        assertTrue(channel.enqueue(parked));
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(System.currentTimeMillis() - start < 40);
+        assertEquals(2, channel.getQueueDepth());
+        assertEquals(1, channel.getDropped());
+
+        drain();
+        assertEquals(4, sent.size());
+        assertTrue(sent.contains(first));
+        assertTrue(sent.contains(parked));
+    }
+
+    public void testParkTimesOut() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_PARK, 1);
+        fill(channel);
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+        Thread.sleep(100);
+
+        drain();
+        assertEquals(3, sent.size());
+        assertEquals(1, channel.getDropped());
+        assertEquals(0, channel.getQueueDepth());
+    }
+
+    public void testBackOff() throws Exception {
+        SubscriberChannel channel = createChannel(SynapseEventingConstants.OVERFLOW_DROP_OLDEST, 10);
+        fill(channel);
+        assertTrue(channel.enqueue(createEvent()));
+        channel.backOff(60000);
+        assertFalse(channel.isAccepting());
+        assertEquals(0, channel.getQueueDepth());
+        assertEquals(1, channel.getDropped());
+
+        channel.backOff(0);
+        assertTrue(channel.isAccepting());
+        channel.close();
+        assertFalse(channel.isAccepting());
+    }
+
+    private SubscriberChannel createChannel(String overflowPolicy, int queueSize) {
+        return new SubscriberChannel("urn:test", "http://localhost/sink", endpoint,
+                executor, 2, queueSize, overflowPolicy, 50, 60000, 3);
+    }
+
+    /**
+     * Put maxInFlight events in flight, so that the next events are queued
+     */
+    private void fill(SubscriberChannel channel) throws Exception {
+        assertTrue(channel.enqueue(createEvent()));
+        assertTrue(channel.enqueue(createEvent()));
+        assertEquals(2, channel.getInFlight());
+    }
+
+    /**
+     * Respond to every event sent so far, including those sent in response
+     */
+    private void drain() {
+        for (int i = 0; i < sent.size(); i++) {
+            respond(sent.get(i));
+        }
+    }
+
+    private void respond(MessageContext event) {
+        ((ResponseContinuation) event.getProperty(
+                SynapseConstants.RESPONSE_CONTINUATION)).onResponse(event);
+    }
+
+    private MessageContext createEvent() throws Exception {
+        return TestUtils.getTestContext("<event/>");
+    }
+}
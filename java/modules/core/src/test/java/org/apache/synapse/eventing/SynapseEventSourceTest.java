@@ -167,6 +167,34 @@ public class SynapseEventSourceTest extends TestCase {
 
     }
 
+    public void testExpiredSubscriberIsReleased() throws Exception {
+        Calendar expires = Calendar.getInstance();
+        expires.setTimeInMillis(System.currentTimeMillis() + 200);
+        SynapseSubscription subscription = new SynapseSubscription();
+        subscription.setEndpointUrl(ADDR_URL);
+        subscription.setAddressUrl(ADDR_URL);
+        subscription.setExpires(expires);
+        String subscriptionId = subMan.subscribe(subscription);
+
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        AxisConfiguration axisConfig = new AxisConfiguration();
+        synapseConfig.setAxisConfiguration(axisConfig);
+        SynapseEnvironment env = new Axis2SynapseEnvironment(
+                new ConfigurationContext(axisConfig), synapseConfig);
+        source.getSubscriberChannel(subscription, env);
+        assertEquals(1, source.getSubscriberChannels().size());
+        assertEquals(1, source.getSubscriberEndpointCount());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (source.getSubscriberEndpointCount() > 0 &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertNull(subMan.getSubscription(subscriptionId));
+        assertEquals(0, source.getSubscriberChannels().size());
+        assertEquals(0, source.getSubscriberEndpointCount());
+    }
+
     private MessageContext createMessageContext(String payload, String action) {
         try {
             SynapseConfiguration synapseConfig = new SynapseConfiguration();
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.eventing.managers;
+
+import junit.framework.TestCase;
+import org.apache.synapse.eventing.SynapseSubscription;
+import org.wso2.eventing.Subscription;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TopicSubscriptionIndexTest extends TestCase {
+
+    private TopicSubscriptionIndex index;
+
+    protected void setUp() throws Exception {
+        index = new TopicSubscriptionIndex();
+        index.add(createSubscription("weather", "weather"));
+        index.add(createSubscription("storms", "weather/storms"));
+        index.add(createSubscription("any", "weather/*/alerts"));
+        index.add(createSubscription("none", null));
+    }
+
+    public void testExactAndSubTopicMatches() {
+        assertMatches(index.match("weather"), "weather");
+        assertMatches(index.match("weather/storms"), "weather", "storms");
+        assertMatches(index.match("weather/storms/north"), "weather", "storms");
+        assertMatches(index.match("weather/stormsX"), "weather");
+        assertMatches(index.match("weatherX"));
+        assertMatches(index.match(null));
+    }
+
+    public void testWildcardMatches() {
+        assertMatches(index.match("weather/rain/alerts"), "weather", "any");
+        assertMatches(index.match("weather/storms/alerts/red"), "weather", "storms", "any");
+        assertMatches(index.match("weather/alerts"), "weather");
+    }
+
+    public void testRemoveAndReplace() {
+        assertTrue(index.remove("storms"));
+        assertFalse(index.remove("storms"));
+        assertMatches(index.match("weather/storms"), "weather");
+
+        index.add(createSubscription("weather", "news"));
+        assertMatches(index.match("weather/storms"));
+        assertMatches(index.match("news"), "weather");
+        assertEquals(2, index.size());
+    }
+
+    private Subscription createSubscription(String id, String topic) {
+        SynapseSubscription subscription = new SynapseSubscription();
+        subscription.setId(id);
+        subscription.setFilterValue(topic);
+        return subscription;
+    }
+
+    private void assertMatches(List<Subscription> matches, String... ids) {
+        Set<String> matched = new HashSet<String>();
+        for (Subscription subscription : matches) {
+            matched.add(subscription.getId());
+        }
+        assertEquals(ids.length, matches.size());
+        for (String id : ids) {
+            assertTrue("Expected a match for " + id, matched.contains(id));
+        }
+    }
+}
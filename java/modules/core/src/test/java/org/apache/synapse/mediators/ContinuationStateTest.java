@@ -0,0 +1,108 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.xml.AnonymousListMediator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ContinuationStateTest extends TestCase {
+
+    private final List<String> trail = Collections.synchronizedList(new ArrayList<String>());
+
+    public void testSuspendAndResume() throws Exception {
+        final CountDownLatch resumed = new CountDownLatch(1);
+        final MessageContext[] suspended = new MessageContext[1];
+
+        AnonymousListMediator inner = new AnonymousListMediator();
+        inner.addChild(new Recorder("a"));
+        inner.addChild(new AbstractMediator() {
+            public boolean mediate(MessageContext synCtx) {
+                trail.add("suspend");
+                suspended[0] = synCtx;
+                final ContinuationState state = ContinuationState.suspend(synCtx);
+                // complete the "operation" before the mediation thread has unwound
+                state.onReady(new Runnable() {
+                    public void run() {
+                        new Thread(new Runnable() {
+                            public void run() {
+                                ContinuationState.resume(suspended[0]);
+                                resumed.countDown();
+                            }
+                        }).start();
+                    }
+                });
+                return false;
+            }
+        });
+        inner.addChild(new Recorder("b"));
+
+        AnonymousListMediator outer = new AnonymousListMediator();
+        outer.addChild(inner);
+        outer.addChild(new Recorder("c"));
+
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+        assertFalse(outer.mediate(synCtx));
+        assertTrue(resumed.await(10, TimeUnit.SECONDS));
+
+        assertEquals(4, trail.size());
+        assertEquals("a", trail.get(0));
+        assertEquals("suspend", trail.get(1));
+        assertEquals("b", trail.get(2));
+        assertEquals("c", trail.get(3));
+        assertFalse(ContinuationState.isSuspended(synCtx));
+    }
+
+    public void testResumeWithoutSuspension() throws Exception {
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+        assertTrue(ContinuationState.resume(synCtx));
+    }
+
+    public void testBarrier() throws Exception {
+        assertTrue(ContinuationState.canSuspend());
+        ContinuationState.enterBarrier();
+        try {
+            assertFalse(ContinuationState.canSuspend());
+        } finally {
+            ContinuationState.exitBarrier();
+        }
+        assertTrue(ContinuationState.canSuspend());
+    }
+
+    private class Recorder extends AbstractMediator {
+
+        private final String name;
+
+        private Recorder(String name) {
+            this.name = name;
+        }
+
+        public boolean mediate(MessageContext synCtx) {
+            trail.add(name);
+            return true;
+        }
+    }
+}
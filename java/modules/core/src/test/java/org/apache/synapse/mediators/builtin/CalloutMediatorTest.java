@@ -0,0 +1,171 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.builtin;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMElement;
+import org.apache.synapse.FaultHandler;
+import org.apache.synapse.Mediator;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.ResponseContinuation;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.ContinuationState;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.mediators.base.SequenceMediator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class CalloutMediatorTest extends TestCase {
+
+    private final List<String> trail = Collections.synchronizedList(new ArrayList<String>());
+    private SynapseConfiguration config;
+    private CalloutMediator callout;
+    private MessageContext request;
+
+    protected void setUp() throws Exception {
+        config = new SynapseConfiguration();
+        SequenceMediator onError = new SequenceMediator();
+        onError.setName("calloutFault");
+        onError.addChild(new Recorder("onError"));
+        config.addSequence("calloutFault", onError);
+
+        callout = new CalloutMediator();
+        callout.setBlocking(false);
+        callout.setTargetKey("result");
+        callout.setEndpoint(new AddressEndpoint() {
+            public void init(SynapseEnvironment synapseEnvironment) {
+            }
+
+            public void send(MessageContext synCtx) {
+                request = synCtx;
+            }
+        });
+        callout.init(null);
+    }
+
+    public void testResumeWithResponse() throws Exception {
+        SequenceMediator sequence = createSequence(new Recorder("after"));
+        MessageContext synCtx = TestUtils.createSynapseMessageContext("<request/>", config);
+        assertFalse(sequence.mediate(synCtx));
+        assertTrue(ContinuationState.isSuspended(synCtx));
+        assertEquals(1, trail.size());
+
+        getContinuation().onResponse(
+                TestUtils.createSynapseMessageContext("<response/>", config));
+
+        assertEquals(2, trail.size());
+        assertEquals("after", trail.get(1));
+        assertEquals("response", ((OMElement) synCtx.getProperty("result")).getLocalName());
+        assertFalse(ContinuationState.isSuspended(synCtx));
+        // the onError handler of the sequence is popped once the sequence completes
+        assertTrue(synCtx.getFaultStack().isEmpty());
+    }
+
+    public void testErrorAfterResumeIsHandledByTheSequence() throws Exception {
+        SequenceMediator sequence = createSequence(new AbstractMediator() {
+            public boolean mediate(MessageContext synCtx) {
+                throw new SynapseException("Error after the callout");
+            }
+        });
+        MessageContext synCtx = TestUtils.createSynapseMessageContext("<request/>", config);
+        assertFalse(sequence.mediate(synCtx));
+        // the onError handler is popped while the suspended thread unwinds
+        assertTrue(synCtx.getFaultStack().isEmpty());
+
+        getContinuation().onResponse(
+                TestUtils.createSynapseMessageContext("<response/>", config));
+
+        assertEquals(2, trail.size());
+        assertEquals("onError", trail.get(1));
+    }
+
+    public void testFaultIsHandledByTheSequence() throws Exception {
+        SequenceMediator sequence = createSequence(new Recorder("after"));
+        MessageContext synCtx = TestUtils.createSynapseMessageContext("<request/>", config);
+        assertFalse(sequence.mediate(synCtx));
+
+        request.setProperty(SynapseConstants.ERROR_CODE, 101503);
+        request.setProperty(SynapseConstants.ERROR_MESSAGE, "Connection refused");
+        ((FaultHandler) getContinuation()).handleFault(request);
+
+        assertEquals(2, trail.size());
+        assertEquals("onError", trail.get(1));
+        assertEquals(101503, synCtx.getProperty(SynapseConstants.ERROR_CODE));
+        assertFalse(ContinuationState.isSuspended(synCtx));
+    }
+
+    public void testDiscardedCalloutIsResumedWithATimeout() throws Exception {
+        SequenceMediator sequence = createSequence(new Recorder("after"));
+        MessageContext synCtx = TestUtils.createSynapseMessageContext("<request/>", config);
+        assertFalse(sequence.mediate(synCtx));
+
+        ResponseContinuation continuation = getContinuation();
+        continuation.onDiscard(request);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (trail.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, trail.size());
+        assertEquals("onError", trail.get(1));
+        assertEquals(SynapseConstants.HANDLER_TIME_OUT,
+                synCtx.getProperty(SynapseConstants.ERROR_CODE));
+
+        // a late response does not resume the mediation again
+        continuation.onResponse(TestUtils.createSynapseMessageContext("<response/>", config));
+        assertEquals(2, trail.size());
+    }
+
+    private SequenceMediator createSequence(Mediator after) {
+        SequenceMediator sequence = new SequenceMediator();
+        sequence.setName("calloutSequence");
+        sequence.setErrorHandler("calloutFault");
+        sequence.addChild(new Recorder("before"));
+        sequence.addChild(callout);
+        sequence.addChild(after);
+        return sequence;
+    }
+
+    private ResponseContinuation getContinuation() {
+        assertNotNull(request);
+        return (ResponseContinuation) request.getProperty(
+                SynapseConstants.RESPONSE_CONTINUATION);
+    }
+
+    private class Recorder extends AbstractMediator {
+
+        private final String name;
+
+        private Recorder(String name) {
+            this.name = name;
+        }
+
+        public boolean mediate(MessageContext synCtx) {
+            trail.add(name);
+            return true;
+        }
+    }
+}
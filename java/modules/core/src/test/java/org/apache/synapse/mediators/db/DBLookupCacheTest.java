@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DBLookupCacheTest extends TestCase {
+
+    private final Statement stmnt = new Statement("select id from users where name = ?");
+
+    public void testHitsAndMisses() {
+        DBLookupCache cache = new DBLookupCache(60000, 10, false);
+        String key = DBLookupCache.createKey(stmnt, Arrays.asList("alice"));
+        assertNull(cache.get(key));
+
+        Map<String, String> row = new HashMap<String, String>();
+        row.put("id", "42");
+        cache.put(key, row);
+
+        DBLookupCache.CachedRow cached = cache.get(key);
+        assertNotNull(cached);
+        assertEquals("42", cached.getValues().get("id"));
+        assertNull(cache.get(DBLookupCache.createKey(stmnt, Arrays.asList("bob"))));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testNegativeCaching() {
+        String key = DBLookupCache.createKey(stmnt, Arrays.asList("nobody"));
+
+        DBLookupCache cache = new DBLookupCache(60000, 10, false);
+        cache.put(key, null);
+        assertNull(cache.get(key));
+
+        cache = new DBLookupCache(60000, 10, true);
+        cache.put(key, null);
+        DBLookupCache.CachedRow cached = cache.get(key);
+        assertNotNull(cached);
+        assertNull(cached.getValues());
+        assertEquals(1, cache.getNegativeHitCount());
+    }
+
+    public void testExpiry() throws Exception {
+        DBLookupCache cache = new DBLookupCache(50, 10, false);
+        String key = DBLookupCache.createKey(stmnt, Arrays.asList("alice"));
+        cache.put(key, Collections.singletonMap("id", "42"));
+        assertNotNull(cache.get(key));
+        Thread.sleep(100);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.getSize());
+    }
+
+    public void testSizeBound() {
+        DBLookupCache cache = new DBLookupCache(60000, 2, false);
+        String first = DBLookupCache.createKey(stmnt, Arrays.asList("1"));
+        String second = DBLookupCache.createKey(stmnt, Arrays.asList("2"));
+        String third = DBLookupCache.createKey(stmnt, Arrays.asList("3"));
+
+        cache.put(first, Collections.singletonMap("id", "1"));
+        cache.put(second, Collections.singletonMap("id", "2"));
+        // touch the first row so that the second one is the least recently used
+        assertNotNull(cache.get(first));
+        cache.put(third, Collections.singletonMap("id", "3"));
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+    }
+
+    public void testKeysDistinguishParameters() {
+        assertFalse(DBLookupCache.createKey(stmnt, Arrays.asList("a", "bc")).equals(
+                DBLookupCache.createKey(stmnt, Arrays.asList("ab", "c"))));
+        assertFalse(DBLookupCache.createKey(stmnt, Arrays.asList((String) null)).equals(
+                DBLookupCache.createKey(stmnt, Arrays.asList(""))));
+    }
+
+    public void testKeysDistinguishResultsMapping() {
+        Statement idStmnt = new Statement("select id, name from users where name = ?");
+        idStmnt.addResult("user", "id");
+        Statement nameStmnt = new Statement("select id, name from users where name = ?");
+        nameStmnt.addResult("user", "name");
+        Statement sameStmnt = new Statement("select id, name from users where name = ?");
+        sameStmnt.addResult("user", "id");
+
+        assertFalse(DBLookupCache.createKey(idStmnt, Arrays.asList("alice")).equals(
+                DBLookupCache.createKey(nameStmnt, Arrays.asList("alice"))));
+        assertEquals(DBLookupCache.createKey(idStmnt, Arrays.asList("alice")),
+                DBLookupCache.createKey(sameStmnt, Arrays.asList("alice")));
+    }
+}
@@ -23,6 +23,7 @@ import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.commons.datasource.DBPoolView;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.config.xml.DBLookupMediatorFactory;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
@@ -50,6 +51,24 @@ public class DBLookupMediatorTest extends AbstractMediatorTestCase {
         assertEquals(synCtx.getProperty("categoryProp"), "B");
     }
 
+    public void testPreparedStatementReuse() throws Exception {
+        DBPoolView poolView = lookup.getDbPoolView();
+        assertNotNull(poolView);
+        long hits = poolView.getStatementCacheHits();
+        long misses = poolView.getStatementCacheMisses();
+
+        for (int i = 0; i < 3; i++) {
+            MessageContext synCtx = TestUtils.getTestContext("<dummy><source>5</source></dummy>");
+            assertTrue(lookup.mediate(synCtx));
+            assertEquals(synCtx.getProperty("targetProp"), "svr1");
+        }
+
+        // the same pooled connection serves the statement again from its statement pool
+        assertEquals(3, poolView.getStatementCacheHits() + poolView.getStatementCacheMisses()
+                - hits - misses);
+        assertTrue(poolView.getStatementCacheHits() > hits);
+    }
+
     public static Test suite() {
         return new TestSetup(new TestSuite(DBLookupMediatorTest.class)) {
 
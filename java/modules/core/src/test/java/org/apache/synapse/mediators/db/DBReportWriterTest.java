@@ -0,0 +1,144 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.xml.DBReportMediatorFactory;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.AbstractMediatorTestCase;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Properties;
+
+public class DBReportWriterTest extends AbstractMediatorTestCase {
+
+    private DBReportMediator report;
+
+    private DBReportMediator createMediator(String writeBehind) throws Exception {
+        String baseDir = System.getProperty("basedir");
+        if (baseDir == null) {
+            baseDir = ".";
+        }
+
+        DBReportMediator mediator = (DBReportMediator)
+            new DBReportMediatorFactory().createMediator(createOMElement(
+                "<dbreport xmlns=\"http://ws.apache.org/ns/synapse\">\n" +
+                    "  <connection>\n" +
+                    "    <pool>\n" +
+                    "      <driver>org.apache.derby.jdbc.EmbeddedDriver</driver>\n" +
+                    "      <url>jdbc:derby:" + baseDir + "/target/derbyDB;create=true</url>\n" +
+                    "      <user>user</user>\n" +
+                    "      <password>pass</password>\n" +
+                    "    </pool>\n" +
+                    "  </connection>\n" +
+                    "  <statement>\n" +
+                    "    <sql>insert into report_batch values(?, ?)</sql>\n" +
+                    "    <parameter expression=\"//id\" type=\"VARCHAR\"/>\n" +
+                    "    <parameter expression=\"//count\" type=\"INTEGER\"/>\n" +
+                    "  </statement>\n" +
+                    "  " + writeBehind + "\n" +
+                    "</dbreport>"
+            ), new Properties());
+        mediator.init(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+
+        java.sql.Statement s = mediator.getDataSource().getConnection().createStatement();
+        try {
+            s.execute("drop table report_batch");
+        } catch (SQLException ignore) {}
+        s.execute("create table report_batch(id varchar(10), cnt int check (cnt > 0))");
+        s.close();
+        return mediator;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (report != null) {
+            report.destroy();
+        }
+        super.tearDown();
+    }
+
+    public void testRejectedRowDoesNotBlockTheOthers() throws Exception {
+        report = createMediator("<writeBehind batchSize=\"100\" flushInterval=\"60000\" " +
+                "maxRetries=\"1\"/>");
+        DBReportWriter writer = report.getWriter();
+        Statement stmnt = report.getStatementList().get(0);
+
+        writer.add(stmnt, Arrays.asList("a", "1"));
+        writer.add(stmnt, Arrays.asList("b", "-1"));
+        writer.add(stmnt, Arrays.asList("c", "3"));
+
+        // the batch fails as a whole, and is kept for the retry
+        writer.flush();
+        assertEquals(1, writer.getFailedBatchCount());
+        assertEquals(3, writer.getPendingCount());
+        assertEquals(0, countRows());
+
+        // the retry fails as well, so the rows are written one by one
+        writer.flush();
+        assertEquals(2, writer.getFailedBatchCount());
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(2, writer.getWrittenCount());
+        assertEquals(1, writer.getRejectedCount());
+        assertEquals(2, countRows());
+
+        // later rows are written in batches again
+        writer.add(stmnt, Arrays.asList("d", "4"));
+        writer.flush();
+        assertEquals(3, writer.getWrittenCount());
+        assertEquals(2, writer.getFailedBatchCount());
+        assertEquals(3, countRows());
+    }
+
+    public void testFullQueueTimesOut() throws Exception {
+        report = createMediator("<writeBehind batchSize=\"100\" flushInterval=\"60000\" " +
+                "queueSize=\"1\" queueTimeout=\"100\"/>");
+        DBReportWriter writer = report.getWriter();
+        Statement stmnt = report.getStatementList().get(0);
+
+        writer.add(stmnt, Arrays.asList("a", "1"));
+        long start = System.currentTimeMillis();
+        try {
+            writer.add(stmnt, Arrays.asList("b", "2"));
+            fail("The row should not be queued while the queue is full");
+        } catch (SynapseException expected) {
+        }
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals(1, writer.getDroppedCount());
+
+        writer.flush();
+        assertEquals(1, countRows());
+    }
+
+    private int countRows() throws SQLException {
+        Connection con = report.getDataSource().getConnection();
+        try {
+            ResultSet rs = con.createStatement().executeQuery("select count(*) from report_batch");
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            con.close();
+        }
+    }
+}
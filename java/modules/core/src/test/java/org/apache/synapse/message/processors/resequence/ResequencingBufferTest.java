@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ *  * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.synapse.message.processors.resequence;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class ResequencingBufferTest extends TestCase {
+
+    public void testContiguousRelease() throws Exception {
+        ResequencingBuffer buffer = new ResequencingBuffer();
+        buffer.add("ID3", 3);
+        buffer.add("ID1", 1);
+        assertTrue(buffer.release().isEmpty());
+        assertTrue(buffer.initialize());
+        assertEquals(1, buffer.getNextSeqNo());
+
+        assertEquals(Arrays.asList("ID1"), buffer.release());
+        assertTrue(buffer.hasGap());
+
+        buffer.add("ID4", 4);
+        buffer.add("ID2", 2);
+        assertEquals(Arrays.asList("ID2", "ID3", "ID4"), buffer.release());
+        assertEquals(5, buffer.getNextSeqNo());
+        assertEquals(0, buffer.size());
+        assertFalse(buffer.hasGap());
+    }
+
+    public void testDuplicates() throws Exception {
+        ResequencingBuffer buffer = new ResequencingBuffer();
+        assertTrue(buffer.add("ID1", 1));
+        // the same message observed twice is only indexed once
+        assertTrue(buffer.add("ID1", 1));
+        assertFalse(buffer.add("ID1-copy", 1));
+        buffer.initialize();
+        buffer.release();
+        assertFalse(buffer.add("ID1-late", 1));
+        assertEquals(0, buffer.size());
+    }
+
+    public void testSkipGap() throws Exception {
+        ResequencingBuffer buffer = new ResequencingBuffer();
+        buffer.add("ID1", 1);
+        buffer.add("ID5", 5);
+        buffer.add("ID6", 6);
+        buffer.initialize();
+        buffer.release();
+
+        // a gap timer started for an older sequence number must not skip anything
+        assertFalse(buffer.skipGap(1));
+        assertTrue(buffer.skipGap(2));
+        List<String> released = buffer.release();
+        assertEquals(Arrays.asList("ID5", "ID6"), released);
+
+        // messages for the skipped sequence numbers are rejected
+        assertFalse(buffer.add("ID3", 3));
+    }
+
+    public void testRemovedMessages() throws Exception {
+        ResequencingBuffer buffer = new ResequencingBuffer();
+        buffer.add("ID1", 1);
+        buffer.add("ID2", 2);
+        buffer.add("ID3", 3);
+        buffer.remove("ID2");
+        buffer.initialize();
+        assertEquals(Arrays.asList("ID1"), buffer.release());
+        assertTrue(buffer.hasGap());
+        assertEquals(1, buffer.size());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util;
+
+import junit.framework.TestCase;
+import org.apache.axis2.clustering.ClusteringFault;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.axis2.engine.AxisConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StateReplicationQueueTest extends TestCase {
+
+    public void testUpdatesAreCoalesced() throws Exception {
+        ConfigurationContext node1 = createNode();
+        ConfigurationContext node2 = createNode();
+        ConfigurationContext node3 = createNode();
+        LoopbackSender sender = new LoopbackSender(node2, node3);
+        StateReplicationQueue queue = new StateReplicationQueue(node1, sender, 60000);
+
+        for (int i = 0; i < 100; i++) {
+            node1.setNonReplicableProperty("state", i);
+            queue.add("state");
+        }
+        node1.setNonReplicableProperty("retries", 3);
+        queue.add("retries");
+        assertEquals(2, queue.getPendingCount());
+        assertNull(node2.getPropertyNonReplicable("state"));
+
+        queue.flush();
+        assertEquals(1, sender.batches.size());
+        assertEquals(2, sender.batches.get(0).length);
+        assertEquals(101, queue.getUpdateCount());
+        assertEquals(0, queue.getPendingCount());
+        for (ConfigurationContext node : new ConfigurationContext[] {node2, node3}) {
+            assertEquals(99, node.getPropertyNonReplicable("state"));
+            assertEquals(3, node.getPropertyNonReplicable("retries"));
+        }
+
+        // nothing changed, nothing to send
+        queue.flush();
+        assertEquals(1, sender.batches.size());
+
+        node1.removePropertyNonReplicable("state");
+        queue.add("state");
+        queue.flush();
+        assertEquals(2, sender.batches.size());
+        assertNull(node2.getPropertyNonReplicable("state"));
+        assertEquals(3, node3.getPropertyNonReplicable("retries"));
+    }
+
+    public void testScheduledFlush() throws Exception {
+        ConfigurationContext node1 = createNode();
+        ConfigurationContext node2 = createNode();
+        LoopbackSender sender = new LoopbackSender(node2);
+        StateReplicationQueue queue = new StateReplicationQueue(node1, sender, 10);
+
+        node1.setNonReplicableProperty("state", "SUSPENDED");
+        queue.add("state");
+        for (int i = 0; i < 100 && queue.getBatchCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, queue.getBatchCount());
+        assertEquals("SUSPENDED", node2.getPropertyNonReplicable("state"));
+    }
+
+    public void testFailedReplicationIsRetried() throws Exception {
+        ConfigurationContext node1 = createNode();
+        ConfigurationContext node2 = createNode();
+        LoopbackSender sender = new LoopbackSender(node2);
+        sender.fail = true;
+        StateReplicationQueue queue = new StateReplicationQueue(node1, sender, 60000);
+
+        node1.setNonReplicableProperty("state", 1);
+        queue.add("state");
+        queue.flush();
+        assertEquals(1, queue.getPendingCount());
+        assertNull(node2.getPropertyNonReplicable("state"));
+
+        sender.fail = false;
+        queue.flush();
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(1, node2.getPropertyNonReplicable("state"));
+    }
+
+    private ConfigurationContext createNode() {
+        return new ConfigurationContext(new AxisConfiguration());
+    }
+
+    /**
+     * Stand-in for the clustering agent, which copies the replicated properties straight into
+     * the configuration contexts of the other nodes
+     */
+    private static class LoopbackSender implements StateReplicationQueue.ReplicationSender {
+
+        private final ConfigurationContext[] members;
+        private final List<String[]> batches = new ArrayList<String[]>();
+        private boolean fail = false;
+
+        LoopbackSender(ConfigurationContext... members) {
+            this.members = members;
+        }
+
+        public void replicate(ConfigurationContext configCtx, String[] keys)
+                throws ClusteringFault {
+            if (fail) {
+                throw new ClusteringFault("Member unreachable");
+            }
+            batches.add(keys);
+            for (ConfigurationContext member : members) {
+                for (String key : keys) {
+                    Object value = configCtx.getPropertyNonReplicable(key);
+                    if (value == null) {
+                        member.removePropertyNonReplicable(key);
+                    } else {
+                        member.setNonReplicableProperty(key, value);
+                    }
+                }
+            }
+        }
+    }
+}
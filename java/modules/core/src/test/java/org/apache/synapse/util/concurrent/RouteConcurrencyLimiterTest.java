@@ -0,0 +1,123 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.util.concurrent;
+
+import junit.framework.TestCase;
+import org.apache.synapse.SynapseException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RouteConcurrencyLimiterTest extends TestCase {
+
+    private RouteConcurrencyLimiter limiter = RouteConcurrencyLimiter.getInstance();
+
+    protected void tearDown() throws Exception {
+        limiter.setMaxPerRoute(-1);
+        limiter.setAcquireTimeout(30000);
+        limiter.reset();
+    }
+
+    public void testUnlimited() {
+        limiter.setMaxPerRoute(-1);
+        assertFalse(limiter.acquire("http://localhost:9000"));
+        assertEquals(-1, limiter.getInFlightCount("http://localhost:9000"));
+    }
+
+    public void testLimitPerRoute() throws Exception {
+        limiter.setMaxPerRoute(2);
+        final String route = "http://localhost:9000";
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        for (int i = 0; i < 10; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    boolean acquired = limiter.acquire(route);
+                    try {
+                        int current = inFlight.incrementAndGet();
+                        int max;
+                        while (current > (max = maxInFlight.get())) {
+                            maxInFlight.compareAndSet(max, current);
+                        }
+                        Thread.sleep(10);
+                        inFlight.decrementAndGet();
+                    } catch (InterruptedException ignored) {
+                    } finally {
+                        if (acquired) {
+                            limiter.release(route);
+                        }
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(maxInFlight.get() <= 2);
+        assertEquals(0, limiter.getInFlightCount(route));
+
+        // other routes are not affected
+        assertTrue(limiter.acquire("http://localhost:9001"));
+        assertEquals(1, limiter.getInFlightCount("http://localhost:9001"));
+        limiter.release("http://localhost:9001");
+    }
+
+    public void testAcquireTimeout() throws Exception {
+        limiter.setMaxPerRoute(1);
+        limiter.setAcquireTimeout(50);
+        String route = RouteConcurrencyLimiter.getRoute("http://localhost:9000/services/Foo");
+        assertEquals("http://localhost:9000", route);
+        assertTrue(limiter.acquire(route));
+        try {
+            limiter.acquire(route);
+            fail("A saturated route must not be acquired");
+        } catch (SynapseException expected) {
+        }
+        limiter.release(route);
+        assertTrue(limiter.acquire(route));
+        limiter.release(route);
+    }
+
+    public void testVirtualThreadExecutor() throws Exception {
+        if (!VirtualThreadExecutor.isSupported()) {
+            return;
+        }
+
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-virtual", 5);
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+}
@@ -21,17 +21,13 @@ package org.apache.synapse.experimental.mediators.seda;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
 
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-
 /**
- *
+ * Mediates the messages of a SEDA stage through the sequence given to the stage. The mediation
+ * runs on the consumer thread of the stage, so the stage controls how many messages are
+ * mediated at once and its metrics reflect the time spent in the sequence.
  */
 public class DefaultConsumer implements SEDAQueueConsumer {
 
-    private static final Executor EXECUTOR
-            = Executors.newFixedThreadPool(10);
-
     private Mediator mediator;
 
     public DefaultConsumer(Mediator mediator) {
@@ -39,33 +35,6 @@ public class DefaultConsumer implements SEDAQueueConsumer {
     }
 
     public void consume(MessageContext messageContext) {
-        EXECUTOR.execute(new Worker(mediator, messageContext));
-    }
-
-    static class Worker implements Runnable {
-
-        private final Mediator mediator;
-        private final MessageContext messageContext;
-
-        private volatile Exception exception;
-
-        public Worker(final Mediator mediator, final MessageContext messageContext) {
-            super();
-            this.mediator = mediator;
-            this.messageContext = messageContext;
-        }
-
-        public void run() {
-            try {
-                mediator.mediate(messageContext);
-            } catch (Exception ex) {
-                this.exception = ex;
-            }
-        }
-
-        public Exception getException() {
-            return this.exception;
-        }
-
+        mediator.mediate(messageContext);
     }
 }
@@ -0,0 +1,363 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.experimental.mediators.seda;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, multi producer and multi consumer ring buffer. Producers and consumers claim
+ * slots with a compare and set on their own cursor, and each slot carries a sequence number
+ * telling whether it is ready to be written or read, so neither side takes a lock to insert
+ * or remove an element.</p>
+ * <p>
+ * The blocking operations first try the non blocking ones. Only when the buffer is empty
+ * (or full) the calling thread parks on a condition, and producers (or consumers) take the
+ * lock to signal only when a thread is known to be waiting.</p>
+ *
+ * @param <E> type of the elements
+ */
+public class RingBufferQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<E> buffer;
+
+    /**
+     * Sequence of each slot, 2 * position when the slot is free to write the element of that
+     * position, and 2 * position + 1 once the element has been written. Doubling keeps the
+     * two states apart even when the buffer holds a single element.
+     */
+    private final AtomicLongArray sequences;
+
+    /** Next position to write */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Next position to read */
+    private final AtomicLong head = new AtomicLong();
+
+    /** Lock used only to park threads waiting on an empty or a full buffer */
+    private final ReentrantLock waitLock = new ReentrantLock();
+    private final Condition notEmpty = waitLock.newCondition();
+    private final Condition notFull = waitLock.newCondition();
+    private final AtomicInteger takeWaiters = new AtomicInteger();
+    private final AtomicInteger putWaiters = new AtomicInteger();
+
+    public RingBufferQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be a positive value");
+        }
+        this.capacity = capacity;
+        this.buffer = new AtomicReferenceArray<E>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, 2L * i);
+        }
+    }
+
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+
+        long position = tail.get();
+        int index;
+        for (;;) {
+            index = (int) (position % capacity);
+            long difference = sequences.get(index) - 2 * position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot still holds the element written one round before
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        buffer.set(index, e);
+        sequences.set(index, 2 * position + 1);
+        if (takeWaiters.get() > 0) {
+            signal(notEmpty);
+        }
+        return true;
+    }
+
+    public E poll() {
+        long position = head.get();
+        int index;
+        for (;;) {
+            index = (int) (position % capacity);
+            long difference = sequences.get(index) - (2 * position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                // nothing has been written to the slot yet
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+
+        E e = buffer.get(index);
+        buffer.set(index, null);
+        sequences.set(index, 2 * (position + capacity));
+        if (putWaiters.get() > 0) {
+            signal(notFull);
+        }
+        return e;
+    }
+
+    public E peek() {
+        for (;;) {
+            long position = head.get();
+            int index = (int) (position % capacity);
+            if (sequences.get(index) != 2 * position + 1) {
+                if (position == head.get()) {
+                    return null;
+                }
+                continue;
+            }
+            E e = buffer.get(index);
+            if (e != null && position == head.get()) {
+                return e;
+            }
+        }
+    }
+
+    public void put(E e) throws InterruptedException {
+        if (offer(e)) {
+            return;
+        }
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        // announce the producer before trying again, so that a consumer either sees it
+        // or frees the slot before the producer tries
+        putWaiters.incrementAndGet();
+        try {
+            while (!offer(e)) {
+                try {
+                    notFull.await();
+                } catch (InterruptedException ie) {
+                    notFull.signal();
+                    throw ie;
+                }
+            }
+        } finally {
+            putWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(e)) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        putWaiters.incrementAndGet();
+        try {
+            while (!offer(e)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                try {
+                    nanos = notFull.awaitNanos(nanos);
+                } catch (InterruptedException ie) {
+                    notFull.signal();
+                    throw ie;
+                }
+            }
+            return true;
+        } finally {
+            putWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        takeWaiters.incrementAndGet();
+        try {
+            while ((e = poll()) == null) {
+                try {
+                    notEmpty.await();
+                } catch (InterruptedException ie) {
+                    notEmpty.signal();
+                    throw ie;
+                }
+            }
+            return e;
+        } finally {
+            takeWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        takeWaiters.incrementAndGet();
+        try {
+            while ((e = poll()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                try {
+                    nanos = notEmpty.awaitNanos(nanos);
+                } catch (InterruptedException ie) {
+                    notEmpty.signal();
+                    throw ie;
+                }
+            }
+            return e;
+        } finally {
+            takeWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * The number of elements in the buffer. Elements being written or read concurrently
+     * may or may not be counted.
+     *
+     * @return number of elements in the buffer
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        if (size < 0) {
+            return 0;
+        }
+        return size > capacity ? capacity : (int) size;
+    }
+
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Iterates over a snapshot of the buffer, taken without stopping producers and consumers.
+     * Removing through the iterator is not supported.
+     *
+     * @return an iterator over the elements in the buffer
+     */
+    public Iterator<E> iterator() {
+        final Object[] snapshot = toArray();
+        return new Iterator<E>() {
+            private int cursor = 0;
+
+            public boolean hasNext() {
+                return cursor < snapshot.length;
+            }
+
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (cursor >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return (E) snapshot[cursor++];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public Object[] toArray() {
+        long from = head.get();
+        long to = tail.get();
+        Object[] elements = new Object[(int) Math.max(0, Math.min(to - from, capacity))];
+        int n = 0;
+        for (long position = from; position < to && n < elements.length; position++) {
+            int index = (int) (position % capacity);
+            E e = buffer.get(index);
+            if (e != null && sequences.get(index) == 2 * position + 1) {
+                elements[n++] = e;
+            }
+        }
+        if (n < elements.length) {
+            Object[] copy = new Object[n];
+            System.arraycopy(elements, 0, copy, 0, n);
+            return copy;
+        }
+        return elements;
+    }
+
+    private void signal(Condition condition) {
+        final ReentrantLock lock = this.waitLock;
+        lock.lock();
+        try {
+            condition.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
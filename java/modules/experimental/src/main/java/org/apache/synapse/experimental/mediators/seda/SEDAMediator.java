@@ -21,14 +21,21 @@ package org.apache.synapse.experimental.mediators.seda;
 import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractMediator;
 
 /**
- *
+ * Hands the message over to a SEDA stage and stops the current mediation. The stage mediates
+ * the message through the consumer sequence on its own threads, which lets heavy
+ * transformation work run in a pool sized separately from the I/O threads. Each stage is
+ * registered as a SEDAStage MBean under its name.
  */
 public class SEDAMediator extends AbstractMediator implements ManagedLifecycle {
 
+    public static final String MBEAN_CATEGORY = "SEDAStage";
+
     private SEDAQueueConsumerPolicy sedaQueueConsumerPolicy;
     private SEDAQueueProducerPolicy sedaQueueProducerPolicy;
     private SEDAQueuePolicy sedaQueuePolicy;
@@ -37,28 +44,48 @@ public class SEDAMediator extends AbstractMediator implements ManagedLifecycle {
     private boolean initialized = false;
     // A key of the mediator that do work after SEDA component - actual consumer
     private String consumer;
+    // Name of the stage, defaults to the consumer key
+    private String name;
 
     public boolean mediate(MessageContext synCtx) {
         if (initialized) {
-            sedaQueueProducer.produce(synCtx);
+            if (!sedaQueueProducer.produce(synCtx)) {
+                handleException("The SEDA stage : " + getStageName() +
+                        " did not accept the message", synCtx);
+            }
         }
         return false;
     }
 
     public void init(SynapseEnvironment se) {
         Mediator mediator = se.getSynapseConfiguration().getSequence(consumer);
-        sedaQueue = new SEDAQueue(sedaQueuePolicy,
+        if (mediator == null) {
+            String msg = "Cannot find the consumer sequence : " + consumer +
+                    " of the SEDA stage : " + getStageName();
+            log.error(msg);
+            throw new SynapseException(msg);
+        }
+        sedaQueue = new SEDAQueue(getStageName(), sedaQueuePolicy,
                 new SEDAQueueConsumerWorkerFactory(sedaQueueConsumerPolicy,
                         new DefaultConsumer(mediator)));
         sedaQueueProducer = new SEDAQueueProducer(sedaQueueProducerPolicy,
                 sedaQueue);
         sedaQueue.init();
+        MBeanRegistrar.getInstance().registerMBean(sedaQueue.getView(),
+                MBEAN_CATEGORY, getStageName());
         initialized = true;
     }
 
     public void destroy() {
-        sedaQueue.destory();
         initialized = false;
+        if (sedaQueue != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, getStageName());
+            sedaQueue.destroy();
+        }
+    }
+
+    private String getStageName() {
+        return name != null ? name : consumer;
     }
 
     public SEDAQueueConsumerPolicy getSedaQueueConsumerPolicy() {
@@ -92,4 +119,16 @@ public class SEDAMediator extends AbstractMediator implements ManagedLifecycle {
     public void setConsumer(String consumer) {
         this.consumer = consumer;
     }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public SEDAQueue getSedaQueue() {
+        return sedaQueue;
+    }
 }
@@ -27,12 +27,41 @@ import javax.xml.namespace.QName;
 import java.util.Properties;
 
 /**
+ * Creates a SEDA mediator from the following configuration. All the child elements and
+ * attributes other than the key are optional.
  *
+ * <pre>
+ * &lt;seda key="consumer sequence" [name="stage name"]&gt;
+ *     &lt;queue [type="LinkedBlocking|RingBuffer|PriorityBlocking|Synchronous"] [size="int"]/&gt;
+ *     &lt;consumers [action="drain|drainAll|poll|take"] [min="int"] [max="int"]
+ *                [batchSize="int"] [pollTimeout="ms"] [keepAlive="ms"]
+ *                [targetLatency="ms"] [scaleInterval="ms"]/&gt;
+ *     &lt;producer [action="offer|add|put"] [timeout="ms"]/&gt;
+ * &lt;/seda&gt;
+ * </pre>
  */
 public class SEDAMediatorFactory extends AbstractMediatorFactory {
 
     private static final QName SEDA_Q =
             new QName(SynapseConstants.SYNAPSE_NAMESPACE, "seda");
+    private static final QName QUEUE_Q =
+            new QName(SynapseConstants.SYNAPSE_NAMESPACE, "queue");
+    private static final QName CONSUMERS_Q =
+            new QName(SynapseConstants.SYNAPSE_NAMESPACE, "consumers");
+    private static final QName PRODUCER_Q =
+            new QName(SynapseConstants.SYNAPSE_NAMESPACE, "producer");
+
+    private static final QName ATT_TYPE = new QName("type");
+    private static final QName ATT_SIZE = new QName("size");
+    private static final QName ATT_ACTION = new QName("action");
+    private static final QName ATT_MIN = new QName("min");
+    private static final QName ATT_MAX = new QName("max");
+    private static final QName ATT_BATCH_SIZE = new QName("batchSize");
+    private static final QName ATT_POLL_TIMEOUT = new QName("pollTimeout");
+    private static final QName ATT_KEEP_ALIVE = new QName("keepAlive");
+    private static final QName ATT_TARGET_LATENCY = new QName("targetLatency");
+    private static final QName ATT_SCALE_INTERVAL = new QName("scaleInterval");
+    private static final QName ATT_TIMEOUT = new QName("timeout");
 
     public Mediator createSpecificMediator(OMElement elem, Properties properties) {
 
@@ -41,14 +70,109 @@ public class SEDAMediatorFactory extends AbstractMediatorFactory {
 
         if (mediatorKey != null && !"".equals(mediatorKey.trim())) {
             mediator.setConsumer(mediatorKey.trim());
+        } else {
+            handleException("The 'key' attribute is required for the SEDA mediator");
+        }
+
+        String name = elem.getAttributeValue(ATT_NAME);
+        if (name != null && !"".equals(name.trim())) {
+            mediator.setName(name.trim());
+        }
+
+        SEDAQueuePolicy queuePolicy = new SEDAQueuePolicy();
+        SEDAQueueConsumerPolicy consumerPolicy = new SEDAQueueConsumerPolicy();
+        SEDAQueueProducerPolicy producerPolicy = new SEDAQueueProducerPolicy();
+
+        OMElement queueElem = elem.getFirstChildWithName(QUEUE_Q);
+        if (queueElem != null) {
+            String type = queueElem.getAttributeValue(ATT_TYPE);
+            if (type != null) {
+                if (!SEDAQueuePolicy.QUEUE_TYPE_LINKED_BLOCKING.equals(type) &&
+                        !SEDAQueuePolicy.QUEUE_TYPE_RING_BUFFER.equals(type) &&
+                        !SEDAQueuePolicy.QUEUE_TYPE_PRIORITY_BLOCKING.equals(type) &&
+                        !SEDAQueuePolicy.QUEUE_TYPE_SYNCHRONOUS.equals(type)) {
+                    handleException("Unsupported SEDA queue type : " + type);
+                }
+                queuePolicy.setQueueType(type);
+            }
+            queuePolicy.setQueueSize(getInt(queueElem, ATT_SIZE, queuePolicy.getQueueSize()));
+        }
+
+        OMElement consumersElem = elem.getFirstChildWithName(CONSUMERS_Q);
+        if (consumersElem != null) {
+            String action = consumersElem.getAttributeValue(ATT_ACTION);
+            if (action != null) {
+                if (!SEDAQueueConsumerPolicy.DRAIN.equals(action) &&
+                        !SEDAQueueConsumerPolicy.DRAINALL.equals(action) &&
+                        !SEDAQueueConsumerPolicy.POLL.equals(action) &&
+                        !SEDAQueueConsumerPolicy.TAKE.equals(action)) {
+                    handleException("Unsupported SEDA consumer action : " + action);
+                }
+                consumerPolicy.setAction(action);
+            }
+            consumerPolicy.setMaxElementsOnPoll(getInt(consumersElem, ATT_BATCH_SIZE,
+                    consumerPolicy.getMaxElementsOnPoll()));
+            consumerPolicy.setTimeoutOnPoll(getLong(consumersElem, ATT_POLL_TIMEOUT,
+                    consumerPolicy.getTimeoutOnPoll()));
+            queuePolicy.setQueueWorkers(getInt(consumersElem, ATT_MIN,
+                    queuePolicy.getQueueWorkers()));
+            queuePolicy.setMaxQueueWorkers(getInt(consumersElem, ATT_MAX,
+                    Math.max(queuePolicy.getQueueWorkers(), queuePolicy.getMaxQueueWorkers())));
+            queuePolicy.setWorkerKeepAlive(getLong(consumersElem, ATT_KEEP_ALIVE,
+                    queuePolicy.getWorkerKeepAlive()));
+            queuePolicy.setTargetLatency(getLong(consumersElem, ATT_TARGET_LATENCY,
+                    queuePolicy.getTargetLatency()));
+            queuePolicy.setScaleInterval(getLong(consumersElem, ATT_SCALE_INTERVAL,
+                    queuePolicy.getScaleInterval()));
+
+            if (queuePolicy.getMaxQueueWorkers() < queuePolicy.getQueueWorkers()) {
+                handleException("The maximum number of SEDA consumers cannot be less than " +
+                        "the minimum");
+            }
+            if (queuePolicy.getScaleInterval() <= 0) {
+                handleException("The SEDA scale interval should be a positive value");
+            }
         }
-        //TODO parse OM element and creates policies
-        mediator.setSedaQueueConsumerPolicy(new SEDAQueueConsumerPolicy());
-        mediator.setSedaQueueProducerPolicy(new SEDAQueueProducerPolicy());
-        mediator.setSedaQueuePolicy(new SEDAQueuePolicy());
+
+        OMElement producerElem = elem.getFirstChildWithName(PRODUCER_Q);
+        if (producerElem != null) {
+            String action = producerElem.getAttributeValue(ATT_ACTION);
+            if (action != null) {
+                if (!SEDAQueueProducerPolicy.OFFER.equals(action) &&
+                        !SEDAQueueProducerPolicy.ADD.equals(action) &&
+                        !SEDAQueueProducerPolicy.PUT.equals(action)) {
+                    handleException("Unsupported SEDA producer action : " + action);
+                }
+                producerPolicy.setAction(action);
+            }
+            producerPolicy.setTimeoutOnInsert(getLong(producerElem, ATT_TIMEOUT,
+                    producerPolicy.getTimeoutOnInsert()));
+        }
+
+        mediator.setSedaQueueConsumerPolicy(consumerPolicy);
+        mediator.setSedaQueueProducerPolicy(producerPolicy);
+        mediator.setSedaQueuePolicy(queuePolicy);
         return mediator;
     }
 
+    private int getInt(OMElement elem, QName attName, int defaultValue) {
+        return (int) getLong(elem, attName, defaultValue);
+    }
+
+    private long getLong(OMElement elem, QName attName, long defaultValue) {
+        String value = elem.getAttributeValue(attName);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            handleException("Invalid value : " + value + " for the attribute : " +
+                    attName.getLocalPart() + " of the SEDA mediator");
+            return defaultValue;
+        }
+    }
+
     public QName getTagQName() {
         return SEDA_Q;
     }
@@ -16,28 +16,56 @@
  *  specific language governing permissions and limitations
  *  under the License.
  */
+
 package org.apache.synapse.experimental.mediators.seda;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- *
+ * The queue of a SEDA stage together with the consumer threads draining it. The number of
+ * consumers is adjusted between the minimum and the maximum given by the
+ * {@link SEDAQueuePolicy}: a monitor adds consumers when the queue gets deeper or messages
+ * wait longer than the target latency, and consumers idle for longer than the keep alive
+ * time stop by themselves.
  */
 public class SEDAQueue {
 
+    private static final Log log = LogFactory.getLog(SEDAQueue.class);
+
+    /** Message property holding the time (System.nanoTime) the message was queued */
+    static final String ENQUEUE_TIME = "SEDA_ENQUEUE_TIME";
+
+    private final String name;
     private SEDAQueuePolicy queuePolicy;
     private final BlockingQueue<MessageContext> queue;
     private SEDAQueueConsumerWorkerFactory workerFactory;
-    private boolean initialized;
-    private static final Executor EXECUTOR
-            = Executors.newFixedThreadPool(10);
+    private final SEDAQueueView view;
+    private volatile boolean initialized;
+
+    private final AtomicInteger consumers = new AtomicInteger();
+    private ExecutorService workerExecutor;
+    private ScheduledExecutorService monitor;
+
+    /** Processed message count and total queue time at the last run of the monitor */
+    private long lastProcessed;
+    private long lastQueueTime;
 
     public SEDAQueue(SEDAQueuePolicy queuePolicy, SEDAQueueConsumerWorkerFactory workerFactory) {
+        this("seda", queuePolicy, workerFactory);
+    }
+
+    public SEDAQueue(String name, SEDAQueuePolicy queuePolicy,
+                     SEDAQueueConsumerWorkerFactory workerFactory) {
+        this.name = name;
         this.queuePolicy = queuePolicy;
         this.queue = createBlockingQueue(queuePolicy);
         this.workerFactory = workerFactory;
+        this.view = new SEDAQueueView(this);
     }
 
     private BlockingQueue<MessageContext> createBlockingQueue(SEDAQueuePolicy queuePolicy) {
@@ -48,17 +76,135 @@ public class SEDAQueue {
             queue = new PriorityBlockingQueue<MessageContext>(capacity);
         } else if (SEDAQueuePolicy.QUEUE_TYPE_SYNCHRONOUS.equals(queueType)) {
             queue = new SynchronousQueue<MessageContext>();
+        } else if (SEDAQueuePolicy.QUEUE_TYPE_RING_BUFFER.equals(queueType)) {
+            queue = new RingBufferQueue<MessageContext>(capacity);
         } else {
             queue = new LinkedBlockingQueue<MessageContext>(capacity);
         }
         return queue;
     }
 
-    public void init() {
-        EXECUTOR.execute(workerFactory.createSEDAQueueConsumerWorker(this));
+    public synchronized void init() {
+        if (initialized) {
+            return;
+        }
+        workerExecutor = Executors.newCachedThreadPool(new StageThreadFactory("seda-" + name));
+        initialized = true;
+
+        int minWorkers = Math.max(1, queuePolicy.getQueueWorkers());
+        for (int i = 0; i < minWorkers; i++) {
+            startConsumer();
+        }
+
+        if (queuePolicy.getMaxQueueWorkers() > minWorkers) {
+            monitor = Executors.newSingleThreadScheduledExecutor(
+                    new StageThreadFactory("seda-monitor-" + name));
+            long interval = queuePolicy.getScaleInterval();
+            monitor.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        adjustConsumers();
+                    } catch (Throwable t) {
+                        log.error("Error while adjusting the consumers of the SEDA stage : "
+                                + name, t);
+                    }
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void destroy() {
+        if (!initialized) {
+            return;
+        }
+        initialized = false;
+        if (monitor != null) {
+            monitor.shutdownNow();
+            monitor = null;
+        }
+        workerExecutor.shutdownNow();
+        workerExecutor = null;
+        if (!queue.isEmpty()) {
+            log.warn(queue.size() + " message(s) left in the queue of the SEDA stage : " + name
+                    + " are dropped");
+            queue.clear();
+        }
+    }
+
+    /**
+     * Add consumers when the queue is deeper than the current consumers drain in one batch,
+     * or when messages processed since the last check waited longer than the target latency.
+     */
+    void adjustConsumers() {
+        long processed = view.getProcessedMessages();
+        long queueTime = view.getTotalQueueTime();
+        long count = processed - lastProcessed;
+        double averageQueueTime = count > 0 ?
+                (queueTime - lastQueueTime) / (count * 1000000.0) : 0.0;
+        lastProcessed = processed;
+        lastQueueTime = queueTime;
+
+        int current = consumers.get();
+        int max = queuePolicy.getMaxQueueWorkers();
+        if (current >= max) {
+            return;
+        }
+
+        int batchSize = Math.max(1, workerFactory.getQueueConsumerPolicy().getMaxElementsOnPoll());
+        int depth = queue.size();
+        int needed = 0;
+        if (depth > current * batchSize) {
+            needed = (depth + batchSize - 1) / batchSize - current;
+        }
+        long targetLatency = queuePolicy.getTargetLatency();
+        if (targetLatency > 0 && averageQueueTime > targetLatency && depth > 0) {
+            needed = Math.max(needed, 1);
+        }
+
+        for (int i = 0; i < Math.min(needed, max - current); i++) {
+            startConsumer();
+        }
+        if (needed > 0 && log.isDebugEnabled()) {
+            log.debug("SEDA stage : " + name + " has " + consumers.get() + " consumers, queue depth : "
+                    + depth + ", average queue time : " + averageQueueTime + "ms");
+        }
+    }
+
+    private synchronized void startConsumer() {
+        if (!initialized) {
+            return;
+        }
+        consumers.incrementAndGet();
+        try {
+            workerExecutor.execute(workerFactory.createSEDAQueueConsumerWorker(this));
+        } catch (RejectedExecutionException e) {
+            consumers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Called by a consumer which found no message for longer than the keep alive time
+     *
+     * @return true if the consumer should stop, false if it is needed to keep the minimum
+     */
+    boolean retireIdleConsumer() {
+        int min = Math.max(1, queuePolicy.getQueueWorkers());
+        for (;;) {
+            int current = consumers.get();
+            if (current <= min) {
+                return false;
+            }
+            if (consumers.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
     }
 
-    public void destory() {
+    /**
+     * Called by a consumer leaving because the stage is being destroyed
+     */
+    void consumerStopped() {
+        consumers.decrementAndGet();
     }
 
     public BlockingQueue<MessageContext> getQueue() {
@@ -76,4 +222,32 @@ public class SEDAQueue {
     public SEDAQueuePolicy getQueuePolicy() {
         return queuePolicy;
     }
+
+    public SEDAQueueView getView() {
+        return view;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getConsumerCount() {
+        return consumers.get();
+    }
+
+    private static class StageThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        StageThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
 }
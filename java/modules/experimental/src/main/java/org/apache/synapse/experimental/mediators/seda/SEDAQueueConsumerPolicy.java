@@ -19,7 +19,10 @@
 package org.apache.synapse.experimental.mediators.seda;
 
 /**
- *
+ * Describes how the consumers of a SEDA stage take messages off the queue. With
+ * <code>drain</code> (the default) a consumer waits up to <code>timeoutOnPoll</code>
+ * milliseconds for a message and then drains up to <code>maxElementsOnPoll</code> messages
+ * in total before processing them, so a busy stage processes a batch per wakeup.
  */
 public class SEDAQueueConsumerPolicy {
 
@@ -29,7 +32,7 @@ public class SEDAQueueConsumerPolicy {
     public static final String DRAIN = "drain";
     private long timeoutOnPoll = 1000;
     private int maxElementsOnPoll = 5;
-    private String action = POLL;
+    private String action = DRAIN;
 
     public long getTimeoutOnPoll() {
         return timeoutOnPoll;
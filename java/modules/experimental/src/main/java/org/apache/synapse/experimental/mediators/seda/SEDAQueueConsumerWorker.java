@@ -16,6 +16,7 @@
  *  specific language governing permissions and limitations
  *  under the License.
  */
+
 package org.apache.synapse.experimental.mediators.seda;
 
 import org.apache.commons.logging.Log;
@@ -23,12 +24,15 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.MessageContext;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
- *
+ * A consumer thread of a SEDA stage. It keeps taking messages off the queue, as a batch of up
+ * to <code>maxElementsOnPoll</code> messages per wakeup with the drain actions, and hands them
+ * to the stage consumer until the stage is destroyed or it has been idle for longer than the
+ * keep alive time of the stage.
  */
 public class SEDAQueueConsumerWorker implements Runnable {
 
@@ -48,45 +52,88 @@ public class SEDAQueueConsumerWorker implements Runnable {
     }
 
     public void run() {
-        String action = queueConsumerPolicy.getAction();
-        if (SEDAQueueConsumerPolicy.TAKE.equals(action)) {
-            try {
-                consume(queue.take());
-            } catch (InterruptedException ignored) {
-                log.debug("Ignored InterruptedException when ocuured calling queue.take()");
-            }
-        } else if (SEDAQueueConsumerPolicy.POLL.equals(action)) {
-            long timeout = queueConsumerPolicy.getTimeoutOnPoll();
-            if (timeout < 0) {
-                consume(queue.poll());
-            } else {
-                try {
-                    consume(queue.poll(timeout, TimeUnit.MILLISECONDS));
-                } catch (InterruptedException ignored) {
-                    log.debug("Ignored InterruptedException when ocuured calling queue.poll()");
+        long keepAlive = TimeUnit.MILLISECONDS.toNanos(
+                sedaQueue.getQueuePolicy().getWorkerKeepAlive());
+        List<MessageContext> batch = new ArrayList<MessageContext>(
+                Math.max(1, queueConsumerPolicy.getMaxElementsOnPoll()));
+        long lastActive = System.nanoTime();
+        boolean retired = false;
+
+        try {
+            while (sedaQueue.isInitialized()) {
+                if (take(batch) > 0) {
+                    consume(batch);
+                    batch.clear();
+                    lastActive = System.nanoTime();
+                } else if (System.nanoTime() - lastActive >= keepAlive &&
+                        sedaQueue.retireIdleConsumer()) {
+                    retired = true;
+                    return;
                 }
             }
-        } else if (SEDAQueueConsumerPolicy.DRAIN.equals(action)) {
-            int maxElements = queueConsumerPolicy.getMaxElementsOnPoll();
-            Collection<MessageContext> contexts = new ArrayList<MessageContext>(maxElements);
-            queue.drainTo(contexts, maxElements);
-            consume(contexts);
-        } else if (SEDAQueueConsumerPolicy.DRAINALL.equals(action)) {
-            Collection<MessageContext> contexts = new ArrayList<MessageContext>();
-            queue.drainTo(contexts);
-            consume(contexts);
+        } catch (InterruptedException ignored) {
+            log.debug("SEDA consumer of the stage : " + sedaQueue.getName() + " interrupted");
+        } finally {
+            if (!retired) {
+                sedaQueue.consumerStopped();
+            }
         }
     }
 
-    private void consume(MessageContext context) {
-        if (context != null) {
-            sedaQueueConsumer.consume(context);
+    /**
+     * Take the next messages off the queue as per the consumer policy
+     *
+     * @param batch list to add the messages to
+     * @return number of messages taken, 0 if no message arrived within the poll timeout
+     * @throws InterruptedException if the stage is being destroyed
+     */
+    private int take(List<MessageContext> batch) throws InterruptedException {
+        String action = queueConsumerPolicy.getAction();
+        if (SEDAQueueConsumerPolicy.TAKE.equals(action)) {
+            batch.add(queue.take());
+            return 1;
         }
+
+        long timeout = queueConsumerPolicy.getTimeoutOnPoll();
+        if (timeout < 0) {
+            timeout = sedaQueue.getQueuePolicy().getWorkerKeepAlive();
+        }
+        MessageContext first = queue.poll(timeout, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return 0;
+        }
+        batch.add(first);
+
+        if (SEDAQueueConsumerPolicy.DRAIN.equals(action)) {
+            int maxElements = queueConsumerPolicy.getMaxElementsOnPoll();
+            if (maxElements > 1) {
+                queue.drainTo(batch, maxElements - 1);
+            }
+        } else if (SEDAQueueConsumerPolicy.DRAINALL.equals(action)) {
+            queue.drainTo(batch);
+        }
+        return batch.size();
     }
 
-    private void consume(Collection<MessageContext> contexts) {
+    private void consume(List<MessageContext> contexts) {
+        SEDAQueueView view = sedaQueue.getView();
+        view.batchTaken();
         for (MessageContext context : contexts) {
-            consume(context);
+            long start = System.nanoTime();
+            Object enqueueTime = context.getProperty(SEDAQueue.ENQUEUE_TIME);
+            long queueTime = enqueueTime instanceof Long ? start - (Long) enqueueTime : 0;
+            context.getPropertyKeySet().remove(SEDAQueue.ENQUEUE_TIME);
+
+            boolean success = false;
+            try {
+                sedaQueueConsumer.consume(context);
+                success = true;
+            } catch (RuntimeException e) {
+                log.error("Error while processing a message in the SEDA stage : "
+                        + sedaQueue.getName(), e);
+            } finally {
+                view.messageProcessed(queueTime, System.nanoTime() - start, success);
+            }
         }
     }
 }
@@ -35,4 +35,8 @@ public class SEDAQueueConsumerWorkerFactory {
     public SEDAQueueConsumerWorker createSEDAQueueConsumerWorker(SEDAQueue sedaQueue) {
         return new SEDAQueueConsumerWorker(sedaQueue, queueConsumerPolicy, sedaQueueConsumer);
     }
+
+    public SEDAQueueConsumerPolicy getQueueConsumerPolicy() {
+        return queueConsumerPolicy;
+    }
 }
@@ -22,7 +22,12 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- *
+ * Describes the queue of a SEDA stage and the pool of consumer threads draining it. The stage
+ * starts with <code>queueWorkers</code> consumers and adds more, up to
+ * <code>maxQueueWorkers</code>, while the queue is deeper than the consumers can drain in one
+ * batch each or while messages wait longer than <code>targetLatency</code> milliseconds.
+ * Consumers idle for <code>workerKeepAlive</code> milliseconds stop, down to
+ * <code>queueWorkers</code>.
  */
 
 public class SEDAQueuePolicy {
@@ -30,8 +35,13 @@ public class SEDAQueuePolicy {
     public static final String QUEUE_TYPE_LINKED_BLOCKING = "LinkedBlocking";
     public static final String QUEUE_TYPE_PRIORITY_BLOCKING = "PriorityBlocking";
     public static final String QUEUE_TYPE_SYNCHRONOUS = "Synchronous";
+    public static final String QUEUE_TYPE_RING_BUFFER = "RingBuffer";
     private int queueSize = 100;
-    private int queueWorkers;
+    private int queueWorkers = 1;
+    private int maxQueueWorkers = 10;
+    private long workerKeepAlive = 60000;
+    private long targetLatency = 0;
+    private long scaleInterval = 1000;
     private String queueType = QUEUE_TYPE_LINKED_BLOCKING;
     private final Map<String, String> properties = new HashMap<String, String>();
 
@@ -51,6 +61,38 @@ public class SEDAQueuePolicy {
         this.queueWorkers = queueWorkers;
     }
 
+    public int getMaxQueueWorkers() {
+        return maxQueueWorkers;
+    }
+
+    public void setMaxQueueWorkers(int maxQueueWorkers) {
+        this.maxQueueWorkers = maxQueueWorkers;
+    }
+
+    public long getWorkerKeepAlive() {
+        return workerKeepAlive;
+    }
+
+    public void setWorkerKeepAlive(long workerKeepAlive) {
+        this.workerKeepAlive = workerKeepAlive;
+    }
+
+    public long getTargetLatency() {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(long targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public long getScaleInterval() {
+        return scaleInterval;
+    }
+
+    public void setScaleInterval(long scaleInterval) {
+        this.scaleInterval = scaleInterval;
+    }
+
     public String getQueueType() {
         return queueType;
     }
@@ -26,7 +26,8 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
- *
+ * Puts messages on the queue of a SEDA stage as per the producer policy. Messages the queue
+ * does not accept are counted as rejected by the stage.
  */
 public class SEDAQueueProducer {
 
@@ -41,19 +42,33 @@ public class SEDAQueueProducer {
         this.queue = sedaQueue.getQueue();
     }
 
-    public void produce(MessageContext messageContext) {
+    /**
+     * Put a message on the queue
+     *
+     * @param messageContext message to be processed by the stage
+     * @return true if the queue accepted the message
+     */
+    public boolean produce(MessageContext messageContext) {
+        messageContext.setProperty(SEDAQueue.ENQUEUE_TIME, System.nanoTime());
+        boolean accepted = false;
         String action = queueProducerPolicy.getAction();
         if (SEDAQueueProducerPolicy.ADD.equals(action)) {
-            queue.add(messageContext);
+            try {
+                accepted = queue.add(messageContext);
+            } finally {
+                record(messageContext, accepted);
+            }
+            return accepted;
         } else if (SEDAQueueProducerPolicy.OFFER.equals(action)) {
             long timeout = queueProducerPolicy.getTimeoutOnInsert();
             if (timeout < 0) {
-                if (!queue.offer(messageContext)) {
+                accepted = queue.offer(messageContext);
+                if (!accepted) {
                     log.warn("Error while offering the message to the queue");    
                 }
             } else {
                 try {
-                    queue.offer(messageContext, timeout, TimeUnit.MILLISECONDS);
+                    accepted = queue.offer(messageContext, timeout, TimeUnit.MILLISECONDS);
                 } catch (InterruptedException e) {
                     log.debug("Ignored InterruptedException when ocuured calling queue.offer");
                 }
@@ -61,9 +76,21 @@ public class SEDAQueueProducer {
         } else if (SEDAQueueProducerPolicy.PUT.equals(action)) {
             try {
                 queue.put(messageContext);
+                accepted = true;
             } catch (InterruptedException e) {
                 log.debug("Ignored InterruptedException when ocuured calling queue.put");
             }
         }
+        record(messageContext, accepted);
+        return accepted;
+    }
+
+    private void record(MessageContext messageContext, boolean accepted) {
+        if (accepted) {
+            sedaQueue.getView().messageEnqueued();
+        } else {
+            messageContext.getPropertyKeySet().remove(SEDAQueue.ENQUEUE_TIME);
+            sedaQueue.getView().messageRejected();
+        }
     }
 }
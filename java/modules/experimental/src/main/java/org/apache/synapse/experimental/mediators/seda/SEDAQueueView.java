@@ -0,0 +1,159 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.experimental.mediators.seda;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SEDAQueueView MBean can be used to monitor a SEDA stage. It gives the depth of the queue,
+ * the number of consumers, the number of messages accepted, rejected and processed by the
+ * stage, and the average and maximum time (in milliseconds) messages spent in the queue and
+ * in the consumer.
+ */
+public class SEDAQueueView implements SEDAQueueViewMBean {
+
+    private final SEDAQueue sedaQueue;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalServiceTime = new AtomicLong();
+    private final AtomicLong maxServiceTime = new AtomicLong();
+    private final AtomicLong totalQueueTime = new AtomicLong();
+    private final AtomicLong maxQueueTime = new AtomicLong();
+
+    public SEDAQueueView(SEDAQueue sedaQueue) {
+        this.sedaQueue = sedaQueue;
+    }
+
+    void messageEnqueued() {
+        enqueued.incrementAndGet();
+    }
+
+    void messageRejected() {
+        rejected.incrementAndGet();
+    }
+
+    void batchTaken() {
+        batches.incrementAndGet();
+    }
+
+    /**
+     * Record that a consumer has processed a message
+     *
+     * @param queueNanos   time the message waited in the queue, in nanoseconds
+     * @param serviceNanos time the consumer took to process the message, in nanoseconds
+     * @param success      false if the consumer failed to process the message
+     */
+    void messageProcessed(long queueNanos, long serviceNanos, boolean success) {
+        processed.incrementAndGet();
+        if (!success) {
+            failed.incrementAndGet();
+        }
+        totalQueueTime.addAndGet(queueNanos);
+        updateMax(maxQueueTime, queueNanos);
+        totalServiceTime.addAndGet(serviceNanos);
+        updateMax(maxServiceTime, serviceNanos);
+    }
+
+    long getTotalQueueTime() {
+        return totalQueueTime.get();
+    }
+
+    public int getQueueDepth() {
+        return sedaQueue.getQueue().size();
+    }
+
+    public int getRemainingCapacity() {
+        return sedaQueue.getQueue().remainingCapacity();
+    }
+
+    public int getConsumerCount() {
+        return sedaQueue.getConsumerCount();
+    }
+
+    public int getMinConsumers() {
+        return sedaQueue.getQueuePolicy().getQueueWorkers();
+    }
+
+    public int getMaxConsumers() {
+        return sedaQueue.getQueuePolicy().getMaxQueueWorkers();
+    }
+
+    public long getEnqueuedMessages() {
+        return enqueued.get();
+    }
+
+    public long getRejectedMessages() {
+        return rejected.get();
+    }
+
+    public long getProcessedMessages() {
+        return processed.get();
+    }
+
+    public long getFailedMessages() {
+        return failed.get();
+    }
+
+    public double getAverageBatchSize() {
+        long count = batches.get();
+        return count == 0 ? 0.0 : (double) processed.get() / count;
+    }
+
+    public double getAverageServiceTime() {
+        long count = processed.get();
+        return count == 0 ? 0.0 : totalServiceTime.get() / (count * 1000000.0);
+    }
+
+    public double getMaxServiceTime() {
+        return maxServiceTime.get() / 1000000.0;
+    }
+
+    public double getAverageQueueTime() {
+        long count = processed.get();
+        return count == 0 ? 0.0 : totalQueueTime.get() / (count * 1000000.0);
+    }
+
+    public double getMaxQueueTime() {
+        return maxQueueTime.get() / 1000000.0;
+    }
+
+    public void reset() {
+        enqueued.set(0);
+        rejected.set(0);
+        processed.set(0);
+        failed.set(0);
+        batches.set(0);
+        totalServiceTime.set(0);
+        maxServiceTime.set(0);
+        totalQueueTime.set(0);
+        maxQueueTime.set(0);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.experimental.mediators.seda;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RingBufferQueueTest extends TestCase {
+
+    public void testOfferAndPoll() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(3);
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        // go around the buffer a few times
+        for (int round = 0; round < 5; round++) {
+            assertTrue(queue.offer(1));
+            assertTrue(queue.offer(2));
+            assertTrue(queue.offer(3));
+            assertFalse(queue.offer(4));
+            assertEquals(3, queue.size());
+            assertEquals(0, queue.remainingCapacity());
+            assertEquals(1, queue.peek().intValue());
+
+            assertEquals(1, queue.poll().intValue());
+            assertTrue(queue.offer(4));
+            assertEquals(2, queue.poll().intValue());
+            assertEquals(3, queue.poll().intValue());
+            assertEquals(4, queue.poll().intValue());
+            assertNull(queue.poll());
+            assertEquals(0, queue.size());
+        }
+    }
+
+    public void testDrainTo() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(10);
+        for (int i = 0; i < 7; i++) {
+            queue.offer(i);
+        }
+
+        List<Integer> drained = new ArrayList<Integer>();
+        assertEquals(5, queue.drainTo(drained, 5));
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals(7, drained.size());
+        for (int i = 0; i < 7; i++) {
+            assertEquals(i, drained.get(i).intValue());
+        }
+    }
+
+    public void testBlockingOperations() throws Exception {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(1);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+
+        queue.put(1);
+        assertFalse(queue.offer(2, 10, TimeUnit.MILLISECONDS));
+
+        Thread consumer = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    queue.take();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        };
+        consumer.start();
+        // blocks until the consumer frees the slot
+        queue.put(2);
+        consumer.join();
+        assertEquals(2, queue.take().intValue());
+    }
+
+    public void testConcurrentProducersAndConsumers() throws Exception {
+        final RingBufferQueue<Long> queue = new RingBufferQueue<Long>(16);
+        final int threads = 4;
+        final int perThread = 10000;
+        final AtomicLong sum = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(threads * 2);
+
+        for (int t = 0; t < threads; t++) {
+            final long base = t * perThread;
+            new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 1; i <= perThread; i++) {
+                            queue.put(base + i);
+                        }
+                    } catch (InterruptedException ignore) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+            new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < perThread; i++) {
+                            sum.addAndGet(queue.take());
+                        }
+                    } catch (InterruptedException ignore) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long n = (long) threads * perThread;
+        assertEquals(n * (n + 1) / 2, sum.get());
+        assertEquals(0, queue.size());
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.experimental.mediators.seda;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class SEDAQueueTest extends TestCase {
+
+    private SEDAQueue sedaQueue;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (sedaQueue != null) {
+            sedaQueue.destroy();
+        }
+        super.tearDown();
+    }
+
+    public void testBatchedConsumers() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(50);
+        SEDAQueuePolicy queuePolicy = new SEDAQueuePolicy();
+        queuePolicy.setQueueType(SEDAQueuePolicy.QUEUE_TYPE_RING_BUFFER);
+        queuePolicy.setMaxQueueWorkers(1);
+        SEDAQueueConsumerPolicy consumerPolicy = new SEDAQueueConsumerPolicy();
+        consumerPolicy.setMaxElementsOnPoll(10);
+
+        SEDAQueueProducer producer = createStage(queuePolicy, consumerPolicy, latch, 0);
+        // queue the messages before the consumer starts, so it drains them in batches
+        for (int i = 0; i < 50; i++) {
+            assertTrue(producer.produce(createMessageContext()));
+        }
+        sedaQueue.init();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        SEDAQueueView view = sedaQueue.getView();
+        waitFor(view, 50);
+        assertEquals(50, view.getEnqueuedMessages());
+        assertEquals(0, view.getFailedMessages());
+        assertEquals(10.0, view.getAverageBatchSize(), 0.001);
+        assertEquals(1, view.getConsumerCount());
+    }
+
+    public void testRejection() throws Exception {
+        SEDAQueuePolicy queuePolicy = new SEDAQueuePolicy();
+        queuePolicy.setQueueType(SEDAQueuePolicy.QUEUE_TYPE_RING_BUFFER);
+        queuePolicy.setQueueSize(2);
+
+        SEDAQueueProducer producer = createStage(queuePolicy, new SEDAQueueConsumerPolicy(),
+                new CountDownLatch(0), 0);
+        assertTrue(producer.produce(createMessageContext()));
+        assertTrue(producer.produce(createMessageContext()));
+        assertFalse(producer.produce(createMessageContext()));
+        assertEquals(2, sedaQueue.getView().getEnqueuedMessages());
+        assertEquals(1, sedaQueue.getView().getRejectedMessages());
+        assertEquals(2, sedaQueue.getView().getQueueDepth());
+    }
+
+    public void testConsumersScaleWithDepth() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(40);
+        SEDAQueuePolicy queuePolicy = new SEDAQueuePolicy();
+        queuePolicy.setQueueWorkers(1);
+        queuePolicy.setMaxQueueWorkers(4);
+        queuePolicy.setScaleInterval(20);
+        queuePolicy.setWorkerKeepAlive(100);
+        SEDAQueueConsumerPolicy consumerPolicy = new SEDAQueueConsumerPolicy();
+        consumerPolicy.setMaxElementsOnPoll(2);
+        consumerPolicy.setTimeoutOnPoll(20);
+
+        SEDAQueueProducer producer = createStage(queuePolicy, consumerPolicy, latch, 20);
+        sedaQueue.init();
+        assertEquals(1, sedaQueue.getConsumerCount());
+        for (int i = 0; i < 40; i++) {
+            assertTrue(producer.produce(createMessageContext()));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sedaQueue.getConsumerCount() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(4, sedaQueue.getConsumerCount());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        // idle consumers retire down to the minimum
+        deadline = System.currentTimeMillis() + 5000;
+        while (sedaQueue.getConsumerCount() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, sedaQueue.getConsumerCount());
+    }
+
+    private SEDAQueueProducer createStage(SEDAQueuePolicy queuePolicy,
+                                          SEDAQueueConsumerPolicy consumerPolicy,
+                                          final CountDownLatch latch,
+                                          final long serviceTime) {
+        SEDAQueueConsumer consumer = new SEDAQueueConsumer() {
+            public void consume(MessageContext messageContext) {
+                if (serviceTime > 0) {
+                    try {
+                        Thread.sleep(serviceTime);
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+                latch.countDown();
+            }
+        };
+        sedaQueue = new SEDAQueue("test", queuePolicy,
+                new SEDAQueueConsumerWorkerFactory(consumerPolicy, consumer));
+        return new SEDAQueueProducer(new SEDAQueueProducerPolicy(), sedaQueue);
+    }
+
+    private void waitFor(SEDAQueueView view, long processed) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (view.getProcessedMessages() < processed && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(processed, view.getProcessedMessages());
+    }
+
+    private MessageContext createMessageContext() {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        return (MessageContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{MessageContext.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("getProperty".equals(name)) {
+                    return properties.get((String) args[0]);
+                } else if ("setProperty".equals(name)) {
+                    properties.put((String) args[0], args[1]);
+                } else if ("getPropertyKeySet".equals(name)) {
+                    return properties.keySet();
+                }
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bsf;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of script engines owned by a single script mediator. Most script engines
+ * (Rhino in particular) cannot evaluate scripts concurrently, so instead of serializing all
+ * invocations on one engine, each concurrent invocation borrows its own engine. Engines are
+ * created lazily up to the maximum size; once all of them are in use, callers wait for one to
+ * be released.
+ */
+class ScriptEnginePool {
+
+    /**
+     * Creates and prepares the engines of a pool
+     */
+    interface EngineFactory {
+
+        ScriptEngineWrapper createEngine();
+    }
+
+    private final BlockingQueue<ScriptEngineWrapper> idle =
+            new LinkedBlockingQueue<ScriptEngineWrapper>();
+
+    private final EngineFactory factory;
+
+    private final int maxSize;
+
+    private final AtomicInteger created = new AtomicInteger(0);
+    private final AtomicInteger active = new AtomicInteger(0);
+
+    private final AtomicLong borrowCount = new AtomicLong(0);
+    private final AtomicLong waitCount = new AtomicLong(0);
+    private final AtomicLong totalWaitTime = new AtomicLong(0);
+    private final AtomicLong maxWaitTime = new AtomicLong(0);
+
+    ScriptEnginePool(EngineFactory factory, int maxSize) {
+        this.factory = factory;
+        this.maxSize = maxSize > 0 ? maxSize : 1;
+    }
+
+    /**
+     * Takes an engine from the pool, creating one if the pool has not reached its maximum
+     * size, or waiting for one to be released otherwise. The engine must be handed back
+     * with {@link #release(ScriptEngineWrapper)}.
+     *
+     * @return a script engine for the exclusive use of the caller
+     * @throws InterruptedException if interrupted while waiting for an engine
+     */
+    ScriptEngineWrapper borrow() throws InterruptedException {
+        ScriptEngineWrapper engine = idle.poll();
+        if (engine == null) {
+            if (created.incrementAndGet() <= maxSize) {
+                try {
+                    engine = factory.createEngine();
+                } catch (RuntimeException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            } else {
+                created.decrementAndGet();
+                long start = System.nanoTime();
+                engine = idle.take();
+                recordWait((System.nanoTime() - start) / 1000000);
+            }
+        }
+
+        borrowCount.incrementAndGet();
+        active.incrementAndGet();
+        return engine;
+    }
+
+    void release(ScriptEngineWrapper engine) {
+        active.decrementAndGet();
+        idle.offer(engine);
+    }
+
+    private void recordWait(long waitTime) {
+        waitCount.incrementAndGet();
+        totalWaitTime.addAndGet(waitTime);
+        long max;
+        while (waitTime > (max = maxWaitTime.get())) {
+            if (maxWaitTime.compareAndSet(max, waitTime)) {
+                break;
+            }
+        }
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    int getCreatedCount() {
+        return created.get();
+    }
+
+    int getActiveCount() {
+        return active.get();
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    long getWaitCount() {
+        return waitCount.get();
+    }
+
+    long getTotalWaitTime() {
+        return totalWaitTime.get();
+    }
+
+    long getMaxWaitTime() {
+        return maxWaitTime.get();
+    }
+
+    void resetStatistics() {
+        borrowCount.set(0);
+        waitCount.set(0);
+        totalWaitTime.set(0);
+        maxWaitTime.set(0);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bsf;
+
+/**
+ * Exposes the usage of the script engine pool of a script mediator. Wait times are
+ * measured in milliseconds, and only count invocations which had to wait for an engine.
+ */
+public class ScriptEnginePoolView implements ScriptEnginePoolViewMBean {
+
+    private final ScriptEnginePool pool;
+
+    private final String language;
+
+    ScriptEnginePoolView(ScriptEnginePool pool, String language) {
+        this.pool = pool;
+        this.language = language;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public int getMaxSize() {
+        return pool.getMaxSize();
+    }
+
+    public int getCreatedCount() {
+        return pool.getCreatedCount();
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    public int getIdleCount() {
+        return pool.getIdleCount();
+    }
+
+    public double getUtilization() {
+        return (double) pool.getActiveCount() / pool.getMaxSize();
+    }
+
+    public long getBorrowCount() {
+        return pool.getBorrowCount();
+    }
+
+    public long getWaitCount() {
+        return pool.getWaitCount();
+    }
+
+    public long getTotalWaitTime() {
+        return pool.getTotalWaitTime();
+    }
+
+    public double getAverageWaitTime() {
+        long waits = pool.getWaitCount();
+        return waits == 0 ? 0 : (double) pool.getTotalWaitTime() / waits;
+    }
+
+    public long getMaxWaitTime() {
+        return pool.getMaxWaitTime();
+    }
+
+    public void resetStatistics() {
+        pool.resetStatistics();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bsf;
+
+import org.apache.bsf.xml.XMLHelper;
+
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+
+/**
+ * A script engine held by a {@link ScriptEnginePool}, together with the state prepared on it
+ * for a script mediator. An instance is only ever used by one thread at a time.
+ */
+class ScriptEngineWrapper {
+
+    private final ScriptEngine engine;
+
+    private final XMLHelper xmlHelper;
+
+    /** The compiled inline script, if the engine supports compilation */
+    private CompiledScript compiledScript;
+
+    /** Version of the external script and includes evaluated on this engine */
+    private long version = -1;
+
+    ScriptEngineWrapper(ScriptEngine engine, XMLHelper xmlHelper) {
+        this.engine = engine;
+        this.xmlHelper = xmlHelper;
+    }
+
+    ScriptEngine getEngine() {
+        return engine;
+    }
+
+    XMLHelper getXmlHelper() {
+        return xmlHelper;
+    }
+
+    CompiledScript getCompiledScript() {
+        return compiledScript;
+    }
+
+    void setCompiledScript(CompiledScript compiledScript) {
+        this.compiledScript = compiledScript;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+}
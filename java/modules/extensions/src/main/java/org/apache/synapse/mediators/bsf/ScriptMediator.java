@@ -25,10 +25,14 @@ import com.sun.script.jruby.JRubyScriptEngineFactory;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMText;
 import org.apache.bsf.xml.XMLHelper;
+import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.config.Entry;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.mediators.Value;
 import org.mozilla.javascript.Context;
@@ -38,6 +42,8 @@ import javax.script.*;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -57,8 +63,14 @@ import java.util.TreeMap;
  * if not specified it defaults to a function named 'mediate'. The function takes a single
  * parameter which is the Synapse MessageContext. The function may return a boolean, if it
  * does not then true is assumed.
+ * <p/>
+ * Each mediator keeps a bounded pool of script engines, so that concurrent messages are run on
+ * separate engines instead of being serialized on a single one. The size of the pool is set by
+ * the synapse.script.engine.pool.size property. Inline scripts are compiled once per engine.
+ * Scripts loaded from the registry are versioned; when a dynamic entry is reloaded, every
+ * engine re-evaluates the new version the next time it is used.
  */
-public class ScriptMediator extends AbstractMediator {
+public class ScriptMediator extends AbstractMediator implements ManagedLifecycle {
 
     /**
      * The name of the variable made available to the scripting language to access the message
@@ -70,6 +82,18 @@ public class ScriptMediator extends AbstractMediator {
      */
     private static final String JAVA_SCRIPT = "js";
 
+    /**
+     * Synapse property defining the maximum number of script engines per mediator
+     */
+    public static final String SCRIPT_ENGINE_POOL_SIZE = "synapse.script.engine.pool.size";
+
+    private static final String DEFAULT_SCRIPT_ENGINE_POOL_SIZE = "10";
+
+    /**
+     * MBean category of the script engine pools
+     */
+    private static final String MBEAN_CATEGORY = "ScriptEnginePool";
+
     /**
      * The registry entry key for a script loaded from the registry
      * Handle both static and dynamic(Xpath) Keys
@@ -90,28 +114,15 @@ public class ScriptMediator extends AbstractMediator {
     /**
      * The source code of the script
      */
-    private String scriptSourceCode;
-    /**
-     * The BSF engine created to process each message through the script
-     */
-    protected ScriptEngine scriptEngine;
+    private volatile String scriptSourceCode;
     /**
-     * Does the ScriptEngine support multi-threading
+     * The external script and includes currently in use. Only used for external scripts
      */
-    private boolean multiThreadedEngine;
+    private volatile ScriptSources scriptSources;
     /**
-     * The compiled script. Only used for inline scripts
+     * The pool of script engines used to process the messages through the script
      */
-    private CompiledScript compiledScript;
-    /**
-     * The Invokable script. Only used for external scripts
-     */
-    private Invocable invocableScript;
-    /**
-     * The BSF helper to convert between the XML representations used by Java
-     * and the scripting language
-     */
-    private XMLHelper xmlHelper;
+    private ScriptEnginePool enginePool;
 
     /**
      * Lock used to ensure thread-safe lookup of the object from the registry
@@ -123,6 +134,11 @@ public class ScriptMediator extends AbstractMediator {
      */
     private ClassLoader loader;
 
+    /**
+     * Name under which the engine pool of this mediator is registered with JMX
+     */
+    private String mbeanId;
+
     /**
      * Create a script mediator for the given language and given script source
      *
@@ -154,12 +170,16 @@ public class ScriptMediator extends AbstractMediator {
         if (function != null) {
             this.function = function;
         }
-        initScriptEngine();
-        if (!(scriptEngine instanceof Invocable)) {
-            throw new SynapseException("Script engine is not an Invocable" +
-                    " engine for language: " + language);
+        initEnginePool();
+        ScriptEngineWrapper engine = borrowEngine(null);
+        try {
+            if (!(engine.getEngine() instanceof Invocable)) {
+                throw new SynapseException("Script engine is not an Invocable" +
+                        " engine for language: " + language);
+            }
+        } finally {
+            enginePool.release(engine);
         }
-        invocableScript = (Invocable) scriptEngine;
     }
 
     /**
@@ -187,13 +207,11 @@ public class ScriptMediator extends AbstractMediator {
         }
 
         boolean returnValue;
-        if (multiThreadedEngine) {
-            returnValue = invokeScript(synCtx);
-        } else {
-            // TODO: change to use a pool of script engines (requires an update to BSF)
-            synchronized (scriptEngine.getClass()) {
-                returnValue = invokeScript(synCtx);
-            }
+        ScriptEngineWrapper engine = borrowEngine(synCtx);
+        try {
+            returnValue = invokeScript(synCtx, engine);
+        } finally {
+            enginePool.release(engine);
         }
 
         if (synLog.isTraceTraceEnabled()) {
@@ -207,7 +225,20 @@ public class ScriptMediator extends AbstractMediator {
         return returnValue;
     }
 
-    private boolean invokeScript(MessageContext synCtx) {
+    private ScriptEngineWrapper borrowEngine(MessageContext synCtx) {
+        try {
+            return enginePool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            String msg = "Interrupted while waiting for a " + language + " script engine";
+            if (synCtx != null) {
+                handleException(msg, e, synCtx);
+            }
+            throw new SynapseException(msg, e);
+        }
+    }
+
+    private boolean invokeScript(MessageContext synCtx, ScriptEngineWrapper engine) {
         boolean returnValue;
         try {
 
@@ -219,9 +250,9 @@ public class ScriptMediator extends AbstractMediator {
 
             Object returnObject;
             if (key != null) {
-                returnObject = mediateWithExternalScript(synCtx);
+                returnObject = mediateWithExternalScript(synCtx, engine);
             } else {
-                returnObject = mediateForInlineScript(synCtx);
+                returnObject = mediateForInlineScript(synCtx, engine);
             }
             returnValue = !(returnObject != null && returnObject instanceof Boolean)
                     || (Boolean) returnObject;
@@ -250,36 +281,51 @@ public class ScriptMediator extends AbstractMediator {
      * Mediation implementation when the script to be executed should be loaded from the registry
      *
      * @param synCtx the message context
+     * @param engine the script engine borrowed for this invocation
      * @return script result
      * @throws ScriptException       For any errors , when compile, run the script
      * @throws NoSuchMethodException If the function is not defined in the script
      */
-    private Object mediateWithExternalScript(MessageContext synCtx)
+    private Object mediateWithExternalScript(MessageContext synCtx, ScriptEngineWrapper engine)
             throws ScriptException, NoSuchMethodException {
-        prepareExternalScript(synCtx);
-        ScriptMessageContext scriptMC = new ScriptMessageContext(synCtx, xmlHelper);
-        return invocableScript.invokeFunction(function, new Object[]{scriptMC});        
+        ScriptSources sources = prepareExternalScript(synCtx);
+
+        // bring the engine up to date with the latest version of the script and includes
+        if (engine.getVersion() != sources.version) {
+            if (sources.script != null) {
+                engine.getEngine().eval(sources.script);
+            }
+            for (String include : sources.includes) {
+                engine.getEngine().eval(include);
+            }
+            engine.setVersion(sources.version);
+        }
+
+        ScriptMessageContext scriptMC = new ScriptMessageContext(synCtx, engine.getXmlHelper());
+        return ((Invocable) engine.getEngine()).invokeFunction(function, new Object[]{scriptMC});
     }
 
     /**
      * Perform mediation with static inline script of the given scripting language
      *
      * @param synCtx message context
+     * @param engine the script engine borrowed for this invocation
      * @return true, or the script return value
      * @throws ScriptException For any errors , when compile , run the script
      */
-    private Object mediateForInlineScript(MessageContext synCtx) throws ScriptException {
+    private Object mediateForInlineScript(MessageContext synCtx, ScriptEngineWrapper engine)
+            throws ScriptException {
 
-        ScriptMessageContext scriptMC = new ScriptMessageContext(synCtx, xmlHelper);
+        ScriptMessageContext scriptMC = new ScriptMessageContext(synCtx, engine.getXmlHelper());
 
-        Bindings bindings = scriptEngine.createBindings();
+        Bindings bindings = engine.getEngine().createBindings();
         bindings.put(MC_VAR_NAME, scriptMC);
 
         Object response;
-        if (compiledScript != null) {
-            response = compiledScript.eval(bindings);
+        if (engine.getCompiledScript() != null) {
+            response = engine.getCompiledScript().eval(bindings);
         } else {
-            response = scriptEngine.eval(scriptSourceCode, bindings);
+            response = engine.getEngine().eval(scriptSourceCode, bindings);
         }
 
         return response;
@@ -287,18 +333,37 @@ public class ScriptMediator extends AbstractMediator {
     }
 
     /**
-     * Initialise the Mediator for the inline script
+     * Initialise the Mediator for the inline script. The script is compiled right away, so that
+     * errors in the script are reported when the mediator is created.
      */
     protected void initInlineScript() {
-        try {
-            initScriptEngine();
+        initEnginePool();
+        enginePool.release(borrowEngine(null));
+    }
+
+    private void initEnginePool() {
+        int poolSize = Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                SCRIPT_ENGINE_POOL_SIZE, DEFAULT_SCRIPT_ENGINE_POOL_SIZE));
+        enginePool = new ScriptEnginePool(new ScriptEnginePool.EngineFactory() {
+            public ScriptEngineWrapper createEngine() {
+                ScriptEngineWrapper engine = createScriptEngine();
+                if (key == null) {
+                    compileInlineScript(engine);
+                }
+                return engine;
+            }
+        }, poolSize);
+    }
 
-            if (scriptEngine instanceof Compilable) {
+    private void compileInlineScript(ScriptEngineWrapper engine) {
+        try {
+            if (engine.getEngine() instanceof Compilable) {
                 if (log.isDebugEnabled()) {
                     log.debug("Script engine supports Compilable interface, " +
                             "compiling script code..");
                 }
-                compiledScript = ((Compilable) scriptEngine).compile(scriptSourceCode);
+                engine.setCompiledScript(
+                        ((Compilable) engine.getEngine()).compile(scriptSourceCode));
             } else {
                 // do nothing. If the script engine doesn't support Compilable then
                 // the inline script will be evaluated on each invocation
@@ -314,114 +379,120 @@ public class ScriptMediator extends AbstractMediator {
     }
 
     /**
-     * Prepares the mediator for the invocation of an external script
+     * Prepares the mediator for the invocation of an external script. The script and its
+     * includes are (re)loaded from the registry when they have not been loaded yet, when a
+     * dynamic entry has expired, or when the script key resolves to a different entry. Each
+     * load produces a new version of the sources, which the engines pick up lazily.
      *
      * @param synCtx MessageContext script
-     * @throws ScriptException For any errors , when compile the script
+     * @return the current version of the script and its includes
      */
-    protected synchronized void prepareExternalScript(MessageContext synCtx)
-            throws ScriptException {
-
-        // TODO: only need this synchronized method for dynamic registry entries. If there was a way
-        // to access the registry entry during mediator initialization then for non-dynamic entries
-        // this could be done just the once during mediator initialization.
+    private ScriptSources prepareExternalScript(MessageContext synCtx) {
 
         // Derive actual key from xpath expression or get static key
         String generatedScriptKey = key.evaluateValue(synCtx);
-        Entry entry = synCtx.getConfiguration().getEntryDefinition(generatedScriptKey);
-        boolean needsReload = (entry != null) && entry.isDynamic() &&
-                (!entry.isCached() || entry.isExpired());
-        synchronized (resourceLock) {
-            if (scriptSourceCode == null || needsReload) {
-                Object o = synCtx.getEntry(generatedScriptKey);
-                if (o instanceof OMElement) {
-                    scriptSourceCode = ((OMElement) (o)).getText();
-                    scriptEngine.eval(scriptSourceCode);
-                } else if (o instanceof String) {
-                    scriptSourceCode = (String) o;
-                    scriptEngine.eval(scriptSourceCode);
-                } else if (o instanceof OMText) {
-
-                    DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
-                    if (dataHandler != null) {
-                        BufferedReader reader = null;
-                        try {
-                            reader = new BufferedReader(
-                                    new InputStreamReader(dataHandler.getInputStream()));
-                            scriptEngine.eval(reader);
 
-                        } catch (IOException e) {
-                            handleException("Error in reading script as a stream ", e, synCtx);
-                        } finally {
+        ScriptSources sources = scriptSources;
+        if (sources != null && generatedScriptKey.equals(sources.key) &&
+                !needsReload(synCtx, generatedScriptKey) && !includesNeedReload(synCtx)) {
+            return sources;
+        }
 
-                            if (reader != null) {
-                                try {
-                                    reader.close();
-                                } catch (IOException e) {
-                                    handleException("Error in closing input stream ", e, synCtx);
-                                }
-                            }
+        synchronized (resourceLock) {
+            sources = scriptSources;
+            if (sources == null || !generatedScriptKey.equals(sources.key) ||
+                    needsReload(synCtx, generatedScriptKey) || includesNeedReload(synCtx)) {
 
-                        }
+                String script = loadScript(synCtx, generatedScriptKey);
+
+                // load <include /> scripts
+                List<String> includeSources = new ArrayList<String>();
+                for (Value includeKey : includes.keySet()) {
+                    log.debug("Re-/Loading the include script with key " + includeKey);
+                    String includeSource = loadScript(synCtx, includeKey.evaluateValue(synCtx));
+                    if (includeSource != null) {
+                        includeSources.add(includeSource);
                     }
                 }
 
+                long version = sources == null ? 0 : sources.version + 1;
+                sources = new ScriptSources(generatedScriptKey, script, includeSources, version);
+                scriptSourceCode = script;
+                scriptSources = sources;
             }
         }
+        return sources;
+    }
 
-        // load <include /> scripts; reload each script if needed
+    private boolean needsReload(MessageContext synCtx, String entryKey) {
+        Entry entry = synCtx.getConfiguration().getEntryDefinition(entryKey);
+        return (entry != null) && entry.isDynamic() && (!entry.isCached() || entry.isExpired());
+    }
+
+    private boolean includesNeedReload(MessageContext synCtx) {
         for (Value includeKey : includes.keySet()) {
+            if (needsReload(synCtx, includeKey.evaluateValue(synCtx))) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            String includeSourceCode = (String) includes.get(includeKey);
+    /**
+     * Reads the source of a script from the given entry
+     *
+     * @param synCtx the message context
+     * @param entryKey the key of the entry holding the script
+     * @return the script source, or null if the entry does not hold a script
+     */
+    private String loadScript(MessageContext synCtx, String entryKey) {
+        Object o = synCtx.getEntry(entryKey);
+        if (o instanceof OMElement) {
+            return ((OMElement) (o)).getText();
+        } else if (o instanceof String) {
+            return (String) o;
+        } else if (o instanceof OMText) {
+
+            DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
+            if (dataHandler != null) {
+                BufferedReader reader = null;
+                try {
+                    reader = new BufferedReader(
+                            new InputStreamReader(dataHandler.getInputStream()));
+                    StringBuilder script = new StringBuilder();
+                    char[] buffer = new char[4096];
+                    int read;
+                    while ((read = reader.read(buffer)) != -1) {
+                        script.append(buffer, 0, read);
+                    }
+                    return script.toString();
 
-            String generatedKey = includeKey.evaluateValue(synCtx);
+                } catch (IOException e) {
+                    handleException("Error in reading script as a stream ", e, synCtx);
+                } finally {
 
-            Entry includeEntry = synCtx.getConfiguration().getEntryDefinition(generatedKey);
-            boolean includeEntryNeedsReload = (includeEntry != null) && includeEntry.isDynamic()
-                    && (!includeEntry.isCached() || includeEntry.isExpired());
-            synchronized (resourceLock) {
-                if (includeSourceCode == null || includeEntryNeedsReload) {
-                    log.debug("Re-/Loading the include script with key " + includeKey);
-                    Object o = synCtx.getEntry(generatedKey);
-                    if (o instanceof OMElement) {
-                        includeSourceCode = ((OMElement) (o)).getText();
-                        scriptEngine.eval(includeSourceCode);
-                    } else if (o instanceof String) {
-                        includeSourceCode = (String) o;
-                        scriptEngine.eval(includeSourceCode);
-                    } else if (o instanceof OMText) {
-
-                        DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
-                        if (dataHandler != null) {
-                            BufferedReader reader = null;
-                            try {
-                                reader = new BufferedReader(
-                                        new InputStreamReader(dataHandler.getInputStream()));
-                                scriptEngine.eval(reader);
-
-                            } catch (IOException e) {
-                                handleException("Error in reading script as a stream ", e, synCtx);
-                            } finally {
-
-                                if (reader != null) {
-                                    try {
-                                        reader.close();
-                                    } catch (IOException e) {
-                                        handleException("Error in closing input" +
-                                                " stream ", e, synCtx);
-                                    }
-                                }
-                            }
+                    if (reader != null) {
+                        try {
+                            reader.close();
+                        } catch (IOException e) {
+                            handleException("Error in closing input stream ", e, synCtx);
                         }
                     }
+
                 }
             }
         }
+        return null;
     }
 
-    protected void initScriptEngine() {
+    /**
+     * Creates a new script engine for the language of this mediator
+     *
+     * @return the new engine
+     */
+    private ScriptEngineWrapper createScriptEngine() {
         if (log.isDebugEnabled()) {
-            log.debug("Initializing script mediator for language : " + language);
+            log.debug("Initializing script engine for language : " + language);
         }
 
         ScriptEngineManager manager = new ScriptEngineManager();
@@ -429,20 +500,34 @@ public class ScriptMediator extends AbstractMediator {
         manager.registerEngineExtension("groovy", new GroovyScriptEngineFactory());
         manager.registerEngineExtension("rb", new JRubyScriptEngineFactory());
 
-        this.scriptEngine = manager.getEngineByExtension(language);
+        ScriptEngine scriptEngine = manager.getEngineByExtension(language);
         if (scriptEngine == null) {
             handleException("No script engine found for language: " + language);
         }
         //Invoking a custom Helper class since there is an api change in rhino17 for js
+        XMLHelper xmlHelper;
         if (language.equalsIgnoreCase(JAVA_SCRIPT)) {
             xmlHelper = new JavaScriptXmlHelper();
         } else {
             xmlHelper = XMLHelper.getArgHelper(scriptEngine);
         }
+        return new ScriptEngineWrapper(scriptEngine, xmlHelper);
+    }
 
-        this.multiThreadedEngine = scriptEngine.getFactory().getParameter("THREADING") != null;
-        log.debug("Script mediator for language : " + language +
-                " supports multithreading? : " + multiThreadedEngine);
+    public void init(SynapseEnvironment synapseEnvironment) {
+        String name = language + "_" + (key == null ? "inline" :
+                (key.getKeyValue() != null ? key.getKeyValue() : String.valueOf(key.getExpression())))
+                + "_" + Integer.toHexString(System.identityHashCode(this));
+        mbeanId = name.replaceAll("[^\\w.\\-/]", "_");
+        MBeanRegistrar.getInstance().registerMBean(
+                new ScriptEnginePoolView(enginePool, language), MBEAN_CATEGORY, mbeanId);
+    }
+
+    public void destroy() {
+        if (mbeanId != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean(MBEAN_CATEGORY, mbeanId);
+            mbeanId = null;
+        }
     }
 
     public String getLanguage() {
@@ -478,4 +563,22 @@ public class ScriptMediator extends AbstractMediator {
         this.loader = loader;
     }
 
+    /**
+     * A loaded version of an external script and its includes
+     */
+    private static class ScriptSources {
+
+        private final String key;
+        private final String script;
+        private final List<String> includes;
+        private final long version;
+
+        private ScriptSources(String key, String script, List<String> includes, long version) {
+            this.key = key;
+            this.script = script;
+            this.includes = includes;
+            this.version = version;
+        }
+    }
+
 }
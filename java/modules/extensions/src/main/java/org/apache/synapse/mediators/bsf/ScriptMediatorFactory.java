@@ -107,7 +107,7 @@ public class ScriptMediatorFactory extends AbstractMediatorFactory {
         // get <include /> scripts
         // map key = registry entry key, value = script source
         // at this time map values are null, later loaded
-        // from void ScriptMediator.prepareExternalScript(MessageContext synCtx)
+        // by ScriptMediator.prepareExternalScript(MessageContext synCtx)
 
         // TreeMap used to keep given scripts order if needed
         Map<Value, Object> includeKeysMap = new LinkedHashMap<Value, Object>();
@@ -0,0 +1,83 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bsf;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ScriptEnginePoolTest extends TestCase {
+
+    private final AtomicInteger engines = new AtomicInteger();
+
+    private ScriptEnginePool createPool(int size) {
+        return new ScriptEnginePool(new ScriptEnginePool.EngineFactory() {
+            public ScriptEngineWrapper createEngine() {
+                engines.incrementAndGet();
+                return new ScriptEngineWrapper(null, null);
+            }
+        }, size);
+    }
+
+    public void testEnginesAreReused() throws Exception {
+        ScriptEnginePool pool = createPool(2);
+        ScriptEngineWrapper engine = pool.borrow();
+        pool.release(engine);
+        assertSame(engine, pool.borrow());
+        assertEquals(1, engines.get());
+        assertEquals(1, pool.getActiveCount());
+    }
+
+    public void testPoolIsBounded() throws Exception {
+        final ScriptEnginePool pool = createPool(2);
+        final ScriptEngineWrapper first = pool.borrow();
+        ScriptEngineWrapper second = pool.borrow();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getCreatedCount());
+
+        final CountDownLatch borrowed = new CountDownLatch(1);
+        final ScriptEngineWrapper[] third = new ScriptEngineWrapper[1];
+        Thread waiter = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    third[0] = pool.borrow();
+                    borrowed.countDown();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        waiter.start();
+
+        assertFalse(borrowed.await(100, TimeUnit.MILLISECONDS));
+        pool.release(first);
+        assertTrue(borrowed.await(10, TimeUnit.SECONDS));
+
+        assertSame(first, third[0]);
+        assertEquals(2, engines.get());
+        assertEquals(1, pool.getWaitCount());
+        assertTrue(pool.getMaxWaitTime() > 0);
+
+        ScriptEnginePoolView view = new ScriptEnginePoolView(pool, "js");
+        assertEquals(1.0, view.getUtilization());
+        assertEquals(3, view.getBorrowCount());
+    }
+}
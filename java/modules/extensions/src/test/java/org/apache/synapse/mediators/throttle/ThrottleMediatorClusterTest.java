@@ -0,0 +1,123 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.throttle;
+
+import junit.framework.TestCase;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.cluster.InProcessCluster;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.wso2.throttle.ConcurrentAccessController;
+import org.wso2.throttle.ThrottleConstants;
+
+import java.io.StringReader;
+
+/**
+ * Runs throttle mediators with a concurrency limit on the nodes of an {@link InProcessCluster},
+ * so that the concurrent access controller is replicated the same way as in a real cluster
+ */
+public class ThrottleMediatorClusterTest extends TestCase {
+
+    private static final String POLICY = "<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2004/09/policy\"\n" +
+            "            xmlns:throttle=\"http://www.wso2.org/products/wso2commons/throttle\">\n" +
+            "<throttle:MediatorThrottleAssertion>\n" +
+            "    <throttle:MaximumConcurrentAccess>5</throttle:MaximumConcurrentAccess>\n" +
+            "    <wsp:Policy>\n" +
+            "        <throttle:ID throttle:type=\"IP\">10.100.1.1</throttle:ID>\n" +
+            "        <wsp:Policy>\n" +
+            "            <throttle:Control>\n" +
+            "                <wsp:Policy>\n" +
+            "                    <throttle:MaximumCount>100</throttle:MaximumCount>\n" +
+            "                    <throttle:UnitTime>60000</throttle:UnitTime>\n" +
+            "                </wsp:Policy>\n" +
+            "            </throttle:Control>\n" +
+            "        </wsp:Policy>\n" +
+            "    </wsp:Policy>\n" +
+            "</throttle:MediatorThrottleAssertion>\n" +
+            "</wsp:Policy>";
+
+    private static final String THROTTLE_ID = "clusteredThrottle";
+
+    private InProcessCluster cluster;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        cluster = new InProcessCluster(3);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cluster.shutdown();
+        super.tearDown();
+    }
+
+    public void testConcurrentAccessControllerIsReplicated() throws Exception {
+        ThrottleMediator[] mediators = new ThrottleMediator[cluster.size()];
+        for (int i = 0; i < mediators.length; i++) {
+            mediators[i] = new ThrottleMediator();
+            mediators[i].setId(THROTTLE_ID);
+            mediators[i].setInLinePolicy(OMXMLBuilderFactory.createOMBuilder(
+                    new StringReader(POLICY)).getDocumentElement());
+            mediators[i].init(cluster.getSynapseEnvironment(i));
+        }
+
+        // the first request creates the controller, which is then replicated to the others
+        MessageContext synCtx = createMessageContext(0);
+        assertTrue(mediators[0].mediate(synCtx));
+        final String key = ThrottleConstants.THROTTLE_PROPERTY_PREFIX + THROTTLE_ID +
+                ThrottleConstants.CAC_SUFFIX;
+        long convergence = cluster.awaitCondition(new InProcessCluster.NodeCondition() {
+            public boolean isSatisfied(int node, ConfigurationContext configCtx) {
+                return configCtx.getPropertyNonReplicable(key) instanceof
+                        ConcurrentAccessController;
+            }
+        }, 10000);
+        assertTrue(convergence >= 0);
+        synCtx.setResponse(true);
+        mediators[0].mediate(synCtx);
+
+        int requests = 30;
+        for (int i = 0; i < requests; i++) {
+            int node = i % cluster.size();
+            synCtx = createMessageContext(node);
+            assertTrue(mediators[node].mediate(synCtx));
+            synCtx.setResponse(true);
+            mediators[node].mediate(synCtx);
+        }
+        for (int i = 0; i < cluster.size(); i++) {
+            ConcurrentAccessController controller = (ConcurrentAccessController)
+                    cluster.getConfigurationContext(i).getPropertyNonReplicable(key);
+            assertEquals(5, controller.getLimit());
+        }
+    }
+
+    private MessageContext createMessageContext(int node) throws Exception {
+        org.apache.axis2.context.MessageContext mc =
+                new org.apache.axis2.context.MessageContext();
+        mc.setConfigurationContext(cluster.getConfigurationContext(node));
+        mc.setProperty(org.apache.axis2.context.MessageContext.REMOTE_ADDR, "10.100.1.2");
+        return new Axis2MessageContext(mc, new SynapseConfiguration(),
+                cluster.getSynapseEnvironment(node));
+    }
+}
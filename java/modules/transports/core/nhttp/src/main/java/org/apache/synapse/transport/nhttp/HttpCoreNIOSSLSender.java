@@ -319,7 +319,8 @@ public class HttpCoreNIOSSLSender extends HttpCoreNIOSender {
                 if (cvConfig != null) {
                     try {
                         ocspCrl.verifyRevocationStatus(session.getPeerCertificateChain(),
-                                cvConfig.getCacheSize(), cvConfig.getCacheDuration());
+                                cvConfig.getCacheSize(), cvConfig.getCacheDuration(),
+                                cvConfig.getRefreshAhead(), cvConfig.getStaleWindow());
                     } catch (CertificateVerificationException e) {
                         throw new SSLException("Certificate chain validation failed for host : " +
                                 address, e);
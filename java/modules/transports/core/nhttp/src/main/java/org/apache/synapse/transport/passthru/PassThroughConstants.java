@@ -44,6 +44,9 @@ public class PassThroughConstants {
     public static final String WSDL_EPR_PREFIX = "WSDLEPRPrefix";
     public static final String BIND_ADDRESS = "bind-address" ;
 
+    /** Executor and priority rules used to schedule the requests by priority */
+    public static final String PRIORITY_CONFIG_FILE_NAME = "priorityConfigFile";
+
     public static final String EPR_TO_SERVICE_NAME_MAP = "service.epr.map";
     public static final String NON_BLOCKING_TRANSPORT = "NonBlockingTransport";
     public static final String SERIALIZED_BYTES = "SerializedBytes";
@@ -135,6 +135,12 @@ public class PassThroughHttpListener implements TransportListener {
                 new TransportView(this, null, metrics, null), "Transport",
                 "passthru-" + namePrefix.toLowerCase() + "-receiver");
         sourceConfiguration.setMetrics(metrics);
+
+        if (sourceConfiguration.getPriorityExecutor() != null) {
+            MBeanRegistrar.getInstance().registerMBean(
+                    sourceConfiguration.getPriorityExecutor().getView(), "PriorityExecutor",
+                    "passthru-" + namePrefix.toLowerCase() + "-receiver");
+        }
     }
 
     public void start() throws AxisFault {
@@ -274,6 +280,12 @@ public class PassThroughHttpListener implements TransportListener {
         MBeanRegistrar.getInstance().unRegisterMBean("Transport",
                 "passthru-" + namePrefix.toLowerCase() + "-receiver");
         sourceConfiguration.getMetrics().destroy();
+
+        if (sourceConfiguration.getPriorityExecutor() != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean("PriorityExecutor",
+                    "passthru-" + namePrefix.toLowerCase() + "-receiver");
+            sourceConfiguration.getPriorityExecutor().destroy();
+        }
     }
 
     /**
@@ -28,6 +28,10 @@ import org.apache.http.nio.NHttpServerEventHandler;
 import org.apache.http.nio.reactor.IOEventDispatch;
 import org.apache.http.nio.reactor.IOSession;
 import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.transport.passthru.jmx.SSLSessionView;
+import org.apache.synapse.transport.utils.conn.SSLHandshakeStatistics;
+import org.apache.synapse.transport.utils.conn.SSLSessionConfig;
 import org.apache.synapse.transport.utils.conn.logging.LoggingUtils;
 
 import javax.net.ssl.*;
@@ -36,13 +40,43 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
 
 public class PassThroughHttpSSLListener extends PassThroughHttpListener {
 
+    private static final String SSL_SESSIONS = "SSLSessions";
+    private static final String VIEW_NAME = "passthru-https-receiver";
+
+    private SSLSessionConfig sessionConfig;
+    private final SSLHandshakeStatistics handshakeStatistics = new SSLHandshakeStatistics();
+    private ExecutorService handshakeExecutor;
+
     @Override
     protected IOEventDispatch getEventDispatch(NHttpServerEventHandler handler, SSLContext sslContext,
                                                SSLSetupHandler sslSetupHandler, ConnectionConfig config) {
-        return LoggingUtils.getServerIODispatch(handler, config, sslContext, sslSetupHandler);
+        if (handshakeExecutor == null && sessionConfig != null) {
+            handshakeExecutor = sessionConfig.createHandshakeExecutor("HTTPS-PT-Listener");
+        }
+        MBeanRegistrar.getInstance().registerMBean(
+                new SSLSessionView(handshakeStatistics, sslContext.getServerSessionContext()),
+                SSL_SESSIONS, VIEW_NAME);
+        return LoggingUtils.getServerIODispatch(handler, config, sslContext, sslSetupHandler,
+                handshakeExecutor, handshakeStatistics);
+    }
+
+    @Override
+    public void stop() throws AxisFault {
+        super.stop();
+        if (handshakeExecutor != null) {
+            handshakeExecutor.shutdown();
+            handshakeExecutor = null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        MBeanRegistrar.getInstance().unRegisterMBean(SSL_SESSIONS, VIEW_NAME);
     }
 
     /**
@@ -126,9 +160,11 @@ public class PassThroughHttpSSLListener extends PassThroughHttpListener {
             }
         }
 
+        sessionConfig = new SSLSessionConfig(transportIn);
         try {
             SSLContext sslcontext = SSLContext.getInstance("TLS");
             sslcontext.init(keymanagers, trustManagers, null);
+            sessionConfig.apply(sslcontext.getServerSessionContext());
             return sslcontext;
 
         } catch (GeneralSecurityException gse) {
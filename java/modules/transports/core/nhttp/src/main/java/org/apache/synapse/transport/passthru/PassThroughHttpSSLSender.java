@@ -29,6 +29,10 @@ import org.apache.http.nio.NHttpClientEventHandler;
 import org.apache.http.nio.reactor.IOEventDispatch;
 import org.apache.http.nio.reactor.IOSession;
 import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.transport.passthru.jmx.SSLSessionView;
+import org.apache.synapse.transport.utils.conn.SSLHandshakeStatistics;
+import org.apache.synapse.transport.utils.conn.SSLSessionConfig;
 import org.apache.synapse.transport.utils.conn.logging.LoggingUtils;
 import org.apache.synapse.transport.utils.sslcert.CertificateVerificationConfig;
 import org.apache.synapse.transport.utils.sslcert.CertificateVerificationException;
@@ -47,19 +51,48 @@ import java.security.cert.X509Certificate;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 public class PassThroughHttpSSLSender extends PassThroughHttpSender {
 
     private static final SynapseAdaptorForOcspCrl ocspCrl = new SynapseAdaptorForOcspCrl();
 
+    private static final String SSL_SESSIONS = "SSLSessions";
+    private static final String VIEW_NAME = "passthru-https-sender";
+
+    private final SSLHandshakeStatistics handshakeStatistics = new SSLHandshakeStatistics();
+    private ExecutorService handshakeExecutor;
+
     protected IOEventDispatch getEventDispatch(NHttpClientEventHandler handler,
                                                SSLContext sslContext,
                                                SSLSetupHandler sslSetupHandler,
                                                ConnectionConfig config,
                                                TransportOutDescription transportOut) throws AxisFault {
 
+        SSLSessionConfig sessionConfig = new SSLSessionConfig(transportOut);
+        sessionConfig.apply(sslContext.getClientSessionContext());
+        Map<String, SSLContext> customContexts = getCustomSSLContexts(transportOut);
+        if (customContexts != null) {
+            for (SSLContext customContext : customContexts.values()) {
+                sessionConfig.apply(customContext.getClientSessionContext());
+            }
+        }
+
+        handshakeExecutor = sessionConfig.createHandshakeExecutor("HTTPS-PT-Sender");
+        MBeanRegistrar.getInstance().registerMBean(
+                new SSLSessionView(handshakeStatistics, sslContext.getClientSessionContext()),
+                SSL_SESSIONS, VIEW_NAME);
         return LoggingUtils.getClientIODispatch(handler, config, sslContext, sslSetupHandler,
-                getCustomSSLContexts(transportOut));
+                customContexts, handshakeExecutor, handshakeStatistics);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (handshakeExecutor != null) {
+            handshakeExecutor.shutdown();
+        }
+        MBeanRegistrar.getInstance().unRegisterMBean(SSL_SESSIONS, VIEW_NAME);
     }
 
     /**
@@ -322,7 +355,8 @@ public class PassThroughHttpSSLSender extends PassThroughHttpSender {
                     //Do revocation verification of Certificates
                     try {
                         ocspCrl.verifyRevocationStatus(session.getPeerCertificateChain(),
-                                cvConfig.getCacheSize(), cvConfig.getCacheDuration());
+                                cvConfig.getCacheSize(), cvConfig.getCacheDuration(),
+                                cvConfig.getRefreshAhead(), cvConfig.getStaleWindow());
                     } catch (CertificateVerificationException e) {
                         throw new SSLException("Certificate chain validation failed for host : " +
                                 address, e);
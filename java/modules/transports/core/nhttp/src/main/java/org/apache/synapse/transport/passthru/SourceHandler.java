@@ -29,12 +29,15 @@ import org.apache.http.message.BasicHttpResponse;
 import org.apache.axis2.AxisFault;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.evaluators.EvaluatorContext;
+import org.apache.synapse.commons.executors.PriorityExecutor;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
 import org.apache.synapse.transport.passthru.jmx.LatencyView;
 import org.apache.synapse.transport.passthru.jmx.PassThroughTransportMetricsCollector;
 import org.apache.synapse.transport.passthru.util.PassThroughTransportUtils;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * This is the class where transport interacts with the client. This class
@@ -106,8 +109,17 @@ public class SourceHandler implements NHttpServerEventHandler {
                         outputBuffer);
 			} 
 
-            sourceConfiguration.getWorkerPool().execute(
-                    new ServerWorker(request, sourceConfiguration));
+            ServerWorker worker = new ServerWorker(request, sourceConfiguration);
+            PriorityExecutor priorityExecutor = sourceConfiguration.getPriorityExecutor();
+            if (priorityExecutor != null) {
+                // classify on the request line and headers, the body is not read yet
+                EvaluatorContext evaluatorContext =
+                        new EvaluatorContext(request.getUri(), request.getHeaders());
+                priorityExecutor.execute(worker,
+                        sourceConfiguration.getPriorityParser().parse(evaluatorContext));
+            } else {
+                sourceConfiguration.getWorkerPool().execute(worker);
+            }
 
         } catch (HttpException e) {
             log.error("HTTP exception while processing request", e);
@@ -119,6 +131,12 @@ public class SourceHandler implements NHttpServerEventHandler {
             informReaderError(conn);
             SourceContext.updateState(conn, ProtocolState.CLOSED);
             sourceConfiguration.getSourceConnections().shutDownConnection(conn, true);
+        } catch (RejectedExecutionException e) {
+            // the worker queue is full, never let this reach the I/O reactor thread
+            log.warn("Worker pool is full, dropping the connection : " + conn);
+            informReaderError(conn);
+            SourceContext.updateState(conn, ProtocolState.CLOSED);
+            sourceConfiguration.getSourceConnections().shutDownConnection(conn, true);
         }
     }
 
@@ -19,6 +19,10 @@
 
 package org.apache.synapse.transport.passthru.config;
 
+import org.apache.axiom.om.OMAttribute;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMException;
+import org.apache.axiom.om.OMXMLBuilderFactory;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.description.Parameter;
 import org.apache.axis2.description.TransportInDescription;
@@ -32,12 +36,24 @@ import org.apache.axis2.transport.base.threads.WorkerPool;
 import org.apache.axis2.transport.base.ParamUtils;
 import org.apache.axis2.AxisFault;
 
+import org.apache.synapse.commons.evaluators.EvaluatorConstants;
+import org.apache.synapse.commons.evaluators.EvaluatorException;
+import org.apache.synapse.commons.evaluators.Parser;
+import org.apache.synapse.commons.executors.ExecutorConstants;
+import org.apache.synapse.commons.executors.PriorityExecutor;
+import org.apache.synapse.commons.executors.config.PriorityExecutorFactory;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.transport.passthru.HttpGetRequestProcessor;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.connections.SourceConnections;
 
+import javax.xml.namespace.QName;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.UnknownHostException;
+import java.util.Properties;
 
 /**
  * This class stores configurations specific to the Listeners
@@ -73,6 +89,12 @@ public class SourceConfiguration extends BaseConfiguration {
     /** WSDL processor for Get requests*/
     private HttpGetRequestProcessor httpGetRequestProcessor = null;
 
+    /** Executor running the server workers by priority, instead of the worker pool */
+    private PriorityExecutor priorityExecutor = null;
+
+    /** Parser determining the priority of a request from its headers and URL */
+    private Parser priorityParser = null;
+
     public SourceConfiguration(ConfigurationContext configurationContext,
                                TransportInDescription description,
                                WorkerPool pool, boolean ssl) throws AxisFault {
@@ -118,6 +140,11 @@ public class SourceConfiguration extends BaseConfiguration {
                 handleException("Cannot create HttpGetRequestProcessor");
             }
         }
+
+        param = parameters.getParameter(PassThroughConstants.PRIORITY_CONFIG_FILE_NAME);
+        if (param != null && param.getValue() != null) {
+            createPriorityConfiguration(param.getValue().toString());
+        }
     }
 
     @Override
@@ -168,6 +195,78 @@ public class SourceConfiguration extends BaseConfiguration {
 		return httpGetRequestProcessor;
 	}
 
+    /**
+     * Get the executor used for priority based execution of the requests
+     *
+     * @return the priority executor, or null if the requests are executed by the worker pool
+     */
+    public PriorityExecutor getPriorityExecutor() {
+        return priorityExecutor;
+    }
+
+    public Parser getPriorityParser() {
+        return priorityParser;
+    }
+
+    /**
+     * Create the priority executor and the priority rules from the given file
+     *
+     * @param fileName file name of the priority configuration
+     * @throws AxisFault if the configuration is invalid
+     */
+    private void createPriorityConfiguration(String fileName) throws AxisFault {
+        OMElement definitions = null;
+        InputStream in = null;
+        try {
+            in = new FileInputStream(fileName);
+            definitions = OMXMLBuilderFactory.createOMBuilder(in).getDocumentElement();
+            definitions.build();
+        } catch (FileNotFoundException e) {
+            handleException("Priority configuration file cannot be found : " + fileName, e);
+        } catch (OMException e) {
+            handleException("Error parsing priority configuration xml file " + fileName, e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+
+        OMElement executorElem = definitions.getFirstChildWithName(
+                new QName(ExecutorConstants.PRIORITY_EXECUTOR));
+        if (executorElem == null) {
+            handleException(ExecutorConstants.PRIORITY_EXECUTOR +
+                    " configuration is mandatory for priority based execution");
+        }
+        OMElement conditionsElem = definitions.getFirstChildWithName(
+                new QName(EvaluatorConstants.CONDITIONS));
+        if (conditionsElem == null) {
+            handleException("Conditions configuration is mandatory for priority based execution");
+        }
+
+        OMAttribute defPriorityAttr = conditionsElem.getAttribute(
+                new QName(EvaluatorConstants.DEFAULT_PRIORITY));
+        if (defPriorityAttr != null) {
+            priorityParser = new Parser(Integer.parseInt(defPriorityAttr.getAttributeValue()));
+        } else {
+            priorityParser = new Parser();
+        }
+        try {
+            priorityParser.init(conditionsElem);
+        } catch (EvaluatorException e) {
+            handleException("Invalid " + EvaluatorConstants.CONDITIONS +
+                    " configuration for priority based execution", e);
+        }
+
+        priorityExecutor = PriorityExecutorFactory.createExecutor(
+                null, executorElem, false, new Properties());
+        priorityExecutor.init();
+
+        log.info("Created a priority based executor from the configuration: " + fileName);
+    }
+
 	/**
      * Return the EPR prefix for services made available over this transport
      * @param cfgCtx configuration context to retrieve the service context path
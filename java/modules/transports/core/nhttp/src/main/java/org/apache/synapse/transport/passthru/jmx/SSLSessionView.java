@@ -0,0 +1,95 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+
+package org.apache.synapse.transport.passthru.jmx;
+
+import org.apache.synapse.transport.utils.conn.SSLHandshakeStatistics;
+
+import javax.net.ssl.SSLSessionContext;
+import java.util.Enumeration;
+
+/**
+ * SSLSessionView MBean reports the SSL handshakes of a pass-through SSL listener or sender,
+ * along with the state of its SSL session cache. A low resumption ratio means most of the
+ * connections go through a full handshake, which is the expensive part of setting up an SSL
+ * connection.
+ */
+public class SSLSessionView implements SSLSessionViewMBean {
+
+    private final SSLHandshakeStatistics statistics;
+    private final SSLSessionContext sessionContext;
+
+    public SSLSessionView(SSLHandshakeStatistics statistics, SSLSessionContext sessionContext) {
+        this.statistics = statistics;
+        this.sessionContext = sessionContext;
+    }
+
+    public long getFullHandshakes() {
+        return statistics.getFullHandshakes();
+    }
+
+    public long getResumedHandshakes() {
+        return statistics.getResumedHandshakes();
+    }
+
+    public double getResumptionRatio() {
+        return statistics.getResumptionRatio();
+    }
+
+    public double getAverageHandshakeTime() {
+        return statistics.getAverageHandshakeTime();
+    }
+
+    public long getMaxHandshakeTime() {
+        return statistics.getMaxHandshakeTime();
+    }
+
+    public long getOffloadedHandshakeTasks() {
+        return statistics.getOffloadedTasks();
+    }
+
+    public double getAverageOffloadedTaskTime() {
+        return statistics.getAverageOffloadedTaskTime();
+    }
+
+    public int getCachedSessions() {
+        if (sessionContext == null) {
+            return 0;
+        }
+        int count = 0;
+        Enumeration ids = sessionContext.getIds();
+        while (ids.hasMoreElements()) {
+            ids.nextElement();
+            count++;
+        }
+        return count;
+    }
+
+    public int getSessionCacheSize() {
+        return sessionContext != null ? sessionContext.getSessionCacheSize() : 0;
+    }
+
+    public int getSessionTimeout() {
+        return sessionContext != null ? sessionContext.getSessionTimeout() : 0;
+    }
+
+    public void reset() {
+        statistics.reset();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.conn;
+
+import org.apache.http.nio.reactor.IOSession;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.concurrent.Executor;
+
+/**
+ * The SSLContext handed over to the SSLIOSession of a single connection. It creates the
+ * SSLEngine through the SSLContext of the transport, so that the SSL sessions are cached and
+ * resumed as usual, but it may
+ * <ul>
+ * <li>pin the peer host and port the client side SSL sessions are cached against, and</li>
+ * <li>wrap the engine in an {@link OffloadingSSLEngine} to run the handshake tasks on a
+ * separate thread pool.</li>
+ * </ul>
+ */
+public class ConnectionSSLContext extends SSLContext {
+
+    /**
+     * @param context    the SSLContext of the transport
+     * @param peerHost   host name the client side SSL session is cached against or null to use
+     *                   the remote address of the connection
+     * @param peerPort   port the client side SSL session is cached against
+     * @param session    the I/O session of the connection
+     * @param executor   thread pool to run the handshake tasks or null to run them on the I/O
+     *                   reactor thread
+     * @param statistics handshake statistics of the transport
+     */
+    public ConnectionSSLContext(SSLContext context, String peerHost, int peerPort,
+                                IOSession session, Executor executor,
+                                SSLHandshakeStatistics statistics) {
+        super(new Spi(context, peerHost, peerPort, session, executor, statistics),
+                context.getProvider(), context.getProtocol());
+    }
+
+    private static class Spi extends SSLContextSpi {
+
+        private final SSLContext context;
+        private final String peerHost;
+        private final int peerPort;
+        private final IOSession session;
+        private final Executor executor;
+        private final SSLHandshakeStatistics statistics;
+
+        Spi(SSLContext context, String peerHost, int peerPort, IOSession session,
+            Executor executor, SSLHandshakeStatistics statistics) {
+            this.context = context;
+            this.peerHost = peerHost;
+            this.peerPort = peerPort;
+            this.session = session;
+            this.executor = executor;
+            this.statistics = statistics;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] keyManagers, TrustManager[] trustManagers,
+                                  SecureRandom secureRandom) throws KeyManagementException {
+            throw new KeyManagementException("The SSLContext of a connection cannot be " +
+                    "initialized again");
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return context.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return context.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return offload(peerHost != null ?
+                    context.createSSLEngine(peerHost, peerPort) : context.createSSLEngine());
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            return offload(peerHost != null ?
+                    context.createSSLEngine(peerHost, peerPort) : context.createSSLEngine(host, port));
+        }
+
+        private SSLEngine offload(SSLEngine engine) {
+            if (executor == null) {
+                return engine;
+            }
+            return new OffloadingSSLEngine(engine, session, executor, statistics);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return context.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return context.getClientSessionContext();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.conn;
+
+import org.apache.http.nio.reactor.EventMask;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLIOSession;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An SSLEngine which runs the delegated tasks of the handshake, where the key exchange and the
+ * certificate validation take place, on a separate thread pool instead of the I/O reactor thread.
+ * <p/>
+ * While the tasks are running, the engine reports that it is waiting for more data from the
+ * peer, so that the SSLIOSession backs off and the I/O reactor carries on with the other
+ * sessions. Once the tasks are complete, the session is asked for a write event, upon which the
+ * SSLIOSession resumes the handshake. The write event is set under the lock of the SSLIOSession,
+ * so that it cannot be overwritten by an event mask update of the SSLIOSession which saw the
+ * tasks still running.
+ */
+public class OffloadingSSLEngine extends SSLEngine {
+
+    private static final SSLEngineResult TASK_PENDING_UNWRAP = new SSLEngineResult(
+            SSLEngineResult.Status.BUFFER_UNDERFLOW, SSLEngineResult.HandshakeStatus.NEED_UNWRAP,
+            0, 0);
+    private static final SSLEngineResult TASK_PENDING_WRAP = new SSLEngineResult(
+            SSLEngineResult.Status.OK, SSLEngineResult.HandshakeStatus.NEED_UNWRAP, 0, 0);
+
+    private final SSLEngine engine;
+    private final IOSession session;
+    private final Executor executor;
+    private final SSLHandshakeStatistics statistics;
+    private final AtomicBoolean taskPending = new AtomicBoolean(false);
+
+    public OffloadingSSLEngine(SSLEngine engine, IOSession session, Executor executor,
+                               SSLHandshakeStatistics statistics) {
+        super(engine.getPeerHost(), engine.getPeerPort());
+        this.engine = engine;
+        this.session = session;
+        this.executor = executor;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public SSLEngineResult.HandshakeStatus getHandshakeStatus() {
+        if (taskPending.get()) {
+            return SSLEngineResult.HandshakeStatus.NEED_UNWRAP;
+        }
+        SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+        if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            if (runDelegatedTasks()) {
+                return SSLEngineResult.HandshakeStatus.NEED_UNWRAP;
+            }
+            // the tasks have been run in this thread
+            status = engine.getHandshakeStatus();
+        }
+        return status;
+    }
+
+    /**
+     * Hands the pending delegated tasks over to the executor.
+     *
+     * @return true if the tasks are running in the background, false if they have been run
+     *         in the calling thread already
+     */
+    private boolean runDelegatedTasks() {
+        if (!taskPending.compareAndSet(false, true)) {
+            return true;
+        }
+
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            tasks.add(task);
+        }
+        if (tasks.isEmpty()) {
+            taskPending.set(false);
+            return false;
+        }
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        for (Runnable task : tasks) {
+                            task.run();
+                        }
+                    } finally {
+                        statistics.tasksCompleted(System.nanoTime() - start);
+                        resumeHandshake();
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            for (Runnable rejected : tasks) {
+                rejected.run();
+            }
+            taskPending.set(false);
+            return false;
+        }
+    }
+
+    /**
+     * Clears the pending tasks and wakes up the I/O reactor to carry on with the handshake. The
+     * write event is needed even if the handshake waits for data of the peer, which may have
+     * been received and buffered by the SSLIOSession while the tasks were running.
+     */
+    private void resumeHandshake() {
+        Object sslSession = session.getAttribute(SSLIOSession.SESSION_KEY);
+        synchronized (sslSession != null ? sslSession : this) {
+            taskPending.set(false);
+            session.setEvent(EventMask.WRITE);
+        }
+    }
+
+    @Override
+    public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst)
+            throws SSLException {
+        if (taskPending.get()) {
+            return TASK_PENDING_WRAP;
+        }
+        return engine.wrap(srcs, offset, length, dst);
+    }
+
+    @Override
+    public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length)
+            throws SSLException {
+        if (taskPending.get()) {
+            return TASK_PENDING_UNWRAP;
+        }
+        return engine.unwrap(src, dsts, offset, length);
+    }
+
+    @Override
+    public Runnable getDelegatedTask() {
+        return engine.getDelegatedTask();
+    }
+
+    @Override
+    public void closeInbound() throws SSLException {
+        engine.closeInbound();
+    }
+
+    @Override
+    public boolean isInboundDone() {
+        return engine.isInboundDone();
+    }
+
+    @Override
+    public void closeOutbound() {
+        engine.closeOutbound();
+    }
+
+    @Override
+    public boolean isOutboundDone() {
+        return engine.isOutboundDone();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return engine.getSupportedCipherSuites();
+    }
+
+    @Override
+    public String[] getEnabledCipherSuites() {
+        return engine.getEnabledCipherSuites();
+    }
+
+    @Override
+    public void setEnabledCipherSuites(String[] suites) {
+        engine.setEnabledCipherSuites(suites);
+    }
+
+    @Override
+    public String[] getSupportedProtocols() {
+        return engine.getSupportedProtocols();
+    }
+
+    @Override
+    public String[] getEnabledProtocols() {
+        return engine.getEnabledProtocols();
+    }
+
+    @Override
+    public void setEnabledProtocols(String[] protocols) {
+        engine.setEnabledProtocols(protocols);
+    }
+
+    @Override
+    public SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    @Override
+    public void beginHandshake() throws SSLException {
+        engine.beginHandshake();
+    }
+
+    @Override
+    public void setUseClientMode(boolean mode) {
+        engine.setUseClientMode(mode);
+    }
+
+    @Override
+    public boolean getUseClientMode() {
+        return engine.getUseClientMode();
+    }
+
+    @Override
+    public void setNeedClientAuth(boolean need) {
+        engine.setNeedClientAuth(need);
+    }
+
+    @Override
+    public boolean getNeedClientAuth() {
+        return engine.getNeedClientAuth();
+    }
+
+    @Override
+    public void setWantClientAuth(boolean want) {
+        engine.setWantClientAuth(want);
+    }
+
+    @Override
+    public boolean getWantClientAuth() {
+        return engine.getWantClientAuth();
+    }
+
+    @Override
+    public void setEnableSessionCreation(boolean flag) {
+        engine.setEnableSessionCreation(flag);
+    }
+
+    @Override
+    public boolean getEnableSessionCreation() {
+        return engine.getEnableSessionCreation();
+    }
+
+    @Override
+    public SSLParameters getSSLParameters() {
+        return engine.getSSLParameters();
+    }
+
+    @Override
+    public void setSSLParameters(SSLParameters params) {
+        engine.setSSLParameters(params);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.conn;
+
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * Wraps the SSLSetupHandler of a transport to record each completed handshake, telling a
+ * resumed SSL session apart from a new one by the time the session was created.
+ */
+public class SSLHandshakeMonitor implements SSLSetupHandler {
+
+    /** I/O session attribute holding the time the connection was created */
+    public static final String CONNECTION_START = "synapse.ssl.connection.start";
+
+    private final SSLSetupHandler handler;
+    private final SSLHandshakeStatistics statistics;
+
+    public SSLHandshakeMonitor(SSLSetupHandler handler, SSLHandshakeStatistics statistics) {
+        this.handler = handler;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Marks the start of the handshake of a new connection.
+     *
+     * @param session the I/O session of the connection
+     */
+    public static void connectionCreated(IOSession session) {
+        session.setAttribute(CONNECTION_START, System.currentTimeMillis());
+    }
+
+    public void initalize(SSLEngine sslEngine) throws SSLException {
+        if (handler != null) {
+            handler.initalize(sslEngine);
+        }
+    }
+
+    public void verify(IOSession ioSession, SSLSession sslSession) throws SSLException {
+        Long start = (Long) ioSession.getAttribute(CONNECTION_START);
+        if (start != null) {
+            // a new session is created during the handshake, a resumed one was created earlier
+            statistics.handshakeCompleted(sslSession.getCreationTime() < start,
+                    System.currentTimeMillis() - start);
+        }
+        if (handler != null) {
+            handler.verify(ioSession, sslSession);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.conn;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the SSL handshakes completed by the connections of a listener or a sender, telling
+ * the full handshakes apart from the ones which resumed a cached SSL session.
+ */
+public class SSLHandshakeStatistics {
+
+    private final AtomicLong fullHandshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicLong handshakeTime = new AtomicLong();
+    private final AtomicLong maxHandshakeTime = new AtomicLong();
+    private final AtomicLong offloadedTasks = new AtomicLong();
+    private final AtomicLong offloadedTaskTime = new AtomicLong();
+
+    /**
+     * Records a completed handshake.
+     *
+     * @param resumed whether an existing SSL session was resumed
+     * @param millis  time taken from the creation of the connection to the end of the handshake
+     */
+    public void handshakeCompleted(boolean resumed, long millis) {
+        if (resumed) {
+            resumedHandshakes.incrementAndGet();
+        } else {
+            fullHandshakes.incrementAndGet();
+        }
+        handshakeTime.addAndGet(millis);
+        long max = maxHandshakeTime.get();
+        while (millis > max && !maxHandshakeTime.compareAndSet(max, millis)) {
+            max = maxHandshakeTime.get();
+        }
+    }
+
+    /**
+     * Records the delegated tasks of a handshake run by the handshake thread pool.
+     *
+     * @param nanos time taken by the tasks in nano seconds
+     */
+    public void tasksCompleted(long nanos) {
+        offloadedTasks.incrementAndGet();
+        offloadedTaskTime.addAndGet(nanos);
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    public long getResumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    /**
+     * @return the percentage of the handshakes which resumed an existing SSL session
+     */
+    public double getResumptionRatio() {
+        long resumed = resumedHandshakes.get();
+        long total = resumed + fullHandshakes.get();
+        return total == 0 ? 0 : resumed * 100.0 / total;
+    }
+
+    public double getAverageHandshakeTime() {
+        long total = fullHandshakes.get() + resumedHandshakes.get();
+        return total == 0 ? 0 : (double) handshakeTime.get() / total;
+    }
+
+    public long getMaxHandshakeTime() {
+        return maxHandshakeTime.get();
+    }
+
+    public long getOffloadedTasks() {
+        return offloadedTasks.get();
+    }
+
+    public double getAverageOffloadedTaskTime() {
+        long count = offloadedTasks.get();
+        return count == 0 ? 0 : offloadedTaskTime.get() / (count * 1000000.0);
+    }
+
+    public void reset() {
+        fullHandshakes.set(0);
+        resumedHandshakes.set(0);
+        handshakeTime.set(0);
+        maxHandshakeTime.set(0);
+        offloadedTasks.set(0);
+        offloadedTaskTime.set(0);
+    }
+}
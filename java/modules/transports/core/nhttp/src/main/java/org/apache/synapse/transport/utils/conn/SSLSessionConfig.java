@@ -0,0 +1,137 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.conn;
+
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.description.Parameter;
+import org.apache.axis2.description.ParameterInclude;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.net.ssl.SSLSessionContext;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSL session caching and handshake settings of an SSL transport, read from the following
+ * optional transport parameters.
+ * <ul>
+ * <li>SSLSessionCacheSize - maximum number of SSL sessions cached for resumption. 0 means no
+ * limit. The JSSE default is used if not set</li>
+ * <li>SSLSessionTimeout - time in seconds a cached SSL session may be resumed. The JSSE
+ * default is used if not set</li>
+ * <li>SSLHandshakeThreads - number of threads running the handshake tasks. The tasks run on
+ * the I/O reactor threads if not set or 0</li>
+ * </ul>
+ */
+public class SSLSessionConfig {
+
+    private static final Log log = LogFactory.getLog(SSLSessionConfig.class);
+
+    public static final String SESSION_CACHE_SIZE = "SSLSessionCacheSize";
+    public static final String SESSION_TIMEOUT = "SSLSessionTimeout";
+    public static final String HANDSHAKE_THREADS = "SSLHandshakeThreads";
+
+    private final int sessionCacheSize;
+    private final int sessionTimeout;
+    private final int handshakeThreads;
+
+    public SSLSessionConfig(ParameterInclude transport) throws AxisFault {
+        sessionCacheSize = getIntParameter(transport, SESSION_CACHE_SIZE);
+        sessionTimeout = getIntParameter(transport, SESSION_TIMEOUT);
+        handshakeThreads = getIntParameter(transport, HANDSHAKE_THREADS);
+    }
+
+    /**
+     * Applies the cache size and the timeout to the given session cache.
+     *
+     * @param sessionContext the server or client session cache of an SSLContext
+     */
+    public void apply(SSLSessionContext sessionContext) {
+        if (sessionContext == null) {
+            return;
+        }
+        if (sessionCacheSize >= 0) {
+            sessionContext.setSessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout >= 0) {
+            sessionContext.setSessionTimeout(sessionTimeout);
+        }
+    }
+
+    /**
+     * Creates the thread pool which runs the handshake tasks.
+     *
+     * @param name name prefix of the threads
+     * @return the thread pool or null if the handshake tasks are to be run by the I/O reactor
+     */
+    public ExecutorService createHandshakeExecutor(final String name) {
+        if (handshakeThreads <= 0) {
+            return null;
+        }
+        log.info(name + " SSL handshakes are run by " + handshakeThreads + " threads");
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(handshakeThreads, handshakeThreads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + " SSL Handshake-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public int getHandshakeThreads() {
+        return handshakeThreads;
+    }
+
+    private static int getIntParameter(ParameterInclude transport, String name)
+            throws AxisFault {
+        Parameter param = transport.getParameter(name);
+        if (param == null || param.getValue() == null) {
+            return -1;
+        }
+        try {
+            int value = Integer.parseInt(param.getValue().toString().trim());
+            if (value < 0) {
+                throw new AxisFault("Parameter " + name + " must not be negative");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new AxisFault("Invalid value for the parameter " + name + " : " +
+                    param.getValue(), e);
+        }
+    }
+}
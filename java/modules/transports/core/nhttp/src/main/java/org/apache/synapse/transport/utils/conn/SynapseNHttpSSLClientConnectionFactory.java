@@ -25,51 +25,97 @@ import org.apache.http.nio.reactor.IOSession;
 import org.apache.http.nio.reactor.ssl.SSLIOSession;
 import org.apache.http.nio.reactor.ssl.SSLMode;
 import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.synapse.transport.passthru.connections.HostConnections;
 
 import javax.net.ssl.SSLContext;
 import java.net.InetSocketAddress;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * The SSL-enabled version of the SynapseNHttpClientConnectionFactory. Identical in behavior
  * to the parent class, but wraps IOSession instances with SSLIOSession instances. This
  * implementation also supports using different SSLContext instances for different target
  * I/O sessions.
+ * <p/>
+ * The client side SSL sessions are cached and resumed against the host and port of the
+ * connection pool in {@link org.apache.synapse.transport.passthru.connections.TargetConnections}
+ * which the connection belongs to, when there is one, so that the connections to a backend
+ * host reuse the SSL session regardless of how its address resolves.
  */
 public class SynapseNHttpSSLClientConnectionFactory extends SynapseNHttpClientConnectionFactory {
 
     private SSLContext sslContext;
     private SSLSetupHandler sslSetupHandler;
     private Map<String,SSLContext> customContexts;
+    private Executor handshakeExecutor;
+    private SSLHandshakeStatistics statistics;
 
     public SynapseNHttpSSLClientConnectionFactory(ConnectionConfig config,
                                                   SSLContext sslContext,
                                                   SSLSetupHandler sslSetupHandler,
                                                   Map<String, SSLContext> customContexts) {
+        this(config, sslContext, sslSetupHandler, customContexts, null, null);
+    }
+
+    /**
+     * @param config            connection configuration
+     * @param sslContext        SSLContext of the sender
+     * @param sslSetupHandler   SSLSetupHandler of the sender
+     * @param customContexts    SSLContext instances of the custom SSL profiles by host:port
+     * @param handshakeExecutor thread pool to run the handshake tasks or null to run them on
+     *                          the I/O reactor threads
+     * @param statistics        collects handshake statistics if not null
+     */
+    public SynapseNHttpSSLClientConnectionFactory(ConnectionConfig config,
+                                                  SSLContext sslContext,
+                                                  SSLSetupHandler sslSetupHandler,
+                                                  Map<String, SSLContext> customContexts,
+                                                  Executor handshakeExecutor,
+                                                  SSLHandshakeStatistics statistics) {
         super(config);
         this.sslContext = sslContext;
-        this.sslSetupHandler = sslSetupHandler;
+        this.sslSetupHandler = statistics != null ?
+                new SSLHandshakeMonitor(sslSetupHandler, statistics) : sslSetupHandler;
         this.customContexts = customContexts;
+        this.handshakeExecutor = handshakeExecutor;
+        this.statistics = statistics != null ? statistics : new SSLHandshakeStatistics();
     }
 
     @Override
     public DefaultNHttpClientConnection createConnection(IOSession session) {
+        SSLHandshakeMonitor.connectionCreated(session);
+        String host;
+        int port;
+        Object attachment = session.getAttribute(IOSession.ATTACHMENT_KEY);
+        if (attachment instanceof HostConnections) {
+            host = ((HostConnections) attachment).getHost();
+            port = ((HostConnections) attachment).getPort();
+        } else {
+            InetSocketAddress address = (InetSocketAddress) session.getRemoteAddress();
+            host = address.getHostName();
+            port = address.getPort();
+        }
+
+        SSLContext context = getSSLContext(host, port);
+        if (handshakeExecutor != null || attachment instanceof HostConnections) {
+            context = new ConnectionSSLContext(context, host, port, session,
+                    handshakeExecutor, statistics);
+        }
         final SSLIOSession ssliosession = new SSLIOSession(
                 session,
                 SSLMode.CLIENT,
-                getSSLContext(session),
+                context,
                 sslSetupHandler);
         session.setAttribute(SSLIOSession.SESSION_KEY, ssliosession);
         return super.createConnection(ssliosession);
     }
 
-    private SSLContext getSSLContext(IOSession session) {
-        InetSocketAddress address = (InetSocketAddress) session.getRemoteAddress();
-        String host = address.getHostName() + ":" + address.getPort();
+    private SSLContext getSSLContext(String host, int port) {
         SSLContext customContext = null;
         if (customContexts != null) {
             // See if there's a custom SSL profile configured for this server
-            customContext = customContexts.get(host);
+            customContext = customContexts.get(host + ":" + port);
         }
 
         if (customContext == null) {
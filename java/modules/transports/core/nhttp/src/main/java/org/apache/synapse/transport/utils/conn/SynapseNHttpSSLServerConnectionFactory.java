@@ -27,6 +27,7 @@ import org.apache.http.nio.reactor.ssl.SSLMode;
 import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
 
 import javax.net.ssl.SSLContext;
+import java.util.concurrent.Executor;
 
 /**
  * The SSL-enabled version of the SynapseNHttpServerConnectionFactory. Identical in behavior
@@ -36,20 +37,42 @@ public class SynapseNHttpSSLServerConnectionFactory extends SynapseNHttpServerCo
 
     private SSLContext sslContext;
     private SSLSetupHandler sslSetupHandler;
+    private Executor handshakeExecutor;
+    private SSLHandshakeStatistics statistics;
 
     public SynapseNHttpSSLServerConnectionFactory(ConnectionConfig config, SSLContext sslContext,
                                                   SSLSetupHandler sslSetupHandler) {
+        this(config, sslContext, sslSetupHandler, null, null);
+    }
+
+    /**
+     * @param config            connection configuration
+     * @param sslContext        SSLContext of the listener
+     * @param sslSetupHandler   SSLSetupHandler of the listener
+     * @param handshakeExecutor thread pool to run the handshake tasks or null to run them on
+     *                          the I/O reactor threads
+     * @param statistics        collects handshake statistics if not null
+     */
+    public SynapseNHttpSSLServerConnectionFactory(ConnectionConfig config, SSLContext sslContext,
+                                                  SSLSetupHandler sslSetupHandler,
+                                                  Executor handshakeExecutor,
+                                                  SSLHandshakeStatistics statistics) {
         super(config);
         this.sslContext = sslContext;
-        this.sslSetupHandler = sslSetupHandler;
+        this.sslSetupHandler = statistics != null ?
+                new SSLHandshakeMonitor(sslSetupHandler, statistics) : sslSetupHandler;
+        this.handshakeExecutor = handshakeExecutor;
+        this.statistics = statistics != null ? statistics : new SSLHandshakeStatistics();
     }
 
     @Override
     public DefaultNHttpServerConnection createConnection(IOSession session) {
+        SSLHandshakeMonitor.connectionCreated(session);
         final SSLIOSession ssliosession = new SSLIOSession(
                 session,
                 SSLMode.SERVER,
-                sslContext,
+                handshakeExecutor != null ? new ConnectionSSLContext(sslContext, null, 0, session,
+                        handshakeExecutor, statistics) : sslContext,
                 sslSetupHandler);
         session.setAttribute(SSLIOSession.SESSION_KEY, ssliosession);
         return super.createConnection(ssliosession);
@@ -27,6 +27,7 @@ import org.apache.http.impl.nio.DefaultHttpServerIODispatch;
 import org.apache.http.nio.NHttpClientEventHandler;
 import org.apache.http.nio.NHttpServerEventHandler;
 import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.synapse.transport.utils.conn.SSLHandshakeStatistics;
 import org.apache.synapse.transport.utils.conn.SynapseNHttpClientConnectionFactory;
 import org.apache.synapse.transport.utils.conn.SynapseNHttpSSLClientConnectionFactory;
 import org.apache.synapse.transport.utils.conn.SynapseNHttpSSLServerConnectionFactory;
@@ -34,6 +35,7 @@ import org.apache.synapse.transport.utils.conn.SynapseNHttpServerConnectionFacto
 
 import javax.net.ssl.SSLContext;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class LoggingUtils {
 
@@ -71,6 +73,30 @@ public class LoggingUtils {
                 new SynapseNHttpSSLServerConnectionFactory(config, sslContext, sslSetupHandler));
     }
 
+    /**
+     * Create a new DefaultHttpServerIODispatch instance using the provided parameters.
+     * This method may decorate (wrap) the original arguments with logging-enabled wrappers,
+     * depending on the current logging configuration.
+     *
+     * @param handler An NHttpServerEventHandler instance
+     * @param config A ConnectionConfig instance
+     * @param sslContext An SSLContext instance to initialize SSL support
+     * @param sslSetupHandler An SSLSetupHandler instance
+     * @param handshakeExecutor An Executor to run the SSL handshake tasks or null
+     * @param statistics An SSLHandshakeStatistics instance to collect handshake statistics
+     * @return A DefaultHttpServerIODispatch instance
+     */
+    public static DefaultHttpServerIODispatch getServerIODispatch(final NHttpServerEventHandler handler,
+                                                                  final ConnectionConfig config,
+                                                                  final SSLContext sslContext,
+                                                                  final SSLSetupHandler sslSetupHandler,
+                                                                  final Executor handshakeExecutor,
+                                                                  final SSLHandshakeStatistics statistics) {
+        return new DefaultHttpServerIODispatch(decorate(handler),
+                new SynapseNHttpSSLServerConnectionFactory(config, sslContext, sslSetupHandler,
+                        handshakeExecutor, statistics));
+    }
+
     /**
      * Create a new DefaultHttpClientIODispatch instance using the provided parameters.
      * This method may decorate (wrap) the original arguments with logging-enabled wrappers,
@@ -107,6 +133,32 @@ public class LoggingUtils {
                 new SynapseNHttpSSLClientConnectionFactory(config, sslContext, sslSetupHandler, customContexts));
     }
 
+    /**
+     * Create a new DefaultHttpClientIODispatch instance using the provided parameters.
+     * This method may decorate (wrap) the original arguments with logging-enabled wrappers,
+     * depending on the current logging configuration.
+     *
+     * @param handler An NHttpServerEventHandler instance
+     * @param config A ConnectionConfig instance
+     * @param sslContext An SSLContext instance to initialize SSL support
+     * @param sslSetupHandler An SSLSetupHandler instance
+     * @param customContexts A Map of endpoints and SSLContext instances
+     * @param handshakeExecutor An Executor to run the SSL handshake tasks or null
+     * @param statistics An SSLHandshakeStatistics instance to collect handshake statistics
+     * @return A DefaultHttpClientIODispatch instance
+     */
+    public static DefaultHttpClientIODispatch getClientIODispatch(final NHttpClientEventHandler handler,
+                                                                  final ConnectionConfig config,
+                                                                  final SSLContext sslContext,
+                                                                  final SSLSetupHandler sslSetupHandler,
+                                                                  Map<String, SSLContext> customContexts,
+                                                                  final Executor handshakeExecutor,
+                                                                  final SSLHandshakeStatistics statistics) {
+        return new DefaultHttpClientIODispatch(decorate(handler),
+                new SynapseNHttpSSLClientConnectionFactory(config, sslContext, sslSetupHandler,
+                        customContexts, handshakeExecutor, statistics));
+    }
+
     private static NHttpClientEventHandler decorate(NHttpClientEventHandler handler) {
         Log log = LogFactory.getLog(handler.getClass());
         if (log.isDebugEnabled()) {
@@ -28,6 +28,8 @@ public class CertificateVerificationConfig {
 
     private Integer cacheSize = Constants.CACHE_DEFAULT_ALLOCATED_SIZE;
     private Integer cacheDuration = Constants.CACHE_DEFAULT_DURATION_MINS;
+    private Integer refreshAhead = Constants.CACHE_DEFAULT_REFRESH_AHEAD_SECS;
+    private Integer staleWindow = Constants.CACHE_DEFAULT_STALE_WINDOW_SECS;
 
     public CertificateVerificationConfig(Parameter param) {
         if (param == null) {
@@ -42,6 +44,14 @@ public class CertificateVerificationConfig {
         if (durationElement != null) {
             cacheDuration = new Integer(durationElement.getText());
         }
+        OMElement refreshElement = element.getFirstChildWithName(new QName("RefreshAheadSecs"));
+        if (refreshElement != null) {
+            refreshAhead = new Integer(refreshElement.getText());
+        }
+        OMElement staleElement = element.getFirstChildWithName(new QName("StaleWindowSecs"));
+        if (staleElement != null) {
+            staleWindow = new Integer(staleElement.getText());
+        }
     }
 
     public Integer getCacheSize() {
@@ -51,4 +61,12 @@ public class CertificateVerificationConfig {
     public Integer getCacheDuration() {
         return cacheDuration;
     }
+
+    public Integer getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public Integer getStaleWindow() {
+        return staleWindow;
+    }
 }
@@ -27,6 +27,9 @@ public interface Constants {
     public static final int CACHE_MAX_DURATION_MINS = 60 * 24;
     public static final int CACHE_MIN_DURATION_MINS = 1;
     public static final int CACHE_DEFAULT_DURATION_MINS = 15;
+    public static final int CACHE_DEFAULT_REFRESH_AHEAD_SECS = 5 * 60;
+    public static final int CACHE_DEFAULT_STALE_WINDOW_SECS = 5 * 60;
+    public static final int CACHE_REFRESH_THREADS = 2;
 
     public static final String REVOCATION_MANAGER = "org.apache.synapse.transport.utils.sslcert." +
             "RevocationVerificationManager";
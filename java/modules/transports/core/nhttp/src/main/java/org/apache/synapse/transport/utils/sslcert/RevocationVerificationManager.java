@@ -38,6 +38,8 @@ public class RevocationVerificationManager {
 
     private int cacheSize = Constants.CACHE_DEFAULT_ALLOCATED_SIZE;
     private int cacheDurationMins = Constants.CACHE_DEFAULT_DURATION_MINS;
+    private int refreshAheadSecs = Constants.CACHE_DEFAULT_REFRESH_AHEAD_SECS;
+    private int staleWindowSecs = Constants.CACHE_DEFAULT_STALE_WINDOW_SECS;
     private static final Log log = LogFactory.getLog(RevocationVerificationManager.class);
 
     public RevocationVerificationManager(Integer cacheAllocatedSize, Integer cacheDurationMins) {
@@ -52,6 +54,26 @@ public class RevocationVerificationManager {
         }
     }
 
+    /**
+     * @param cacheAllocatedSize max size of the OCSP and CRL caches
+     * @param cacheDurationMins  period of the cache manager task
+     * @param refreshAheadSecs   how long before the next update the cached revocation
+     *                           information is fetched again in the background
+     * @param staleWindowSecs    how long after the next update the cached revocation
+     *                           information may still be used while it is being fetched again
+     */
+    public RevocationVerificationManager(Integer cacheAllocatedSize, Integer cacheDurationMins,
+                                         Integer refreshAheadSecs, Integer staleWindowSecs) {
+
+        this(cacheAllocatedSize, cacheDurationMins);
+        if (refreshAheadSecs != null && refreshAheadSecs >= 0) {
+            this.refreshAheadSecs = refreshAheadSecs;
+        }
+        if (staleWindowSecs != null && staleWindowSecs >= 0) {
+            this.staleWindowSecs = staleWindowSecs;
+        }
+    }
+
     /**
      * This method first tries to verify the given certificate chain using OCSP since OCSP
      * verification is faster. If that fails it tries to do the verification using CRL.
@@ -68,9 +90,9 @@ public class RevocationVerificationManager {
         long start = System.currentTimeMillis();
 
         OCSPCache ocspCache = OCSPCache.getCache();
-        ocspCache.init(cacheSize, cacheDurationMins);
+        ocspCache.init(cacheSize, cacheDurationMins, refreshAheadSecs, staleWindowSecs);
         CRLCache crlCache = CRLCache.getCache();
-        crlCache.init(cacheSize, cacheDurationMins);
+        crlCache.init(cacheSize, cacheDurationMins, refreshAheadSecs, staleWindowSecs);
 
         RevocationVerifier[] verifiers = {new OCSPVerifier(ocspCache), new CRLVerifier(crlCache)};
 
@@ -39,8 +39,17 @@ public class SynapseAdaptorForOcspCrl {
 
     public void verifyRevocationStatus(X509Certificate[] peerCertificates, Integer cacheSize,
                                        Integer cacheDelay) throws CertificateVerificationException {
+        verifyRevocationStatus(peerCertificates, cacheSize, cacheDelay,
+                Constants.CACHE_DEFAULT_REFRESH_AHEAD_SECS,
+                Constants.CACHE_DEFAULT_STALE_WINDOW_SECS);
+    }
+
+    public void verifyRevocationStatus(X509Certificate[] peerCertificates, Integer cacheSize,
+                                       Integer cacheDelay, Integer refreshAhead,
+                                       Integer staleWindow) throws CertificateVerificationException {
 
-        if (peerCertificates == null || cacheSize == null || cacheDelay == null) {
+        if (peerCertificates == null || cacheSize == null || cacheDelay == null ||
+                refreshAhead == null || staleWindow == null) {
             throw new IllegalArgumentException("Argument cannot be null");
         }
 
@@ -48,9 +57,10 @@ public class SynapseAdaptorForOcspCrl {
             Class revocationManagerClass = loader.loadClass(Constants.REVOCATION_MANAGER);
             Method method = revocationManagerClass.getMethod(Constants.VERIFY_METHOD,
                     peerCertificates.getClass());
-            Constructor constructor = revocationManagerClass.getConstructor(cacheSize.getClass(),
-                    cacheDelay.getClass());
-            Object revocationManager = constructor.newInstance(cacheSize, cacheDelay);
+            Constructor constructor = revocationManagerClass.getConstructor(Integer.class,
+                    Integer.class, Integer.class, Integer.class);
+            Object revocationManager = constructor.newInstance(cacheSize, cacheDelay,
+                    refreshAhead, staleWindow);
             method.invoke(revocationManager, new Object[] { peerCertificates });
         } catch (Exception e) {
             throw new CertificateVerificationException("Failed to load BouncyCastle classes for " +
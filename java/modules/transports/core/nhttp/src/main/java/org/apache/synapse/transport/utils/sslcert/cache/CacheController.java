@@ -23,10 +23,17 @@ public class CacheController implements CacheControllerMBean {
 
     private ManageableCache cache;
     private CacheManager cacheManager;
+    private CacheStatistics statistics;
 
     public CacheController(ManageableCache cache, CacheManager cacheManager){
+        this(cache, cacheManager, new CacheStatistics());
+    }
+
+    public CacheController(ManageableCache cache, CacheManager cacheManager,
+                           CacheStatistics statistics) {
         this.cache = cache;
         this.cacheManager = cacheManager;
+        this.statistics = statistics;
     }
 
     public boolean stopCacheManager() {
@@ -52,4 +59,40 @@ public class CacheController implements CacheControllerMBean {
     public int getCacheManagerDurationMins(){
         return cacheManager.getDuration();
     }
+
+    public long getHitCount() {
+        return statistics.getHitCount();
+    }
+
+    public long getStaleHitCount() {
+        return statistics.getStaleHitCount();
+    }
+
+    public long getMissCount() {
+        return statistics.getMissCount();
+    }
+
+    public long getFetchCount() {
+        return statistics.getFetchCount();
+    }
+
+    public long getFetchFailureCount() {
+        return statistics.getFetchFailureCount();
+    }
+
+    public long getEvictionCount() {
+        return statistics.getEvictionCount();
+    }
+
+    public double getAverageFetchTimeMillis() {
+        return statistics.getAverageFetchTimeMillis();
+    }
+
+    public double getMaxFetchTimeMillis() {
+        return statistics.getMaxFetchTimeMillis();
+    }
+
+    public void resetStatistics() {
+        statistics.reset();
+    }
 }
@@ -54,4 +54,49 @@ public interface CacheControllerMBean {
      * @return cacheManager duration in minutes.
      */
     public int getCacheManagerDurationMins();
+
+    /**
+     * @return Number of lookups served with a valid value from the cache.
+     */
+    public long getHitCount();
+
+    /**
+     * @return Number of lookups served with an expired value while it was being fetched again.
+     */
+    public long getStaleHitCount();
+
+    /**
+     * @return Number of lookups which did not find a usable value in the cache.
+     */
+    public long getMissCount();
+
+    /**
+     * @return Number of fetches from the OCSP responders or the CRL distribution points.
+     */
+    public long getFetchCount();
+
+    /**
+     * @return Number of fetches which did not return a usable value.
+     */
+    public long getFetchFailureCount();
+
+    /**
+     * @return Number of values evicted since the cache was full.
+     */
+    public long getEvictionCount();
+
+    /**
+     * @return Average time taken by a fetch in milliseconds.
+     */
+    public double getAverageFetchTimeMillis();
+
+    /**
+     * @return Longest time taken by a fetch in milliseconds.
+     */
+    public double getMaxFetchTimeMillis();
+
+    /**
+     * Resets the hit, miss and fetch statistics.
+     */
+    public void resetStatistics();
 }
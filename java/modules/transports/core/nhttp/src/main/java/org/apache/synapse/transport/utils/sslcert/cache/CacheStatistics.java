@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.sslcert.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters kept by a {@link RefreshingCache}. They are exposed over JMX through the
+ * {@link CacheController} of the cache.
+ */
+public class CacheStatistics {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong fetchFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong fetchTime = new AtomicLong();
+    private final AtomicLong maxFetchTime = new AtomicLong();
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void staleHit() {
+        staleHits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    void eviction() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * Records a completed fetch from the responder or the CRL distribution point.
+     *
+     * @param nanos   time taken by the fetch in nano seconds
+     * @param success whether a usable value was fetched
+     */
+    void fetched(long nanos, boolean success) {
+        fetches.incrementAndGet();
+        if (!success) {
+            fetchFailures.incrementAndGet();
+        }
+        fetchTime.addAndGet(nanos);
+        long max = maxFetchTime.get();
+        while (nanos > max && !maxFetchTime.compareAndSet(max, nanos)) {
+            max = maxFetchTime.get();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getStaleHitCount() {
+        return staleHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getFetchCount() {
+        return fetches.get();
+    }
+
+    public long getFetchFailureCount() {
+        return fetchFailures.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public double getAverageFetchTimeMillis() {
+        long count = fetches.get();
+        return count == 0 ? 0 : fetchTime.get() / (count * 1000000.0);
+    }
+
+    public double getMaxFetchTimeMillis() {
+        return maxFetchTime.get() / 1000000.0;
+    }
+
+    public void reset() {
+        hits.set(0);
+        staleHits.set(0);
+        misses.set(0);
+        fetches.set(0);
+        fetchFailures.set(0);
+        evictions.set(0);
+        fetchTime.set(0);
+        maxFetchTime.set(0);
+    }
+}
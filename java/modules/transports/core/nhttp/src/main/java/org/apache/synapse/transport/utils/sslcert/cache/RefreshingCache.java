@@ -0,0 +1,466 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.sslcert.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.transport.utils.sslcert.CertificateVerificationException;
+import org.apache.synapse.transport.utils.sslcert.Constants;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class of the revocation caches, which keeps values that expire at the next update time
+ * published by the CA and refreshes them without holding up the SSL handshakes.
+ * <p/>
+ * Every value is stored along with the {@link Callable} used to fetch it, so that it can be
+ * fetched again when required:
+ * <ul>
+ * <li>Once the value is within the refresh ahead period of its next update, it is still served
+ * but a fetch is started in the background.</li>
+ * <li>Once the next update has passed, the stale value is served for at most the stale window
+ * while the background fetch completes.</li>
+ * <li>Beyond that the value is fetched again in the calling thread.</li>
+ * </ul>
+ * There is at most a single fetch in progress for a given key. Concurrent lookups of a missing
+ * key wait for the same fetch instead of going to the network each. The number of entries is
+ * bounded by evicting the least recently used entry when the cache is full.
+ *
+ * @param <K> the key of the cache, such as the certificate serial number or the CRL URL
+ * @param <V> the cached revocation information
+ */
+public abstract class RefreshingCache<K, V> implements ManageableCache {
+
+    private static final Log log = LogFactory.getLog(RefreshingCache.class);
+
+    /** Minimum time between two background fetches of the same value after a failure */
+    private static final long REFRESH_RETRY_INTERVAL = 5000;
+
+    private final String name;
+    private final ConcurrentMap<K, CacheValue> hashMap =
+            new ConcurrentHashMap<K, CacheValue>();
+    private final ConcurrentMap<K, FutureTask<V>> fetches =
+            new ConcurrentHashMap<K, FutureTask<V>>();
+    private final CacheStatistics statistics = new CacheStatistics();
+    private final ThreadPoolExecutor refresher;
+    private Iterator<Map.Entry<K, CacheValue>> iterator;
+    private volatile CacheManager cacheManager;
+
+    private volatile int maxSize = Constants.CACHE_MAX_ALLOCATED_SIZE;
+    private volatile long refreshAhead = Constants.CACHE_DEFAULT_REFRESH_AHEAD_SECS * 1000L;
+    private volatile long staleWindow = Constants.CACHE_DEFAULT_STALE_WINDOW_SECS * 1000L;
+
+    protected RefreshingCache(final String name) {
+        this.name = name;
+        this.iterator = hashMap.entrySet().iterator();
+        this.refresher = new ThreadPoolExecutor(Constants.CACHE_REFRESH_THREADS,
+                Constants.CACHE_REFRESH_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-refresh-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.refresher.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the time until which the given value may be used without fetching it again.
+     *
+     * @param value a cached value
+     * @return the next update time published with the value or null if it has none
+     */
+    protected abstract Date getNextUpdate(V value);
+
+    /**
+     * This lazy initializes the Cache with a CacheManager. If this method is not called, a cache
+     * manager will not be used.
+     *
+     * @param size  max size of the cache
+     * @param delay defines how frequently the CacheManager will be started
+     */
+    public void init(int size, int delay) {
+        init(size, delay, Constants.CACHE_DEFAULT_REFRESH_AHEAD_SECS,
+                Constants.CACHE_DEFAULT_STALE_WINDOW_SECS);
+    }
+
+    /**
+     * This lazy initializes the Cache with a CacheManager and the refresh policy. Only the first
+     * call takes effect.
+     *
+     * @param size              max size of the cache
+     * @param delay             defines how frequently the CacheManager will be started
+     * @param refreshAheadSecs  how long before the next update a value is fetched again
+     * @param staleWindowSecs   how long after the next update a value may still be served
+     *                          while it is being fetched again
+     */
+    public void init(int size, int delay, int refreshAheadSecs, int staleWindowSecs) {
+        if (cacheManager == null) {
+            synchronized (this) {
+                if (cacheManager == null) {
+                    maxSize = size;
+                    setRefreshPolicy(refreshAheadSecs * 1000L, staleWindowSecs * 1000L);
+                    cacheManager = new CacheManager(this, size, delay);
+                    CacheController mbean = new CacheController(this, cacheManager, statistics);
+                    MBeanRegistrar.getInstance().registerMBean(mbean, "CacheController",
+                            name + "Controller");
+                }
+            }
+        }
+    }
+
+    /**
+     * Changes the refresh policy of the cache.
+     *
+     * @param refreshAheadMillis how long before the next update a value is fetched again
+     * @param staleWindowMillis  how long after the next update a value may still be served
+     */
+    public void setRefreshPolicy(long refreshAheadMillis, long staleWindowMillis) {
+        if (refreshAheadMillis < 0 || staleWindowMillis < 0) {
+            throw new IllegalArgumentException("Refresh ahead period and stale window " +
+                    "must not be negative");
+        }
+        this.refreshAhead = refreshAheadMillis;
+        this.staleWindow = staleWindowMillis;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Looks up a value, starting a background fetch if it is about to expire or has expired
+     * recently. A value which has been expired for longer than the stale window is fetched
+     * again in the calling thread.
+     *
+     * @param key the key of the value
+     * @return the cached value or null if it is not in the cache and cannot be fetched again
+     */
+    public V getCacheValue(K key) {
+        CacheValue cacheValue = hashMap.get(key);
+        if (cacheValue == null) {
+            statistics.miss();
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now < cacheValue.expiry - refreshAhead) {
+            statistics.hit();
+            return cacheValue.getValue();
+        }
+
+        if (cacheValue.loader != null) {
+            if (now < cacheValue.expiry) {
+                statistics.hit();
+                refreshLater(cacheValue, now);
+                return cacheValue.getValue();
+            } else if (now < cacheValue.expiry + staleWindow) {
+                statistics.staleHit();
+                refreshLater(cacheValue, now);
+                return cacheValue.getValue();
+            }
+        } else if (now < cacheValue.expiry) {
+            // cannot be fetched again, so use it as long as it is valid
+            statistics.hit();
+            return cacheValue.getValue();
+        }
+
+        statistics.miss();
+        if (cacheValue.loader == null) {
+            removeIfUnchanged(cacheValue);
+            return null;
+        }
+        try {
+            return fetch(key, cacheValue.loader);
+        } catch (CertificateVerificationException e) {
+            log.debug("Cant replace old CacheValue with new CacheValue. So remove", e);
+            removeIfUnchanged(cacheValue);
+            return null;
+        }
+    }
+
+    /**
+     * Looks up a value, fetching it with the given loader if it is not in the cache. Concurrent
+     * callers asking for the same key share a single fetch.
+     *
+     * @param key    the key of the value
+     * @param loader fetches the value if it is not cached. Also used for later refreshes
+     * @return the cached or fetched value
+     * @throws CertificateVerificationException if the value cannot be fetched
+     */
+    public V getCacheValue(K key, Callable<V> loader) throws CertificateVerificationException {
+        V value = getCacheValue(key);
+        if (value != null) {
+            return value;
+        }
+        return fetch(key, loader);
+    }
+
+    /**
+     * Adds a value to the cache, evicting the least recently used value if the cache is full.
+     *
+     * @param key    the key of the value
+     * @param value  the value
+     * @param loader fetches the value again when it expires. If null the value is removed
+     *               when it expires
+     */
+    protected void putCacheValue(K key, V value, Callable<V> loader) {
+        if (!hashMap.containsKey(key) && hashMap.size() >= maxSize) {
+            evictLeastRecentlyUsed();
+        }
+        hashMap.put(key, new CacheValue(key, value, loader));
+        if (log.isDebugEnabled()) {
+            log.debug(name + " size after set " + hashMap.size());
+        }
+    }
+
+    public void removeCacheValue(K key) {
+        hashMap.remove(key);
+        if (log.isDebugEnabled()) {
+            log.debug(name + " size after remove " + hashMap.size());
+        }
+    }
+
+    /**
+     * Removes the given value, unless it has been replaced by a newer one already.
+     */
+    private void removeIfUnchanged(CacheValue cacheValue) {
+        hashMap.remove(cacheValue.key, cacheValue);
+    }
+
+    /**
+     * Fetches the value of the given key, joining the fetch already in progress if there is one.
+     */
+    private V fetch(K key, Callable<V> loader) throws CertificateVerificationException {
+        FutureTask<V> task = new FutureTask<V>(new Fetch(key, loader));
+        FutureTask<V> inProgress = fetches.putIfAbsent(key, task);
+        if (inProgress == null) {
+            inProgress = task;
+            try {
+                task.run();
+            } finally {
+                fetches.remove(key, task);
+            }
+        }
+
+        try {
+            return inProgress.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CertificateVerificationException) {
+                throw (CertificateVerificationException) cause;
+            }
+            throw new CertificateVerificationException("Cannot fetch the revocation " +
+                    "information", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CertificateVerificationException("Interrupted while waiting for the " +
+                    "revocation information", e);
+        }
+    }
+
+    /**
+     * Starts a background fetch of the given value, unless there is a fetch in progress already
+     * or the last one failed only recently.
+     */
+    private void refreshLater(CacheValue cacheValue, long now) {
+        final K key = cacheValue.key;
+        if (fetches.containsKey(key) ||
+                now - cacheValue.lastRefresh < REFRESH_RETRY_INTERVAL) {
+            return;
+        }
+
+        final FutureTask<V> task = new FutureTask<V>(new Fetch(key, cacheValue.loader));
+        if (fetches.putIfAbsent(key, task) != null) {
+            return;
+        }
+        cacheValue.lastRefresh = now;
+        try {
+            refresher.execute(new Runnable() {
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        fetches.remove(key, task);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fetches.remove(key, task);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        CacheValue oldest = null;
+        for (CacheValue cacheValue : hashMap.values()) {
+            if (oldest == null || cacheValue.timeStamp < oldest.timeStamp) {
+                oldest = cacheValue;
+            }
+        }
+        if (oldest != null && hashMap.remove(oldest.key, oldest)) {
+            statistics.eviction();
+        }
+    }
+
+    /**
+     * This method is needed by the cache Manager to go through the cache entries to remove
+     * invalid values or to remove LRU cache values if the cache has reached its max size.
+     *
+     * @return next cache value of the cache.
+     */
+    public synchronized ManageableCacheValue getNextCacheValue() {
+        //changes to the map are reflected on the entry set. And its iterator is weakly
+        // consistent. so will never throw concurrent modification exception.
+        if (iterator.hasNext()) {
+            return iterator.next().getValue();
+        } else {
+            resetIterator();
+            return null;
+        }
+    }
+
+    /**
+     * @return the current cache size (size of the hash map)
+     */
+    public int getCacheSize() {
+        return hashMap.size();
+    }
+
+    public synchronized void resetIterator() {
+        iterator = hashMap.entrySet().iterator();
+    }
+
+    /**
+     * Fetches a value and puts it in the cache, recording the time taken.
+     */
+    private class Fetch implements Callable<V> {
+
+        private final K key;
+        private final Callable<V> loader;
+
+        Fetch(K key, Callable<V> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        public V call() throws Exception {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                V value = loader.call();
+                if (value == null) {
+                    throw new CertificateVerificationException("No revocation information " +
+                            "received for " + key);
+                }
+                putCacheValue(key, value, loader);
+                success = true;
+                return value;
+            } catch (Exception e) {
+                if (log.isDebugEnabled()) {
+                    log.debug(name + " failed to fetch the value of " + key, e);
+                }
+                throw e;
+            } finally {
+                statistics.fetched(System.nanoTime() - start, success);
+            }
+        }
+    }
+
+    /**
+     * This is the wrapper class of the actual cache value.
+     */
+    private class CacheValue implements ManageableCacheValue {
+
+        private final K key;
+        private final V value;
+        private final Callable<V> loader;
+        private final long expiry;
+        private volatile long timeStamp = System.currentTimeMillis();
+        private volatile long lastRefresh;
+
+        CacheValue(K key, V value, Callable<V> loader) {
+            this.key = key;
+            this.value = value;
+            this.loader = loader;
+            // without a next update time newer information is always available
+            Date nextUpdate = getNextUpdate(value);
+            this.expiry = nextUpdate != null ? nextUpdate.getTime() : timeStamp;
+        }
+
+        V getValue() {
+            timeStamp = System.currentTimeMillis();
+            return value;
+        }
+
+        /**
+         * A value is valid until it is due to be refreshed.
+         */
+        public boolean isValid() {
+            return System.currentTimeMillis() < expiry - refreshAhead;
+        }
+
+        public long getTimeStamp() {
+            return timeStamp;
+        }
+
+        /**
+         * Used by cacheManager to remove invalid entries.
+         */
+        public void removeThisCacheValue() {
+            removeIfUnchanged(this);
+        }
+
+        /**
+         * Used by cacheManager to refresh values ahead of their next update. A value which
+         * cannot be refreshed is kept as long as it may be served.
+         */
+        public void updateCacheWithNewValue() {
+            if (loader != null && !fetches.containsKey(key)) {
+                try {
+                    fetch(key, loader);
+                    return;
+                } catch (CertificateVerificationException e) {
+                    log.debug("Cant replace old CacheValue with new CacheValue", e);
+                }
+            }
+            long now = System.currentTimeMillis();
+            if (now >= expiry + (loader != null ? staleWindow : 0)) {
+                removeIfUnchanged(this);
+            }
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.net.URL;
 import java.security.cert.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * This is used to verify a certificate is revoked or not by using the Certificate Revocation
@@ -69,23 +70,16 @@ public class CRLVerifier implements RevocationVerifier {
                 log.debug("Trying to get CRL for URL: " + crlUrl);
             }
 
-            if (cache != null) {
-                X509CRL x509CRL = cache.getCacheValue(crlUrl);
-                if (x509CRL != null) {
-                    //If cant be casted, we have used the wrong cache.
-                    RevocationStatus status = getRevocationStatus(x509CRL, peerCert);
-                    log.debug("CRL taken from cache....");
-                    return status;
-                }
-            }
-
             //todo: Do we need to check if URL has the same domain name as issuerCert?
             try {
-                X509CRL x509CRL = downloadCRLFromWeb(crlUrl);
+                X509CRL x509CRL;
+                if (cache != null) {
+                    // served from the cache, or downloaded once for all concurrent callers
+                    x509CRL = cache.getCacheValue(crlUrl, createFetcher(crlUrl));
+                } else {
+                    x509CRL = downloadCRLFromWeb(crlUrl);
+                }
                 if (x509CRL != null) {
-                    if (cache != null) {
-                        cache.setCacheValue(crlUrl, x509CRL);
-                    }
                     return getRevocationStatus(x509CRL, peerCert);
                 }
             } catch (Exception e) {
@@ -107,6 +101,18 @@ public class CRLVerifier implements RevocationVerifier {
         }
     }
 
+    /**
+     * Creates the task which downloads the CRL from the given URL. The CRLCache uses the same
+     * task to refresh the CRL.
+     */
+    Callable<X509CRL> createFetcher(final String crlUrl) {
+        return new Callable<X509CRL>() {
+            public X509CRL call() throws Exception {
+                return downloadCRLFromWeb(crlUrl);
+            }
+        };
+    }
+
     /**
      * Downloads CRL from the crlUrl. Does not support HTTPS
      */
@@ -36,6 +36,7 @@ import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
 
 /**
  * Used to check if a Certificate is revoked or not by its CA using Online Certificate
@@ -63,9 +64,10 @@ public class OCSPVerifier implements RevocationVerifier {
     public RevocationStatus checkRevocationStatus(X509Certificate peerCert, X509Certificate issuerCert)
             throws CertificateVerificationException {
 
+        BigInteger serialNumber = peerCert.getSerialNumber();
         //check cache
         if (cache != null) {
-            SingleResp resp = cache.getCacheValue(peerCert.getSerialNumber());
+            SingleResp resp = cache.getCacheValue(serialNumber);
             if (resp != null) {
                 //If cant be casted, we have used the wrong cache.
                 RevocationStatus status = getRevocationStatus(resp);
@@ -74,35 +76,61 @@ public class OCSPVerifier implements RevocationVerifier {
             }
         }
 
-        OCSPReq request = generateOCSPRequest(issuerCert, peerCert.getSerialNumber());
+        OCSPReq request = generateOCSPRequest(issuerCert, serialNumber);
         //This list will sometimes have non ocsp urls as well.
         List<String> locations = getAIALocations(peerCert);
+        Callable<SingleResp> fetcher = createFetcher(request, locations);
 
-        for (String serviceUrl : locations) {
-
-            SingleResp[] responses;
+        SingleResp resp;
+        if (cache != null) {
+            // concurrent handshakes with the same peer share a single OCSP call
+            resp = cache.getCacheValue(serialNumber, fetcher);
+        } else {
             try {
-                OCSPResp ocspResponse = getOCSPResponse(serviceUrl, request);
-                if (OCSPRespStatus.SUCCESSFUL != ocspResponse.getStatus()) {
-                    continue; // Server didn't give the response right.
-                }
-
-                BasicOCSPResp basicResponse = (BasicOCSPResp) ocspResponse.getResponseObject();
-                responses = (basicResponse == null) ? null : basicResponse.getResponses();
-                //todo use the super exception
+                resp = fetcher.call();
+            } catch (CertificateVerificationException e) {
+                throw e;
             } catch (Exception e) {
-                continue;
+                throw new CertificateVerificationException("Cant get Revocation Status from OCSP.", e);
             }
+        }
+        return getRevocationStatus(resp);
+    }
 
-            if (responses != null && responses.length == 1) {
-                SingleResp resp = responses[0];
-                RevocationStatus status = getRevocationStatus(resp);
-                if (cache != null)
-                    cache.setCacheValue(peerCert.getSerialNumber(), resp, request, serviceUrl);
-                return status;
+    /**
+     * Creates the task which sends the given request to the OCSP responders one by one, until
+     * one of them gives a response. The OCSPCache uses the same task to refresh the response.
+     *
+     * @param request   an OCSP request object.
+     * @param locations URLs of the OCSP responders.
+     * @return the task which returns the single response for the certificate.
+     */
+    Callable<SingleResp> createFetcher(final OCSPReq request, final List<String> locations) {
+        return new Callable<SingleResp>() {
+            public SingleResp call() throws CertificateVerificationException {
+                for (String serviceUrl : locations) {
+
+                    SingleResp[] responses;
+                    try {
+                        OCSPResp ocspResponse = getOCSPResponse(serviceUrl, request);
+                        if (OCSPRespStatus.SUCCESSFUL != ocspResponse.getStatus()) {
+                            continue; // Server didn't give the response right.
+                        }
+
+                        BasicOCSPResp basicResponse = (BasicOCSPResp) ocspResponse.getResponseObject();
+                        responses = (basicResponse == null) ? null : basicResponse.getResponses();
+                        //todo use the super exception
+                    } catch (Exception e) {
+                        continue;
+                    }
+
+                    if (responses != null && responses.length == 1) {
+                        return responses[0];
+                    }
+                }
+                throw new CertificateVerificationException("Cant get Revocation Status from OCSP.");
             }
-        }
-        throw new CertificateVerificationException("Cant get Revocation Status from OCSP.");
+        };
     }
 
     private RevocationStatus getRevocationStatus(SingleResp resp) throws CertificateVerificationException {
@@ -0,0 +1,465 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.conn;
+
+import junit.framework.TestCase;
+import org.apache.http.nio.reactor.EventMask;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLIOSession;
+import org.apache.http.nio.reactor.ssl.SSLMode;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class OffloadingSSLEngineTest extends TestCase {
+
+    private final CountDownLatch writeRequested = new CountDownLatch(1);
+
+    private IOSession session;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        session = (IOSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{IOSession.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("setEvent".equals(method.getName()) &&
+                        ((Integer) args[0] & EventMask.WRITE) != 0) {
+                    writeRequested.countDown();
+                }
+                return null;
+            }
+        });
+    }
+
+    public void testTasksAreOffloaded() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        HandshakingEngine engine = new HandshakingEngine(new Runnable() {
+            public void run() {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        SSLHandshakeStatistics statistics = new SSLHandshakeStatistics();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            OffloadingSSLEngine offloading = new OffloadingSSLEngine(engine, session, executor,
+                    statistics);
+            assertEquals(SSLEngineResult.HandshakeStatus.NEED_UNWRAP,
+                    offloading.getHandshakeStatus());
+
+            // the engine backs off while the task is running
+            SSLEngineResult result = offloading.unwrap(ByteBuffer.allocate(16),
+                    new ByteBuffer[]{ByteBuffer.allocate(16)}, 0, 1);
+            assertEquals(SSLEngineResult.Status.BUFFER_UNDERFLOW, result.getStatus());
+            assertEquals(0, engine.unwrapCalls);
+            result = offloading.wrap(new ByteBuffer[]{ByteBuffer.allocate(16)}, 0, 1,
+                    ByteBuffer.allocate(16));
+            assertEquals(0, result.bytesProduced());
+
+            release.countDown();
+            assertTrue(writeRequested.await(10, TimeUnit.SECONDS));
+            assertFalse(Thread.currentThread() == engine.taskThread);
+            assertEquals(1, statistics.getOffloadedTasks());
+
+            // the handshake carries on with the wrapped engine
+            assertEquals(SSLEngineResult.HandshakeStatus.NEED_WRAP,
+                    offloading.getHandshakeStatus());
+            offloading.unwrap(ByteBuffer.allocate(16),
+                    new ByteBuffer[]{ByteBuffer.allocate(16)}, 0, 1);
+            assertEquals(1, engine.unwrapCalls);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testRejectedTasksRunInline() throws Exception {
+        HandshakingEngine engine = new HandshakingEngine(new Runnable() {
+            public void run() {
+            }
+        });
+        OffloadingSSLEngine offloading = new OffloadingSSLEngine(engine, session, new Executor() {
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        }, new SSLHandshakeStatistics());
+
+        assertEquals(SSLEngineResult.HandshakeStatus.NEED_WRAP, offloading.getHandshakeStatus());
+        assertSame(Thread.currentThread(), engine.taskThread);
+        assertEquals(1, writeRequested.getCount());
+    }
+
+    public void testHandshakeThroughSSLIOSession() throws Exception {
+        SSLContext context = createSSLContext();
+        SSLHandshakeStatistics statistics = new SSLHandshakeStatistics();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ServerSocketChannel server = ServerSocketChannel.open();
+        Selector selector = Selector.open();
+        try {
+            server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+            for (int i = 0; i < 10; i++) {
+                SocketChannel client = SocketChannel.open(server.socket().getLocalSocketAddress());
+                SocketChannel accepted = server.accept();
+                ReactorSession clientSession = new ReactorSession(client, selector, context,
+                        SSLMode.CLIENT, executor, statistics);
+                ReactorSession serverSession = new ReactorSession(accepted, selector, context,
+                        SSLMode.SERVER, executor, statistics);
+
+                // drive both ends of the connection the way the I/O reactor does, a write
+                // event lost while the handshake tasks are running stalls the handshake
+                long deadline = System.currentTimeMillis() + 10000;
+                while ((!clientSession.isVerified() || !serverSession.isVerified()) &&
+                        System.currentTimeMillis() < deadline) {
+                    clientSession.updateInterestOps();
+                    serverSession.updateInterestOps();
+                    selector.select(50);
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        ((ReactorSession) key.attachment()).dispatch(key);
+                    }
+                    selector.selectedKeys().clear();
+                }
+                assertTrue("client handshake " + i + " did not complete",
+                        clientSession.isVerified());
+                assertTrue("server handshake " + i + " did not complete",
+                        serverSession.isVerified());
+                clientSession.close();
+                serverSession.close();
+            }
+            assertTrue(statistics.getOffloadedTasks() > 0);
+        } finally {
+            selector.close();
+            server.close();
+            executor.shutdownNow();
+        }
+    }
+
+    private SSLContext createSSLContext() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = getClass().getResourceAsStream("/identity.jks");
+        try {
+            keyStore.load(in, "password".toCharArray());
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(
+                KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, "password".toCharArray());
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), new TrustManager[]{new TrustAllManager()}, null);
+        return context;
+    }
+
+    /**
+     * One end of a connection handshaking through an SSLIOSession with offloaded handshake
+     * tasks, over an I/O session stand-in which keeps its event mask like the I/O reactor
+     */
+    private static class ReactorSession implements InvocationHandler, SSLSetupHandler {
+
+        private final SocketChannel channel;
+        private final Selector selector;
+        private final SelectionKey key;
+        private final IOSession session;
+        private final SSLIOSession sslSession;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+        private int eventMask = EventMask.READ;
+        private volatile boolean verified = false;
+        private volatile boolean closed = false;
+
+        ReactorSession(SocketChannel channel, Selector selector, SSLContext context,
+                       SSLMode mode, Executor executor, SSLHandshakeStatistics statistics)
+                throws Exception {
+            this.channel = channel;
+            this.selector = selector;
+            channel.configureBlocking(false);
+            key = channel.register(selector, 0, this);
+            session = (IOSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{IOSession.class}, this);
+            sslSession = new SSLIOSession(session, mode, new ConnectionSSLContext(context,
+                    null, 0, session, executor, statistics), this);
+            session.setAttribute(SSLIOSession.SESSION_KEY, sslSession);
+            sslSession.initialize();
+            // the connection asks for input, as the HTTP connections do
+            sslSession.setEventMask(EventMask.READ);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+            String name = method.getName();
+            if ("channel".equals(name)) {
+                return channel;
+            } else if ("getEventMask".equals(name)) {
+                return getEventMask();
+            } else if ("setEventMask".equals(name)) {
+                setEventMask((Integer) args[0], true);
+            } else if ("setEvent".equals(name)) {
+                setEventMask((Integer) args[0], false);
+            } else if ("clearEvent".equals(name)) {
+                clearEvent((Integer) args[0]);
+            } else if ("close".equals(name) || "shutdown".equals(name)) {
+                closed = true;
+            } else if ("getStatus".equals(name)) {
+                return closed ? IOSession.CLOSED : IOSession.ACTIVE;
+            } else if ("isClosed".equals(name)) {
+                return closed;
+            } else if ("getSocketTimeout".equals(name)) {
+                return 0;
+            } else if ("hasBufferedInput".equals(name) || "hasBufferedOutput".equals(name)) {
+                return false;
+            } else if ("getAttribute".equals(name)) {
+                return attributes.get((String) args[0]);
+            } else if ("setAttribute".equals(name)) {
+                attributes.put((String) args[0], args[1]);
+            } else if ("removeAttribute".equals(name)) {
+                return attributes.remove((String) args[0]);
+            } else if ("getLocalAddress".equals(name)) {
+                return channel.socket().getLocalSocketAddress();
+            } else if ("getRemoteAddress".equals(name)) {
+                return channel.socket().getRemoteSocketAddress();
+            }
+            return null;
+        }
+
+        private synchronized int getEventMask() {
+            return eventMask;
+        }
+
+        private synchronized void setEventMask(int ops, boolean replace) {
+            eventMask = replace ? ops : eventMask | ops;
+            selector.wakeup();
+        }
+
+        private synchronized void clearEvent(int ops) {
+            eventMask &= ~ops;
+        }
+
+        void updateInterestOps() {
+            int ops = getEventMask();
+            key.interestOps(((ops & EventMask.READ) != 0 ? SelectionKey.OP_READ : 0) |
+                    ((ops & EventMask.WRITE) != 0 ? SelectionKey.OP_WRITE : 0));
+        }
+
+        void dispatch(SelectionKey key) throws Exception {
+            if (key.isReadable()) {
+                sslSession.isAppInputReady();
+                sslSession.inboundTransport();
+            }
+            if (key.isValid() && key.isWritable()) {
+                sslSession.isAppOutputReady();
+                sslSession.outboundTransport();
+            }
+        }
+
+        boolean isVerified() {
+            return verified;
+        }
+
+        void close() throws Exception {
+            key.cancel();
+            channel.close();
+        }
+
+        public void initalize(SSLEngine sslEngine) throws SSLException {
+        }
+
+        public void verify(IOSession ioSession, SSLSession sslSession) throws SSLException {
+            verified = true;
+        }
+    }
+
+    private static class TrustAllManager implements X509TrustManager {
+
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+
+    /**
+     * An SSLEngine stand-in which needs to run a single delegated task before it can go on with
+     * the handshake
+     */
+    private static class HandshakingEngine extends SSLEngine {
+
+        private Runnable task;
+        private volatile Thread taskThread;
+        private volatile boolean taskDone = false;
+        private int unwrapCalls = 0;
+
+        HandshakingEngine(final Runnable task) {
+            this.task = new Runnable() {
+                public void run() {
+                    taskThread = Thread.currentThread();
+                    task.run();
+                    taskDone = true;
+                }
+            };
+        }
+
+        @Override
+        public SSLEngineResult.HandshakeStatus getHandshakeStatus() {
+            return taskDone ? SSLEngineResult.HandshakeStatus.NEED_WRAP :
+                    SSLEngineResult.HandshakeStatus.NEED_TASK;
+        }
+
+        @Override
+        public Runnable getDelegatedTask() {
+            Runnable next = task;
+            task = null;
+            return next;
+        }
+
+        @Override
+        public SSLEngineResult wrap(ByteBuffer[] srcs, int offset, int length, ByteBuffer dst)
+                throws SSLException {
+            return new SSLEngineResult(SSLEngineResult.Status.OK, getHandshakeStatus(), 0, 0);
+        }
+
+        @Override
+        public SSLEngineResult unwrap(ByteBuffer src, ByteBuffer[] dsts, int offset, int length)
+                throws SSLException {
+            unwrapCalls++;
+            return new SSLEngineResult(SSLEngineResult.Status.OK, getHandshakeStatus(), 0, 0);
+        }
+
+        @Override
+        public void closeInbound() throws SSLException {
+        }
+
+        @Override
+        public boolean isInboundDone() {
+            return false;
+        }
+
+        @Override
+        public void closeOutbound() {
+        }
+
+        @Override
+        public boolean isOutboundDone() {
+            return false;
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return new String[0];
+        }
+
+        @Override
+        public String[] getEnabledCipherSuites() {
+            return new String[0];
+        }
+
+        @Override
+        public void setEnabledCipherSuites(String[] suites) {
+        }
+
+        @Override
+        public String[] getSupportedProtocols() {
+            return new String[0];
+        }
+
+        @Override
+        public String[] getEnabledProtocols() {
+            return new String[0];
+        }
+
+        @Override
+        public void setEnabledProtocols(String[] protocols) {
+        }
+
+        @Override
+        public SSLSession getSession() {
+            return null;
+        }
+
+        @Override
+        public void beginHandshake() throws SSLException {
+        }
+
+        @Override
+        public void setUseClientMode(boolean mode) {
+        }
+
+        @Override
+        public boolean getUseClientMode() {
+            return false;
+        }
+
+        @Override
+        public void setNeedClientAuth(boolean need) {
+        }
+
+        @Override
+        public boolean getNeedClientAuth() {
+            return false;
+        }
+
+        @Override
+        public void setWantClientAuth(boolean want) {
+        }
+
+        @Override
+        public boolean getWantClientAuth() {
+            return false;
+        }
+
+        @Override
+        public void setEnableSessionCreation(boolean flag) {
+        }
+
+        @Override
+        public boolean getEnableSessionCreation() {
+            return true;
+        }
+    }
+}
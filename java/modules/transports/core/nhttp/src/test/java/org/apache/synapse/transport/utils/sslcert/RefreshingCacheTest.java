@@ -0,0 +1,282 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.utils.sslcert;
+
+import junit.framework.TestCase;
+import org.apache.synapse.transport.utils.sslcert.cache.RefreshingCache;
+import org.apache.synapse.transport.utils.sslcert.crl.CRLCache;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RefreshingCacheTest extends TestCase {
+
+    public void testConcurrentMissesShareOneFetch() throws Exception {
+        final TestCache cache = new TestCache("SingleFlightCache");
+        final CountDownLatch release = new CountDownLatch(1);
+        final Date value = new Date(System.currentTimeMillis() + 3600000);
+        final CountingLoader loader = new CountingLoader(value, release);
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<Date>> results = new ArrayList<Future<Date>>();
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(new Callable<Date>() {
+                    public Date call() throws Exception {
+                        return cache.getCacheValue("serial", loader);
+                    }
+                }));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<Date> result : results) {
+                assertSame(value, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, cache.getStatistics().getFetchCount());
+        assertSame(value, cache.getCacheValue("serial"));
+    }
+
+    public void testRefreshAheadOfExpiry() throws Exception {
+        TestCache cache = new TestCache("RefreshAheadCache");
+        cache.setRefreshPolicy(60000, 0);
+        Date fresh = new Date(System.currentTimeMillis() + 3600000);
+        CountingLoader loader = new CountingLoader(fresh, null);
+
+        Date expiring = new Date(System.currentTimeMillis() + 30000);
+        cache.put("serial", expiring, loader);
+
+        // the value about to expire is served while it is fetched in the background
+        assertSame(expiring, cache.getCacheValue("serial"));
+        for (int i = 0; i < 100 && cache.getStatistics().getFetchCount() == 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, loader.calls.get());
+        assertSame(fresh, cache.getCacheValue("serial"));
+        assertEquals(2, cache.getStatistics().getHitCount());
+    }
+
+    public void testStaleWhileRevalidate() throws Exception {
+        TestCache cache = new TestCache("StaleCache");
+        cache.setRefreshPolicy(0, 60000);
+        CountDownLatch release = new CountDownLatch(1);
+        Date fresh = new Date(System.currentTimeMillis() + 3600000);
+        CountingLoader loader = new CountingLoader(fresh, release);
+
+        Date expired = new Date(System.currentTimeMillis() - 1000);
+        cache.put("serial", expired, loader);
+
+        // the stale value is served as long as the fetch has not completed
+        assertSame(expired, cache.getCacheValue("serial"));
+        assertSame(expired, cache.getCacheValue("serial"));
+        assertEquals(2, cache.getStatistics().getStaleHitCount());
+
+        release.countDown();
+        for (int i = 0; i < 100 && cache.getStatistics().getFetchCount() == 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, loader.calls.get());
+        assertSame(fresh, cache.getCacheValue("serial"));
+    }
+
+    public void testExpiredBeyondStaleWindow() throws Exception {
+        TestCache cache = new TestCache("ExpiredCache");
+        cache.setRefreshPolicy(0, 1000);
+        Date fresh = new Date(System.currentTimeMillis() + 3600000);
+        CountingLoader loader = new CountingLoader(fresh, null);
+
+        cache.put("serial", new Date(System.currentTimeMillis() - 5000), loader);
+        assertSame(fresh, cache.getCacheValue("serial"));
+        assertEquals(1, cache.getStatistics().getMissCount());
+
+        // a value which cannot be fetched again is not served once it expires
+        cache.put("other", new Date(System.currentTimeMillis() - 500), null);
+        assertNull(cache.getCacheValue("other"));
+        assertEquals(1, cache.getCacheSize());
+    }
+
+    public void testCacheIsBounded() throws Exception {
+        TestCache cache = new TestCache("BoundedCache");
+        cache.init(2, 5);
+        Date value = new Date(System.currentTimeMillis() + 3600000);
+
+        cache.put("first", value, null);
+        Thread.sleep(10);
+        cache.put("second", value, null);
+        Thread.sleep(10);
+        cache.getCacheValue("first");
+        cache.put("third", value, null);
+
+        assertEquals(2, cache.getCacheSize());
+        assertNull(cache.getCacheValue("second"));
+        assertNotNull(cache.getCacheValue("first"));
+        assertNotNull(cache.getCacheValue("third"));
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    /**
+     * A CRL about to expire is downloaded again in the background from a local stub of the CRL
+     * distribution point.
+     */
+    public void testCRLRefreshedFromDistributionPoint() throws Exception {
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+        Utils utils = new Utils();
+        KeyPair caKeyPair = utils.generateRSAKeyPair();
+        X509Certificate caCert = utils.generateFakeRootCert(caKeyPair);
+        X509CRL crl = CRLVerifierTest.createCRL(caCert, caKeyPair.getPrivate(),
+                BigInteger.valueOf(111));
+
+        StubDistributionPoint stub = new StubDistributionPoint(crl.getEncoded());
+        CRLCache cache = CRLCache.getCache();
+        String crlUrl = "http://localhost:" + stub.getPort() + "/crl";
+        try {
+            // the CRL expires within the refresh ahead period right away
+            cache.setRefreshPolicy(TestConstants.NEXT_UPDATE_PERIOD * 2L, 0);
+            cache.setCacheValue(crlUrl, crl);
+            long fetches = cache.getStatistics().getFetchCount();
+
+            assertSame(crl, cache.getCacheValue(crlUrl));
+            for (int i = 0; i < 100 && cache.getStatistics().getFetchCount() == fetches; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, stub.requests.get());
+            X509CRL refreshed = cache.getCacheValue(crlUrl);
+            assertNotSame(crl, refreshed);
+            assertEquals(crl, refreshed);
+        } finally {
+            cache.setRefreshPolicy(Constants.CACHE_DEFAULT_REFRESH_AHEAD_SECS * 1000L,
+                    Constants.CACHE_DEFAULT_STALE_WINDOW_SECS * 1000L);
+            cache.removeCacheValue(crlUrl);
+            stub.stop();
+        }
+    }
+
+    private static class TestCache extends RefreshingCache<String, Date> {
+
+        TestCache(String name) {
+            super(name);
+        }
+
+        protected Date getNextUpdate(Date value) {
+            return value;
+        }
+
+        void put(String key, Date value, Callable<Date> loader) {
+            putCacheValue(key, value, loader);
+        }
+    }
+
+    /**
+     * Stand-in for the OCSP responder or the CRL distribution point.
+     */
+    private static class CountingLoader implements Callable<Date> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Date value;
+        private final CountDownLatch release;
+
+        CountingLoader(Date value, CountDownLatch release) {
+            this.value = value;
+            this.release = release;
+        }
+
+        public Date call() throws Exception {
+            calls.incrementAndGet();
+            if (release != null) {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Serves the same CRL to every HTTP request.
+     */
+    private static class StubDistributionPoint implements Runnable {
+
+        private final ServerSocket serverSocket;
+        private final byte[] crl;
+        private final AtomicInteger requests = new AtomicInteger();
+
+        StubDistributionPoint(byte[] crl) throws Exception {
+            this.crl = crl;
+            this.serverSocket = new ServerSocket(0);
+            Thread thread = new Thread(this, "stub-crl-distribution-point");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    try {
+                        BufferedReader reader = new BufferedReader(
+                                new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+                        String line;
+                        while ((line = reader.readLine()) != null && line.length() > 0) {
+                            // skip the request line and the headers
+                        }
+                        requests.incrementAndGet();
+                        OutputStream out = socket.getOutputStream();
+                        out.write(("HTTP/1.0 200 OK\r\nContent-Type: application/pkix-crl\r\n" +
+                                "Content-Length: " + crl.length + "\r\n\r\n").getBytes("US-ASCII"));
+                        out.write(crl);
+                        out.flush();
+                    } finally {
+                        socket.close();
+                    }
+                } catch (Exception ignore) {
+                    // closed
+                }
+            }
+        }
+
+        void stop() throws Exception {
+            serverSocket.close();
+        }
+    }
+}
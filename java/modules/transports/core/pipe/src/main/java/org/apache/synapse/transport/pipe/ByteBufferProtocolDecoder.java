@@ -0,0 +1,42 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.pipe;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Datagram stream decoder able to decode directly from a {@link ByteBuffer}.
+ * <p>
+ * {@link PipeEndpointListener} reads the pipe into a direct buffer when the decoder
+ * implements this interface. This avoids the copy from the native buffer into a heap
+ * buffer done by the channel when reading into a heap buffer, so that the bytes of a
+ * datagram are only copied once, into the array returned by {@link #getNext()}.
+ */
+public interface ByteBufferProtocolDecoder extends ProtocolDecoder {
+    /**
+     * Decode data from the stream.
+     * This method should be called after a call to {@link #inputRequired()} returned
+     * true. It consumes all the bytes between the position and the limit of the buffer,
+     * i.e. the position of the buffer is equal to its limit when this method returns.
+     * 
+     * @param buffer a buffer containing data from the stream
+     */
+    void decode(ByteBuffer buffer);
+}
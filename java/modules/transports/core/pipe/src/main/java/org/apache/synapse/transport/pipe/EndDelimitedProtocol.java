@@ -18,8 +18,8 @@
  */
 package org.apache.synapse.transport.pipe;
 
-import java.io.ByteArrayOutputStream;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Queue;
 
 import org.apache.axis2.AxisFault;
@@ -52,9 +52,11 @@ import org.apache.axis2.transport.base.ParamUtils;
  * &lt;/transportReceiver></pre>
  */
 public class EndDelimitedProtocol implements Protocol {
-    private class ProtocolDecoderImpl implements ProtocolDecoder {
-        private final ByteArrayOutputStream messageBuffer = new ByteArrayOutputStream();
-        private final Queue<byte[]> messages = new LinkedList<byte[]>();
+    private class ProtocolDecoderImpl implements ByteBufferProtocolDecoder {
+        private final Queue<byte[]> messages = new ArrayDeque<byte[]>();
+        // Bytes of the current message received in previous chunks
+        private byte[] partial = new byte[256];
+        private int partialLength;
         
         public ProtocolDecoderImpl() {}
         
@@ -64,16 +66,68 @@ public class EndDelimitedProtocol implements Protocol {
 
         public void decode(byte[] buf, int offset, int length) {
             byte delimiter = getDelimiter();
+            int end = offset + length;
             int start = offset;
-            for (int i=offset; i<length; i++) {
+            for (int i=offset; i<end; i++) {
                 if (buf[i] == delimiter) {
-                    messageBuffer.write(buf, start, i-start);
+                    byte[] message = newMessage(i-start);
+                    System.arraycopy(buf, start, message, partialLength, i-start);
+                    complete(message);
                     start = i+1;
-                    messages.add(messageBuffer.toByteArray());
-                    messageBuffer.reset();
                 }
             }
-            messageBuffer.write(buf, start, length-start);
+            appendPartial(end-start);
+            System.arraycopy(buf, start, partial, partialLength, end-start);
+            partialLength += end-start;
+        }
+
+        public void decode(ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                int position = buffer.position();
+                decode(buffer.array(), buffer.arrayOffset() + position, buffer.limit() - position);
+                buffer.position(buffer.limit());
+                return;
+            }
+            byte delimiter = getDelimiter();
+            int end = buffer.limit();
+            int start = buffer.position();
+            for (int i=start; i<end; i++) {
+                if (buffer.get(i) == delimiter) {
+                    byte[] message = newMessage(i-start);
+                    buffer.get(message, partialLength, i-start);
+                    buffer.get();
+                    complete(message);
+                    start = i+1;
+                }
+            }
+            appendPartial(end-start);
+            buffer.get(partial, partialLength, end-start);
+            partialLength += end-start;
+        }
+
+        /**
+         * Allocate the array of a message and copy the bytes received in previous chunks
+         * into it.
+         */
+        private byte[] newMessage(int length) {
+            byte[] message = new byte[partialLength + length];
+            if (partialLength > 0) {
+                System.arraycopy(partial, 0, message, 0, partialLength);
+            }
+            return message;
+        }
+
+        private void complete(byte[] message) {
+            messages.add(message);
+            partialLength = 0;
+        }
+
+        private void appendPartial(int length) {
+            if (partialLength + length > partial.length) {
+                byte[] newPartial = new byte[Math.max(partial.length*2, partialLength + length)];
+                System.arraycopy(partial, 0, newPartial, 0, partialLength);
+                partial = newPartial;
+            }
         }
 
         public byte[] getNext() {
@@ -0,0 +1,153 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.pipe;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.apache.axis2.AxisFault;
+import org.apache.axis2.description.ParameterInclude;
+import org.apache.axis2.transport.base.ParamUtils;
+
+/**
+ * Length prefixed protocol implementation.
+ * <p>
+ * In the length prefixed protocol each datagram is preceded by a header
+ * containing its length in bytes, encoded as an unsigned big endian integer.
+ * Contrary to {@link EndDelimitedProtocol}, datagrams may contain arbitrary
+ * byte sequences and the decoder doesn't need to scan their content.
+ * <p>
+ * This protocol recognizes the following parameters:
+ * <dl>
+ *   <dt>lengthFieldSize</dt>
+ *   <dd>The size in bytes of the length header. Allowed values are 1, 2 and 4.
+ *       The default value is 4.</dd>
+ *   <dt>maxMessageSize</dt>
+ *   <dd>The maximum length of a datagram. The decoder fails if it encounters
+ *       a longer datagram, which usually indicates that the stream is corrupted.
+ *       The default value is 16 MB.</dd>
+ * </dl>
+ * An example transport receiver configuration looks like:
+ * <pre>
+ * &lt;transportReceiver name="pipe" class="org.apache.synapse.transport.pipe.PipeListener">
+ *   &lt;parameter name="protocol">org.apache.synapse.transport.pipe.LengthPrefixedProtocol&lt;/parameter>
+ *   &lt;parameter name="lengthFieldSize">2&lt;/parameter>
+ * &lt;/transportReceiver></pre>
+ */
+public class LengthPrefixedProtocol implements Protocol {
+    private class ProtocolDecoderImpl implements ByteBufferProtocolDecoder {
+        private final Queue<byte[]> messages = new ArrayDeque<byte[]>();
+        private int headerBytes;
+        private int length;
+        // The message being filled; null while reading the header
+        private byte[] message;
+        private int messageLength;
+        
+        public ProtocolDecoderImpl() {}
+        
+        public boolean inputRequired() {
+            return messages.isEmpty();
+        }
+
+        public void decode(byte[] buf, int offset, int length) {
+            decode(ByteBuffer.wrap(buf, offset, length));
+        }
+
+        public void decode(ByteBuffer buffer) {
+            while (buffer.hasRemaining()) {
+                if (message == null) {
+                    length = (length << 8) | (buffer.get() & 0xFF);
+                    if (++headerBytes == lengthFieldSize) {
+                        if (length < 0 || length > maxMessageSize) {
+                            throw new IllegalStateException("Datagram length " + (length & 0xFFFFFFFFL)
+                                    + " exceeds the maximum message size " + maxMessageSize);
+                        }
+                        message = new byte[length];
+                        messageLength = 0;
+                        headerBytes = 0;
+                        length = 0;
+                    } else {
+                        continue;
+                    }
+                } else {
+                    int c = Math.min(buffer.remaining(), message.length - messageLength);
+                    buffer.get(message, messageLength, c);
+                    messageLength += c;
+                }
+                if (messageLength == message.length) {
+                    messages.add(message);
+                    message = null;
+                }
+            }
+        }
+
+        public byte[] getNext() {
+            return messages.poll();
+        }
+    }
+    
+    private int lengthFieldSize = 4;
+    private int maxMessageSize = 16*1024*1024;
+    
+    public void init(ParameterInclude paramInclude) throws AxisFault {
+        String value = ParamUtils.getOptionalParam(paramInclude, "lengthFieldSize");
+        if (value != null) {
+            try {
+                setLengthFieldSize(Integer.parseInt(value.trim()));
+            } catch (IllegalArgumentException ex) {
+                throw new AxisFault("Invalid value '" + value + "' for parameter lengthFieldSize");
+            }
+        }
+        value = ParamUtils.getOptionalParam(paramInclude, "maxMessageSize");
+        if (value != null) {
+            try {
+                setMaxMessageSize(Integer.parseInt(value.trim()));
+            } catch (IllegalArgumentException ex) {
+                throw new AxisFault("Invalid value '" + value + "' for parameter maxMessageSize");
+            }
+        }
+    }
+
+    public int getLengthFieldSize() {
+        return lengthFieldSize;
+    }
+
+    public void setLengthFieldSize(int lengthFieldSize) {
+        if (lengthFieldSize != 1 && lengthFieldSize != 2 && lengthFieldSize != 4) {
+            throw new IllegalArgumentException("lengthFieldSize must be 1, 2 or 4");
+        }
+        this.lengthFieldSize = lengthFieldSize;
+    }
+
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public void setMaxMessageSize(int maxMessageSize) {
+        if (maxMessageSize < 0) {
+            throw new IllegalArgumentException("maxMessageSize must not be negative");
+        }
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    public ProtocolDecoder createProtocolDecoder() {
+        return new ProtocolDecoderImpl();
+    }
+}
@@ -25,4 +25,20 @@ public class PipeConstants {
     private PipeConstants() {}
     
     public static final String NAME_KEY = "transport.pipe.name";
+    
+    /** Size in bytes of the (direct) buffer the pipe is read into */
+    public static final String READ_BUFFER_SIZE_KEY = "transport.pipe.readBufferSize";
+    
+    /** Maximum number of messages handed to the worker pool at once */
+    public static final String BATCH_SIZE_KEY = "transport.pipe.batchSize";
+    
+    /**
+     * Number of tasks queued in the worker pool above which the listener stops reading
+     * the pipe; 0 disables back-pressure
+     */
+    public static final String MAX_PENDING_MESSAGES_KEY = "transport.pipe.maxPendingMessages";
+    
+    public static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    public static final int DEFAULT_MAX_PENDING_MESSAGES = 10000;
 }
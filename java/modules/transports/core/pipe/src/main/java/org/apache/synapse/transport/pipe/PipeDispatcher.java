@@ -26,16 +26,31 @@ import java.util.Map;
 
 import org.apache.axis2.transport.base.datagram.DatagramDispatcher;
 import org.apache.axis2.transport.base.datagram.DatagramDispatcherCallback;
+import org.apache.axis2.transport.base.threads.WorkerPool;
 
 /**
  * {@link DatagramDispatcher} implementation for the pipe transport.
  */
 public class PipeDispatcher implements DatagramDispatcher<PipeEndpoint> {
     private final DatagramDispatcherCallback callback;
+    private final WorkerPool workerPool;
     private final Map<PipeEndpoint,PipeEndpointListener> endpointListeners = new IdentityHashMap<PipeEndpoint,PipeEndpointListener>();
     
     public PipeDispatcher(DatagramDispatcherCallback callback) {
+        this(callback, null);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param callback the callback to dispatch received messages to
+     * @param workerPool the worker pool used by the callback; the endpoint listeners stop
+     *                   reading from their pipes while the number of tasks queued in this pool
+     *                   exceeds the configured maximum. May be <code>null</code>.
+     */
+    public PipeDispatcher(DatagramDispatcherCallback callback, WorkerPool workerPool) {
         this.callback = callback;
+        this.workerPool = workerPool;
     }
 
 	public void addEndpoint(PipeEndpoint endpoint) throws IOException {
@@ -46,7 +61,7 @@ public class PipeDispatcher implements DatagramDispatcher<PipeEndpoint> {
 	    if (pipe.isDirectory() || pipe.isFile()) {
 	        throw new IOException(pipe.getAbsolutePath() + " is not a pipe");
 	    }
-		PipeEndpointListener listener = new PipeEndpointListener(endpoint, callback);
+		PipeEndpointListener listener = new PipeEndpointListener(endpoint, callback, workerPool);
 		new Thread(listener, "pipe:" + pipe.getAbsolutePath()).start();
 		endpointListeners.put(endpoint, listener);
 	}
@@ -33,6 +33,9 @@ import org.apache.axis2.transport.base.datagram.DatagramEndpoint;
 public class PipeEndpoint extends DatagramEndpoint {
 	private File pipe;
 	private Protocol protocol;
+	private int readBufferSize = PipeConstants.DEFAULT_READ_BUFFER_SIZE;
+	private int batchSize = PipeConstants.DEFAULT_BATCH_SIZE;
+	private int maxPendingMessages = PipeConstants.DEFAULT_MAX_PENDING_MESSAGES;
 
 	public File getPipe() {
 		return pipe;
@@ -46,6 +49,18 @@ public class PipeEndpoint extends DatagramEndpoint {
         this.protocol = protocol;
     }
 
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxPendingMessages() {
+        return maxPendingMessages;
+    }
+
     @Override
     public boolean loadConfiguration(ParameterInclude params) throws AxisFault {
         String name = ParamUtils.getOptionalParam(params, PipeConstants.NAME_KEY);
@@ -53,9 +68,31 @@ public class PipeEndpoint extends DatagramEndpoint {
             return false;
         }
         pipe = new File(name);
+        readBufferSize = getIntParam(params, PipeConstants.READ_BUFFER_SIZE_KEY, readBufferSize, 1);
+        batchSize = getIntParam(params, PipeConstants.BATCH_SIZE_KEY, batchSize, 1);
+        maxPendingMessages = getIntParam(params, PipeConstants.MAX_PENDING_MESSAGES_KEY,
+                maxPendingMessages, 0);
         return super.loadConfiguration(params);
     }
 
+    private static int getIntParam(ParameterInclude params, String name, int defaultValue,
+            int minValue) throws AxisFault {
+        String value = ParamUtils.getOptionalParam(params, name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int intValue;
+        try {
+            intValue = Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new AxisFault("Invalid value '" + value + "' for parameter " + name);
+        }
+        if (intValue < minValue) {
+            throw new AxisFault("The value of parameter " + name + " must be at least " + minValue);
+        }
+        return intValue;
+    }
+
     @Override
 	public EndpointReference[] getEndpointReferences(AxisService service, String ip) {
 		return new EndpointReference[] { new EndpointReference("pipe://" + pipe.getAbsolutePath()
@@ -28,6 +28,7 @@ import java.nio.channels.FileChannel;
 import java.util.concurrent.CountDownLatch;
 
 import org.apache.axis2.transport.base.datagram.DatagramDispatcherCallback;
+import org.apache.axis2.transport.base.threads.WorkerPool;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -54,8 +55,12 @@ import org.apache.commons.logging.LogFactory;
 public class PipeEndpointListener implements Runnable {
     private static final Log log = LogFactory.getLog(PipeEndpointListener.class);
     
+    /** Time in milliseconds to wait before checking again if the worker pool has caught up */
+    private static final long BACK_PRESSURE_DELAY = 10;
+    
     private final PipeEndpoint endpoint;
     private final DatagramDispatcherCallback callback;
+    private final WorkerPool workerPool;
     private final RandomAccessFile pipe;
     private final FileChannel readChannel;
     private final FileChannel writeChannel;
@@ -64,8 +69,23 @@ public class PipeEndpointListener implements Runnable {
     private final CountDownLatch done = new CountDownLatch(1);
     
     public PipeEndpointListener(PipeEndpoint endpoint, DatagramDispatcherCallback callback) throws IOException {
+        this(endpoint, callback, null);
+    }
+    
+    /**
+     * Constructor.
+     * 
+     * @param endpoint the endpoint to listen on
+     * @param callback the callback to dispatch received messages to
+     * @param workerPool the worker pool used by the callback, or <code>null</code> to disable
+     *                   back-pressure
+     * @throws IOException if the pipe could not be opened
+     */
+    public PipeEndpointListener(PipeEndpoint endpoint, DatagramDispatcherCallback callback,
+            WorkerPool workerPool) throws IOException {
         this.endpoint = endpoint;
         this.callback = callback;
+        this.workerPool = workerPool;
         pipe = new RandomAccessFile(endpoint.getPipe(), "rw");
         FileDescriptor fd = pipe.getFD();
         readChannel = new FileInputStream(fd).getChannel();
@@ -77,34 +97,64 @@ public class PipeEndpointListener implements Runnable {
 
     public void run() {
         running = true;
-        ByteBuffer readBuffer = ByteBuffer.allocate(1024);
+        ProtocolDecoder decoder = endpoint.getProtocol().createProtocolDecoder();
+        ByteBufferProtocolDecoder bufferDecoder;
+        ByteBuffer readBuffer;
+        if (decoder instanceof ByteBufferProtocolDecoder) {
+            bufferDecoder = (ByteBufferProtocolDecoder)decoder;
+            readBuffer = ByteBuffer.allocateDirect(endpoint.getReadBufferSize());
+        } else {
+            bufferDecoder = null;
+            readBuffer = ByteBuffer.allocate(endpoint.getReadBufferSize());
+        }
+        byte[][] batch = new byte[endpoint.getBatchSize()][];
+        int batchLength = 0;
         try {
             while (true) {
-                ProtocolDecoder decoder;
-                decoder = endpoint.getProtocol().createProtocolDecoder();
-                while (true) {
-                    while (decoder.inputRequired()) {
-                        int c;
-                        try {
-                            c = readChannel.read(readBuffer);
-                        } catch (IOException ex) {
-                            log.error("Error while reading from pipe " + endpoint.getPipe().getAbsolutePath() + "; shutting down listener", ex);
+                if (decoder.inputRequired()) {
+                    // Dispatch the messages decoded so far before blocking on the pipe
+                    if (batchLength > 0) {
+                        if (!dispatch(batch, batchLength)) {
                             return;
                         }
-                        if (c == -1) {
-                            log.error("Pipe " + endpoint.getPipe().getAbsolutePath() + " was unexpectedly closed; shutting down listener");
+                        batchLength = 0;
+                    }
+                    int c;
+                    try {
+                        c = readChannel.read(readBuffer);
+                    } catch (IOException ex) {
+                        log.error("Error while reading from pipe " + endpoint.getPipe().getAbsolutePath() + "; shutting down listener", ex);
+                        return;
+                    }
+                    if (c == -1) {
+                        log.error("Pipe " + endpoint.getPipe().getAbsolutePath() + " was unexpectedly closed; shutting down listener");
+                        return;
+                    }
+                    synchronized (guard) {
+                        if (!running) {
                             return;
                         }
-                        synchronized (guard) {
-                            if (!running) {
-                                return;
-                            }
+                    }
+                    try {
+                        if (bufferDecoder != null) {
+                            readBuffer.flip();
+                            bufferDecoder.decode(readBuffer);
+                        } else {
+                            decoder.decode(readBuffer.array(), 0, readBuffer.position());
                         }
-                        decoder.decode(readBuffer.array(), 0, readBuffer.position());
-                        readBuffer.rewind();
+                    } catch (RuntimeException ex) {
+                        log.error("Error while decoding data read from pipe " + endpoint.getPipe().getAbsolutePath() + "; shutting down listener", ex);
+                        return;
+                    }
+                    readBuffer.clear();
+                } else {
+                    batch[batchLength++] = decoder.getNext();
+                    if (batchLength == batch.length) {
+                        if (!dispatch(batch, batchLength)) {
+                            return;
+                        }
+                        batchLength = 0;
                     }
-                    byte[] message = decoder.getNext();
-                    callback.receive(endpoint, message, message.length, null);
                 }
             }
         }
@@ -121,6 +171,41 @@ public class PipeEndpointListener implements Runnable {
         }
     }
 
+    /**
+     * Hand a batch of messages over to the worker pool. If the worker pool has more than
+     * the configured number of pending tasks, this method waits until it has caught up,
+     * so that the writer of the pipe is eventually blocked instead of messages piling up
+     * in memory.
+     * 
+     * @param batch the messages to dispatch
+     * @param length the number of messages in the batch
+     * @return <code>false</code> if the listener has been stopped while waiting
+     */
+    private boolean dispatch(byte[][] batch, int length) {
+        int maxPendingMessages = endpoint.getMaxPendingMessages();
+        if (maxPendingMessages > 0 && workerPool != null) {
+            while (workerPool.getQueueSize() >= maxPendingMessages) {
+                synchronized (guard) {
+                    if (!running) {
+                        return false;
+                    }
+                }
+                try {
+                    Thread.sleep(BACK_PRESSURE_DELAY);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        for (int i=0; i<length; i++) {
+            byte[] message = batch[i];
+            batch[i] = null;
+            callback.receive(endpoint, message, message.length, null);
+        }
+        return true;
+    }
+
     public void stop() throws IOException {
         if (log.isDebugEnabled()) {
             log.debug("Stopping listener for pipe " + endpoint.getPipe().getAbsolutePath() + " ...");
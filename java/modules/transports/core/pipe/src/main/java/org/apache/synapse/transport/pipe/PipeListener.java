@@ -49,6 +49,15 @@ import org.apache.axis2.transport.base.datagram.DatagramDispatcherCallback;
  *   <dt>transport.pipe.contentType</dt>
  *   <dd>The content type of the messages received (required). This setting
  *       is used to select the appropriate message builder.</dd>
+ *   <dt>transport.pipe.readBufferSize</dt>
+ *   <dd>The size in bytes of the buffer the pipe is read into (optional, default 65536).</dd>
+ *   <dt>transport.pipe.batchSize</dt>
+ *   <dd>The maximum number of decoded messages handed over to the worker pool
+ *       at once (optional, default 64).</dd>
+ *   <dt>transport.pipe.maxPendingMessages</dt>
+ *   <dd>The number of tasks queued in the worker pool above which the listener stops
+ *       reading from the pipe until the pool has caught up (optional, default 10000).
+ *       A value of 0 disables this back-pressure mechanism.</dd>
  * </dl>
  */
 public class PipeListener extends AbstractDatagramTransportListener<PipeEndpoint> implements ManagementSupport {
@@ -78,7 +87,7 @@ public class PipeListener extends AbstractDatagramTransportListener<PipeEndpoint
 
     @Override
     protected PipeDispatcher createDispatcher(DatagramDispatcherCallback callback) throws IOException {
-        return new PipeDispatcher(callback);
+        return new PipeDispatcher(callback, workerPool);
     }
 
     @Override
@@ -22,6 +22,7 @@ package org.apache.synapse.transport.pipe;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -65,4 +66,32 @@ public class EndDelimitedProtocolTest extends TestCase {
             assertEquals(new String(expected, "us-ascii"), new String(actual, "us-ascii"));
         }
     }
+    
+    public void testDirectBuffer() throws IOException {
+        byte delimiter = 10;
+        EndDelimitedProtocol protocol = new EndDelimitedProtocol();
+        protocol.setDelimiter(delimiter);
+        ByteBufferProtocolDecoder decoder = (ByteBufferProtocolDecoder)protocol.createProtocolDecoder();
+        byte[] data = "first\nsecond message\n\nlast\n".getBytes("us-ascii");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(7);
+        List<String> actual = new LinkedList<String>();
+        int offset = 0;
+        while (offset < data.length) {
+            int c = Math.min(buffer.capacity(), data.length - offset);
+            buffer.put(data, offset, c);
+            offset += c;
+            buffer.flip();
+            decoder.decode(buffer);
+            assertFalse(buffer.hasRemaining());
+            buffer.clear();
+            while (!decoder.inputRequired()) {
+                actual.add(new String(decoder.getNext(), "us-ascii"));
+            }
+        }
+        assertEquals(4, actual.size());
+        assertEquals("first", actual.get(0));
+        assertEquals("second message", actual.get(1));
+        assertEquals("", actual.get(2));
+        assertEquals("last", actual.get(3));
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.pipe;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class LengthPrefixedProtocolTest extends TestCase {
+    private static void writeMessage(ByteArrayOutputStream out, byte[] data, int lengthFieldSize) {
+        for (int i=lengthFieldSize-1; i>=0; i--) {
+            out.write(data.length >>> (8*i));
+        }
+        out.write(data, 0, data.length);
+    }
+    
+    private void testDecode(int lengthFieldSize, boolean direct) {
+        Random random = new Random();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<byte[]> messages = new LinkedList<byte[]>();
+        for (int i=0; i<20; i++) {
+            byte[] data = new byte[i == 5 ? 0 : random.nextInt(lengthFieldSize == 1 ? 256 : 4096)];
+            random.nextBytes(data);
+            writeMessage(out, data, lengthFieldSize);
+            messages.add(data);
+        }
+        LengthPrefixedProtocol protocol = new LengthPrefixedProtocol();
+        protocol.setLengthFieldSize(lengthFieldSize);
+        ByteBufferProtocolDecoder decoder = (ByteBufferProtocolDecoder)protocol.createProtocolDecoder();
+        byte[] stream = out.toByteArray();
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(1000) : ByteBuffer.allocate(1000);
+        int offset = 0;
+        while (offset < stream.length) {
+            // Use chunks of varying size so that headers are split across reads
+            int c = Math.min(1 + random.nextInt(buffer.capacity()), stream.length - offset);
+            buffer.put(stream, offset, c);
+            offset += c;
+            buffer.flip();
+            decoder.decode(buffer);
+            assertFalse(buffer.hasRemaining());
+            buffer.clear();
+            while (!decoder.inputRequired()) {
+                assertFalse("Didn't expect any more messages", messages.isEmpty());
+                assertTrue(Arrays.equals(messages.remove(0), decoder.getNext()));
+            }
+        }
+        assertTrue("Expected " + messages.size() + " more messages", messages.isEmpty());
+    }
+    
+    public void testHeapBuffer() {
+        testDecode(4, false);
+    }
+    
+    public void testDirectBuffer() {
+        testDecode(4, true);
+    }
+    
+    public void testShortLengthFields() {
+        testDecode(1, true);
+        testDecode(2, true);
+    }
+    
+    public void testMaxMessageSize() {
+        LengthPrefixedProtocol protocol = new LengthPrefixedProtocol();
+        protocol.setMaxMessageSize(100);
+        ProtocolDecoder decoder = protocol.createProtocolDecoder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeMessage(out, new byte[101], 4);
+        byte[] stream = out.toByteArray();
+        try {
+            decoder.decode(stream, 0, stream.length);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.vfs;
+
+import org.apache.axis2.transport.base.MetricsCollector;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.FileType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Appends the messages sent to a file through a stream kept open between messages. Messages
+ * are queued by the senders and written to the file by the tasks of a shared executor,
+ * through a buffer that is flushed when full or at the end of each flush interval. A message
+ * stays in the queue until the buffer it was written to has been flushed, so that it is
+ * written again if the flush fails. The file is rotated, i.e. renamed with a timestamp suffix,
+ * once it reaches the rotation size or age. A writer idle for a minute closes its file and
+ * removes itself from the writers of the sender
+ */
+class BatchedFileWriter {
+
+    private static final Log log = LogFactory.getLog(BatchedFileWriter.class);
+
+    /** a writer is closed after being idle for this number of milliseconds */
+    private static final long IDLE_CLOSE_TIME = 60000;
+
+    private final FileSystemManager fsManager;
+    private final VFSOutTransportInfo outInfo;
+    private final ScheduledExecutorService executor;
+    private final MetricsCollector metrics;
+    private final ConcurrentMap<String, BatchedFileWriter> writers;
+    private final String maskedURI;
+    private final long idleCloseTime;
+
+    private final BlockingQueue<byte[]> queue;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final ScheduledFuture<?> flushTask;
+    /** held by the senders queueing messages, and exclusively to close the writer */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed = false;
+    private final AtomicBoolean settingsWarned = new AtomicBoolean(false);
+
+    private final Runnable drainTask = new Runnable() {
+        public void run() {
+            boolean written;
+            try {
+                written = drain();
+            } finally {
+                draining.set(false);
+            }
+            // pick up messages queued while the drain was completing
+            if (written && hasUnwritten()) {
+                scheduleDrain();
+            }
+        }
+    };
+
+    // the state of the open file, guarded by this writer
+    private final DateFormat rotateFormat = new SimpleDateFormat("yyyyMMddHHmmssSSS");
+    private FileObject file;
+    private OutputStream out;
+    /** the messages written since the last flush, only written to the file when flushed */
+    private final ByteArrayOutputStream buffer;
+    private boolean locked;
+    private long fileSize;
+    private long openedAt;
+    private long lastWrite;
+    private long retryAt;
+    /** number of messages at the head of the queue written to the buffer but not flushed */
+    private int unflushed;
+    private long unflushedBytes;
+
+    /**
+     * @param writers the writers of the sender, from which the writer removes itself once
+     * closed for being idle
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    BatchedFileWriter(FileSystemManager fsManager, VFSOutTransportInfo outInfo,
+                      ScheduledExecutorService executor, MetricsCollector metrics,
+                      ConcurrentMap<String, BatchedFileWriter> writers) {
+        this(fsManager, outInfo, executor, metrics, writers, IDLE_CLOSE_TIME);
+    }
+
+    BatchedFileWriter(FileSystemManager fsManager, VFSOutTransportInfo outInfo,
+                      ScheduledExecutorService executor, MetricsCollector metrics,
+                      ConcurrentMap<String, BatchedFileWriter> writers, long idleCloseTime) {
+        this.fsManager = fsManager;
+        this.outInfo = outInfo;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.writers = writers;
+        this.idleCloseTime = idleCloseTime;
+        this.maskedURI = VFSUtils.maskURLPassword(outInfo.getOutFileURI());
+        this.queue = new ArrayBlockingQueue<byte[]>(outInfo.getBatchQueueSize());
+        this.buffer = new ByteArrayOutputStream(outInfo.getFlushSize());
+        this.lastWrite = System.currentTimeMillis();
+        this.flushTask = executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                flush();
+            }
+        }, outInfo.getFlushInterval(), outInfo.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a message to be appended to the file, waiting for space in the queue if needed
+     * @param message the serialized message
+     * @param timeout maximum time in milliseconds to wait for space in the queue
+     * @return false if the message could not be queued in time or the writer is closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean write(byte[] message, long timeout) throws InterruptedException {
+        closeLock.readLock().lock();
+        try {
+            if (closed || !queue.offer(message, timeout, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * @return true if the writer has been closed, and does not accept messages anymore
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Write out the queued messages and close the file
+     */
+    void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        flushTask.cancel(false);
+        writers.remove(outInfo.getOutFileURI(), this);
+        synchronized (this) {
+            retryAt = 0;
+            if (drain()) {
+                try {
+                    commit();
+                } catch (IOException e) {
+                    log.error("Error flushing file : " + maskedURI, e);
+                    metrics.incrementFaultsSending();
+                }
+            }
+            closeFile();
+        }
+        if (!queue.isEmpty()) {
+            log.warn(queue.size() + " messages could not be written to file : " + maskedURI);
+        }
+    }
+
+    /**
+     * Log a warning, once per writer, if the batching settings of a message to be written by
+     * this writer differ from those the writer was created with. The writer keeps using its
+     * own settings until it is closed
+     * @param other the transport info of the message
+     */
+    void checkSettings(VFSOutTransportInfo other) {
+        if (outInfo.getBatchQueueSize() == other.getBatchQueueSize()
+                && outInfo.getFlushSize() == other.getFlushSize()
+                && outInfo.getFlushInterval() == other.getFlushInterval()
+                && outInfo.getRotateSize() == other.getRotateSize()
+                && outInfo.getRotateInterval() == other.getRotateInterval()
+                && outInfo.getReconnectTimeout() == other.getReconnectTimeout()
+                && outInfo.isFileLockingEnabled() == other.isFileLockingEnabled()) {
+            return;
+        }
+        if (settingsWarned.compareAndSet(false, true)) {
+            log.warn("Messages for file : " + maskedURI + " use different batching settings, " +
+                    "the file is written with the settings of the first message until idle");
+        }
+    }
+
+    int getQueuedMessages() {
+        return queue.size();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+    }
+
+    private synchronized boolean hasUnwritten() {
+        return queue.size() > unflushed;
+    }
+
+    /**
+     * Write the queued messages to the buffer of the file, flushing it whenever it is full.
+     * Messages are only removed from the queue once flushed, so that they are written again
+     * after the reconnect timeout if the file is unavailable
+     * @return true if the queue could be written out
+     */
+    private synchronized boolean drain() {
+        long now = System.currentTimeMillis();
+        if (now < retryAt) {
+            return false;
+        }
+        try {
+            // the messages queued so far, starting with the ones already in the buffer
+            Object[] messages = queue.toArray();
+            for (int i = unflushed; i < messages.length; i++) {
+                byte[] message = (byte[]) messages[i];
+                if (out != null && isRotationDue(now)) {
+                    rotate();
+                }
+                if (out == null) {
+                    open(now);
+                }
+                buffer.write(message, 0, message.length);
+                unflushed++;
+                unflushedBytes += message.length;
+                fileSize += message.length;
+                lastWrite = now;
+                if (unflushedBytes >= outInfo.getFlushSize()) {
+                    commit();
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            fail("Error writing to file : " + maskedURI, e, now);
+            return false;
+        }
+    }
+
+    /**
+     * Write the buffer to the file, and remove the messages written to it from the queue
+     */
+    private void commit() throws IOException {
+        if (out != null && buffer.size() > 0) {
+            buffer.writeTo(out);
+            out.flush();
+        }
+        buffer.reset();
+        for (; unflushed > 0; unflushed--) {
+            byte[] message = queue.poll();
+            metrics.incrementMessagesSent();
+            metrics.incrementBytesSent(message.length);
+        }
+        unflushedBytes = 0;
+    }
+
+    /**
+     * Give up the file after an error, the messages not flushed being dropped from the buffer
+     * and written again once the reconnect timeout has elapsed
+     */
+    private void fail(String message, IOException e, long now) {
+        log.error(message + ", retrying after : " + outInfo.getReconnectTimeout(), e);
+        metrics.incrementFaultsSending();
+        closeFile();
+        unflushed = 0;
+        unflushedBytes = 0;
+        retryAt = now + outInfo.getReconnectTimeout();
+    }
+
+    /**
+     * Periodic task flushing the buffered messages, and rotating the file or closing the
+     * writer once idle
+     */
+    private void flush() {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            try {
+                if (out != null) {
+                    if (isRotationDue(now)) {
+                        rotate();
+                    } else {
+                        commit();
+                    }
+                }
+            } catch (IOException e) {
+                fail("Error flushing file : " + maskedURI, e, now);
+            }
+        }
+        if (isIdle()) {
+            closeIfIdle();
+        } else if (hasUnwritten()) {
+            scheduleDrain();
+        }
+    }
+
+    private synchronized boolean isIdle() {
+        return queue.isEmpty() && System.currentTimeMillis() - lastWrite >= idleCloseTime;
+    }
+
+    /**
+     * Close the writer if no message has been queued in the meantime. Senders holding on to
+     * the writer find it closed, and create a new one
+     */
+    private void closeIfIdle() {
+        if (!closeLock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            if (!queue.isEmpty()) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Closing idle writer of file : " + maskedURI);
+        }
+        close();
+    }
+
+    private boolean isRotationDue(long now) {
+        return fileSize > 0 && ((outInfo.getRotateSize() > 0 && fileSize >= outInfo.getRotateSize())
+                || (outInfo.getRotateInterval() > 0 &&
+                    now - openedAt >= outInfo.getRotateInterval()));
+    }
+
+    private void open(long now) throws IOException {
+        file = fsManager.resolveFile(outInfo.getOutFileURI());
+        if (file.exists() && file.getType() != FileType.FILE) {
+            throw new IOException("Append batching requires a file target, found : " +
+                    file.getType());
+        }
+        if (outInfo.isFileLockingEnabled()) {
+            if (!VFSUtils.acquireLock(fsManager, file)) {
+                throw new IOException("Unable to acquire the lock");
+            }
+            locked = true;
+        }
+        if (!file.exists()) {
+            file.createFile();
+        }
+        fileSize = file.getContent().getSize();
+        out = file.getContent().getOutputStream(true);
+        openedAt = now;
+        if (log.isDebugEnabled()) {
+            log.debug("Opened file : " + maskedURI + " for batched appends");
+        }
+    }
+
+    private void rotate() throws IOException {
+        commit();
+        closeFile();
+        FileObject current = fsManager.resolveFile(outInfo.getOutFileURI());
+        String rotatedName = current.getName().getBaseName() + "." +
+                rotateFormat.format(new Date());
+        FileObject rotated = fsManager.resolveFile(current.getParent(), rotatedName);
+        for (int i = 1; rotated.exists(); i++) {
+            rotated = fsManager.resolveFile(current.getParent(), rotatedName + "-" + i);
+        }
+        current.moveTo(rotated);
+        if (log.isDebugEnabled()) {
+            log.debug("Rotated file : " + maskedURI + " to : " +
+                    VFSUtils.maskURLPassword(rotated.getName().getURI()));
+        }
+    }
+
+    /**
+     * Close the file, dropping the messages not flushed yet
+     */
+    private void closeFile() {
+        buffer.reset();
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("Error closing file : " + maskedURI, e);
+            }
+            out = null;
+        }
+        if (file != null) {
+            if (locked) {
+                VFSUtils.releaseLock(fsManager, file);
+                locked = false;
+            }
+            try {
+                file.close();
+            } catch (FileSystemException ignore) {}
+            file = null;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+
+/**
+ * Splits a file into records separated by a delimiter, reading the file through a
+ * {@link ReadableByteChannel}. In line mode the delimiter is a line feed and a carriage
+ * return ending a record is dropped. Empty records are skipped. The splitter keeps track of
+ * the byte offset past the last record, so that a file can be resumed at that offset
+ */
+public class DelimitedRecordSplitter implements RecordSplitter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ReadableByteChannel channel;
+    private final byte[] delimiter;
+    private final boolean lines;
+    /** KMP failure function of the delimiter */
+    private final int[] failure;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private boolean endOfInput = false;
+    /** Offset in the file of the first byte in the buffer */
+    private long bufferOffset;
+
+    public DelimitedRecordSplitter(ReadableByteChannel channel, byte[] delimiter, boolean lines) {
+        this(channel, delimiter, lines, 0);
+    }
+
+    /**
+     * @param channel the channel to read, positioned at the given offset
+     * @param delimiter the record delimiter
+     * @param lines whether records are lines
+     * @param offset the offset in the file at which the channel is positioned
+     */
+    public DelimitedRecordSplitter(ReadableByteChannel channel, byte[] delimiter, boolean lines,
+                                   long offset) {
+        if (delimiter.length == 0) {
+            throw new IllegalArgumentException("The record delimiter cannot be empty");
+        }
+        this.channel = channel;
+        this.delimiter = delimiter;
+        this.lines = lines;
+        this.failure = computeFailure(delimiter);
+        this.bufferOffset = offset;
+        buffer.flip();
+    }
+
+    public byte[] next() throws IOException {
+        while (true) {
+            byte[] next = readRecord();
+            if (next == null || next.length > 0) {
+                return next;
+            }
+        }
+    }
+
+    public byte[] join(List<byte[]> records) throws IOException {
+        if (records.size() == 1) {
+            return records.get(0);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < records.size(); i++) {
+            if (i > 0) {
+                out.write(delimiter);
+            }
+            out.write(records.get(i));
+        }
+        return out.toByteArray();
+    }
+
+    public long getOffset() {
+        return bufferOffset + buffer.position();
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignore) {}
+    }
+
+    private byte[] readRecord() throws IOException {
+        record.reset();
+        int matched = 0;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (endOfInput || !fill()) {
+                    break;
+                }
+                continue;
+            }
+
+            byte b = buffer.get();
+            while (matched > 0 && b != delimiter[matched]) {
+                // write out the part of the delimiter that turned out to be record content
+                int fallback = failure[matched - 1];
+                record.write(delimiter, 0, matched - fallback);
+                matched = fallback;
+            }
+            if (b == delimiter[matched]) {
+                matched++;
+                if (matched == delimiter.length) {
+                    return toRecord();
+                }
+            } else {
+                record.write(b);
+            }
+        }
+
+        // end of input, a trailing partial delimiter belongs to the last record
+        record.write(delimiter, 0, matched);
+        if (record.size() == 0) {
+            return null;
+        }
+        return toRecord();
+    }
+
+    private boolean fill() throws IOException {
+        bufferOffset += buffer.limit();
+        buffer.clear();
+        int read = 0;
+        while (read == 0) {
+            read = channel.read(buffer);
+        }
+        buffer.flip();
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        return true;
+    }
+
+    private byte[] toRecord() {
+        byte[] bytes = record.toByteArray();
+        if (lines && bytes.length > 0 && bytes[bytes.length - 1] == '\r') {
+            byte[] trimmed = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 0, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return bytes;
+    }
+
+    private static int[] computeFailure(byte[] pattern) {
+        int[] failure = new int[pattern.length];
+        int k = 0;
+        for (int i = 1; i < pattern.length; i++) {
+            while (k > 0 && pattern[i] != pattern[k]) {
+                k = failure[k - 1];
+            }
+            if (pattern[i] == pattern[k]) {
+                k++;
+            }
+            failure[i] = k;
+        }
+        return failure;
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.commons.logging.LogFactory;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Holds information about an entry in the VFS transport poll table used by the
@@ -64,8 +65,8 @@ public class PollTableEntry extends AbstractPollTableEntry {
     private String moveAfterErrors;
     /** where to move the file after total failure */
     private String moveAfterFailure;
-    /** moved file will have this formatted timestamp prefix */    
-    private DateFormat moveTimestampFormat;
+    /** moved file will have a timestamp prefix formatted with this pattern */
+    private String moveTimestampFormat;
 
     private boolean streaming;
 
@@ -83,6 +84,34 @@ public class PollTableEntry extends AbstractPollTableEntry {
 
     private String failedRecordTimestampFormat;
 
+    /** maximum number of files of a directory processed concurrently */
+    private int scanParallelism = 1;
+    /** maximum number of files of a directory processed in a single poll, 0 for no limit */
+    private int maxFilesPerPoll = 0;
+    /** files larger than this are read streaming, -1 to only stream if streaming is set */
+    private long streamingThreshold = -1;
+    /** split mode of the files into records, null to inject each file as a single message */
+    private String splitMode;
+    /** record delimiter of the delimiter split mode */
+    private String splitDelimiter;
+    /** path of the record elements of the xml split mode */
+    private String splitElementPath;
+    /** number of records injected as a single message */
+    private int splitBatchSize = 1;
+    /** maximum number of record messages of a file being mediated at once */
+    private int splitMaxInFlight = 1;
+    /** number of records processed between two checkpoints */
+    private int splitCheckpointInterval = 100;
+    /** directory of the checkpoints of partially processed files */
+    private String splitCheckpointDirectory;
+
+    /** number of files processed by the directory scans so far */
+    private final AtomicLong filesProcessed = new AtomicLong();
+    /** number of directory entries left to be examined by the current or last scan */
+    private volatile long backlog = 0;
+    /** rate at which the files were processed by the last directory scan */
+    private volatile double filesPerSecond = 0;
+
     public PollTableEntry(boolean fileLocking) {
         this.fileLocking = fileLocking;
     }
@@ -200,8 +229,83 @@ public class PollTableEntry extends AbstractPollTableEntry {
         return reconnectTimeout;
     }
 
+    /**
+     * @return a new format of the timestamp prefix of moved files, or null if moved files are
+     * not prefixed. A new format is created on each call since date formats are not thread
+     * safe and files of a directory may be moved concurrently
+     */
     public DateFormat getMoveTimestampFormat() {
-        return moveTimestampFormat;
+        return moveTimestampFormat != null ? new SimpleDateFormat(moveTimestampFormat) : null;
+    }
+
+    public int getScanParallelism() {
+        return scanParallelism;
+    }
+
+    public int getMaxFilesPerPoll() {
+        return maxFilesPerPoll;
+    }
+
+    void setMaxFilesPerPoll(int maxFilesPerPoll) {
+        this.maxFilesPerPoll = maxFilesPerPoll;
+    }
+
+    public long getStreamingThreshold() {
+        return streamingThreshold;
+    }
+
+    public String getSplitMode() {
+        return splitMode;
+    }
+
+    public String getSplitDelimiter() {
+        return splitDelimiter;
+    }
+
+    public String getSplitElementPath() {
+        return splitElementPath;
+    }
+
+    public int getSplitBatchSize() {
+        return splitBatchSize;
+    }
+
+    public int getSplitMaxInFlight() {
+        return splitMaxInFlight;
+    }
+
+    public int getSplitCheckpointInterval() {
+        return splitCheckpointInterval;
+    }
+
+    public String getSplitCheckpointDirectory() {
+        return splitCheckpointDirectory;
+    }
+
+    public long getFilesProcessed() {
+        return filesProcessed.get();
+    }
+
+    public long getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(long backlog) {
+        this.backlog = backlog;
+    }
+
+    public double getFilesPerSecond() {
+        return filesPerSecond;
+    }
+
+    /**
+     * Record the outcome of a directory scan
+     * @param files number of files processed by the scan
+     * @param duration duration of the scan in milliseconds
+     */
+    public void recordScan(int files, long duration) {
+        filesProcessed.addAndGet(files);
+        filesPerSecond = duration > 0 ? files * 1000.0 / duration : files;
     }
 
     @Override
@@ -254,7 +358,9 @@ public class PollTableEntry extends AbstractPollTableEntry {
             String moveFileTimestampFormat = ParamUtils.getOptionalParam(
                     params, VFSConstants.TRANSPORT_FILE_MOVE_TIMESTAMP_FORMAT);
             if(moveFileTimestampFormat != null) {
-                moveTimestampFormat = new SimpleDateFormat(moveFileTimestampFormat);
+                // validate the pattern up front
+                new SimpleDateFormat(moveFileTimestampFormat);
+                moveTimestampFormat = moveFileTimestampFormat;
             }
 
             String strStreaming = ParamUtils.getOptionalParam(params, VFSConstants.STREAMING);
@@ -262,6 +368,28 @@ public class PollTableEntry extends AbstractPollTableEntry {
                 streaming = Boolean.parseBoolean(strStreaming);
             }
             
+            String strScanParallelism = ParamUtils.getOptionalParam(
+                    params, VFSConstants.SCAN_PARALLELISM);
+            if (strScanParallelism != null) {
+                scanParallelism = Math.max(1, Integer.parseInt(strScanParallelism));
+            }
+
+            String strMaxFilesPerPoll = ParamUtils.getOptionalParam(
+                    params, VFSConstants.MAX_FILES_PER_POLL);
+            if (strMaxFilesPerPoll != null) {
+                maxFilesPerPoll = Integer.parseInt(strMaxFilesPerPoll);
+            }
+
+            String strStreamingThreshold = ParamUtils.getOptionalParam(
+                    params, VFSConstants.STREAMING_THRESHOLD);
+            if (strStreamingThreshold != null) {
+                streamingThreshold = Long.parseLong(strStreamingThreshold);
+            }
+
+            if (!loadSplitConfiguration(params)) {
+                return false;
+            }
+
             String strMaxRetryCount = ParamUtils.getOptionalParam(
                     params, VFSConstants.MAX_RETRY_COUNT);
             maxRetryCount = strMaxRetryCount != null ? Integer.parseInt(strMaxRetryCount) :
@@ -312,4 +440,58 @@ public class PollTableEntry extends AbstractPollTableEntry {
             return super.loadConfiguration(params);
         }
     }
+
+    private boolean loadSplitConfiguration(ParameterInclude params) throws AxisFault {
+        splitMode = ParamUtils.getOptionalParam(params, VFSConstants.SPLIT_MODE);
+        if (splitMode == null) {
+            return true;
+        }
+
+        if (VFSConstants.SPLIT_MODE_DELIMITER.equals(splitMode)) {
+            splitDelimiter = ParamUtils.getOptionalParam(params, VFSConstants.SPLIT_DELIMITER);
+            if (splitDelimiter == null || splitDelimiter.length() == 0) {
+                log.warn("required parameter " + VFSConstants.SPLIT_DELIMITER +
+                        " is missing in the proxy service configuration");
+                return false;
+            }
+            splitDelimiter = splitDelimiter.replace("\\n", "\n").replace("\\r", "\r")
+                    .replace("\\t", "\t");
+        } else if (VFSConstants.SPLIT_MODE_XML.equals(splitMode)) {
+            splitElementPath = ParamUtils.getOptionalParam(
+                    params, VFSConstants.SPLIT_ELEMENT_PATH);
+            if (splitElementPath == null || splitElementPath.replace("/", "").length() == 0) {
+                log.warn("required parameter " + VFSConstants.SPLIT_ELEMENT_PATH +
+                        " is missing in the proxy service configuration");
+                return false;
+            }
+        } else if (!VFSConstants.SPLIT_MODE_LINE.equals(splitMode)) {
+            log.warn("Invalid " + VFSConstants.SPLIT_MODE + " : " + splitMode +
+                    ", expected line, delimiter or xml");
+            return false;
+        }
+
+        String strBatchSize = ParamUtils.getOptionalParam(params, VFSConstants.SPLIT_BATCH_SIZE);
+        if (strBatchSize != null) {
+            splitBatchSize = Math.max(1, Integer.parseInt(strBatchSize));
+        }
+
+        String strMaxInFlight = ParamUtils.getOptionalParam(
+                params, VFSConstants.SPLIT_MAX_IN_FLIGHT);
+        if (strMaxInFlight != null) {
+            splitMaxInFlight = Math.max(1, Integer.parseInt(strMaxInFlight));
+        }
+
+        String strCheckpointInterval = ParamUtils.getOptionalParam(
+                params, VFSConstants.SPLIT_CHECKPOINT_INTERVAL);
+        if (strCheckpointInterval != null) {
+            splitCheckpointInterval = Math.max(1, Integer.parseInt(strCheckpointInterval));
+        }
+
+        splitCheckpointDirectory = ParamUtils.getOptionalParam(
+                params, VFSConstants.SPLIT_CHECKPOINT_DIRECTORY);
+        if (splitCheckpointDirectory == null) {
+            splitCheckpointDirectory = VFSConstants.DEFAULT_SPLIT_CHECKPOINT_DIRECTORY;
+        }
+        return true;
+    }
 }
@@ -0,0 +1,152 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Persists the number of records of a file that have been fully processed, along with the
+ * byte offset just past them when known, so that the processing of a large file resumes from
+ * the last checkpoint after a restart or a failed run instead of from the beginning. A
+ * checkpoint is only honoured if the file has not changed since it was written. Checkpoints
+ * are named after the file name and a SHA-1 digest of the file URI
+ */
+public class RecordCheckpoint {
+
+    private static final Log log = LogFactory.getLog(RecordCheckpoint.class);
+
+    private static final String SUFFIX = ".checkpoint";
+
+    private final File checkpointFile;
+    private final String uri;
+    private final long size;
+    private final long lastModified;
+    private long offset = -1;
+
+    public RecordCheckpoint(File directory, String uri, long size, long lastModified) {
+        this.uri = uri;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.checkpointFile = new File(directory, getName(uri) + SUFFIX);
+    }
+
+    /**
+     * Read the checkpoint of the file
+     * @return the number of records already processed, or 0 if there is no valid checkpoint
+     */
+    public long load() {
+        offset = -1;
+        if (!checkpointFile.exists()) {
+            return 0;
+        }
+        try {
+            List lines = FileUtils.readLines(checkpointFile, "UTF-8");
+            if (lines.size() >= 4 && uri.equals(lines.get(0))
+                    && size == Long.parseLong((String) lines.get(1))
+                    && lastModified == Long.parseLong((String) lines.get(2))) {
+                if (lines.size() >= 5) {
+                    offset = Long.parseLong((String) lines.get(4));
+                }
+                return Long.parseLong((String) lines.get(3));
+            }
+            log.info("Ignoring stale checkpoint " + checkpointFile + " for file : " + uri);
+        } catch (Exception e) {
+            log.warn("Error reading checkpoint " + checkpointFile + " for file : " + uri, e);
+        }
+        return 0;
+    }
+
+    /**
+     * @return the byte offset just past the processed records read by the last
+     * {@link #load()}, or -1 if the checkpoint did not record one
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Record that the given number of records, counted from the start of the file, have
+     * been processed
+     * @param records the number of processed records
+     * @param offset the byte offset just past the processed records, or -1 if not known
+     */
+    public void save(long records, long offset) {
+        File temp = new File(checkpointFile.getPath() + ".tmp");
+        try {
+            FileUtils.writeStringToFile(temp, uri + "\n" + size + "\n" + lastModified + "\n"
+                    + records + "\n" + offset + "\n", "UTF-8");
+            if (!temp.renameTo(checkpointFile)) {
+                // the target must not exist on some platforms
+                checkpointFile.delete();
+                if (!temp.renameTo(checkpointFile)) {
+                    throw new IOException("Cannot rename " + temp + " to " + checkpointFile);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Error writing checkpoint " + checkpointFile + " for file : " + uri, e);
+        }
+    }
+
+    File getFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Remove the checkpoint once the file has been completely processed
+     */
+    public void delete() {
+        if (checkpointFile.exists() && !checkpointFile.delete()) {
+            log.warn("Cannot delete checkpoint " + checkpointFile + " for file : " + uri);
+        }
+    }
+
+    /**
+     * Name the checkpoint after the file name, for readability, and a digest of the whole URI
+     * so that files with the same name in different directories do not share a checkpoint
+     */
+    private static String getName(String uri) {
+        String name = uri.substring(uri.lastIndexOf('/') + 1).replaceAll("[^A-Za-z0-9._-]", "_");
+        if (name.length() > 64) {
+            name = name.substring(0, 64);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(uri.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(name).append('-');
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported", e);
+        }
+    }
+}
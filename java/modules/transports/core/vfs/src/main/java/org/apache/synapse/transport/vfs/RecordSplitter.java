@@ -0,0 +1,57 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Splits the content of a file into records, so that large files can be injected as a
+ * sequence of messages instead of a single one. Records are read one at a time, without
+ * loading the whole file into memory
+ */
+public interface RecordSplitter {
+
+    /**
+     * Read the next record
+     * @return the content of the next record, or null at the end of the file
+     * @throws IOException on error reading or parsing the file
+     */
+    public byte[] next() throws IOException;
+
+    /**
+     * Combine a batch of records into the payload of a single message
+     * @param records the records of the batch, in file order
+     * @return the message payload
+     * @throws IOException on error combining the records
+     */
+    public byte[] join(List<byte[]> records) throws IOException;
+
+    /**
+     * @return the byte offset in the file just past the last record read, or -1 if the
+     * splitter cannot tell it, in which case a file is resumed by skipping records
+     */
+    public long getOffset();
+
+    /**
+     * Release the underlying file content
+     */
+    public void close();
+}
@@ -59,6 +59,48 @@ public final class VFSConstants {
     public static final String MAX_RETRY_COUNT = "transport.vfs.MaxRetryCount";
     public static final String RECONNECT_TIMEOUT = "transport.vfs.ReconnectTimeout";
     public static final String APPEND = "transport.vfs.Append";
+    /** Keep appended files open and write the messages to them in batches, asynchronously */
+    public static final String APPEND_BATCHING = "transport.vfs.AppendBatching";
+    /** Number of bytes buffered by a batched writer before they are written to the file */
+    public static final String FLUSH_SIZE = "transport.vfs.FlushSize";
+    /** Maximum time in milliseconds a batched writer keeps messages buffered */
+    public static final String FLUSH_INTERVAL = "transport.vfs.FlushInterval";
+    /** Size in bytes after which a batched file is rotated, 0 to never rotate on size */
+    public static final String ROTATE_SIZE = "transport.vfs.RotateSize";
+    /** Time in milliseconds after which a batched file is rotated, 0 to never rotate on time */
+    public static final String ROTATE_INTERVAL = "transport.vfs.RotateInterval";
+    /** Maximum number of unflushed messages of a batched writer before senders block */
+    public static final String BATCH_QUEUE_SIZE = "transport.vfs.BatchQueueSize";
+    public static final int DEFAULT_FLUSH_SIZE = 64 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+    public static final int DEFAULT_BATCH_QUEUE_SIZE = 1000;
+
+    /** Maximum number of files of a directory processed concurrently, 1 by default */
+    public static final String SCAN_PARALLELISM = "transport.vfs.ScanParallelism";
+    /** Maximum number of files of a directory processed in a single poll, unlimited by default */
+    public static final String MAX_FILES_PER_POLL = "transport.vfs.MaxFilesPerPoll";
+    /** Files larger than this number of bytes are read streaming, if the builder supports it */
+    public static final String STREAMING_THRESHOLD = "transport.vfs.StreamingThreshold";
+    /** Split files into records injected as separate messages : line, delimiter or xml */
+    public static final String SPLIT_MODE = "transport.vfs.SplitMode";
+    public static final String SPLIT_MODE_LINE = "line";
+    public static final String SPLIT_MODE_DELIMITER = "delimiter";
+    public static final String SPLIT_MODE_XML = "xml";
+    /** Record delimiter of the delimiter split mode, \n, \r and \t escapes are supported */
+    public static final String SPLIT_DELIMITER = "transport.vfs.SplitDelimiter";
+    /** Path of the record elements of the xml split mode, e.g. /orders/order */
+    public static final String SPLIT_ELEMENT_PATH = "transport.vfs.SplitElementPath";
+    /** Number of records injected as a single message, 1 by default */
+    public static final String SPLIT_BATCH_SIZE = "transport.vfs.SplitBatchSize";
+    /** Maximum number of record messages of a file being mediated at once, 1 by default */
+    public static final String SPLIT_MAX_IN_FLIGHT = "transport.vfs.SplitMaxInFlight";
+    /** Number of records processed between two checkpoints of a file, 100 by default */
+    public static final String SPLIT_CHECKPOINT_INTERVAL = "transport.vfs.SplitCheckpointInterval";
+    /** Local directory where the checkpoints of partially processed files are kept */
+    public static final String SPLIT_CHECKPOINT_DIRECTORY =
+            "transport.vfs.SplitCheckpointDirectory";
+    public static final String DEFAULT_SPLIT_CHECKPOINT_DIRECTORY =
+            "repository/conf/vfs-checkpoints/";
     public static final int DEFAULT_MAX_RETRY_COUNT = 3;
     public static final long DEFAULT_RECONNECT_TIMEOUT = 30000;
 
@@ -67,6 +109,8 @@ public final class VFSConstants {
     public static final String FILE_NAME = "FILE_NAME";
     public static final String FILE_LENGTH = "FILE_LENGTH";
     public static final String LAST_MODIFIED = "LAST_MODIFIED";
+    public static final String RECORD_NUMBER = "RECORD_NUMBER";
+    public static final String RECORD_COUNT = "RECORD_COUNT";
 
       /**
        * If a rename/move operation failed, we'll keep track of a list in a text file and this will
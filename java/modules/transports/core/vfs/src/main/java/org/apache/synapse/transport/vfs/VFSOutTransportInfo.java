@@ -44,6 +44,12 @@ public class VFSOutTransportInfo implements OutTransportInfo {
     private boolean append;
     private boolean fileLocking;
     private boolean isUseTempFile = false;
+    private boolean appendBatching = false;
+    private int flushSize = VFSConstants.DEFAULT_FLUSH_SIZE;
+    private long flushInterval = VFSConstants.DEFAULT_FLUSH_INTERVAL;
+    private long rotateSize = 0;
+    private long rotateInterval = 0;
+    private int batchQueueSize = VFSConstants.DEFAULT_BATCH_QUEUE_SIZE;
 
     /**
      * Constructs the VFSOutTransportInfo containing the information about the file to which the
@@ -93,11 +99,33 @@ public class VFSOutTransportInfo implements OutTransportInfo {
             append = Boolean.parseBoolean(properties.get(VFSConstants.APPEND));
         }
 
+        if (append && properties.containsKey(VFSConstants.APPEND_BATCHING)) {
+            appendBatching = Boolean.parseBoolean(properties.get(VFSConstants.APPEND_BATCHING));
+        }
+        if (properties.containsKey(VFSConstants.FLUSH_SIZE)) {
+            flushSize = Math.max(1, Integer.parseInt(properties.get(VFSConstants.FLUSH_SIZE)));
+        }
+        if (properties.containsKey(VFSConstants.FLUSH_INTERVAL)) {
+            flushInterval = Math.max(1, Long.parseLong(
+                    properties.get(VFSConstants.FLUSH_INTERVAL)));
+        }
+        if (properties.containsKey(VFSConstants.ROTATE_SIZE)) {
+            rotateSize = Long.parseLong(properties.get(VFSConstants.ROTATE_SIZE));
+        }
+        if (properties.containsKey(VFSConstants.ROTATE_INTERVAL)) {
+            rotateInterval = Long.parseLong(properties.get(VFSConstants.ROTATE_INTERVAL));
+        }
+        if (properties.containsKey(VFSConstants.BATCH_QUEUE_SIZE)) {
+            batchQueueSize = Math.max(1, Integer.parseInt(
+                    properties.get(VFSConstants.BATCH_QUEUE_SIZE)));
+        }
+
         if (log.isDebugEnabled()) {
             log.debug("Using the fileURI        : " + this.outFileURI);
             log.debug("Using the maxRetryCount  : " + maxRetryCount);
             log.debug("Using the reconnectionTimeout : " + reconnectTimeout);
             log.debug("Using the append         : " + append);
+            log.debug("Append batching          : " + (appendBatching ? "ON" : "OFF"));
             log.debug("File locking             : " + (this.fileLocking ? "ON" : "OFF"));
         }
     }
@@ -142,6 +170,30 @@ public class VFSOutTransportInfo implements OutTransportInfo {
         this.append = append;
     }
 
+    public boolean isAppendBatching() {
+        return appendBatching;
+    }
+
+    public int getFlushSize() {
+        return flushSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public long getRotateSize() {
+        return rotateSize;
+    }
+
+    public long getRotateInterval() {
+        return rotateInterval;
+    }
+
+    public int getBatchQueueSize() {
+        return batchQueueSize;
+    }
+
     public String getContentType() {
         return contentType;
     }
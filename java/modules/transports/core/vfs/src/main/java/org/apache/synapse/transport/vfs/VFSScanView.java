@@ -0,0 +1,59 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exposes the directory scan statistics of the poll table entries of the VFS transport
+ */
+public class VFSScanView implements VFSScanViewMBean {
+
+    private final Map<String, PollTableEntry> entries;
+
+    public VFSScanView(Map<String, PollTableEntry> entries) {
+        this.entries = entries;
+    }
+
+    public Map<String, Long> getBacklog() {
+        Map<String, Long> backlog = new HashMap<String, Long>();
+        for (Map.Entry<String, PollTableEntry> e : entries.entrySet()) {
+            backlog.put(e.getKey(), e.getValue().getBacklog());
+        }
+        return backlog;
+    }
+
+    public Map<String, Double> getFilesPerSecond() {
+        Map<String, Double> rates = new HashMap<String, Double>();
+        for (Map.Entry<String, PollTableEntry> e : entries.entrySet()) {
+            rates.put(e.getKey(), e.getValue().getFilesPerSecond());
+        }
+        return rates;
+    }
+
+    public Map<String, Long> getFilesProcessed() {
+        Map<String, Long> processed = new HashMap<String, Long>();
+        for (Map.Entry<String, PollTableEntry> e : entries.entrySet()) {
+            processed.put(e.getKey(), e.getValue().getFilesProcessed());
+        }
+        return processed;
+    }
+}
@@ -1,43 +1,44 @@
-/*
- *  Licensed to the Apache Software Foundation (ASF) under one
- *  or more contributor license agreements.  See the NOTICE file
- *  distributed with this work for additional information
- *  regarding copyright ownership.  The ASF licenses this file
- *  to you under the Apache License, Version 2.0 (the
- *  "License"); you may not use this file except in compliance
- *  with the License.  You may obtain a copy of the License at
- *
- *   http://www.apache.org/licenses/LICENSE-2.0
- *
- *  Unless required by applicable law or agreed to in writing,
- *  software distributed under the License is distributed on an
- *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
- *  KIND, either express or implied.  See the License for the
- *  specific language governing permissions and limitations
- *  under the License.
- */
-package org.apache.synapse.aspects.statistics.view;
-
-import org.apache.synapse.aspects.ComponentType;
-import org.apache.synapse.aspects.statistics.StatisticsRecord;
-
-import java.util.List;
-import java.util.Map;
-
-/**
- * PerUserViewStrategy , user IP is used
- */
-public class PerUserIPViewStrategy extends PerUserViewStrategy {
-
-    public Map<String, Map<String, InOutStatisticsView>> determineView(
-            List<StatisticsRecord> statisticsRecords,
-            ComponentType type) {
-        return determineView(statisticsRecords, type, IP);
-    }
-
-    public Map<String, InOutStatisticsView> determineView(
-            String id, List<StatisticsRecord> statisticsRecords, ComponentType type) {
-        return determineView(id, statisticsRecords,
-                type, IP);
-    }
-}
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import java.util.Map;
+
+/**
+ * MBean for monitoring the directory scans of the VFS transport listener. The statistics are
+ * keyed by the URI of the scanned file or directory
+ */
+public interface VFSScanViewMBean {
+
+    /**
+     * @return number of directory entries left to be examined by the current or last scan
+     */
+    public Map<String, Long> getBacklog();
+
+    /**
+     * @return rate at which the files were processed by the last scan
+     */
+    public Map<String, Double> getFilesPerSecond();
+
+    /**
+     * @return number of files processed by the scans so far
+     */
+    public Map<String, Long> getFilesProcessed();
+}
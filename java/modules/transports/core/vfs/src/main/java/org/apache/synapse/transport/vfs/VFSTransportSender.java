@@ -39,13 +39,27 @@ import org.apache.commons.vfs2.FileSystemManager;
 import org.apache.commons.vfs2.FileType;
 import org.apache.commons.vfs2.impl.StandardFileSystemManager;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * axis2.xml - transport definition
  *  <transportSender name="file" class="org.apache.synapse.transport.vfs.VFSTransportSender">
  *      <parameter name="transport.vfs.Locking">enable|disable</parameter> ?
  *  </transportSender>
+ *
+ * Messages sent to a file URI with transport.vfs.Append=true and
+ * transport.vfs.AppendBatching=true are appended asynchronously, through a writer kept
+ * open for the file, e.g.
+ *  vfs:file:///var/log/audit.log?transport.vfs.Append=true&transport.vfs.AppendBatching=true
+ *      &transport.vfs.FlushInterval=500&transport.vfs.RotateSize=104857600
  */
 public class VFSTransportSender extends AbstractTransportSender implements ManagementSupport {
 
@@ -60,6 +74,16 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
      */
     private boolean globalFileLockingFlag = true;
 
+    /** The open writers of the targets using append batching, keyed by file URI */
+    private final ConcurrentMap<String, BatchedFileWriter> batchWriters =
+            new ConcurrentHashMap<String, BatchedFileWriter>();
+
+    /** The executor shared by the batched writers, created on first use */
+    private ScheduledExecutorService batchWriterExecutor = null;
+
+    /** Whether the sender has been stopped, guarded by batchWriters */
+    private boolean batchWritersStopped = false;
+
     /**
      * The public constructor
      */
@@ -77,6 +101,9 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
             throws AxisFault {
 
         super.init(cfgCtx, transportOut);
+        synchronized (batchWriters) {
+            batchWritersStopped = false;
+        }
         try {
             StandardFileSystemManager fsm = new StandardFileSystemManager();
             fsm.setConfiguration(getClass().getClassLoader().getResource("providers.xml"));
@@ -117,7 +144,10 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
             vfsOutInfo = (VFSOutTransportInfo) outTransportInfo;
         }
 
-        if (vfsOutInfo != null) {
+        if (vfsOutInfo != null && vfsOutInfo.isAppendBatching()) {
+            sendBatched(msgCtx, vfsOutInfo);
+
+        } else if (vfsOutInfo != null) {
             FileObject replyFile = null;
             try {
                 boolean wasError = true;
@@ -254,6 +284,102 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
         }
     }
 
+    /**
+     * Queue the message to be appended to the target file by its batched writer. The message
+     * is serialized on the calling thread, and the call only blocks while the queue of the
+     * writer is full
+     */
+    private void sendBatched(MessageContext msgCtx, VFSOutTransportInfo vfsOutInfo)
+            throws AxisFault {
+
+        MessageFormatter messageFormatter = MessageProcessorSelector.getMessageFormatter(msgCtx);
+        OMOutputFormat format = BaseUtils.getOMOutputFormat(msgCtx);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        messageFormatter.writeTo(msgCtx, format, os, false);
+
+        byte[] message = os.toByteArray();
+        BatchedFileWriter writer;
+        boolean queued = false;
+        do {
+            writer = getBatchWriter(vfsOutInfo);
+            try {
+                queued = writer.write(message, vfsOutInfo.getReconnectTimeout());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            // a writer closed for being idle is replaced by a new one
+        } while (!queued && writer.isClosed());
+
+        if (!queued) {
+            metrics.incrementFaultsSending();
+            handleException("Couldn't queue the message for file : " +
+                    VFSUtils.maskURLPassword(vfsOutInfo.getOutFileURI()) +
+                    ", " + writer.getQueuedMessages() + " messages are waiting to be written");
+        }
+    }
+
+    /**
+     * Get the batched writer of the target file, creating it if there is none
+     * @throws AxisFault if the sender has been stopped
+     */
+    private BatchedFileWriter getBatchWriter(VFSOutTransportInfo vfsOutInfo) throws AxisFault {
+        BatchedFileWriter writer = batchWriters.get(vfsOutInfo.getOutFileURI());
+        if (writer == null || writer.isClosed()) {
+            synchronized (batchWriters) {
+                if (batchWritersStopped) {
+                    handleException("Couldn't queue the message for file : " +
+                            VFSUtils.maskURLPassword(vfsOutInfo.getOutFileURI()) +
+                            ", the transport sender has been stopped");
+                }
+                writer = batchWriters.get(vfsOutInfo.getOutFileURI());
+                if (writer == null || writer.isClosed()) {
+                    writer = new BatchedFileWriter(fsManager, vfsOutInfo,
+                            getBatchWriterExecutor(), metrics, batchWriters);
+                    batchWriters.put(vfsOutInfo.getOutFileURI(), writer);
+                }
+            }
+        }
+        writer.checkSettings(vfsOutInfo);
+        return writer;
+    }
+
+    private synchronized ScheduledExecutorService getBatchWriterExecutor() {
+        if (batchWriterExecutor == null) {
+            batchWriterExecutor = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "vfs-batch-writer-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return batchWriterExecutor;
+    }
+
+    /**
+     * Write out the messages queued for the batched writers and close their files
+     */
+    @Override
+    public void stop() {
+        synchronized (batchWriters) {
+            batchWritersStopped = true;
+            for (BatchedFileWriter writer : new ArrayList<BatchedFileWriter>(
+                    batchWriters.values())) {
+                writer.close();
+            }
+            batchWriters.clear();
+        }
+        synchronized (this) {
+            if (batchWriterExecutor != null) {
+                batchWriterExecutor.shutdown();
+                batchWriterExecutor = null;
+            }
+        }
+        super.stop();
+    }
+
     private void populateResponseFile(FileObject responseFile, MessageContext msgContext,
                                       boolean append, boolean lockingEnabled) throws AxisFault {
         
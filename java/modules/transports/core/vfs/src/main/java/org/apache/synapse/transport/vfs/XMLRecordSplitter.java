@@ -0,0 +1,178 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an XML file into the elements found at a given element path, e.g. /orders/order.
+ * The path is a list of local names starting from the document element. Each matching
+ * element is serialized as a standalone record, declaring the namespaces it uses. A batch
+ * of records is wrapped in an element with the name of their parent
+ */
+public class XMLRecordSplitter implements RecordSplitter {
+
+    private static final String DEFAULT_WRAPPER = "records";
+
+    private final InputStream in;
+    private final XMLEventReader reader;
+    private final XMLOutputFactory outputFactory;
+    private final String[] path;
+    private final String encoding;
+
+    private final List<String> stack = new ArrayList<String>();
+    private QName parentName;
+
+    public XMLRecordSplitter(InputStream in, String elementPath, String encoding)
+            throws IOException {
+
+        List<String> segments = new ArrayList<String>();
+        for (String segment : elementPath.split("/")) {
+            if (segment.length() > 0) {
+                segments.add(segment);
+            }
+        }
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Invalid record element path : " + elementPath);
+        }
+        this.path = segments.toArray(new String[segments.size()]);
+        this.in = in;
+        this.encoding = encoding;
+        this.outputFactory = XMLOutputFactory.newInstance();
+        outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+        try {
+            this.reader = XMLInputFactory.newInstance().createXMLEventReader(in);
+        } catch (XMLStreamException e) {
+            throw toIOException(e);
+        }
+    }
+
+    public byte[] next() throws IOException {
+        try {
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    QName name = event.asStartElement().getName();
+                    stack.add(name.getLocalPart());
+                    if (matchesPath(path.length - 1)) {
+                        parentName = name;
+                    } else if (matchesPath(path.length)) {
+                        stack.remove(stack.size() - 1);
+                        return copyElement(event);
+                    }
+                } else if (event.isEndElement()) {
+                    stack.remove(stack.size() - 1);
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw toIOException(e);
+        }
+    }
+
+    public byte[] join(List<byte[]> records) throws IOException {
+        if (records.size() == 1) {
+            return records.get(0);
+        }
+        StringBuilder start = new StringBuilder("<");
+        String end;
+        if (parentName == null) {
+            start.append(DEFAULT_WRAPPER);
+            end = "</" + DEFAULT_WRAPPER + ">";
+        } else {
+            start.append(parentName.getLocalPart());
+            if (parentName.getNamespaceURI().length() > 0) {
+                start.append(" xmlns=\"").append(parentName.getNamespaceURI()).append('"');
+            }
+            end = "</" + parentName.getLocalPart() + ">";
+        }
+        start.append('>');
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(start.toString().getBytes(encoding));
+        for (byte[] record : records) {
+            out.write(record);
+        }
+        out.write(end.getBytes(encoding));
+        return out.toByteArray();
+    }
+
+    public long getOffset() {
+        // the reader only knows character offsets, and records need the enclosing elements
+        return -1;
+    }
+
+    public void close() {
+        try {
+            reader.close();
+        } catch (XMLStreamException ignore) {}
+        try {
+            in.close();
+        } catch (IOException ignore) {}
+    }
+
+    private boolean matchesPath(int length) {
+        if (length == 0 || stack.size() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!path[i].equals(stack.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] copyElement(XMLEvent start) throws XMLStreamException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLEventWriter writer = outputFactory.createXMLEventWriter(out, encoding);
+        writer.add(start);
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            writer.add(event);
+        }
+        writer.flush();
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private IOException toIOException(XMLStreamException e) {
+        IOException ioe = new IOException("Error splitting the XML file : " + e.getMessage());
+        ioe.initCause(e);
+        return ioe;
+    }
+}
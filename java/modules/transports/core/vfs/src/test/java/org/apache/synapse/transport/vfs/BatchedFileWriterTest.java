@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+import org.apache.axis2.transport.base.MetricsCollector;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class BatchedFileWriterTest extends TestCase {
+
+    private File directory;
+    private ScheduledExecutorService executor;
+    private ConcurrentMap<String, BatchedFileWriter> writers;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = new File("target/batched-writer");
+        FileUtils.deleteDirectory(directory);
+        directory.mkdirs();
+        executor = Executors.newScheduledThreadPool(1);
+        writers = new ConcurrentHashMap<String, BatchedFileWriter>();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    public void testAppendAndFlushOnClose() throws Exception {
+        File target = new File(directory, "audit.log");
+        BatchedFileWriter writer = createWriter(target, "");
+        for (int i = 0; i < 100; i++) {
+            assertTrue(writer.write(("record-" + i + "\n").getBytes("UTF-8"), 1000));
+        }
+        writer.close();
+
+        String content = FileUtils.readFileToString(target, "UTF-8");
+        assertTrue(content.startsWith("record-0\n"));
+        assertTrue(content.endsWith("record-99\n"));
+        assertEquals(100, content.split("\n").length);
+        assertFalse(writer.write("late".getBytes("UTF-8"), 10));
+    }
+
+    public void testRotateOnSize() throws Exception {
+        File target = new File(directory, "rotated.log");
+        BatchedFileWriter writer = createWriter(target, "&transport.vfs.RotateSize=10");
+        for (int i = 0; i < 5; i++) {
+            assertTrue(writer.write("0123456789".getBytes("UTF-8"), 1000));
+        }
+        writer.close();
+
+        // every full file is rotated before the next message is written
+        assertEquals(5, directory.list().length);
+        long total = 0;
+        for (File file : directory.listFiles()) {
+            total += file.length();
+        }
+        assertEquals(50, total);
+    }
+
+    public void testMessagesStayQueuedUntilFlushed() throws Exception {
+        File target = new File(directory, "queued.log");
+        BatchedFileWriter writer = createWriter(target, "&transport.vfs.FlushInterval=60000");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(writer.write(("record-" + i + "\n").getBytes("UTF-8"), 1000));
+        }
+        Thread.sleep(200);
+        // written to the buffer, but only removed from the queue once flushed
+        assertEquals(10, writer.getQueuedMessages());
+
+        writer.close();
+        assertEquals(0, writer.getQueuedMessages());
+        assertEquals(10, FileUtils.readFileToString(target, "UTF-8").split("\n").length);
+    }
+
+    public void testWriteRetriedWhenFileUnavailable() throws Exception {
+        File target = new File(directory, "locked.log");
+        FileUtils.writeStringToFile(target, "", "UTF-8");
+        FileObject file = VFS.getManager().resolveFile(target.toURI().toString());
+        assertTrue(VFSUtils.acquireLock(VFS.getManager(), file));
+
+        VFSOutTransportInfo outInfo = createOutInfo(target,
+                "&transport.vfs.FlushInterval=50", true);
+        outInfo.setReconnectTimeout(100);
+        BatchedFileWriter writer = new BatchedFileWriter(VFS.getManager(), outInfo, executor,
+                new MetricsCollector(), writers);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(writer.write(("record-" + i + "\n").getBytes("UTF-8"), 1000));
+        }
+        Thread.sleep(300);
+        assertEquals(5, writer.getQueuedMessages());
+
+        VFSUtils.releaseLock(VFS.getManager(), file);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (writer.getQueuedMessages() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, writer.getQueuedMessages());
+        writer.close();
+        assertEquals(5, FileUtils.readFileToString(target, "UTF-8").split("\n").length);
+    }
+
+    public void testIdleWriterIsRemoved() throws Exception {
+        File target = new File(directory, "idle.log");
+        VFSOutTransportInfo outInfo = createOutInfo(target, "&transport.vfs.FlushInterval=50",
+                false);
+        BatchedFileWriter writer = new BatchedFileWriter(VFS.getManager(), outInfo, executor,
+                new MetricsCollector(), writers, 200);
+        writers.put(outInfo.getOutFileURI(), writer);
+        assertTrue(writer.write("record\n".getBytes("UTF-8"), 1000));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!writers.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(writers.isEmpty());
+        assertTrue(writer.isClosed());
+        assertFalse(writer.write("late".getBytes("UTF-8"), 10));
+        assertEquals("record\n", FileUtils.readFileToString(target, "UTF-8"));
+    }
+
+    private BatchedFileWriter createWriter(File target, String parameters) throws Exception {
+        return new BatchedFileWriter(VFS.getManager(), createOutInfo(target, parameters, false),
+                executor, new MetricsCollector(), writers);
+    }
+
+    private VFSOutTransportInfo createOutInfo(File target, String parameters, boolean locking)
+            throws Exception {
+        VFSOutTransportInfo outInfo = new VFSOutTransportInfo(target.toURI().toString() +
+                "?transport.vfs.Append=true&transport.vfs.AppendBatching=true" +
+                "&transport.vfs.Locking=" + (locking ? "enable" : "disable") + parameters, false);
+        assertTrue(outInfo.isAppendBatching());
+        return outInfo;
+    }
+}
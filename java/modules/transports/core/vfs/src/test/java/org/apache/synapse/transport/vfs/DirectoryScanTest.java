@@ -0,0 +1,170 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+import org.apache.axis2.transport.base.threads.WorkerPool;
+import org.apache.axis2.transport.base.threads.WorkerPoolFactory;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.VFS;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class DirectoryScanTest extends TestCase {
+
+    private static final Pattern PATTERN = Pattern.compile(".*\\.txt");
+
+    private final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+    private File directory;
+    private FileSystemManager fsManager;
+    private WorkerPool workerPool;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = new File("target/directory-scan");
+        FileUtils.deleteDirectory(directory);
+        directory.mkdirs();
+        fsManager = VFS.getManager();
+        workerPool = WorkerPoolFactory.getWorkerPool(8, 8, 5, -1, "VFS scan test", "VFS scan test");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        workerPool.shutdown(1000);
+        FileUtils.deleteDirectory(directory);
+    }
+
+    public void testMaxFilesPerPoll() throws Exception {
+        createFiles("file", ".txt", 10);
+        createFiles("other", ".dat", 10);
+        PollTableEntry entry = new PollTableEntry(true);
+        entry.setMaxFilesPerPoll(4);
+
+        VFSTransportListener.DirectoryScan scan = createScan(entry, new LockingProcessor());
+        scan.run(3);
+
+        assertEquals(4, processed.size());
+        assertEquals(4, scan.getProcessedCount());
+        assertEquals(4, scan.getSuccessCount());
+        assertEquals(4, entry.getFilesProcessed());
+        assertEquals(16, directory.list().length);
+    }
+
+    public void testLockedFilesAreNotCounted() throws Exception {
+        createFiles("file", ".txt", 8);
+        List<String> locked = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(VFSUtils.acquireLock(fsManager, resolve("file" + i + ".txt")));
+            locked.add("file" + i + ".txt");
+        }
+        PollTableEntry entry = new PollTableEntry(true);
+        entry.setMaxFilesPerPoll(3);
+
+        VFSTransportListener.DirectoryScan scan = createScan(entry, new LockingProcessor());
+        scan.run(2);
+
+        // the locked files neither count against the limit nor as processed files
+        assertEquals(3, processed.size());
+        for (String name : processed) {
+            assertFalse(name, locked.contains(name));
+        }
+        assertEquals(3, entry.getFilesProcessed());
+        assertEquals(0, scan.getFailCount());
+    }
+
+    public void testConcurrentScans() throws Exception {
+        createFiles("file", ".txt", 50);
+        final PollTableEntry first = new PollTableEntry(true);
+        final PollTableEntry second = new PollTableEntry(true);
+        final VFSTransportListener.DirectoryScan firstScan =
+                createScan(first, new LockingProcessor());
+        final VFSTransportListener.DirectoryScan secondScan =
+                createScan(second, new LockingProcessor());
+
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread other = new Thread() {
+            public void run() {
+                try {
+                    secondScan.run(4);
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            }
+        };
+        other.start();
+        firstScan.run(4);
+        other.join();
+
+        assertTrue(errors.toString(), errors.isEmpty());
+        // every file is processed exactly once, by one of the scans
+        assertEquals(50, processed.size());
+        assertEquals(50, new HashSet<String>(processed).size());
+        assertEquals(50, first.getFilesProcessed() + second.getFilesProcessed());
+        assertEquals(0, directory.list().length);
+    }
+
+    private VFSTransportListener.DirectoryScan createScan(PollTableEntry entry,
+            VFSTransportListener.ChildProcessor processor) throws Exception {
+        return new VFSTransportListener.DirectoryScan(entry,
+                fsManager.resolveFile(directory.toURI().toString()), PATTERN, workerPool,
+                processor);
+    }
+
+    private void createFiles(String prefix, String suffix, int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            FileUtils.writeStringToFile(new File(directory, prefix + i + suffix), "content", "UTF-8");
+        }
+    }
+
+    private FileObject resolve(String name) throws Exception {
+        return fsManager.resolveFile(new File(directory, name).toURI().toString());
+    }
+
+    /**
+     * Processes a file the way the listener does, under its lock, deleting it afterwards
+     */
+    private class LockingProcessor implements VFSTransportListener.ChildProcessor {
+
+        public int process(FileObject child) throws FileSystemException {
+            if (!VFSUtils.acquireLock(fsManager, child)) {
+                return 0;
+            }
+            try {
+                if (!child.exists()) {
+                    // already processed by the other scan
+                    return 0;
+                }
+                processed.add(child.getName().getBaseName());
+                child.delete();
+                return VFSTransportListener.CHILD_PROCESSED;
+            } finally {
+                VFSUtils.releaseLock(fsManager, child);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecordSplitterTest extends TestCase {
+
+    public void testLineSplitting() throws Exception {
+        RecordSplitter splitter = delimited("a,1\r\nb,2\n\nc,3", "\n", true);
+        assertEquals("a,1", next(splitter));
+        assertEquals("b,2", next(splitter));
+        assertEquals("c,3", next(splitter));
+        assertNull(splitter.next());
+        splitter.close();
+    }
+
+    public void testOverlappingDelimiter() throws Exception {
+        RecordSplitter splitter = delimited("xaaaby|aab", "aab", false);
+        assertEquals("xa", next(splitter));
+        assertEquals("y|", next(splitter));
+        assertNull(splitter.next());
+
+        splitter = delimited("one##two#three##", "##", false);
+        assertEquals("one", next(splitter));
+        assertEquals("two#three", next(splitter));
+        assertNull(splitter.next());
+    }
+
+    public void testDelimitedJoin() throws Exception {
+        RecordSplitter splitter = delimited("a;b;c", ";", false);
+        List<byte[]> batch = new ArrayList<byte[]>();
+        batch.add(splitter.next());
+        batch.add(splitter.next());
+        assertEquals("a;b", new String(splitter.join(batch), "UTF-8"));
+    }
+
+    public void testXMLSplitting() throws Exception {
+        String xml = "<?xml version=\"1.0\"?><o:orders xmlns:o=\"urn:orders\">" +
+                "<o:order id=\"1\"><o:item>a</o:item></o:order>" +
+                "<other><o:order id=\"x\"/></other>" +
+                "<o:order id=\"2\"/></o:orders>";
+        RecordSplitter splitter = new XMLRecordSplitter(
+                new ByteArrayInputStream(xml.getBytes("UTF-8")), "/orders/order", "UTF-8");
+
+        String first = next(splitter);
+        assertTrue(first, first.contains("id=\"1\""));
+        assertTrue(first, first.contains("urn:orders"));
+        assertTrue(first, first.contains(">a<"));
+        byte[] second = splitter.next();
+        assertTrue(new String(second, "UTF-8").contains("id=\"2\""));
+        assertNull(splitter.next());
+
+        List<byte[]> batch = new ArrayList<byte[]>();
+        batch.add(first.getBytes("UTF-8"));
+        batch.add(second);
+        String joined = new String(splitter.join(batch), "UTF-8");
+        assertTrue(joined, joined.startsWith("<orders xmlns=\"urn:orders\">"));
+        assertTrue(joined, joined.endsWith("</orders>"));
+        splitter.close();
+    }
+
+    public void testDelimitedOffset() throws Exception {
+        RecordSplitter splitter = delimited("a,1\r\nb,2\n\nc,3", "\n", true);
+        assertEquals(0, splitter.getOffset());
+        next(splitter);
+        assertEquals(5, splitter.getOffset());
+        next(splitter);
+        assertEquals(9, splitter.getOffset());
+        next(splitter);
+        assertEquals(13, splitter.getOffset());
+        assertNull(splitter.next());
+
+        // resume after the first record
+        byte[] content = "a,1\r\nb,2\n\nc,3".getBytes("UTF-8");
+        splitter = new DelimitedRecordSplitter(Channels.newChannel(
+                new ByteArrayInputStream(content, 5, content.length - 5)),
+                "\n".getBytes("UTF-8"), true, 5);
+        assertEquals("b,2", next(splitter));
+        assertEquals(9, splitter.getOffset());
+        assertEquals("c,3", next(splitter));
+        assertNull(splitter.next());
+    }
+
+    public void testCheckpoint() throws Exception {
+        File directory = new File("target/checkpoints");
+        RecordCheckpoint checkpoint = new RecordCheckpoint(directory, "file:///in/a.csv", 10, 5);
+        assertEquals(0, checkpoint.load());
+        assertEquals(-1, checkpoint.getOffset());
+        checkpoint.save(42, 100);
+        assertEquals(42, checkpoint.load());
+        assertEquals(100, checkpoint.getOffset());
+        assertEquals(0, new RecordCheckpoint(directory, "file:///in/a.csv", 11, 5).load());
+        checkpoint.delete();
+        assertEquals(0, checkpoint.load());
+    }
+
+    public void testCheckpointName() throws Exception {
+        File directory = new File("target/checkpoints");
+        RecordCheckpoint first = new RecordCheckpoint(directory, "file:///in/a/data.csv", 10, 5);
+        RecordCheckpoint second = new RecordCheckpoint(directory, "file:///in/b/data.csv", 10, 5);
+        assertFalse(first.getFile().equals(second.getFile()));
+        assertTrue(first.getFile().getName().startsWith("data.csv-"));
+        assertEquals(first.getFile(),
+                new RecordCheckpoint(directory, "file:///in/a/data.csv", 10, 5).getFile());
+
+        first.save(1, 4);
+        assertEquals(0, second.load());
+        first.delete();
+    }
+
+    public void testProgressStopsAtFailedBatch() throws Exception {
+        File directory = new File("target/checkpoints");
+        RecordCheckpoint checkpoint = new RecordCheckpoint(directory, "file:///in/b.csv", 10, 5);
+        VFSTransportListener.RecordProgress progress =
+                new VFSTransportListener.RecordProgress(checkpoint, 0, 0, 1);
+
+        progress.done(10, 10, 200, true);
+        assertEquals(0, progress.getWatermark());
+        progress.done(0, 10, 100, true);
+        assertEquals(20, progress.getWatermark());
+        assertEquals(20, checkpoint.load());
+        assertEquals(200, checkpoint.getOffset());
+
+        progress.done(20, 10, 300, false);
+        progress.done(30, 10, 400, true);
+        progress.save();
+        assertEquals(20, progress.getWatermark());
+        assertEquals(1, progress.getFailures());
+        assertEquals(20, checkpoint.load());
+        assertEquals(200, checkpoint.getOffset());
+        checkpoint.delete();
+    }
+
+    private RecordSplitter delimited(String content, String delimiter, boolean lines)
+            throws Exception {
+        return new DelimitedRecordSplitter(Channels.newChannel(new ByteArrayInputStream(
+                content.getBytes("UTF-8"))), delimiter.getBytes("UTF-8"), lines);
+    }
+
+    private String next(RecordSplitter splitter) throws Exception {
+        return new String(splitter.next(), "UTF-8");
+    }
+}
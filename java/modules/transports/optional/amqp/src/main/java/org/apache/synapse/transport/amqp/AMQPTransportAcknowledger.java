@@ -0,0 +1,106 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.transport.amqp;
+
+import com.rabbitmq.client.Channel;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Acknowledges the deliveries of a consumer channel in batches. Deliveries may complete in any
+ * order, so the acknowledger keeps track of the highest delivery tag up to which every delivery
+ * has completed and acknowledges all of them at once with a multiple ack. An ack is sent once
+ * the batch size is reached, or as soon as no delivery is left in progress so that the prefetch
+ * window of the channel never stalls waiting for a batch to fill up.
+ */
+public class AMQPTransportAcknowledger {
+
+    /**
+     * The channel the deliveries were received on, delivery tags are scoped to it.
+     */
+    private final Channel channel;
+
+    /**
+     * The number of completed deliveries acknowledged with a single ack.
+     */
+    private final int batchSize;
+
+    /**
+     * True if each ack should be committed as a transaction of the channel.
+     */
+    private final boolean useTx;
+
+    /**
+     * The tags of completed deliveries above the watermark.
+     */
+    private final Set<Long> completed = new HashSet<Long>();
+
+    private long lastDelivered = 0;
+
+    private long watermark = 0;
+
+    private long lastAcknowledged = 0;
+
+    public AMQPTransportAcknowledger(Channel channel, int batchSize, boolean useTx) {
+        this.channel = channel;
+        this.batchSize = Math.max(1, batchSize);
+        this.useTx = useTx;
+    }
+
+    /**
+     * Record a delivery received on the channel, before it is handed over for processing.
+     *
+     * @param deliveryTag the delivery tag of the message
+     */
+    public synchronized void delivered(long deliveryTag) {
+        if (deliveryTag > lastDelivered) {
+            lastDelivered = deliveryTag;
+        }
+    }
+
+    /**
+     * Record the completion of a delivery, acknowledging the completed deliveries if needed.
+     *
+     * @param deliveryTag the delivery tag of the message
+     * @throws IOException if the ack could not be sent
+     */
+    public synchronized void completed(long deliveryTag) throws IOException {
+        if (deliveryTag <= watermark) {
+            return;
+        }
+        completed.add(deliveryTag);
+        while (completed.remove(watermark + 1)) {
+            watermark++;
+        }
+        if (watermark > lastAcknowledged &&
+                (watermark - lastAcknowledged >= batchSize || watermark == lastDelivered)) {
+            channel.basicAck(watermark, true);
+            if (useTx) {
+                channel.txCommit();
+            }
+            lastAcknowledged = watermark;
+        }
+    }
+
+    /**
+     * Returns the number of deliveries that have not been acknowledged yet.
+     *
+     * @return the number of unacknowledged deliveries
+     */
+    public synchronized long getUnacknowledged() {
+        return lastDelivered - lastAcknowledged;
+    }
+}
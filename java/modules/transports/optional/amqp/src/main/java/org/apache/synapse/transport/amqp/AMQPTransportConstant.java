@@ -73,6 +73,47 @@ public final class AMQPTransportConstant {
      */
     public static final String PARAMETER_CHANNEL_QOS_GLOBAL = "transport.amqp.IsQoSGlobally";
 
+    /**
+     * The number of channels the transport sender publishes on concurrently per connection
+     * factory, 0 to publish on the single channel of the connection factory. Each destination
+     * is pinned to one channel, so the messages sent to a destination keep their order.
+     */
+    public static final String PARAMETER_CHANNEL_POOL_SIZE = "transport.amqp.ChannelPoolSize";
+
+    public static final int DEFAULT_CHANNEL_POOL_SIZE = 0;
+
+    /**
+     * Should the pooled channels track publisher confirms asynchronously, republishing the
+     * messages nacked by the broker ?
+     */
+    public static final String PARAMETER_PUBLISHER_CONFIRMS = "transport.amqp.PublisherConfirms";
+
+    /**
+     * The maximum number of messages waiting for a confirm per pooled channel, before
+     * publishing on that channel blocks.
+     */
+    public static final String PARAMETER_PUBLISHER_MAX_OUTSTANDING_CONFIRMS =
+            "transport.amqp.PublisherMaxOutstandingConfirms";
+
+    public static final int DEFAULT_PUBLISHER_MAX_OUTSTANDING_CONFIRMS = 1000;
+
+    /**
+     * The number of times a nacked or unconfirmed message is republished before giving up.
+     */
+    public static final String PARAMETER_PUBLISHER_MAX_REPUBLISH =
+            "transport.amqp.PublisherMaxRepublish";
+
+    public static final int DEFAULT_PUBLISHER_MAX_REPUBLISH = 3;
+
+    /**
+     * The time in milliseconds to wait for the confirm of a message, and for the outstanding
+     * confirms when shutting down.
+     */
+    public static final String PARAMETER_PUBLISHER_CONFIRM_TIMEOUT =
+            "transport.amqp.PublisherConfirmTimeout";
+
+    public static final int DEFAULT_PUBLISHER_CONFIRM_TIMEOUT = 5000;
+
     /**
      * The type of the exchange. One of fanout, direct, header or topic.
      */
@@ -236,6 +277,38 @@ public final class AMQPTransportConstant {
     public static final String PARAMETER_DISPATCHING_TASK_SIZE =
             "transport.amqp.NoOfDispatchingTask";
 
+    /**
+     * The maximum number of unacknowledged messages delivered to each consumer. Consumers
+     * acknowledge messages once processed when set, instead of relying on auto acknowledgement.
+     */
+    public static final String PARAMETER_CONSUMER_PREFETCH_COUNT =
+            "transport.amqp.ConsumerPrefetchCount";
+
+    /**
+     * The number of processed messages acknowledged together with a single multiple ack.
+     */
+    public static final String PARAMETER_CONSUMER_ACK_BATCH_SIZE =
+            "transport.amqp.ConsumerAckBatchSize";
+
+    /**
+     * The maximum number of concurrent consumers a polling task scales up to when the queue
+     * has a backlog. Defaults to {@link #PARAMETER_NO_OF_CONCURRENT_CONSUMERS}, i.e. no scaling.
+     */
+    public static final String PARAMETER_MAX_CONCURRENT_CONSUMERS =
+            "transport.amqp.MaxConcurrentConsumers";
+
+    /**
+     * The number of messages waiting in the queue per consumer above which a consumer is added.
+     */
+    public static final String PARAMETER_CONSUMER_SCALE_THRESHOLD =
+            "transport.amqp.ConsumerScaleThreshold";
+
+    /**
+     * The interval in milliseconds at which the backlog of the queue is checked for scaling.
+     */
+    public static final String PARAMETER_CONSUMER_SCALE_INTERVAL =
+            "transport.amqp.ConsumerScaleInterval";
+
     /**
      * Use the given channel number if possible. See
      * http://www.rabbitmq.com/releases/rabbitmq-java-client/v3.0.1/rabbitmq-java-client-javadoc-3.0.1/com/rabbitmq/client/Connection.html#createChannel(int)
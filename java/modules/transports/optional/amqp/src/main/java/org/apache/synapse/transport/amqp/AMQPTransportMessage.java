@@ -18,6 +18,7 @@ import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.QueueingConsumer;
 import org.apache.axis2.transport.base.BaseConstants;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.Map;
 
@@ -67,28 +68,37 @@ public class AMQPTransportMessage {
 
     private QueueingConsumer.Delivery delivery;
 
+    /**
+     * Acknowledges the delivery of this message once processed, null if auto acknowledged.
+     */
+    private AMQPTransportAcknowledger acknowledger;
+
     public AMQPTransportMessage(QueueingConsumer.Delivery delivery) {
+        this(delivery.getEnvelope(), delivery.getProperties(), delivery.getBody());
         this.delivery = delivery;
-        this.body = delivery.getBody();
-        this.envelope = delivery.getEnvelope();
-        this.basicProperties = delivery.getProperties();
-        this.messageId = delivery.getProperties().getMessageId();
-        this.contentType = delivery.getProperties().getContentType();
-        this.contentEncoding = delivery.getProperties().getContentEncoding();
-        this.deliveryMode = delivery.getProperties().getDeliveryMode();
-        this.priority = delivery.getProperties().getPriority();
-        this.correlationId = delivery.getProperties().getCorrelationId();
-        this.replyTo = delivery.getProperties().getReplyTo();
-        this.expiration = delivery.getProperties().getExpiration();
-        this.timestamp = delivery.getProperties().getTimestamp();
-        this.type = delivery.getProperties().getType();
-        this.userId = delivery.getProperties().getUserId();
-        this.appId = delivery.getProperties().getAppId();
-        this.clusterId = delivery.getProperties().getClusterId();
-        this.headers = delivery.getProperties().getHeaders();
-
-        if (delivery.getProperties().getHeaders() != null) {
-            this.soapAction = (String) delivery.getProperties().getHeaders().get(BaseConstants.SOAPACTION);
+    }
+
+    public AMQPTransportMessage(Envelope envelope, BasicProperties properties, byte[] body) {
+        this.body = body;
+        this.envelope = envelope;
+        this.basicProperties = properties;
+        this.messageId = properties.getMessageId();
+        this.contentType = properties.getContentType();
+        this.contentEncoding = properties.getContentEncoding();
+        this.deliveryMode = properties.getDeliveryMode();
+        this.priority = properties.getPriority();
+        this.correlationId = properties.getCorrelationId();
+        this.replyTo = properties.getReplyTo();
+        this.expiration = properties.getExpiration();
+        this.timestamp = properties.getTimestamp();
+        this.type = properties.getType();
+        this.userId = properties.getUserId();
+        this.appId = properties.getAppId();
+        this.clusterId = properties.getClusterId();
+        this.headers = properties.getHeaders();
+
+        if (properties.getHeaders() != null) {
+            this.soapAction = (String) properties.getHeaders().get(BaseConstants.SOAPACTION);
         }
     }
 
@@ -170,4 +180,19 @@ public class AMQPTransportMessage {
     public Envelope getEnvelope() {
         return envelope;
     }
+
+    public void setAcknowledger(AMQPTransportAcknowledger acknowledger) {
+        this.acknowledger = acknowledger;
+    }
+
+    /**
+     * Acknowledge the delivery of this message, once it has been processed.
+     *
+     * @throws IOException if the ack could not be sent to the broker
+     */
+    public void acknowledge() throws IOException {
+        if (acknowledger != null && envelope != null) {
+            acknowledger.completed(envelope.getDeliveryTag());
+        }
+    }
 }
\ No newline at end of file
@@ -211,7 +211,7 @@ public class AMQPTransportSender extends AbstractTransportSender {
                 }
             }
 
-            amqpSender.sendAMQPMessage(msgCtx, correlationId, replyTo);
+            amqpSender.sendAMQPMessage(msgCtx, correlationId, replyTo, tx != null);
 
             if (tx != null) {
                 try {
@@ -0,0 +1,485 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.transport.amqp.connectionfactory;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A pool of publishing channels on the connection of a connection factory, so that concurrent
+ * senders do not serialize on a single channel. Each destination (exchange and routing key) is
+ * pinned to one channel of the pool, and the messages to a destination are published on that
+ * channel one at a time, so that messages sent to the same destination keep their order.
+ * <p/>
+ * With publisher confirms enabled, publishing blocks until the broker confirms the message,
+ * while the messages of other senders keep being published on the same channel. A channel
+ * bounds the number of messages waiting for a confirm. Messages that are nacked or left
+ * unconfirmed by a closed channel are republished, and the publish fails once a message could
+ * not be published after the maximum number of republishes.
+ */
+public class AMQPTransportChannelPool {
+
+    private static Log log = LogFactory.getLog(AMQPTransportChannelPool.class);
+
+    private static final long CONFIRM_POLL_INTERVAL = 100;
+
+    /**
+     * The pools whose statistics are registered, by MBean name. A pool replacing another one
+     * of the same connection factory takes over its MBean.
+     */
+    private static final Map<ObjectName, AMQPTransportChannelPool> registeredPools =
+            new HashMap<ObjectName, AMQPTransportChannelPool>();
+
+    private final String name;
+
+    private final Connection connection;
+
+    private final boolean publisherConfirms;
+
+    private final int maxOutstandingConfirms;
+
+    private final int maxRepublish;
+
+    private final long confirmTimeout;
+
+    /**
+     * Executes the republishing of messages, which must not happen on the connection thread
+     * delivering the confirms.
+     */
+    private final ExecutorService executor;
+
+    private final AMQPTransportPublisherStats stats = new AMQPTransportPublisherStats();
+
+    /**
+     * The channels of the pool, indexed by the hash of the destinations pinned to them and
+     * created on first use.
+     */
+    private final PooledChannel[] channels;
+
+    private ObjectName objectName;
+
+    /**
+     * Set once the pool is shut down, after which no channel is created any more.
+     */
+    private boolean shutdown = false;
+
+    /**
+     * @param name                   the name of the connection factory
+     * @param connection             the connection to create the channels on
+     * @param executor               the executor republishing messages
+     * @param maxChannels            the number of channels of the pool
+     * @param publisherConfirms      should the channels be put in confirm mode ?
+     * @param maxOutstandingConfirms the maximum number of messages waiting for a confirm
+     *                               per channel
+     * @param maxRepublish           the number of times a message is republished
+     * @param confirmTimeout         the time in milliseconds to wait for the confirm of a message
+     */
+    public AMQPTransportChannelPool(String name,
+                                    Connection connection,
+                                    ExecutorService executor,
+                                    int maxChannels,
+                                    boolean publisherConfirms,
+                                    int maxOutstandingConfirms,
+                                    int maxRepublish,
+                                    long confirmTimeout) {
+        this.name = name;
+        this.connection = connection;
+        this.executor = executor;
+        this.channels = new PooledChannel[Math.max(1, maxChannels)];
+        this.publisherConfirms = publisherConfirms;
+        this.maxOutstandingConfirms = Math.max(1, maxOutstandingConfirms);
+        this.maxRepublish = maxRepublish;
+        this.confirmTimeout = confirmTimeout;
+
+        try {
+            objectName = new ObjectName("org.apache.synapse:Type=Transport,ConnectorName=" +
+                    "amqp-publisher-" + name.replaceAll("[^\\w.\\-]", "_"));
+            synchronized (registeredPools) {
+                MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+                if (mbs.isRegistered(objectName)) {
+                    // the pool of a replaced connection, report this one from now on
+                    mbs.unregisterMBean(objectName);
+                }
+                mbs.registerMBean(stats, objectName);
+                registeredPools.put(objectName, this);
+            }
+        } catch (Exception e) {
+            log.warn("Could not register the publisher statistics of the connection factory '" +
+                    name + "'", e);
+            objectName = null;
+        }
+    }
+
+    public AMQPTransportPublisherStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Publish a message on the channel of its destination. With publisher confirms enabled,
+     * returns once the broker has confirmed the message, otherwise once the message has been
+     * handed over to the broker.
+     *
+     * @param exchange   the exchange to publish to
+     * @param routingKey the routing key
+     * @param properties the message properties
+     * @param body       the message body
+     * @throws IOException if the message could not be published, or was not confirmed
+     */
+    public void publish(String exchange, String routingKey, AMQP.BasicProperties properties,
+                        byte[] body) throws IOException {
+        PendingPublish message = new PendingPublish(exchange, routingKey, properties, body);
+        publish(message);
+        if (publisherConfirms) {
+            message.awaitConfirm(confirmTimeout);
+        }
+    }
+
+    /**
+     * Wait for the outstanding confirms and close the channels of the pool. Messages still
+     * unconfirmed fail once their channel is closed, and the pool does not publish any more.
+     *
+     * @param timeout the maximum time to wait for the confirms of each channel, in milliseconds
+     */
+    public void shutdown(long timeout) {
+        List<PooledChannel> toClose = new ArrayList<PooledChannel>();
+        synchronized (this) {
+            shutdown = true;
+            for (int i = 0; i < channels.length; i++) {
+                if (channels[i] != null) {
+                    toClose.add(channels[i]);
+                    channels[i] = null;
+                }
+            }
+        }
+        for (PooledChannel pc : toClose) {
+            pc.awaitConfirms(timeout);
+            try {
+                if (pc.channel.isOpen()) {
+                    pc.channel.close();
+                }
+            } catch (Exception e) {
+                log.warn("Error while closing a publishing channel of the connection factory '" +
+                        name + "'", e);
+            }
+            // the channel may have been closed already, without the application closing it
+            pc.failUnconfirmed();
+        }
+        if (objectName != null) {
+            synchronized (registeredPools) {
+                // unless a newer pool of the connection factory has taken over the MBean
+                if (registeredPools.get(objectName) == this) {
+                    registeredPools.remove(objectName);
+                    try {
+                        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+                    } catch (Exception ignore) {
+                    }
+                }
+            }
+        }
+    }
+
+    private void publish(PendingPublish message) throws IOException {
+        getChannel(message).publish(message);
+    }
+
+    private void republish(final List<PendingPublish> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    for (PendingPublish message : messages) {
+                        if (message.attempts > maxRepublish) {
+                            fail(message, new IOException("Giving up publishing message '" +
+                                    message.properties.getMessageId() + "' after " +
+                                    message.attempts + " attempts"));
+                            continue;
+                        }
+                        try {
+                            stats.republished();
+                            publish(message);
+                        } catch (IOException e) {
+                            fail(message, e);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            for (PendingPublish message : messages) {
+                fail(message, new IOException("Unconfirmed message '" +
+                        message.properties.getMessageId() + "' could not be republished"));
+            }
+        }
+    }
+
+    private void fail(PendingPublish message, IOException e) {
+        stats.failed();
+        log.error("Could not publish message '" + message.properties.getMessageId() + "'", e);
+        message.complete(e);
+    }
+
+    private synchronized PooledChannel getChannel(PendingPublish message) throws IOException {
+        int hash = (message.exchange != null ? message.exchange.hashCode() * 31 : 0) +
+                (message.routingKey != null ? message.routingKey.hashCode() : 0);
+        int index = (hash & Integer.MAX_VALUE) % channels.length;
+        if (shutdown) {
+            throw new IOException("The channel pool of the connection factory '" + name +
+                    "' has been shut down");
+        }
+        PooledChannel pc = channels[index];
+        if (pc == null || !pc.channel.isOpen()) {
+            Channel channel = connection.createChannel();
+            pc = new PooledChannel(channel);
+            if (publisherConfirms) {
+                channel.confirmSelect();
+                channel.addConfirmListener(pc);
+            }
+            channel.addShutdownListener(pc);
+            channels[index] = pc;
+        }
+        return pc;
+    }
+
+    private synchronized void discard(PooledChannel pc) {
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i] == pc) {
+                channels[i] = null;
+            }
+        }
+    }
+
+    /**
+     * A message published on a channel, kept until confirmed so that it can be republished.
+     */
+    private static class PendingPublish {
+        final String exchange;
+        final String routingKey;
+        final AMQP.BasicProperties properties;
+        final byte[] body;
+        int attempts = 0;
+        long publishedAt;
+        private boolean done = false;
+        private IOException failure;
+
+        private PendingPublish(String exchange, String routingKey,
+                               AMQP.BasicProperties properties, byte[] body) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.properties = properties;
+            this.body = body;
+        }
+
+        private synchronized void complete(IOException failure) {
+            if (!done) {
+                this.done = true;
+                this.failure = failure;
+                notifyAll();
+            }
+        }
+
+        private synchronized void awaitConfirm(long timeout) throws IOException {
+            long end = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (!done && remaining > 0) {
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the " +
+                            "confirm of message '" + properties.getMessageId() + "'");
+                }
+                remaining = end - System.currentTimeMillis();
+            }
+            if (!done) {
+                throw new IOException("Message '" + properties.getMessageId() + "' was not " +
+                        "confirmed within " + timeout + " ms");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * A channel of the pool, tracking the messages published on it that wait for a confirm.
+     */
+    private class PooledChannel implements ConfirmListener, ShutdownListener {
+
+        private final Channel channel;
+
+        /**
+         * Serializes the publishes on the channel, so that the messages to a destination are
+         * published in the order they are sent, and the sequence number of a message is the
+         * one it is published with.
+         */
+        private final Object publishLock = new Object();
+
+        private final SortedMap<Long, PendingPublish> unconfirmed =
+                new TreeMap<Long, PendingPublish>();
+
+        private PooledChannel(Channel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Publish a message. The lock of the channel is only held to track the confirms, and
+         * never while publishing, as the confirms are delivered by the connection thread.
+         */
+        private void publish(PendingPublish message) throws IOException {
+            synchronized (publishLock) {
+                long seqNo = 0;
+                if (publisherConfirms) {
+                    synchronized (this) {
+                        while (unconfirmed.size() >= maxOutstandingConfirms && channel.isOpen()) {
+                            try {
+                                wait(CONFIRM_POLL_INTERVAL);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new InterruptedIOException(
+                                        "Interrupted while waiting for confirms");
+                            }
+                        }
+                        seqNo = channel.getNextPublishSeqNo();
+                        unconfirmed.put(seqNo, message);
+                        stats.outstanding(1);
+                    }
+                }
+
+                message.attempts++;
+                message.publishedAt = System.nanoTime();
+                try {
+                    channel.basicPublish(message.exchange, message.routingKey,
+                            message.properties, message.body);
+                } catch (IOException e) {
+                    if (publisherConfirms && settle(seqNo, false).isEmpty()) {
+                        // already taken over for republishing as the channel was closed
+                        return;
+                    }
+                    throw e;
+                }
+                stats.published();
+            }
+        }
+
+        private synchronized void awaitConfirms(long timeout) {
+            long end = System.currentTimeMillis() + timeout;
+            long remaining = timeout;
+            while (!unconfirmed.isEmpty() && channel.isOpen() && remaining > 0) {
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                remaining = end - System.currentTimeMillis();
+            }
+            if (!unconfirmed.isEmpty()) {
+                log.warn(unconfirmed.size() + " messages of the connection factory '" + name +
+                        "' were not confirmed before closing the channel");
+            }
+        }
+
+        private void failUnconfirmed() {
+            List<PendingPublish> lost;
+            synchronized (this) {
+                lost = new ArrayList<PendingPublish>(unconfirmed.values());
+                unconfirmed.clear();
+                stats.outstanding(-lost.size());
+                notifyAll();
+            }
+            for (PendingPublish message : lost) {
+                fail(message, new IOException("The channel pool was shut down before message '" +
+                        message.properties.getMessageId() + "' was confirmed"));
+            }
+        }
+
+        private synchronized List<PendingPublish> settle(long deliveryTag, boolean multiple) {
+            List<PendingPublish> settled = new ArrayList<PendingPublish>();
+            if (multiple) {
+                SortedMap<Long, PendingPublish> head = unconfirmed.headMap(deliveryTag + 1);
+                settled.addAll(head.values());
+                head.clear();
+            } else {
+                PendingPublish message = unconfirmed.remove(deliveryTag);
+                if (message != null) {
+                    settled.add(message);
+                }
+            }
+            stats.outstanding(-settled.size());
+            notifyAll();
+            return settled;
+        }
+
+        public void handleAck(long deliveryTag, boolean multiple) {
+            long now = System.nanoTime();
+            for (PendingPublish message : settle(deliveryTag, multiple)) {
+                stats.confirmed(now - message.publishedAt);
+                message.complete(null);
+            }
+        }
+
+        public void handleNack(long deliveryTag, boolean multiple) {
+            List<PendingPublish> nacked = settle(deliveryTag, multiple);
+            for (int i = 0; i < nacked.size(); i++) {
+                stats.nacked();
+            }
+            republish(nacked);
+        }
+
+        public void shutdownCompleted(ShutdownSignalException cause) {
+            discard(this);
+            List<PendingPublish> lost;
+            synchronized (this) {
+                lost = new ArrayList<PendingPublish>(unconfirmed.values());
+                unconfirmed.clear();
+                stats.outstanding(-lost.size());
+                notifyAll();
+            }
+            if (lost.isEmpty()) {
+                return;
+            }
+            if (cause.isInitiatedByApplication()) {
+                for (PendingPublish message : lost) {
+                    fail(message, new IOException("The channel was closed before message '" +
+                            message.properties.getMessageId() + "' was confirmed"));
+                }
+            } else {
+                log.warn("A publishing channel of the connection factory '" + name + "' was " +
+                        "closed with " + lost.size() + " unconfirmed messages, republishing them");
+                republish(lost);
+            }
+        }
+    }
+}
@@ -80,11 +80,41 @@ public class AMQPTransportConnectionFactory {
      */
     private Channel channel = null;
 
+    /**
+     * The executor of the connection, also used by the channel pool.
+     */
+    private ExecutorService executor = null;
+
+    /**
+     * The pool of publishing channels of this connection, created on first use.
+     */
+    private AMQPTransportChannelPool channelPool = null;
+
+    public AMQPTransportConnectionFactory(
+            Map<String, String> parameters,
+            ExecutorService es)
+            throws AMQPTransportException {
+        this(null, parameters, es);
+    }
+
+    /**
+     * Create a connection factory from the parameters of an existing one, e.g. to replace
+     * it after reconnecting to the broker.
+     *
+     * @param name       the name of the connection factory, or null
+     * @param parameters the parameters of the connection factory
+     * @param es         the executor of the connection
+     * @throws AMQPTransportException if the connection could not be created
+     */
     public AMQPTransportConnectionFactory(
+            String name,
             Map<String, String> parameters,
             ExecutorService es)
             throws AMQPTransportException {
         try {
+            this.name = name;
+            this.parameters.putAll(parameters);
+            executor = es;
             connection = createConnection(es, parameters);
             channel = createChannel(connection, parameters);
         } catch (Exception e) {
@@ -124,6 +154,7 @@ public class AMQPTransportConnectionFactory {
                 parameters.put(entry.getName(), (String) entry.getValue());
             }
 
+            executor = es;
             connection = createConnection(es, parameters);
             channel = createChannel(connection, parameters);
 
@@ -139,6 +170,14 @@ public class AMQPTransportConnectionFactory {
      * @throws IOException
      */
     public void shutDownConnection() throws IOException {
+        synchronized (this) {
+            if (channelPool != null) {
+                channelPool.shutdown(getIntParameter(
+                        AMQPTransportConstant.PARAMETER_PUBLISHER_CONFIRM_TIMEOUT,
+                        AMQPTransportConstant.DEFAULT_PUBLISHER_CONFIRM_TIMEOUT));
+                channelPool = null;
+            }
+        }
         if (connection != null && connection.isOpen()) {
             connection.close();
         }
@@ -164,6 +203,48 @@ public class AMQPTransportConnectionFactory {
         return channel;
     }
 
+    /**
+     * Get the pool of publishing channels of this connection.
+     *
+     * @return the channel pool, or null if channel pooling is disabled
+     */
+    public synchronized AMQPTransportChannelPool getChannelPool() {
+        if (channelPool == null) {
+            int poolSize = getIntParameter(AMQPTransportConstant.PARAMETER_CHANNEL_POOL_SIZE,
+                    AMQPTransportConstant.DEFAULT_CHANNEL_POOL_SIZE);
+            if (poolSize <= 0) {
+                return null;
+            }
+            channelPool = new AMQPTransportChannelPool(
+                    name != null ? name : AMQPTransportConstant.DEFAULT_CONNECTION_FACTORY_NAME,
+                    connection,
+                    executor,
+                    poolSize,
+                    Boolean.parseBoolean(parameters.get(
+                            AMQPTransportConstant.PARAMETER_PUBLISHER_CONFIRMS)),
+                    getIntParameter(
+                            AMQPTransportConstant.PARAMETER_PUBLISHER_MAX_OUTSTANDING_CONFIRMS,
+                            AMQPTransportConstant.DEFAULT_PUBLISHER_MAX_OUTSTANDING_CONFIRMS),
+                    getIntParameter(AMQPTransportConstant.PARAMETER_PUBLISHER_MAX_REPUBLISH,
+                            AMQPTransportConstant.DEFAULT_PUBLISHER_MAX_REPUBLISH),
+                    getIntParameter(AMQPTransportConstant.PARAMETER_PUBLISHER_CONFIRM_TIMEOUT,
+                            AMQPTransportConstant.DEFAULT_PUBLISHER_CONFIRM_TIMEOUT));
+        }
+        return channelPool;
+    }
+
+    private int getIntParameter(String key, int defaultValue) {
+        String value = parameters.get(key);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                // assume default
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * Get the connection
      * @return the connection to broker.
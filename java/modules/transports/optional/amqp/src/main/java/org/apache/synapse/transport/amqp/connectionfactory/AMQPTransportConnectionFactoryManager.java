@@ -104,6 +104,32 @@ public class AMQPTransportConnectionFactoryManager {
         }
     }
 
+    /**
+     * Replace the connection factory with this name, and shutdown the replaced one along with
+     * its channel pool.
+     *
+     * @param name connection factory name.
+     * @param cf   the new connection factory.
+     */
+    public void replaceConnectionFactory(String name, AMQPTransportConnectionFactory cf) {
+        AMQPTransportConnectionFactory old = factories.put(name, cf);
+        if (old == null) {
+            return;
+        }
+        try {
+            old.shutDownChannel();
+        } catch (IOException e) {
+            log.warn("Error while closing the channel of the replaced connection factory '" +
+                    name + "'", e);
+        }
+        try {
+            old.shutDownConnection();
+        } catch (IOException e) {
+            log.warn("Error while closing the connection of the replaced connection factory '" +
+                    name + "'", e);
+        }
+    }
+
     /**
      * Shutdown the open connections to the broker via the connection factory
      */
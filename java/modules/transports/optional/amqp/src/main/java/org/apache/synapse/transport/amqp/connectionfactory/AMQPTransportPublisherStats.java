@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.transport.amqp.connectionfactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the publishing statistics of a channel pool. Rates are messages per second since the
+ * last reset and latencies are in milliseconds.
+ */
+public class AMQPTransportPublisherStats implements AMQPTransportPublisherStatsMBean {
+
+    private final AtomicLong published = new AtomicLong();
+
+    private final AtomicLong confirmed = new AtomicLong();
+
+    private final AtomicLong nacked = new AtomicLong();
+
+    private final AtomicLong republished = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong totalConfirmLatency = new AtomicLong();
+
+    private final AtomicLong maxConfirmLatency = new AtomicLong();
+
+    private final AtomicLong outstandingConfirms = new AtomicLong();
+
+    private volatile long since = System.currentTimeMillis();
+
+    void published() {
+        published.incrementAndGet();
+    }
+
+    /**
+     * Record a confirmed message.
+     *
+     * @param latency the time between the publish and the confirm, in nanoseconds
+     */
+    void confirmed(long latency) {
+        confirmed.incrementAndGet();
+        totalConfirmLatency.addAndGet(latency);
+        long max = maxConfirmLatency.get();
+        while (latency > max && !maxConfirmLatency.compareAndSet(max, latency)) {
+            max = maxConfirmLatency.get();
+        }
+    }
+
+    /**
+     * Record a change of the number of messages waiting for a confirm.
+     *
+     * @param delta the number of messages added or, if negative, settled
+     */
+    void outstanding(long delta) {
+        outstandingConfirms.addAndGet(delta);
+    }
+
+    void nacked() {
+        nacked.incrementAndGet();
+    }
+
+    void republished() {
+        republished.incrementAndGet();
+    }
+
+    void failed() {
+        failed.incrementAndGet();
+    }
+
+    public long getPublished() {
+        return published.get();
+    }
+
+    public long getConfirmed() {
+        return confirmed.get();
+    }
+
+    public long getNacked() {
+        return nacked.get();
+    }
+
+    public long getRepublished() {
+        return republished.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getOutstandingConfirms() {
+        return outstandingConfirms.get();
+    }
+
+    public double getPublishRate() {
+        long elapsed = System.currentTimeMillis() - since;
+        return elapsed > 0 ? published.get() * 1000.0 / elapsed : 0;
+    }
+
+    public double getAverageConfirmLatency() {
+        long count = confirmed.get();
+        return count > 0 ? totalConfirmLatency.get() / (count * 1000000.0) : 0;
+    }
+
+    public double getMaxConfirmLatency() {
+        return maxConfirmLatency.get() / 1000000.0;
+    }
+
+    public void reset() {
+        published.set(0);
+        confirmed.set(0);
+        nacked.set(0);
+        republished.set(0);
+        failed.set(0);
+        totalConfirmLatency.set(0);
+        maxConfirmLatency.set(0);
+        since = System.currentTimeMillis();
+    }
+}
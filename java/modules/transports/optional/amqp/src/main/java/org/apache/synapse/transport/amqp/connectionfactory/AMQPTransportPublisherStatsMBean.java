@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.transport.amqp.connectionfactory;
+
+/**
+ * JMX view of the publishing statistics of a channel pool.
+ */
+public interface AMQPTransportPublisherStatsMBean {
+
+    public long getPublished();
+
+    public long getConfirmed();
+
+    public long getNacked();
+
+    public long getRepublished();
+
+    public long getFailed();
+
+    public long getOutstandingConfirms();
+
+    public double getPublishRate();
+
+    public double getAverageConfirmLatency();
+
+    public double getMaxConfirmLatency();
+
+    public void reset();
+}
@@ -114,9 +114,9 @@ public class AMQPTransportReconnectHandler implements Runnable {
                     String name = (String) me.getKey();
                     Map<String, String> param = ((AMQPTransportConnectionFactory)
                             me.getValue()).getParameters();
-                    connectionFactoryManager.removeConnectionFactory(name);
-                    connectionFactoryManager.addConnectionFactory(
-                            name, new AMQPTransportConnectionFactory(param, es));
+                    // shuts down the replaced connection factory and its channel pool
+                    connectionFactoryManager.replaceConnectionFactory(
+                            name, new AMQPTransportConnectionFactory(name, param, es));
                     log.info("A new connection factory was created for -> '" + name + "'");
                 }
 
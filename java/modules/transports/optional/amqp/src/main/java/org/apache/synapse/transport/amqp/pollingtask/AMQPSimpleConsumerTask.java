@@ -26,8 +26,10 @@
  */
 package org.apache.synapse.transport.amqp.pollingtask;
 
+import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.QueueingConsumer;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.ShutdownSignalException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -90,23 +92,45 @@ public class AMQPSimpleConsumerTask {
         public void run() {
             try {
                 channel.queueDeclare(queueName, false, false, false, null);
-                QueueingConsumer queueingConsumer = new QueueingConsumer(channel);
-                channel.basicConsume(queueName, true, queueingConsumer);
-
-                QueueingConsumer.Delivery delivery = queueingConsumer.nextDelivery();
-                AMQPTransportMessage msg = new AMQPTransportMessage(delivery);
-                responseMessage.put(msg.getCorrelationId(), msg);
-                Semaphore semaphore = responseTracker.get(msg.getCorrelationId());
-                semaphore.release();
-
+                channel.basicConsume(queueName, true, new ResponseConsumer(
+                        channel, responseTracker, responseMessage));
             } catch (IOException e) {
                 log.error("I/O error occurred", e);
-            } catch (InterruptedException e) {
-                log.error("Retrieving task was interrupted", e);
-                Thread.currentThread().interrupt();
             } catch (ShutdownSignalException e) {
                 log.error("Shutdown signal was received for simple consumer task", e);
             }
         }
     }
+
+    /**
+     * Receives the response pushed by the broker, hands it over to the waiting sender and
+     * cancels itself
+     */
+    private static class ResponseConsumer extends DefaultConsumer {
+        Map<String, Semaphore> responseTracker;
+        Map<String, AMQPTransportMessage> responseMessage;
+
+        private ResponseConsumer(
+                Channel channel,
+                Map<String, Semaphore> responseTracker,
+                Map<String, AMQPTransportMessage> responseMessage) {
+            super(channel);
+            this.responseTracker = responseTracker;
+            this.responseMessage = responseMessage;
+        }
+
+        @Override
+        public void handleDelivery(String consumerTag,
+                                   Envelope envelope,
+                                   AMQP.BasicProperties properties,
+                                   byte[] body) throws IOException {
+            getChannel().basicCancel(consumerTag);
+            AMQPTransportMessage msg = new AMQPTransportMessage(envelope, properties, body);
+            responseMessage.put(msg.getCorrelationId(), msg);
+            Semaphore semaphore = responseTracker.get(msg.getCorrelationId());
+            if (semaphore != null) {
+                semaphore.release();
+            }
+        }
+    }
 }
\ No newline at end of file
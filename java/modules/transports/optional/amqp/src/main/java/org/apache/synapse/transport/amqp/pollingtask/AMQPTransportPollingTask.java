@@ -38,10 +38,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The polling task deploy for each services exposed on AMQP transport. This task
@@ -153,6 +155,37 @@ public class AMQPTransportPollingTask {
      */
     private int noOfConcurrentConsumers = 2;
 
+    /**
+     * The maximum number of concurrent consumers when the queue has a backlog, 0 for no scaling.
+     * {@link AMQPTransportConstant#PARAMETER_MAX_CONCURRENT_CONSUMERS}
+     */
+    private int maxConcurrentConsumers = 0;
+
+    /**
+     * The number of messages waiting in the queue per consumer above which a consumer is added.
+     * {@link AMQPTransportConstant#PARAMETER_CONSUMER_SCALE_THRESHOLD}
+     */
+    private int consumerScaleThreshold = 100;
+
+    /**
+     * The interval in milliseconds at which the backlog of the queue is checked.
+     * {@link AMQPTransportConstant#PARAMETER_CONSUMER_SCALE_INTERVAL}
+     */
+    private long consumerScaleInterval = 5000;
+
+    /**
+     * The number of unacknowledged messages delivered to each consumer. Messages are auto
+     * acknowledged if neither a prefetch count nor transactions are used.
+     * {@link AMQPTransportConstant#PARAMETER_CONSUMER_PREFETCH_COUNT}
+     */
+    private int consumerPrefetchCount = 0;
+
+    /**
+     * The number of processed messages acknowledged together, half the prefetch count by default.
+     * {@link AMQPTransportConstant#PARAMETER_CONSUMER_ACK_BATCH_SIZE}
+     */
+    private int consumerAckBatchSize = 0;
+
     /**
      * The name of the connectionFactory this service is bound to.
      * {@link AMQPTransportConstant#PARAMETER_CONNECTION_FACTORY_NAME}
@@ -208,7 +241,25 @@ public class AMQPTransportPollingTask {
 
     private String configuredContentType = AMQPTransportConstant.DEFAULT_CONTENT_TYPE;
 
-    private List<ScheduledFuture<?>> taskFutureList = new ArrayList<ScheduledFuture<?>>();
+    /**
+     * The active consumers, each consuming on its own channel.
+     */
+    private List<MessageConsumer> consumers = new ArrayList<MessageConsumer>();
+
+    /**
+     * The cancelled consumers, whose channel is closed once their deliveries are acknowledged.
+     */
+    private List<MessageConsumer> retiredConsumers = new ArrayList<MessageConsumer>();
+
+    /**
+     * The channel used to check the backlog of the queue, separate from the consumer channels
+     * as a failing passive declare closes the channel.
+     */
+    private Channel monitorChannel;
+
+    private ScheduledFuture<?> scalingTaskFuture;
+
+    private final AtomicBoolean recovering = new AtomicBoolean(false);
 
 
     private AMQPTransportReconnectHandler haHandler;
@@ -289,6 +340,26 @@ public class AMQPTransportPollingTask {
         this.noOfConcurrentConsumers = noOfConcurrentConsumers;
     }
 
+    public void setMaxConcurrentConsumers(int maxConcurrentConsumers) {
+        this.maxConcurrentConsumers = maxConcurrentConsumers;
+    }
+
+    public void setConsumerScaleThreshold(int consumerScaleThreshold) {
+        this.consumerScaleThreshold = consumerScaleThreshold;
+    }
+
+    public void setConsumerScaleInterval(long consumerScaleInterval) {
+        this.consumerScaleInterval = consumerScaleInterval;
+    }
+
+    public void setConsumerPrefetchCount(int consumerPrefetchCount) {
+        this.consumerPrefetchCount = consumerPrefetchCount;
+    }
+
+    public void setConsumerAckBatchSize(int consumerAckBatchSize) {
+        this.consumerAckBatchSize = consumerAckBatchSize;
+    }
+
     public void setConnectionFactoryName(String connectionFactoryName) {
         this.connectionFactoryName = connectionFactoryName;
     }
@@ -369,6 +440,18 @@ public class AMQPTransportPollingTask {
         return noOfConcurrentConsumers;
     }
 
+    public int getMaxConcurrentConsumers() {
+        return maxConcurrentConsumers;
+    }
+
+    public int getConsumerPrefetchCount() {
+        return consumerPrefetchCount;
+    }
+
+    public int getConsumerAckBatchSize() {
+        return consumerAckBatchSize;
+    }
+
     public TimeUnit getScheduledTaskTimeUnit() {
         return scheduledTaskTimeUnit;
     }
@@ -443,23 +526,27 @@ public class AMQPTransportPollingTask {
             pollingTaskScheduler.execute(new MessageDispatchTask(buffers));
         }
 
-        // schedule IO task to pull messages from the broker
+        // start the consumers the broker pushes messages to, each on its own channel as
+        // delivery tags and the prefetch window are scoped to the channel
         for (int i = 0; i < noOfConcurrentConsumers; i++) {
-            // only channels are thread safe, so create consumer per thread
             try {
-                QueueingConsumer consumer = new QueueingConsumer(channel);
-                boolean isAutoAck = isUseTx == true ? false : true; // increase readability
-                channel.basicConsume(queueName, isAutoAck, consumer);
-                ScheduledFuture<?> pollingTaskFuture = pollingTaskScheduler.scheduleWithFixedDelay(
-                        new MessageIOTask(consumer, buffers, isUseTx),
-                        scheduledTaskInitialDelay,
-                        scheduledTaskDelay,
-                        scheduledTaskTimeUnit);
-                taskFutureList.add(pollingTaskFuture);
+                addConsumer();
+            } catch (IOException e) {
+                handleException(e.getMessage(), e);
+            }
+        }
 
+        if (maxConcurrentConsumers > noOfConcurrentConsumers) {
+            try {
+                monitorChannel = channel.getConnection().createChannel();
             } catch (IOException e) {
                 handleException(e.getMessage(), e);
             }
+            scalingTaskFuture = pollingTaskScheduler.scheduleWithFixedDelay(
+                    new ConsumerScalingTask(),
+                    consumerScaleInterval,
+                    consumerScaleInterval,
+                    TimeUnit.MILLISECONDS);
         }
 
         if (log.isDebugEnabled()) {
@@ -472,90 +559,207 @@ public class AMQPTransportPollingTask {
      * Stop the polling tasks
      */
     public synchronized void stop() {
-        for (ScheduledFuture<?> pollingTaskFuture : taskFutureList) {
-            pollingTaskFuture.cancel(false);
+        if (scalingTaskFuture != null) {
+            scalingTaskFuture.cancel(false);
+            scalingTaskFuture = null;
+        }
+        for (MessageConsumer consumer : consumers) {
+            closeChannel(consumer.getChannel());
+        }
+        for (MessageConsumer consumer : retiredConsumers) {
+            closeChannel(consumer.getChannel());
+        }
+        consumers.clear();
+        retiredConsumers.clear();
+        if (monitorChannel != null) {
+            closeChannel(monitorChannel);
+            monitorChannel = null;
         }
     }
 
     /**
-     * The message dispatch task which dispatch messages from the source buffers to actual
-     * processing logic
+     * Start a new consumer on the queue. Consumers acknowledge the messages once processed if a
+     * prefetch count or transactions are used, and rely on auto acknowledgement otherwise.
+     *
+     * @throws IOException if the consumer could not be started
      */
-    private final class MessageIOTask implements Runnable {
+    private synchronized void addConsumer() throws IOException {
+        Channel consumerChannel = channel.getConnection().createChannel();
+        AMQPTransportAcknowledger acknowledger = null;
+        if (isUseTx || consumerPrefetchCount > 0) {
+            if (consumerPrefetchCount > 0) {
+                consumerChannel.basicQos(consumerPrefetchCount);
+            }
+            if (isUseTx) {
+                consumerChannel.txSelect();
+            }
+            int ackBatchSize = consumerAckBatchSize > 0 ?
+                    consumerAckBatchSize : Math.max(1, consumerPrefetchCount / 2);
+            acknowledger = new AMQPTransportAcknowledger(consumerChannel, ackBatchSize, isUseTx);
+        }
 
-        private AMQPTransportBuffers buffers;
-        private QueueingConsumer queueingConsumer;
-        private boolean isUseTx;
+        MessageConsumer consumer = new MessageConsumer(consumerChannel, acknowledger);
+        consumerChannel.basicConsume(queueName, acknowledger == null, consumer);
+        consumers.add(consumer);
+    }
 
-        private MessageIOTask(QueueingConsumer queueingConsumer,
-                              AMQPTransportBuffers buffers,
-                              boolean isAutoAck) {
-            this.queueingConsumer = queueingConsumer;
-            this.buffers = buffers;
-            this.isUseTx = isAutoAck;
+    /**
+     * Cancel the most recently started consumer. Its channel is closed once the messages
+     * already delivered to it have been processed.
+     *
+     * @throws IOException if the consumer could not be cancelled
+     */
+    private synchronized void removeConsumer() throws IOException {
+        MessageConsumer consumer = consumers.remove(consumers.size() - 1);
+        retiredConsumers.add(consumer);
+        consumer.getChannel().basicCancel(consumer.getConsumerTag());
+    }
+
+    private synchronized void closeRetiredConsumers() {
+        Iterator<MessageConsumer> it = retiredConsumers.iterator();
+        while (it.hasNext()) {
+            MessageConsumer consumer = it.next();
+            if (consumer.getAcknowledger() == null ||
+                    consumer.getAcknowledger().getUnacknowledged() == 0) {
+                closeChannel(consumer.getChannel());
+                it.remove();
+            }
         }
+    }
+
+    private void closeChannel(Channel ch) {
+        try {
+            if (ch.isOpen()) {
+                ch.close();
+            }
+        } catch (Exception e) {
+            log.warn("Error while closing a consumer channel of service '" + serviceName + "'", e);
+        }
+    }
+
+    /**
+     * The consumer the broker pushes the messages of the queue to, which hands them over to the
+     * request buffer
+     */
+    private final class MessageConsumer extends DefaultConsumer {
+
+        private AMQPTransportAcknowledger acknowledger;
+
+        private MessageConsumer(Channel channel, AMQPTransportAcknowledger acknowledger) {
+            super(channel);
+            this.acknowledger = acknowledger;
+        }
+
+        public AMQPTransportAcknowledger getAcknowledger() {
+            return acknowledger;
+        }
+
+        @Override
+        public void handleDelivery(String consumerTag,
+                                   Envelope envelope,
+                                   AMQP.BasicProperties properties,
+                                   byte[] body) {
+            AMQPTransportMessage message = new AMQPTransportMessage(envelope, properties, body);
+            if (acknowledger != null) {
+                acknowledger.delivered(envelope.getDeliveryTag());
+                message.setAcknowledger(acknowledger);
+            }
+            buffers.addRequestMessage(message);
+        }
+
+        @Override
+        public void handleCancel(String consumerTag) {
+            log.error("Polling task for service '" + serviceName + "' received a " +
+                    "cancellation signal");
+        }
+
+        @Override
+        public void handleShutdownSignal(String consumerTag, ShutdownSignalException e) {
+            if (e.isHardError() && !e.isInitiatedByApplication()) {
+                // broker is offline, recover once for all the consumers of the connection
+                log.error("Polling task for service '" + serviceName + "' received a " +
+                        "shutdown signal", e);
+                if (recovering.compareAndSet(false, true)) {
+                    pollingTaskScheduler.execute(new RecoveryTask());
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the connection to the broker to be re-established and re-deploys the polling
+     * task on the new channel
+     */
+    private final class RecoveryTask implements Runnable {
 
         public void run() {
             try {
-                if (isUseTx) {
-                    channel.txSelect();
+                Semaphore available = new Semaphore(0, true);
+                String key = UUID.randomUUID().toString();
+                haHandler.getBlockedTasks().add(new AMQPTransportHAEntry(
+                        available, key, connectionFactoryName));
+                try {
+                    available.acquire();
+                } catch (InterruptedException ie) {
+                    log.error("The blocking semaphore was interrupted", ie);
+                    Thread.currentThread().interrupt();
+                    return;
                 }
-                QueueingConsumer.Delivery delivery = queueingConsumer.nextDelivery();
-                if (delivery != null) {
-                    buffers.addRequestMessage(new AMQPTransportMessage(delivery));
-                    if (isUseTx) {
-                        channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
-                        channel.txCommit();
-                    }
+
+                AMQPTransportHABrokerEntry brokerEntry = haHandler.getConnectionMap().get(key);
+                if (brokerEntry == null) {
+                    log.error("No new connection factory was found for key '" + key + "'");
                 } else {
-                    if (isUseTx) {
-                        channel.txRollback();
+                    setChannel(brokerEntry.getChannel());
+                    stop();
+                    try {
+                        start();
+                        log.info("Worker task for service '" + serviceName + "' is re-deployed");
+                    } catch (AMQPTransportException ex) {
+                        log.error("Start of polling tasks failed. System must be restarted!");
                     }
                 }
-            } catch (InterruptedException e) {
-                log.error("Polling task was interrupted for service '" + serviceName + "'", e);
-                Thread.currentThread().interrupt();
-            } catch (IOException e) {
-                log.error("I/O error occurs for the polling tasks for service '" + serviceName +
-                        "'", e);
-            } catch (ShutdownSignalException e) {
+            } finally {
+                recovering.set(false);
+            }
+        }
+    }
 
-                if (e.isHardError()) {
-                    // broker is offline
-                    log.error("Polling task for service '" + serviceName + "' received a " +
-                            "shutdown signal", e);
-                    Semaphore available = new Semaphore(0, true);
-                    String key = UUID.randomUUID().toString();
-                    haHandler.getBlockedTasks().add(new AMQPTransportHAEntry(
-                            available, key, connectionFactoryName));
-                    try {
-                        available.acquire();
-                    } catch (InterruptedException ie) {
-                        log.error("The blocking semaphore was interrupted", e);
-                        Thread.currentThread().interrupt();
-                        return;
-                    }
+    /**
+     * Adds consumers while the backlog of the queue is above the scaling threshold, and
+     * removes them again once the queue is drained
+     */
+    private final class ConsumerScalingTask implements Runnable {
 
-                    AMQPTransportHABrokerEntry brokerEntry = haHandler.getConnectionMap().get(key);
-                    if (brokerEntry == null) {
-                        log.error("No new connection factory was found for key '" + key + "'");
-                    } else {
-                        setChannel(brokerEntry.getChannel());
-                        stop();
-                        try {
-                            start();
-                            log.info("Worker task for service '" + serviceName + "' is re-deployed");
-                        } catch (AMQPTransportException ex) {
-                            log.error("Start of polling tasks failed. System must be restarted!");
+        public void run() {
+            try {
+                int backlog = monitorChannel.queueDeclarePassive(queueName).getMessageCount();
+                synchronized (AMQPTransportPollingTask.this) {
+                    closeRetiredConsumers();
+                    int active = consumers.size();
+                    if (backlog > consumerScaleThreshold * active &&
+                            active < maxConcurrentConsumers) {
+                        addConsumer();
+                        if (log.isDebugEnabled()) {
+                            log.debug("Added a consumer for service '" + serviceName + "', " +
+                                    backlog + " messages waiting for " + (active + 1) +
+                                    " consumers");
+                        }
+                    } else if (backlog == 0 && active > noOfConcurrentConsumers &&
+                            buffers.getRequestMessageBuffer().isEmpty()) {
+                        removeConsumer();
+                        if (log.isDebugEnabled()) {
+                            log.debug("Removed a consumer for service '" + serviceName + "', " +
+                                    (active - 1) + " consumers left");
                         }
                     }
-                } else {
-                    // this is a shutdown signal for ctrl+c
                 }
-
-            } catch (ConsumerCancelledException e) {
-                log.error("Polling task for service '" + serviceName + "' received a " +
-                        "cancellation signal", e);
+            } catch (IOException e) {
+                log.warn("Could not check the backlog of the queue '" + queueName +
+                        "' for service '" + serviceName + "'", e);
+            } catch (ShutdownSignalException e) {
+                log.warn("Could not check the backlog of the queue '" + queueName +
+                        "' for service '" + serviceName + "'", e);
             }
         }
     }
@@ -611,6 +815,13 @@ public class AMQPTransportPollingTask {
                     log.error("Error while sending the fault message to the client. Client will " +
                             "not receive any errors!", e);
                 }
+            } finally {
+                try {
+                    message.acknowledge();
+                } catch (Exception e) {
+                    log.error("Could not acknowledge the message '" + message.getMessageId() +
+                            "' of service '" + serviceName + "'", e);
+                }
             }
         }
 
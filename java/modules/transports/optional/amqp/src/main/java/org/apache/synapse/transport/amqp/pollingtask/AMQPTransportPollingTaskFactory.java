@@ -169,6 +169,46 @@ public class AMQPTransportPollingTaskFactory {
             throw new AxisFault("Could not assign the number of concurrent consumers", e);
         }
 
+        try {
+            Integer maxConsumers = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_MAX_CONCURRENT_CONSUMERS,
+                    svcParam, conFacParam);
+            if (maxConsumers != null) {
+                pt.setMaxConcurrentConsumers(maxConsumers);
+            }
+            Integer scaleThreshold = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_CONSUMER_SCALE_THRESHOLD,
+                    svcParam, conFacParam);
+            if (scaleThreshold != null) {
+                pt.setConsumerScaleThreshold(scaleThreshold);
+            }
+            Integer scaleInterval = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_CONSUMER_SCALE_INTERVAL,
+                    svcParam, conFacParam);
+            if (scaleInterval != null) {
+                pt.setConsumerScaleInterval(scaleInterval);
+            }
+        } catch (AMQPTransportException e) {
+            throw new AxisFault("Could not assign the consumer scaling values", e);
+        }
+
+        try {
+            Integer prefetchCount = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_CONSUMER_PREFETCH_COUNT,
+                    svcParam, conFacParam);
+            if (prefetchCount != null) {
+                pt.setConsumerPrefetchCount(prefetchCount);
+            }
+            Integer ackBatchSize = AMQPTransportUtils.getOptionalIntParameter(
+                    AMQPTransportConstant.PARAMETER_CONSUMER_ACK_BATCH_SIZE,
+                    svcParam, conFacParam);
+            if (ackBatchSize != null) {
+                pt.setConsumerAckBatchSize(ackBatchSize);
+            }
+        } catch (AMQPTransportException e) {
+            throw new AxisFault("Could not assign the consumer prefetch values", e);
+        }
+
         try {
             Integer dispatchingTask = AMQPTransportUtils.getOptionalIntParameter(
                     AMQPTransportConstant.PARAMETER_DISPATCHING_TASK_SIZE,
@@ -232,6 +272,9 @@ public class AMQPTransportPollingTaskFactory {
                     "Is queue auto deleted: '" + pt.isQueueAutoDelete() + "'\n" +
                     "Is blocking mode: '" + pt.isBlockingMode() + "'\n" +
                     "Number of concurrent consumers: '" + pt.getNoOfConcurrentConsumers() + "'\n" +
+                    "Maximum concurrent consumers: '" + pt.getMaxConcurrentConsumers() + "'\n" +
+                    "Consumer prefetch count: '" + pt.getConsumerPrefetchCount() + "'\n" +
+                    "Consumer ack batch size: '" + pt.getConsumerAckBatchSize() + "'\n" +
                     "Number of dispatching task: '" + pt.getNoOfDispatchingTask() + "'");
         }
 
@@ -37,6 +37,7 @@ import org.apache.axis2.transport.base.BaseUtils;
 import org.apache.axis2.util.MessageProcessorSelector;
 import org.apache.synapse.transport.amqp.AMQPTransportConstant;
 import org.apache.synapse.transport.amqp.AMQPTransportException;
+import org.apache.synapse.transport.amqp.connectionfactory.AMQPTransportChannelPool;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -53,6 +54,11 @@ public class AMQPSender {
 
     private Channel channel = null;
 
+    /**
+     * The pool of publishing channels of the connection factory, null if pooling is disabled.
+     */
+    private AMQPTransportChannelPool channelPool = null;
+
     private String queueName = null;
 
     private String exchangeName = null;
@@ -63,6 +69,10 @@ public class AMQPSender {
         this.channel = channel;
     }
 
+    public void setChannelPool(AMQPTransportChannelPool channelPool) {
+        this.channelPool = channelPool;
+    }
+
     public void setExchangeName(String exchangeName) {
         this.exchangeName = exchangeName;
     }
@@ -79,7 +89,19 @@ public class AMQPSender {
         return channel;
     }
 
-    public void sendAMQPMessage(MessageContext mc, String correlationId, String replyTo)
+    /**
+     * Publish the message. Messages are published on a pooled channel unless the publish is
+     * part of a transaction on the channel of this sender.
+     *
+     * @param mc            the message to publish
+     * @param correlationId the correlation id of the message
+     * @param replyTo       the queue the response should be sent to, if any
+     * @param transactional true if the publish is part of a transaction on {@link #getChannel()}
+     * @throws AMQPTransportException in case of an error
+     * @throws IOException            if the message could not be published
+     */
+    public void sendAMQPMessage(MessageContext mc, String correlationId, String replyTo,
+                                boolean transactional)
             throws AMQPTransportException, IOException {
 
         OMOutputFormat format = BaseUtils.getOMOutputFormat(mc);
@@ -178,14 +200,20 @@ public class AMQPSender {
         formatter.writeTo(mc, format, out, false);
         byte[] msg = out.toByteArray();
 
+        String exchange;
+        String key;
         if (exchangeName != null) {
-            if (routingKey != null) {
-                channel.basicPublish(exchangeName, routingKey, builder.build(), msg);
-            } else {
-                channel.basicPublish(exchangeName, "", builder.build(), msg);
-            }
+            exchange = exchangeName;
+            key = routingKey != null ? routingKey : "";
+        } else {
+            exchange = "";
+            key = queueName;
+        }
+
+        if (channelPool != null && !transactional) {
+            channelPool.publish(exchange, key, builder.build(), msg);
         } else {
-            channel.basicPublish("", queueName, builder.build(), msg);
+            channel.basicPublish(exchange, key, builder.build(), msg);
         }
     }
 
@@ -74,6 +74,7 @@ public class AMQPSenderFactory {
                     params.get(AMQPTransportConstant.PARAMETER_CONNECTION_FACTORY_NAME));
             channel = connFac.getChannel();
             as.setChannel(channel);
+            as.setChannelPool(connFac.getChannelPool());
         } catch (AMQPTransportException e) {
             throw new AxisFault("Could not retrieve the channel", e);
         }
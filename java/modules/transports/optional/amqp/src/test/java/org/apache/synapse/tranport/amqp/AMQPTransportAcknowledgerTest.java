@@ -0,0 +1,117 @@
+/*
+ * Copyright WSO2, Inc. (http://wso2.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.tranport.amqp;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import junit.framework.TestCase;
+import org.apache.synapse.transport.amqp.AMQPTransportAcknowledger;
+import org.apache.synapse.transport.amqp.AMQPTransportMessage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AMQPTransportAcknowledgerTest extends TestCase {
+
+    /**
+     * The multiple acks received by the channel stand-in, as delivery tags.
+     */
+    private List<Long> acks = new ArrayList<Long>();
+
+    private int commits = 0;
+
+    private Channel channel;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        channel = (Channel) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Channel.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("basicAck".equals(method.getName())) {
+                    assertTrue("Only multiple acks are expected", (Boolean) args[1]);
+                    acks.add((Long) args[0]);
+                } else if ("txCommit".equals(method.getName())) {
+                    commits++;
+                }
+                return null;
+            }
+        });
+    }
+
+    public void testBatchedAcks() throws Exception {
+        AMQPTransportAcknowledger acknowledger = new AMQPTransportAcknowledger(channel, 3, false);
+        for (long tag = 1; tag <= 10; tag++) {
+            acknowledger.delivered(tag);
+        }
+        acknowledger.completed(1);
+        acknowledger.completed(2);
+        assertTrue(acks.isEmpty());
+        acknowledger.completed(3);
+        assertEquals(1, acks.size());
+        assertEquals(3L, acks.get(0).longValue());
+        assertEquals(7, acknowledger.getUnacknowledged());
+    }
+
+    public void testOutOfOrderCompletion() throws Exception {
+        AMQPTransportAcknowledger acknowledger = new AMQPTransportAcknowledger(channel, 2, false);
+        for (long tag = 1; tag <= 5; tag++) {
+            acknowledger.delivered(tag);
+        }
+        acknowledger.completed(2);
+        acknowledger.completed(3);
+        acknowledger.completed(4);
+        // delivery 1 is still in progress, nothing can be acknowledged
+        assertTrue(acks.isEmpty());
+        acknowledger.completed(1);
+        assertEquals(4L, acks.get(0).longValue());
+        assertEquals(1, acknowledger.getUnacknowledged());
+    }
+
+    public void testAckWhenWindowDrained() throws Exception {
+        // a batch larger than the deliveries in flight must not stall the prefetch window
+        AMQPTransportAcknowledger acknowledger = new AMQPTransportAcknowledger(channel, 100, true);
+        acknowledger.delivered(1);
+        acknowledger.delivered(2);
+        acknowledger.completed(1);
+        assertTrue(acks.isEmpty());
+        acknowledger.completed(2);
+        assertEquals(2L, acks.get(0).longValue());
+        assertEquals(1, commits);
+        assertEquals(0, acknowledger.getUnacknowledged());
+    }
+
+    public void testMessageAcknowledge() throws Exception {
+        AMQPTransportAcknowledger acknowledger = new AMQPTransportAcknowledger(channel, 1, false);
+        AMQPTransportMessage message = new AMQPTransportMessage(
+                new Envelope(1, false, "", "queue"), new AMQP.BasicProperties(), new byte[0]);
+        acknowledger.delivered(1);
+        message.setAcknowledger(acknowledger);
+        message.acknowledge();
+        assertEquals(1L, acks.get(0).longValue());
+
+        // messages without an acknowledger were auto acknowledged on delivery
+        acks.clear();
+        AMQPTransportMessage autoAcked = new AMQPTransportMessage(
+                new Envelope(1, false, "", "queue"), new AMQP.BasicProperties(), new byte[0]);
+        autoAcked.acknowledge();
+        assertTrue(acks.isEmpty());
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.synapse.tranport.amqp;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import junit.framework.TestCase;
+import org.apache.synapse.transport.amqp.connectionfactory.AMQPTransportChannelPool;
+import org.apache.synapse.transport.amqp.connectionfactory.AMQPTransportPublisherStats;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class AMQPTransportChannelPoolTest extends TestCase {
+
+    /**
+     * The confirm listeners registered on the channel stand-ins, one per created channel.
+     */
+    private List<ConfirmListener> listeners = new ArrayList<ConfirmListener>();
+
+    /**
+     * The routing keys of the messages published on the channel stand-ins.
+     */
+    private final List<String> published = new ArrayList<String>();
+
+    /**
+     * The number of channels created on the connection stand-in.
+     */
+    private int createdChannels = 0;
+
+    private Connection connection;
+
+    /**
+     * Publishes with publisher confirms, which block until the test settles the confirms.
+     */
+    private ExecutorService publisher;
+
+    private ExecutorService executor;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newSingleThreadExecutor();
+        publisher = Executors.newCachedThreadPool();
+        connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Connection.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("createChannel".equals(method.getName())) {
+                    return createChannel();
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        publisher.shutdownNow();
+        executor.shutdownNow();
+        super.tearDown();
+    }
+
+    private Channel createChannel() {
+        createdChannels++;
+        return (Channel) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{Channel.class}, new InvocationHandler() {
+            private long seqNo = 1;
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("isOpen".equals(name)) {
+                    return Boolean.TRUE;
+                } else if ("getNextPublishSeqNo".equals(name)) {
+                    return seqNo;
+                } else if ("basicPublish".equals(name)) {
+                    seqNo++;
+                    synchronized (published) {
+                        published.add((String) args[1]);
+                    }
+                } else if ("addConfirmListener".equals(name)) {
+                    listeners.add((ConfirmListener) args[0]);
+                }
+                return null;
+            }
+        });
+    }
+
+    public void testDestinationIsPinnedToOneChannel() throws Exception {
+        AMQPTransportChannelPool pool = new AMQPTransportChannelPool("ordering", connection,
+                executor, 4, false, 10, 3, 1000);
+        try {
+            for (int i = 0; i < 10; i++) {
+                pool.publish("", "queue", new AMQP.BasicProperties(), new byte[0]);
+            }
+            assertEquals(1, createdChannels);
+            assertEquals(10, published.size());
+        } finally {
+            pool.shutdown(0);
+        }
+    }
+
+    public void testConfirms() throws Exception {
+        final AMQPTransportChannelPool pool = new AMQPTransportChannelPool("confirms",
+                connection, executor, 2, true, 10, 3, 10000);
+        try {
+            List<Future<?>> sends = new ArrayList<Future<?>>();
+            for (int i = 0; i < 3; i++) {
+                sends.add(publish(pool, "queue"));
+                awaitPublished(i + 1);
+            }
+            // the messages to the same destination are published on the same channel
+            assertEquals(1, listeners.size());
+
+            AMQPTransportPublisherStats stats = pool.getStats();
+            assertEquals(3, stats.getPublished());
+            assertEquals(3, stats.getOutstandingConfirms());
+
+            listeners.get(0).handleAck(2, true);
+            sends.get(0).get(10, TimeUnit.SECONDS);
+            sends.get(1).get(10, TimeUnit.SECONDS);
+            assertFalse(sends.get(2).isDone());
+            assertEquals(2, stats.getConfirmed());
+            assertEquals(1, stats.getOutstandingConfirms());
+
+            listeners.get(0).handleAck(3, false);
+            sends.get(2).get(10, TimeUnit.SECONDS);
+            assertEquals(3, stats.getConfirmed());
+            assertEquals(0, stats.getOutstandingConfirms());
+        } finally {
+            pool.shutdown(0);
+        }
+    }
+
+    public void testRepublishNacked() throws Exception {
+        AMQPTransportChannelPool pool = new AMQPTransportChannelPool("nacks", connection,
+                executor, 1, true, 10, 1, 10000);
+        try {
+            Future<?> send = publish(pool, "nacked");
+            awaitPublished(1);
+            listeners.get(0).handleNack(1, false);
+            awaitPublished(2);
+
+            AMQPTransportPublisherStats stats = pool.getStats();
+            assertEquals(1, stats.getNacked());
+            assertEquals(1, stats.getRepublished());
+            assertEquals("nacked", published.get(1));
+            assertFalse(send.isDone());
+
+            // the republished message is nacked again and given up on
+            listeners.get(0).handleNack(2, false);
+            try {
+                send.get(10, TimeUnit.SECONDS);
+                fail("The sender should be told that the message was not published");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            assertEquals(1, stats.getFailed());
+            assertEquals(2, published.size());
+            assertEquals(0, stats.getOutstandingConfirms());
+        } finally {
+            pool.shutdown(0);
+        }
+    }
+
+    private Future<?> publish(final AMQPTransportChannelPool pool, final String routingKey) {
+        return publisher.submit(new Callable<Object>() {
+            public Object call() throws Exception {
+                pool.publish("", routingKey, new AMQP.BasicProperties(), new byte[0]);
+                return null;
+            }
+        });
+    }
+
+    private void awaitPublished(int count) throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            synchronized (published) {
+                if (published.size() >= count) {
+                    return;
+                }
+            }
+            Thread.sleep(10);
+        }
+        fail("Timed out waiting for " + count + " messages to be published");
+    }
+}